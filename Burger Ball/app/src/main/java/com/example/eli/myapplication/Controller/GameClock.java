@@ -0,0 +1,18 @@
+package com.example.eli.myapplication.Controller;
+
+/**
+ * Source of real time for GameEngine.advanceTime. The default reads System.nanoTime(), but any
+ * monotonic clock can be set with GameEngine.setClock (for example, to run levels without a
+ * display, using made-up frame times).
+ */
+public interface GameClock {
+
+    GameClock SYSTEM = new GameClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    long nanoTime();
+}
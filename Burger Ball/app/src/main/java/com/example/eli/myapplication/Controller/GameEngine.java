@@ -5,22 +5,36 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.PointF;
 import android.media.MediaPlayer;
+import android.os.Build;
 import android.opengl.GLES30;
 import android.opengl.Matrix;
 
 import com.example.eli.myapplication.Logic.Ball.ActivateBallLogic;
 import com.example.eli.myapplication.Logic.Ball.BallEngine;
+import com.example.eli.myapplication.Logic.Broadphase.BruteForcePairs;
+import com.example.eli.myapplication.Logic.Broadphase.CollisionPairs;
+import com.example.eli.myapplication.Logic.Broadphase.PairSource;
+import com.example.eli.myapplication.Logic.Broadphase.StaticAabbTree;
+import com.example.eli.myapplication.Logic.Broadphase.StaticDistanceField;
+import com.example.eli.myapplication.Logic.Broadphase.SweepAndPrune;
+import com.example.eli.myapplication.Logic.Broadphase.UniformGrid;
+import com.example.eli.myapplication.Logic.CollisionBuffer;
 import com.example.eli.myapplication.Logic.CollisionDetection;
+import com.example.eli.myapplication.Logic.ParallelNarrowphase;
+import com.example.eli.myapplication.Logic.SeparatingAxisCache;
+import com.example.eli.myapplication.Logic.CollisionEventQueue;
 import com.example.eli.myapplication.Logic.CollisionHandling;
+import com.example.eli.myapplication.Logic.CollisionStatistics;
 import com.example.eli.myapplication.Logic.SoundEngine;
 import com.example.eli.myapplication.Model.EndLevelFailImage;
 import com.example.eli.myapplication.Model.EndLevelSuccessImage;
 import com.example.eli.myapplication.Model.FinalScoreText;
-import com.example.eli.myapplication.Model.InvalidBallPositionException;
 import com.example.eli.myapplication.R;
 import com.example.eli.myapplication.Resources.CommonFunctions;
 import com.example.eli.myapplication.Resources.GameState;
+import com.example.eli.myapplication.Resources.GameState.CollisionSchedule;
 import com.example.eli.myapplication.Resources.GameState.GameStatus;
+import com.example.eli.myapplication.Resources.GameState.PairSourceType;
 import com.example.eli.myapplication.Model.Interactable;
 import com.example.eli.myapplication.Resources.LevelData;
 import com.example.eli.myapplication.Logic.LevelInitialization;
@@ -33,24 +47,65 @@ import com.example.eli.myapplication.Logic.ParticleEngine;
 import com.example.eli.myapplication.Model.ScoreDigits;
 import com.example.eli.myapplication.Model.Target;
 import com.example.eli.myapplication.Model.MovingObstacle;
+import com.example.eli.myapplication.Model.Obstacle;
 
 import java.util.ArrayList;
 
 /**
  * This class contains code for the main game loop. First, loadLevel should be called from
- * MyGLRenderer.onSurfaceCreate, and after that advanceFrame and drawObjects are
- * called every GUI frame from MyGLRenderer.onDrawFrame.
+ * MyGLRenderer.onSurfaceCreate. After that, advanceTime is called repeatedly, either by a PhysicsThread
+ * or every GUI frame from MyGLRenderer.onDrawFrame, and drawObjects is called every GUI frame.
+ *
+ * drawObjects never reads the game objects' physics state directly. Instead, advanceTime publishes a
+ * RenderSnapshot at the end of every frame, and drawObjects draws from the latest one, so the two can run on
+ * different threads.
  */
 public class GameEngine {
 
-    private GameStatus currentLevelStatus = GameStatus.BEFORE_PLAY;
+    private volatile GameStatus currentLevelStatus = GameStatus.BEFORE_PLAY;
     private boolean success = false;
 
     public final static String END_LEVEL_SCORE = "com.example.eli.myapplication.END_LEVEL_SCORE";
 
-    //All active objects that need to be collision checked are added to this collection
+    //All objects that need to be collision checked are added to this collection. Collected targets stay in it
+    // (see mTargetCollected); they are removed from the pair source instead.
     private ArrayList<Interactable> allInteractableObjects;
 
+    //Broadphase over allInteractableObjects, so balls are only tested against nearby objects
+    private PairSourceType pairSourceType = GameState.DEFAULT_PAIR_SOURCE;
+    private PairSource pairSource;
+    private CollisionPairs collisionPairs;
+    private CollisionStatistics collisionStatistics = new CollisionStatistics();
+
+    //Lets a ball skip every static obstacle during a step it can't get near any of them (indexed by ball slot)
+    private StaticDistanceField staticDistanceField;
+    private boolean[] ballClearOfStaticObstacles;
+
+    //Reused for every frame step, rather than created each time
+    private CollisionDetection collisionDetection;
+    private SeparatingAxisCache separatingAxisCache;
+    private CollisionHandling collisionHandling = new CollisionHandling();
+
+    //Splits detailed collision testing across threads in scenes with a lot of pairs (null if it is never split)
+    private int narrowphaseWorkers = GameState.NARROWPHASE_WORKERS;
+    private int parallelNarrowphaseMinPairs = GameState.PARALLEL_NARROWPHASE_MIN_PAIRS;
+    private ParallelNarrowphase parallelNarrowphase;
+
+    //Most sub-steps and pair tests a frame may use (see isFrameOverBudget)
+    private int maxSubStepsPerFrame = GameState.MAX_SUB_STEPS_PER_FRAME;
+    private int maxPairTestsPerFrame = GameState.MAX_PAIR_TESTS_PER_FRAME;
+
+    //Only used by the EVENT_QUEUE collision schedule (see advanceFrameStepEventQueue)
+    private CollisionSchedule collisionSchedule = GameState.DEFAULT_COLLISION_SCHEDULE;
+    private CollisionEventQueue collisionEventQueue;
+    private CollisionBuffer scheduledCollisions = new CollisionBuffer(GameState.COLLISION_BUFFER_CAPACITY);
+    //Indexed by ball slot
+    private boolean[] ballTrajectoryChanged;   //Needs re-testing at the next step
+    private boolean[] ballNeedsTesting;        //Being re-tested during the current step
+    private Ball.ballStatus[] prevBallStates;
+    private float[] prevBallVelocityX;
+    private float[] prevBallVelocityY;
+
     //All active objects that only need to be drawn (not collision checked) are added to this collection
     private ArrayList<Drawable> allDrawableObjects;
     private ArrayList<MovingObstacle> allMovingObstacles;
@@ -67,17 +122,46 @@ public class GameEngine {
     private int mTotalBalls;    //Number of total balls available this level
     private int mTotalTargets;  //Number of total targets this level
 
-    private int mCurrentActiveBallID = 0;  //The current active ball index
+    private volatile int mCurrentActiveBallID = 0;  //The current active ball index
 
-    //can't add a new ball while in the middle of a frame, may cause a concurrent modification error.
-    //So we'll setup flags to determine whether we are in the middle of a frame, and whether a ball is waiting.
+    //A ball can't be added while another ball is still sitting where it starts,
+    //so it waits (and is added at the start of a later frame).
     private boolean mBallWaiting;          //True if we are waiting to add a ball
 
+    //Touch input from MyGLSurfaceView, run at the start of the next frame (see drainInputCommands)
+    private InputCommandQueue mInputCommands = new InputCommandQueue(GameState.INPUT_QUEUE_CAPACITY);
+    private InputCommand mInputCommand = new InputCommand();
+    private int mInputCommandCount = 0;
+    private long mInputDelaySum = 0;   //Time between queueing and running commands, in nanoseconds
+    private long mInputDelayMax = 0;
+
     private boolean mInitialRender = false;
 
     //Frame size stuff
-    private float mCurrentFrameSize;  //Current frame size (will be different every frame if GameState.VARIABLE_FRAME_SIZE is true)
-    private float[] mFrameSizeHistory = new float[3];  //History of past frame sizes (used for taking the average)
+    private float mCurrentFrameSize;  //Current frame size
+
+    //Fixed timestep stuff (see advanceTime)
+    private static final long FRAME_LENGTH_NANOS = 1000000000L / GameState.FRAMES_PER_SECOND;
+    private GameClock mClock = GameClock.SYSTEM;
+    private long mLastClockTime = -1;       //Clock time at the last call to advanceTime (-1 before the first call)
+    private long mAccumulatedNanos = 0;     //Real time that hasn't been turned into frames yet
+
+    //Render snapshots (see RenderSnapshotBuffer), published at the end of every frame
+    private RenderSnapshotBuffer mSnapshots;
+    private long mPublishedFrames = 0;
+    private boolean[] mTargetCollected;     //Indexed by interactable id
+    private int mShownScore;                //Score currently shown by the score digits
+
+    //Only used while drawing
+    private RenderSnapshot mDrawnSnapshot;
+    private long mDrawnFrameNumber;
+    private float[] mDrawnBallRotation;
+    private int mDrawnScore;
+    private boolean mScoreDigitsMoved = false;
+    private float[] mInterpolatedModelMatrix = new float[16];
+
+    private PhysicsThread mPhysicsThread;
+    private volatile boolean mExited = false;   //True once the level has returned to the select screen
 
     //All of these are used to determine the FPS the game is running at.
     private float mPrevTime = 0;  //The time of the previous frame
@@ -85,21 +169,18 @@ public class GameEngine {
     private int levelEndFrameCount = 0;
     private float[] timesPerFrame = new float[10];  //Array to keep a running tally of the average FPS
     private float sumTotal = 0;  //Total time
-    private float mLastTenFrameAvg = 0;  //Average length (in millisec) of the last ten frames
 
     //These are used for calculating avg discrepancy at the end of the level.
     //'Discrepancy' measures how large the variation is between frame lengths. It is calculated
     //every 10 frames, using the formula: (longest frame - shortest frame) / longest frame.
     // A high discrepancy is bad, because that means that the frame length isn't very consistent,
-    // and may appear jittery to the user. The GameState.AUTO_CAP_FRAME_RATE_SIZE variable tries to automatically
-    // keep discrepancy down by setting an ideal GameState.FRAME_RATE_CAP_SIZE, but it may be helpful
-    // to manually set GameState.FRAME_RATE_CAP_SIZE for better results.
+    // and may appear jittery to the user.
     private float discrepancySum = 0;
     private float discrepancyCounter = 0;
 
     private Circle mVelocityArrow;
-    private float[] mVelocityArrowCoords;
-    private boolean mIsVelocityArrowActive;
+    private volatile float[] mVelocityArrowCoords;
+    private volatile boolean mIsVelocityArrowActive;
 
     private int currentScore = 100000;
 
@@ -111,6 +192,7 @@ public class GameEngine {
     private ParticleEngine particleEngine;
 
     private BallEngine ballEngine;
+    private PointF mDisplacement = new PointF();   //Scratch, so moving the balls each step doesn't allocate
 
     private EndLevelSuccessImage endLevelSuccessImage;
     private EndLevelFailImage endLevelFailImage;
@@ -139,12 +221,16 @@ public class GameEngine {
     //Load a level
     //
     public void loadLevel(){
+        //Grab the level data (number of balls, coordinates of objects, etc)
+        loadLevel(new LevelData(mChapter,mLevel));
+    }
+
+    //Load a level that isn't one of the sets (only used by tests)
+    void loadLevel(LevelData currentLevelData){
 
         //Initialize particle engine
         particleEngine = new ParticleEngine(mChapter);
 
-        //Grab the level data (number of balls, coordinates of objects, etc)
-        LevelData currentLevelData = new LevelData(mChapter,mLevel);
         mTotalBalls = currentLevelData.getNumOfBalls();
         mTotalTargets = currentLevelData.getNumOfTargets();
 
@@ -160,8 +246,35 @@ public class GameEngine {
         mVelocityArrow = levelInitialization.getVelocityArrow();
         initialBallCoords = levelInitialization.getNewBallCoords();
 
+        //Set up the broadphase. Static objects are added once here, balls and moving obstacles are updated as they move
+        collisionPairs = new CollisionPairs(allInteractableObjects);
+        pairSource = createPairSource(pairSourceType);
+        staticDistanceField = StaticDistanceField.load(allInteractableObjects, (mActivityContext != null) ? mActivityContext.getCacheDir() : null);
+
         //Initialize ball engine
-        ballEngine = new BallEngine(initialBallCoords);
+        ballEngine = new BallEngine(initialBallCoords, mAllBalls.size());
+        separatingAxisCache = new SeparatingAxisCache(allInteractableObjects, mAllBalls.size());
+        collisionDetection = new CollisionDetection(ballEngine, separatingAxisCache);
+        createParallelNarrowphase();
+
+        collisionEventQueue = new CollisionEventQueue(allInteractableObjects, GameState.COLLISION_BUFFER_CAPACITY);
+        ballTrajectoryChanged = new boolean[mAllBalls.size()];
+        ballNeedsTesting = new boolean[mAllBalls.size()];
+        ballClearOfStaticObstacles = new boolean[mAllBalls.size()];
+        prevBallStates = new Ball.ballStatus[mAllBalls.size()];
+        prevBallVelocityX = new float[mAllBalls.size()];
+        prevBallVelocityY = new float[mAllBalls.size()];
+
+        //Publish the starting state, so the level can be drawn before the first frame is run
+        mTargetCollected = new boolean[getIdCapacity()];
+        mSnapshots = new RenderSnapshotBuffer(mAllBalls.size(), allMovingObstacles.size(), mTargetCollected.length);
+        mShownScore = currentScore;
+        mPublishedFrames = 0;
+        publishSnapshot(0);
+        mDrawnFrameNumber = 0;
+        mDrawnBallRotation = new float[mAllBalls.size()];
+        mDrawnScore = currentScore;
+        mScoreDigitsMoved = false;
 
         //End level images
         endLevelSuccessImage = levelInitialization.getEndLevelSuccessImage();
@@ -175,11 +288,11 @@ public class GameEngine {
     }
 
     //----------------------
-    //This function activates a ball. It is called when a user
+    //This function activates a ball. It is called (through a FIRE input command) when a user
     //has dragged and released from within the response radius (specified in GameState).
-    //if the ball collections are currently in use (e.g. collision detection is happening or balls are being drawn),
-    //then we will set a flag to wait until the ball collection is free to activate the ball. Otherwise, we could
-    //get a concurrent modification error from the ArrayList.
+    //It must only be called from the thread running the game.
+    //if another ball is still where the new ball starts, then we will set a flag to wait
+    //until it has moved out of the way, and activate the ball at the start of a later frame.
     //PARAMS:
     //  initialVelocity- The velocity that the ball will be activated with (determined by GameState.calculateInitialVelocity)
     //
@@ -219,7 +332,170 @@ public class GameEngine {
 
     }
 
-    //Main method called by MyGLRenderer each frame
+    /**
+     * Main method, called repeatedly by the PhysicsThread (or by MyGLRenderer every time the screen is drawn).
+     *
+     * The game always advances in whole frames of GameState.FRAME_SIZE, GameState.FRAMES_PER_SECOND times per
+     * second of real time, however often this is called. The real time since the last call is added to an
+     * accumulator, and as many whole frames are run as it covers (possibly none). A snapshot is published after
+     * every frame, along with the time it was run up to, which drawObjects uses to decide how far between the last
+     * two frames the balls and moving obstacles are drawn.
+     */
+    public void advanceTime(){
+        long currentTime = mClock.nanoTime();
+
+        if (mLastClockTime == -1) {
+            mLastClockTime = currentTime;
+        }
+
+        mAccumulatedNanos = mAccumulatedNanos + (currentTime - mLastClockTime);
+        mLastClockTime = currentTime;
+
+        //Don't try to catch up on a long pause all at once
+        mAccumulatedNanos = Math.min(mAccumulatedNanos, GameState.MAX_FRAMES_PER_DRAW * FRAME_LENGTH_NANOS);
+
+        while (mAccumulatedNanos >= FRAME_LENGTH_NANOS) {
+            advanceFixedFrame();
+            mAccumulatedNanos = mAccumulatedNanos - FRAME_LENGTH_NANOS;
+            publishSnapshot(mLastClockTime - mAccumulatedNanos);
+        }
+    }
+
+    //How long until advanceTime has another whole frame to run
+    public long getNanosUntilNextFrame(){
+        return Math.max(FRAME_LENGTH_NANOS - mAccumulatedNanos, 0);
+    }
+
+    //Frames advanceTime has run since the level was loaded (every one but the first snapshot)
+    public long getFramesRun(){
+        return mPublishedFrames - 1;
+    }
+
+    //Set the clock used by advanceTime (GameClock.SYSTEM by default)
+    public void setClock(GameClock clock){
+        mClock = clock;
+        mLastClockTime = -1;
+        mAccumulatedNanos = 0;
+    }
+
+    /**
+     * Queue a touch input, to be run at the start of the next frame. Called from the UI thread by MyGLSurfaceView.
+     * PARAMS:
+     *   type - What happened (see InputCommand.Type)
+     *   x, y - How far the ball has been pulled back, in screen coordinates (DRAG and FIRE only)
+     */
+    public void queueInput(InputCommand.Type type, float x, float y){
+        mInputCommands.offer(type, x, y, mClock.nanoTime());
+    }
+
+    //Run every input command queued since the last frame, in order
+    private void drainInputCommands(){
+        while (mInputCommands.poll(mInputCommand)) {
+            long delay = mClock.nanoTime() - mInputCommand.getTime();
+            mInputCommandCount++;
+            mInputDelaySum = mInputDelaySum + delay;
+            mInputDelayMax = Math.max(mInputDelayMax, delay);
+
+            //Once the level is over, input is ignored
+            if (isLevelComplete()) {
+                continue;
+            }
+
+            switch (mInputCommand.getType()) {
+                case AIM_START:
+                    //Nothing changes until the ball is dragged
+                    break;
+
+                case DRAG:
+                    redrawArrow(mInputCommand.getX(), mInputCommand.getY());
+                    break;
+
+                case FIRE:
+                    activateBall(CommonFunctions.calculateInitialVelocity(mInputCommand.getX(), mInputCommand.getY()));
+                    disableVelocityArrow();
+                    break;
+
+                case CANCEL:
+                    disableVelocityArrow();
+                    break;
+            }
+        }
+    }
+
+    private void advanceFixedFrame(){
+
+        //Input is run before every frame (whatever state the level is in), so the first ball can be fired
+        drainInputCommands();
+
+        switch (currentLevelStatus) {
+            case BEFORE_PLAY:
+                advanceMovingObstacles();
+                break;
+
+            case ACTIVE:
+                advanceFrame();
+                break;
+
+            case POST_PLAY:
+                advancePostPlay();
+                break;
+        }
+    }
+
+    /**
+     * Copy everything drawObjects needs out of the game objects, and hand it over to the renderer.
+     * PARAMS:
+     *   frameEndTime - Clock time the game has been run up to
+     */
+    private void publishSnapshot(long frameEndTime){
+        RenderSnapshot snapshot = mSnapshots.getBackBuffer();
+
+        snapshot.frameNumber = mPublishedFrames++;
+        snapshot.frameEndTime = frameEndTime;
+        snapshot.levelStatus = currentLevelStatus;
+        snapshot.success = success;
+        snapshot.levelEndFrameCount = levelEndFrameCount;
+        snapshot.score = mShownScore;
+
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            int slot = currentBall.getBallSlot();
+            PointF velocity = currentBall.getVelocity();
+
+            snapshot.ballVisible[slot] = !currentBall.isBallInactive();
+            snapshot.ballEmitsParticles[slot] = currentBall.isBallActive();
+            System.arraycopy(currentBall.getModelMatrix(), 0, snapshot.ballModelMatrices, slot * 16, 16);
+            snapshot.ballLastDisplacement[slot * 2] = currentBall.getLastDisplacementX();
+            snapshot.ballLastDisplacement[(slot * 2) + 1] = currentBall.getLastDisplacementY();
+            snapshot.ballRotation[slot] = currentBall.getCurrentRotation();
+            snapshot.ballCenter[slot * 2] = currentBall.getCenterX();
+            snapshot.ballCenter[(slot * 2) + 1] = currentBall.getCenterY();
+            snapshot.ballVelocity[slot * 2] = velocity.x;
+            snapshot.ballVelocity[(slot * 2) + 1] = velocity.y;
+        }
+
+        for (int index = 0; index < allMovingObstacles.size(); index++) {
+            MovingObstacle currentObstacle = allMovingObstacles.get(index);
+            snapshot.obstacleOffsets[index * 4] = currentObstacle.getPrevFrameOffsetX();
+            snapshot.obstacleOffsets[(index * 4) + 1] = currentObstacle.getPrevFrameOffsetY();
+            snapshot.obstacleOffsets[(index * 4) + 2] = currentObstacle.getFrameOffsetX();
+            snapshot.obstacleOffsets[(index * 4) + 3] = currentObstacle.getFrameOffsetY();
+        }
+
+        System.arraycopy(mTargetCollected, 0, snapshot.targetCollected, 0, mTargetCollected.length);
+
+        mSnapshots.publish();
+    }
+
+    private int getIdCapacity(){
+        int idCapacity = 0;
+        for (Interactable object : allInteractableObjects) {
+            idCapacity = Math.max(idCapacity, object.getInteractableId() + 1);
+        }
+        return idCapacity;
+    }
+
+    //Advance the game by exactly one frame
     public void advanceFrame(){
 
         //Handle things that should happen before the frame is advanced.
@@ -235,25 +511,29 @@ public class GameEngine {
         //(Update score, move balls forward, check end conditions, etc)
         postAdvanceFrame();
 
+        endFrame();
     }
 
     private void preAdvanceFrame(){
-        //This is only necessary if VARIABLE_FRAME_SIZE is activated in GameState.
-        //Usually it's not very useful but it's an interesting setting regardless.
-        mCurrentFrameSize = getFrameSize();
+        mCurrentFrameSize = GameState.FRAME_SIZE;
 
-        //Determine how fast the game is running. This may be used if
-        // FRAME_RATE_CAP is specified in GameState, or if we are throttling particle
-        // generation based on frame rate.
-        updateFPSinfo();
+        collisionStatistics.startFrame();
 
         //Activate any balls that are ready to be fired.
         if (mBallWaiting){
             activateBall(null);
         }
+
+        //Keep balls that are resting on each other from falling into each other this frame
+        ballEngine.solveRestingContacts(mCurrentFrameSize);
     }
 
     private void advanceFrameStep(){
+        if (collisionSchedule == CollisionSchedule.EVENT_QUEUE) {
+            advanceFrameStepEventQueue();
+            return;
+        }
+
         //start each frame at 0
         float timeElapsed = 0f;
 
@@ -262,6 +542,13 @@ public class GameEngine {
         //and then repeat until we reach the end of the frame.
         while (timeElapsed < mCurrentFrameSize) {
 
+            if (isFrameOverBudget()) {
+                timeElapsed = finishFrameConservatively(timeElapsed);
+                break;
+            }
+
+            collisionStatistics.addSubStep();
+
             //check if any balls should be deactivated
             updateBallStatuses();
 
@@ -272,25 +559,152 @@ public class GameEngine {
             //Move non-colliding objects (moving obstacles)
             advanceNonActiveCollisionObjects(timeStep);
 
-            //Initialize and run collision detection
-            CollisionDetection CD = new CollisionDetection(ballEngine);
+            //Reset and run collision detection
+            CollisionDetection CD = collisionDetection;
+            CD.reset();
             collisionDetection(CD, timeStep);
+            collisionStatistics.addCollisionsFound(CD.getCollisions().size());
 
             //Handle collisions (update velocities / displacements as necessary)
             //Also handles NO collisions (assign normal velocity to the balls displacement tally)
             //If there is a collision, timeElapsed is updated to the collision time.
-            timeElapsed = collisionHandling(CD, timeStep, timeElapsed);
+            timeElapsed = collisionHandling(CD.getCollisions(), timeStep, timeElapsed);
+
+        }
+    }
+
+    /**
+     * Same as advanceFrameStep, but instead of re-testing every pair after every collision, the predicted
+     * collisions are kept in a queue (ordered by time) for the rest of the frame.
+     *
+     * A ball that wasn't part of a collision keeps following the same trajectory to the end of the frame,
+     * so everything predicted for it is still correct. After each collision, only the balls whose trajectory
+     * changed (and any pair involving one of them) need to be tested again, and their old predictions are dropped.
+     * Rolling balls are always re-tested, because their displacement is scaled by the length of the step.
+     */
+    private void advanceFrameStepEventQueue(){
+        float timeElapsed = 0f;
+
+        //Nothing has been predicted for this frame yet
+        collisionEventQueue.clear();
+        for (int slot = 0; slot < ballTrajectoryChanged.length; slot++) {
+            ballTrajectoryChanged[slot] = true;
+        }
+
+        while (timeElapsed < mCurrentFrameSize) {
+
+            if (isFrameOverBudget()) {
+                timeElapsed = finishFrameConservatively(timeElapsed);
+                break;
+            }
+
+            collisionStatistics.addSubStep();
+
+            //check if any balls should be deactivated (and re-test any ball whose state changed its trajectory)
+            saveBallStates();
+            updateBallStatuses();
+            markChangedBallStates();
+
+            float timeStep = mCurrentFrameSize - timeElapsed;
+
+            //Move non-colliding objects (moving obstacles)
+            advanceNonActiveCollisionObjects(timeStep);
+
+            //Drop the old predictions for any ball that has changed, and test it again
+            for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+                Ball currentBall = mAllBalls.get(ballIndex);
+                int slot = currentBall.getBallSlot();
+                ballNeedsTesting[slot] = ballTrajectoryChanged[slot] || currentBall.isBallRolling();
+                ballTrajectoryChanged[slot] = false;
+
+                if (ballNeedsTesting[slot]) {
+                    collisionEventQueue.invalidate(currentBall);
+                }
+            }
+
+            CollisionDetection CD = collisionDetection;
+            CD.reset();
+            collisionDetection(CD, timeStep);
+            collisionStatistics.addCollisionsFound(CD.getCollisions().size());
+            collisionEventQueue.addAll(CD.getCollisions(), timeElapsed);
+
+            //Take the first collisions off the queue, and handle them the same way as advanceFrameStep would
+            scheduledCollisions.reset();
+            collisionEventQueue.pollFirstCollisions(timeElapsed, scheduledCollisions);
+            timeElapsed = collisionHandling(scheduledCollisions, timeStep, timeElapsed);
+
+            //Every ball that just collided has a new trajectory
+            for (int index = 0; index < scheduledCollisions.size(); index++) {
+                Collision collision = scheduledCollisions.get(index);
+
+                if (collision.getObstacle().getType() == GameState.INTERACTABLE_TARGET) {
+                    continue;
+                }
+
+                markTrajectoryChanged(collision.getBall());
+                if (collision.getObstacle().getType() == GameState.INTERACTABLE_BALL) {
+                    markTrajectoryChanged((Ball) collision.getObstacle());
+                }
+            }
+        }
+    }
+
+    //True once this frame has used up its sub-steps or pair tests (see setFrameBudget)
+    private boolean isFrameOverBudget() {
+        return (collisionStatistics.getFrameSubSteps() >= maxSubStepsPerFrame)
+                || (collisionStatistics.getFramePairTests() >= maxPairTestsPerFrame);
+    }
+
+    /**
+     * Finish the frame without any more collision detection, once it has run out of budget.
+     * Moving obstacles still move to the end of the frame, but balls stay where they are (right after their
+     * last collision) until the next frame, so a ball can't pass through anything; it just loses the rest of
+     * this frame's movement. Moving obstacles aren't stopped by anything, though, so one can move into a ball
+     * that has been left standing in its way. That ball is only pushed back out next frame, the same as any
+     * other invalid ball position (see displaceInvalidBall).
+     */
+    private float finishFrameConservatively(float timeElapsed) {
+        handleMovingObstacles(mCurrentFrameSize - timeElapsed);
+        collisionStatistics.setFrameOverBudget();
+        return mCurrentFrameSize;
+    }
 
+    private void markTrajectoryChanged(Ball currentBall) {
+        ballTrajectoryChanged[currentBall.getBallSlot()] = true;
+    }
+
+    private void saveBallStates() {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            int slot = currentBall.getBallSlot();
+            prevBallStates[slot] = currentBall.getBallState();
+            prevBallVelocityX[slot] = currentBall.getVelocity().x;
+            prevBallVelocityY[slot] = currentBall.getVelocity().y;
+        }
+    }
+
+    private void markChangedBallStates() {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            int slot = currentBall.getBallSlot();
+
+            if ((prevBallStates[slot] != currentBall.getBallState())
+                    || (prevBallVelocityX[slot] != currentBall.getVelocity().x)
+                    || (prevBallVelocityY[slot] != currentBall.getVelocity().y)) {
+                markTrajectoryChanged(currentBall);
+            }
         }
     }
 
     //This function moves objects that need to be moved each step, because
     // balls could collide with them, but they don't need to be actively
-    // collision checked
+    // collision checked.
+    //(The pair source already covers a moving obstacle's whole path, so it doesn't need updating)
     private void advanceNonActiveCollisionObjects(float timeStep) {
 
         //Moving obstacles
-        for(MovingObstacle currentObstacle : allMovingObstacles){
+        for (int obstacleIndex = 0; obstacleIndex < allMovingObstacles.size(); obstacleIndex++) {
+            MovingObstacle currentObstacle = allMovingObstacles.get(obstacleIndex);
             currentObstacle.moveTempCoordsByFrame(timeStep);
         }
     }
@@ -303,10 +717,28 @@ public class GameEngine {
         updateScore();
         //clear collision histories
         ballEngine.clearCollisionHistories();
+        updateSleepStates();
+        collisionDetection.moveAxisStatsTo(collisionStatistics);
+        collisionStatistics.endFrame();
         //check if all balls have been fired or all targets collected
         endLevelChecks();
     }
 
+    //Save the end-of-frame state of everything that moved (this is what the next frame starts from)
+    private void endFrame(){
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            if (!currentBall.isBallInactive()) {
+                currentBall.endFrame();
+            }
+        }
+
+        for (int obstacleIndex = 0; obstacleIndex < allMovingObstacles.size(); obstacleIndex++) {
+            MovingObstacle currentObstacle = allMovingObstacles.get(obstacleIndex);
+            currentObstacle.endFrame();
+        }
+    }
+
     private void updateScore(){
 
         if (currentScore == 0){
@@ -319,125 +751,451 @@ public class GameEngine {
             currentScore = 0;
         }
 
-        int scoreDigit1 = currentScore % 10;
-        int scoreDigit10 = (currentScore % 100) / 10;
-        int scoreDigit100 = (currentScore % 1000) / 100;
-        int scoreDigit1000 = (currentScore % 10000) / 1000;
-        int scoreDigit10000 = (currentScore % 100000) / 10000;
+        //The digits themselves are updated when the score is drawn
+        mShownScore = currentScore;
+    }
+
+    //Show the score from the snapshot on the score digits (only updated when it changes)
+    private void updateScoreDigits(RenderSnapshot snapshot){
 
-        mScoreDigits[0].updateTexture(scoreDigit1);
-        mScoreDigits[1].updateTexture(scoreDigit10);
-        mScoreDigits[2].updateTexture(scoreDigit100);
-        mScoreDigits[3].updateTexture(scoreDigit1000);
-        mScoreDigits[4].updateTexture(scoreDigit10000);
+        if (snapshot.score != mDrawnScore) {
+            mDrawnScore = snapshot.score;
+
+            int scoreDigit1 = mDrawnScore % 10;
+            int scoreDigit10 = (mDrawnScore % 100) / 10;
+            int scoreDigit100 = (mDrawnScore % 1000) / 100;
+            int scoreDigit1000 = (mDrawnScore % 10000) / 1000;
+            int scoreDigit10000 = (mDrawnScore % 100000) / 10000;
+
+            mScoreDigits[0].updateTexture(scoreDigit1);
+            mScoreDigits[1].updateTexture(scoreDigit10);
+            mScoreDigits[2].updateTexture(scoreDigit100);
+            mScoreDigits[3].updateTexture(scoreDigit1000);
+            mScoreDigits[4].updateTexture(scoreDigit10000);
+        }
+
+        //Once the level has been won, the score moves to the middle of the screen
+        if (snapshot.success && !mScoreDigitsMoved) {
+            moveScoreDigits();
+            updateScoreDigitWaver(finalScoreText.getRandomMultiplier());
+            mScoreDigitsMoved = true;
+        }
 
     }
 
     private void updateBallStatuses(){
-        for (Ball currentBall : mAllBalls) {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            if (currentBall.isBallAsleep()) {
+                continue;
+            }
             ballEngine.updateBallState(currentBall);
         }
     }
 
+    //Put balls that have been at rest long enough to sleep, and count how many are awake and asleep
+    private void updateSleepStates(){
+        int awakeBalls = 0;
+        int sleepingBalls = 0;
+
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            if (currentBall.isBallInactive()) {
+                continue;
+            }
+
+            ballEngine.updateSleepState(currentBall);
+
+            if (currentBall.isBallAsleep()) {
+                sleepingBalls++;
+            } else {
+                awakeBalls++;
+            }
+        }
+
+        collisionStatistics.setBallCounts(awakeBalls, sleepingBalls);
+    }
+
+    /**
+     * Wake any sleeping ball a moving obstacle has come near. This is the same bounding box test collision
+     * detection would have done for the pair, so no collision a sleeping ball would have had is missed.
+     */
+    private void wakeBallsNearMovingObstacles(CollisionDetection CD){
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            if (!currentBall.isBallAsleep()) {
+                continue;
+            }
+
+            for (int obstacleIndex = 0; obstacleIndex < allMovingObstacles.size(); obstacleIndex++) {
+                MovingObstacle currentObstacle = allMovingObstacles.get(obstacleIndex);
+                if (CD.boundingBoxesOverlap(currentBall, currentObstacle)) {
+                    wakeBall(currentBall);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void wakeBall(Ball currentBall){
+        ballEngine.wakeBall(currentBall);
+
+        //With the event queue, nothing has been predicted for the ball while it was asleep, so test it this step
+        ballNeedsTesting[currentBall.getBallSlot()] = true;
+    }
+
     /**
      * This method starts the collision detection process for each active ball.
-     * To do this, we advance the ball to its next location (calculated using time step and velocity),
-     * and then test this new location against all currently active objects.
+     * To do this, we first advance every moving ball to its next location (calculated using time step and velocity).
+     * The pair source then finds every (ball, object) pair that may be colliding at the new locations,
+     * and each of those pairs is collision tested.
+     *
+     * Each pair of balls is only listed once (see CollisionPairs.isPairOwner), so we never
+     * test the same two balls against each other twice.
+     *
+     * Sleeping balls are left out, until a moving obstacle comes near them, or the pair source pairs them
+     * with a moving ball.
      */
     private void collisionDetection(CollisionDetection CD, float timeStep) {
 
-        //go through all active balls
-        for (Ball currentBall : mAllBalls) {
+        int ballsInPlay = 0;
+
+        //temporarily advance all moving balls by the time step.
+        //(Stopped balls are tested against by moving balls and moving obstacles, but never advanced themselves)
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
 
-            if (currentBall.isBallInactive()){
+            if (currentBall.isBallInactive() || currentBall.isBallAsleep()){
                 continue;
             }
 
-            //For active balls, we need to advance them and set them to 'moved' here, surrounding
-            // the collision testing.
-            if (currentBall.isBallMoving()) {
+            ballsInPlay++;
 
-                //temporarily advance the balls location by the time step
+            if (currentBall.isBallMoving()) {
                 ballEngine.moveByFrame(currentBall, timeStep);
-                collisionTestAllActiveObjects(CD, currentBall, timeStep);
-                //set the ball to 'moved' so it is included on future collision tests in this frame
-                currentBall.setBallMoved();
+            }
+        }
+
+        wakeBallsNearMovingObstacles(CD);
+        updateStaticClearance(timeStep);
+
+        //Find the pairs that may be colliding, in the order of ball, then object
+        collisionPairs.clear();
+        pairSource.findPairs(mAllBalls, collisionPairs);
+        collisionPairs.sort();
+        separatingAxisCache.update(collisionPairs);
+        collisionStatistics.addBroadphaseQuery(ballsInPlay * (allInteractableObjects.size() - mTargetsHit - 1), collisionPairs.size());
 
-            //For stopped balls, we just need to collision test.
-            } else if (currentBall.isBallStopped()){
-                collisionTestAllActiveObjects(CD, currentBall, timeStep);
+        //A moving ball may be about to hit a sleeping one. Pair sources can list pairs that are further apart (and
+        // each lists different ones), so only a pair the coarse test would pass wakes it, whatever the pair source.
+        for (int index = 0; index < collisionPairs.getBallPairCount(); index++) {
+            Ball otherBall = collisionPairs.getOtherBall(index);
+            Ball owner = collisionPairs.getBallPairOwner(index);
+
+            if (otherBall.isBallAsleep() && owner.isBallMoving() && CD.boundingBoxesOverlap(owner, otherBall)) {
+                wakeBall(otherBall);
             }
         }
 
-        //clear the moved status once we have gone through all balls
-        cleanupBalls();
+        if ((parallelNarrowphase != null) && (collisionPairs.size() >= parallelNarrowphaseMinPairs)) {
+            parallelCollisionTesting(CD, timeStep);
+        } else {
+            collisionTestPairs(CD, timeStep);
+        }
+    }
 
+    //Work out which balls can't reach a static obstacle during this step (see StaticDistanceField)
+    private void updateStaticClearance(float timeStep) {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            float reach = currentBall.getRadius() + ballEngine.getMaxTravelDistance(currentBall, timeStep);
+            ballClearOfStaticObstacles[currentBall.getBallSlot()] =
+                    staticDistanceField.isClear(currentBall.getPrevCenterX(), currentBall.getPrevCenterY(), reach);
+        }
     }
 
     /**
-     * This method coordinates the actual collision detection between a ball and all active objects.
-     * To be efficient, we first compare the bounding boxes of each object. If they intersect on both
-     * the x and y axis, it is possible they are colliding. This means we need detailed collision testing,
-     * which is implemented using the separating axis theorem on the objects. More details about the
-     * separating axis test is in the CollisionDetection class.
-     *
-     * If we detect a collision, no further action is needed- it is handled within detailedCollisionTesting.
-     *
-     * PARAMS:
-     *   CD - CollisionDetection object used to call the necessary methods
-     *   currentBall - The current ball being tested
-     *   timeStep - The length of the current iteration
+     * Test every pair, one after another.
+     * Each kind of object gets its own pass, so the loops never have to check what they are testing against.
+     * A ball's pairs are still tested in the same order as they are sorted in.
      */
-    private void collisionTestAllActiveObjects(CollisionDetection CD, Ball currentBall, float timeStep){
+    private void collisionTestPairs(CollisionDetection CD, float timeStep) {
+        testStaticPairs(CD, timeStep);
+        testMovingPairs(CD, 0, timeStep);
+        testTargetPairs(CD, timeStep);
+        testBallPairs(CD, timeStep);
+    }
 
-        //Go through all objects that could be hit
-        for (Interactable curObject : allInteractableObjects) {
+    private void testStaticPairs(CollisionDetection CD, float timeStep) {
+        for (int index = 0; index < collisionPairs.getStaticPairCount(); index++) {
+            if (isStaticPairTestNeeded(CD, index)) {
+                collisionStatistics.addPairTest();
 
-            //Exclude certain collision pairs
-            if (CD.ballCollisionPreChecks(currentBall, curObject) == false) {
-                continue;
+                //Only moving obstacles can leave a ball in an invalid position
+                CD.doPolygonCollisionDetection(collisionPairs.getStaticPairBall(index), collisionPairs.getStaticObstacle(index), timeStep);
             }
+        }
+    }
 
-            //Do a first test on their bounding boxes
-            if (CD.coarseCollisionTesting(currentBall, curObject)) {
-
-                //There may have been a collision, further testing is necessary.
-                //Any collisions detected will be added to a collection in CD (mCollisions).
-                try {
-                    CD.detailedCollisionTesting(currentBall, curObject, timeStep);
+    private void testMovingPairs(CollisionDetection CD, int firstIndex, float timeStep) {
+        for (int index = firstIndex; index < collisionPairs.getMovingPairCount(); index++) {
+            if (isMovingPairTestNeeded(CD, index)) {
+                collisionStatistics.addPairTest();
+                Ball currentBall = collisionPairs.getMovingPairBall(index);
+                int result = CD.doPolygonCollisionDetection(currentBall, collisionPairs.getMovingObstacle(index), timeStep);
 
-                } catch (InvalidBallPositionException invalidBallPosition) {
-                    displaceInvalidBall(currentBall, invalidBallPosition);
+                if (result == CollisionDetection.INVALID_BALL_POSITION) {
+                    displaceInvalidBall(currentBall, CD.getInvalidPositionAxis());
                 }
+            }
+        }
+    }
+
+    private void testTargetPairs(CollisionDetection CD, float timeStep) {
+        for (int index = 0; index < collisionPairs.getTargetPairCount(); index++) {
+            if (isTargetPairTestNeeded(CD, index)) {
+                collisionStatistics.addPairTest();
+                CD.doTargetCollisionDetection(collisionPairs.getTargetPairBall(index), collisionPairs.getTarget(index), timeStep);
+            }
+        }
+    }
 
+    private void testBallPairs(CollisionDetection CD, float timeStep) {
+        for (int index = 0; index < collisionPairs.getBallPairCount(); index++) {
+            if (isBallPairTestNeeded(CD, index)) {
+                collisionStatistics.addPairTest();
+                CD.doBallCollisionDetection(collisionPairs.getBallPairOwner(index), collisionPairs.getOtherBall(index), timeStep);
             }
         }
     }
 
-    private void displaceInvalidBall(Ball currentBall, InvalidBallPositionException invalidBallPosition) {
-        PointF collisionAxis = invalidBallPosition.getCollisionAxis();
+    /**
+     * Same as collisionTestPairs, with the detailed testing split across threads (see ParallelNarrowphase).
+     * The pre-checks are the same ones collisionTestPairs does, so only pairs that really need it are handed out.
+     * The collisions found are the same, and in the same order, as testing the pairs one after another.
+     */
+    private void parallelCollisionTesting(CollisionDetection CD, float timeStep) {
+        parallelNarrowphase.clear();
+
+        for (int index = 0; index < collisionPairs.getStaticPairCount(); index++) {
+            if (isStaticPairTestNeeded(CD, index)) {
+                parallelNarrowphase.addStaticPair(index);
+            }
+        }
+        for (int index = 0; index < collisionPairs.getMovingPairCount(); index++) {
+            if (isMovingPairTestNeeded(CD, index)) {
+                parallelNarrowphase.addMovingPair(index);
+            }
+        }
+        for (int index = 0; index < collisionPairs.getTargetPairCount(); index++) {
+            if (isTargetPairTestNeeded(CD, index)) {
+                parallelNarrowphase.addTargetPair(index);
+            }
+        }
+        for (int index = 0; index < collisionPairs.getBallPairCount(); index++) {
+            if (isBallPairTestNeeded(CD, index)) {
+                parallelNarrowphase.addBallPair(index);
+            }
+        }
+
+        int invalidPairIndex = parallelNarrowphase.testPairs(collisionPairs, timeStep, CD.getCollisions(), collisionStatistics);
+
+        //Moving the ball changes its velocity, which any later pair involving it has to see
+        if (invalidPairIndex != ParallelNarrowphase.NO_INVALID_PAIR) {
+            displaceInvalidBall(collisionPairs.getMovingPairBall(invalidPairIndex), parallelNarrowphase.getInvalidPositionAxis());
+            testMovingPairs(CD, invalidPairIndex + 1, timeStep);
+            testTargetPairs(CD, timeStep);
+            testBallPairs(CD, timeStep);
+        }
+    }
+
+    //Pre-checks for each kind of pair, done before detailed testing by both collisionTestPairs and parallelCollisionTesting
+
+    private boolean isStaticPairTestNeeded(CollisionDetection CD, int index) {
+        Ball currentBall = collisionPairs.getStaticPairBall(index);
+
+        //Sleeping balls are only tested against by others
+        if (currentBall.isBallAsleep() || !isBallTestingNeeded(currentBall)) {
+            return false;
+        }
+
+        //The ball can't get near any static obstacle this step
+        if (ballClearOfStaticObstacles[currentBall.getBallSlot()]) {
+            collisionStatistics.addStaticPairSkipped();
+            return false;
+        }
+
+        Obstacle obstacle = collisionPairs.getStaticObstacle(index);
+        return CD.staticObstaclePreChecks(currentBall, obstacle) && CD.boundingBoxesOverlap(currentBall, obstacle);
+    }
+
+    private boolean isMovingPairTestNeeded(CollisionDetection CD, int index) {
+        Ball currentBall = collisionPairs.getMovingPairBall(index);
+
+        if (currentBall.isBallAsleep() || !isBallTestingNeeded(currentBall)) {
+            return false;
+        }
+
+        MovingObstacle obstacle = collisionPairs.getMovingObstacle(index);
+        return CD.movingObstaclePreChecks(currentBall, obstacle) && CD.boundingBoxesOverlap(currentBall, obstacle);
+    }
+
+    private boolean isTargetPairTestNeeded(CollisionDetection CD, int index) {
+        Ball currentBall = collisionPairs.getTargetPairBall(index);
+
+        if (currentBall.isBallAsleep() || !isBallTestingNeeded(currentBall)) {
+            return false;
+        }
+
+        Target target = collisionPairs.getTarget(index);
+        return CD.targetPreChecks(currentBall, target) && CD.boundingBoxesOverlap(currentBall, target);
+    }
+
+    private boolean isBallPairTestNeeded(CollisionDetection CD, int index) {
+        Ball currentBall = collisionPairs.getBallPairOwner(index);
+        Ball otherBall = collisionPairs.getOtherBall(index);
+
+        if (currentBall.isBallAsleep() || (!isBallTestingNeeded(currentBall) && !isBallTestingNeeded(otherBall))) {
+            return false;
+        }
+
+        return CD.ballPreChecks(currentBall, otherBall) && CD.boundingBoxesOverlap(currentBall, otherBall);
+    }
+
+    //With the event queue, pairs that haven't changed already have their predictions queued
+    private boolean isBallTestingNeeded(Ball currentBall) {
+        return (collisionSchedule != CollisionSchedule.EVENT_QUEUE) || ballNeedsTesting[currentBall.getBallSlot()];
+    }
+
+    private void displaceInvalidBall(Ball currentBall, PointF collisionAxis) {
         //Set velocity in opposite direction because collision axis points inward
-        currentBall.setVelocity(new PointF(-collisionAxis.x, -collisionAxis.y));
+        currentBall.setVelocity(-collisionAxis.x, -collisionAxis.y);
+
+        if (collisionSchedule == CollisionSchedule.EVENT_QUEUE) {
+            markTrajectoryChanged(currentBall);
+        }
     }
 
-    private void cleanupBalls(){
-        for (Ball currentBall : mAllBalls){
+    /**
+     * Switch the broadphase used to find collision pairs. Takes effect immediately if a level is loaded.
+     */
+    public void setPairSourceType(PairSourceType newPairSourceType){
+        pairSourceType = newPairSourceType;
 
-            if (!currentBall.isBallMoving()){
-                continue;
+        if (allInteractableObjects != null){
+            pairSource = createPairSource(pairSourceType);
+
+            //Collected targets are still in allInteractableObjects
+            for (Interactable object : allInteractableObjects) {
+                if (mTargetCollected[object.getInteractableId()]) {
+                    pairSource.remove(object);
+                }
             }
+        }
+    }
+
+    public PairSourceType getPairSourceType(){
+        return pairSourceType;
+    }
+
+    /**
+     * Switch how collisions are found again after each collision within a frame. Takes effect at the next frame.
+     */
+    public void setCollisionSchedule(CollisionSchedule newCollisionSchedule){
+        collisionSchedule = newCollisionSchedule;
+    }
+
+    /**
+     * Set how many threads detailed collision testing is split across, for steps with at least
+     * GameState.PARALLEL_NARROWPHASE_MIN_PAIRS pairs. 1 always tests pairs one after another.
+     * Takes effect immediately if a level is loaded. Must not be called while a frame is running.
+     */
+    public void setNarrowphaseWorkers(int workers){
+        narrowphaseWorkers = workers;
+
+        if (ballEngine != null){
+            createParallelNarrowphase();
+        }
+    }
+
+    public int getNarrowphaseWorkers(){
+        return narrowphaseWorkers;
+    }
+
+    /**
+     * Set the most sub-steps and narrowphase pair tests a frame may use before it is finished without any more
+     * collision detection (GameState.MAX_SUB_STEPS_PER_FRAME and MAX_PAIR_TESTS_PER_FRAME by default).
+     * Takes effect at the next frame.
+     */
+    public void setFrameBudget(int maxSubSteps, int maxPairTests){
+        maxSubStepsPerFrame = maxSubSteps;
+        maxPairTestsPerFrame = maxPairTests;
+    }
+
+    public int getMaxSubStepsPerFrame(){
+        return maxSubStepsPerFrame;
+    }
+
+    public int getMaxPairTestsPerFrame(){
+        return maxPairTestsPerFrame;
+    }
 
-            currentBall.clearMovedStatus();
+    //ForkJoinPool is only available from API 21
+    private void createParallelNarrowphase(){
+        shutdownParallelNarrowphase();
+
+        if ((narrowphaseWorkers > 1) && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
+            parallelNarrowphase = new ParallelNarrowphase(ballEngine, separatingAxisCache, narrowphaseWorkers);
         }
     }
 
-    private float collisionHandling(CollisionDetection CD, float timeStep, float timeElapsed){
+    //Only for tests, which run on a JVM (where ForkJoinPool is always available): split detailed testing across workers
+    // threads for every step with at least minPairs pairs. The level must be loaded.
+    void forceParallelNarrowphase(int workers, int minPairs){
+        shutdownParallelNarrowphase();
+        narrowphaseWorkers = workers;
+        parallelNarrowphaseMinPairs = minPairs;
+        parallelNarrowphase = new ParallelNarrowphase(ballEngine, separatingAxisCache, workers);
+    }
+
+    private void shutdownParallelNarrowphase(){
+        if (parallelNarrowphase != null) {
+            parallelNarrowphase.shutdown();
+            parallelNarrowphase = null;
+        }
+    }
+
+    //Per-frame and per-level collision counters (sub-steps, pair tests, collisions found, ...)
+    public CollisionStatistics getCollisionStatistics(){
+        return collisionStatistics;
+    }
+
+    public CollisionSchedule getCollisionSchedule(){
+        return collisionSchedule;
+    }
+
+    private PairSource createPairSource(PairSourceType type){
+        switch (type){
+            case BRUTE_FORCE:
+                return new BruteForcePairs(allInteractableObjects);
+            case SWEEP_AND_PRUNE:
+                return new SweepAndPrune(allInteractableObjects);
+            case STATIC_AABB_TREE:
+                return new StaticAabbTree(allInteractableObjects);
+            case UNIFORM_GRID:
+            default:
+                return new UniformGrid(allInteractableObjects);
+        }
+    }
+
+    private float collisionHandling(CollisionBuffer collisions, float timeStep, float timeElapsed){
         //==================
         //collision handling
         //==================
 
-        //initialize collision handling object
-        CollisionHandling CH = new CollisionHandling (CD.getCollisions());
+        //reset collision handling object with this step's collisions
+        CollisionHandling CH = collisionHandling;
+        CH.reset(collisions);
 
         //...All that matters is the first collision...
         //Target collisions don't count here because they don't affect trajectories
@@ -462,6 +1220,8 @@ public class GameEngine {
         //one or multiple collisions
         } else {
 
+            collisionStatistics.addCollisionsHandled(firstCollisions.size());
+
             //we can just grab the first member here since they all have the same time
             float collisionTime = firstCollisions.get(0).getTime();
             //move all balls forward by collision time, and update velocity for colliding balls
@@ -508,27 +1268,19 @@ public class GameEngine {
     private void moveBallsToCollisionInstant(float collisionTime, boolean cleanupAABB){
 
         //Go through all active balls
-        for (Ball currentBall : mAllBalls){
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
 
             if(currentBall.isBallInactive() || currentBall.isBallStopped()){
                 continue;
             }
 
-            PointF newDisplacementVector = new PointF(0f, 0f);
+            //calculate displacement that will result in new position (the same one collision detection predicted)
+            PointF newDisplacementVector = mDisplacement;
+            ballEngine.calculatePositionChange(currentBall, collisionTime, newDisplacementVector);
 
-            //Rolling balls - calculate displacement based on last position
             if (currentBall.isBallRolling()) {
-                PointF currentCenter = currentBall.getCenter();
-                PointF prevCenter = currentBall.getPrevCenter();
-                float fractionOfFrame = collisionTime / GameState.FRAME_SIZE;
-                newDisplacementVector = new PointF((currentCenter.x - prevCenter.x) * fractionOfFrame, (currentCenter.y - prevCenter.y) * fractionOfFrame);
                 ballEngine.decreaseRollTime(currentBall, collisionTime);
-
-            //Active balls - calculate displacement manually (maybe we could also use 'last position' here?)
-            } else if (currentBall.isBallActive()) {
-                //calculate displacement that will result in new position
-                newDisplacementVector = ballEngine.calculatePositionChange(currentBall, collisionTime);
-
             }
 
             //Add the current displacement to the balls running tally of total displacement for this frame
@@ -554,25 +1306,25 @@ public class GameEngine {
 
 
     private void handleMovingObstacles(float collisionTime){
-        for (MovingObstacle currentObstacle : allMovingObstacles){
-            //Cleanup moving obstacle AABB
-            currentObstacle.resetAABB(); //reset because they should have been moved 1 full frame
-            currentObstacle.moveByFrame(collisionTime); //move forward to the collision time
-            currentObstacle.updatePrevAABB();  //update saved value
+        for (int obstacleIndex = 0; obstacleIndex < allMovingObstacles.size(); obstacleIndex++) {
+            MovingObstacle currentObstacle = allMovingObstacles.get(obstacleIndex);
+            currentObstacle.moveByFrame(collisionTime); //move forward to the collision time (this also moves the AABB back from the temp position)
         }
     }
 
 
     private void updateVelocitiesCollision(float timeStep){
 
-        for (Ball currentBall : mAllBalls) {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
             ballEngine.updateBallVelocity(currentBall, true, timeStep);
         }
     }
 
     private void updateVelocitiesNoCollision(float timeStep){
 
-        for (Ball currentBall : mAllBalls){
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
             ballEngine.updateBallVelocity(currentBall, false, timeStep);
         }
     }
@@ -583,19 +1335,23 @@ public class GameEngine {
 
         ArrayList<Target> hitTargets = CH.getTargetCollisions(firstCollisionTime);
 
-        for (Target target : hitTargets){
+        for (int targetIndex = 0; targetIndex < hitTargets.size(); targetIndex++) {
+            Target target = hitTargets.get(targetIndex);
             mTargetsHit++;
-            allInteractableObjects.remove(target);
-            allDrawableObjects.remove(target);
+            mTargetCollected[target.getInteractableId()] = true;
+            pairSource.remove(target);
+            collisionEventQueue.invalidate(target);
         }
     }
 
     private void moveBallsForward(){
         //Go through all balls
-        for (Ball currentBall : mAllBalls) {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
 
             //skip inactive and stopped balls
             if (currentBall.isBallInactive() || currentBall.isBallStopped()){
+                currentBall.setLastDisplacement(0f, 0f);
                 continue;
             }
             //This is kinda a strange place to hook this, but I couldn't think of any place better.
@@ -605,44 +1361,46 @@ public class GameEngine {
 
             //get current model matrix
             float[] modelMatrix = currentBall.getModelMatrix();
-            float[] modelProjectionMatrix = new float[16];
 
             //Move ball forward by displacement amount
             Matrix.translateM(modelMatrix, 0, modelMatrix, 0, currentBall.getDisplacementVector().x, currentBall.getDisplacementVector().y, 0);
 
-            //move into projection coordinates
-            Matrix.multiplyMM(modelProjectionMatrix, 0, mVPMatrix, 0, modelMatrix, 0);
-
-            //save model matrix and model projection matrix
-            // (model matrix will be used next frame, and model projection matrix will be used to draw this frame)
+            //save model matrix (the model projection matrix is worked out from it when the ball is drawn)
             currentBall.setModelMatrix(modelMatrix);
-            currentBall.setModelProjectionMatrix(modelProjectionMatrix);
 
-            //clear displacement vector for next frame
+            //clear displacement vector for next frame (remembering it, to draw the ball in between frames)
+            currentBall.setLastDisplacement(currentBall.getDisplacementVector().x, currentBall.getDisplacementVector().y);
             currentBall.clearDisplacementVector();
-
-            rotateBall(currentBall);
         }
     }
 
     public void drawObjects(){
+        RenderSnapshot snapshot = mSnapshots.getLatest();
+        mDrawnSnapshot = snapshot;
+        long currentTime = mClock.nanoTime();
+
+        //Determine how fast the screen is being drawn. This is used to throttle particle generation.
+        updateFPSinfo(currentTime);
 
         // Draw background color
         GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT | GLES30.GL_DEPTH_BUFFER_BIT);
 
+        advanceParticles(snapshot);
         if (particleEngine.isActive()) {
-            particleEngine.createNewParticles(mAllBalls);
-            particleEngine.updateParticles();
             particleEngine.drawAllParticles(mVPMatrix);
         }
 
+        updateScoreDigits(snapshot);
+        interpolateMovingObjects(snapshot, currentTime);
+
         //Only update drawable coords every frame. Otherwise, weird texture shifting can happen
         if (mVelocityArrowCoords != null) {
             mVelocityArrow.setCoords(mVelocityArrowCoords);
         }
 
         //Draw all drawable objects
-        for (Drawable object : allDrawableObjects) {
+        for (int objectIndex = 0; objectIndex < allDrawableObjects.size(); objectIndex++) {
+            Drawable object = allDrawableObjects.get(objectIndex);
             if (shouldObjectBeDrawn(object)) {
                 object.draw(mVPMatrix);
             }
@@ -660,7 +1418,16 @@ public class GameEngine {
             // Balls should not be drawn if they are not active.
             case GameState.INTERACTABLE_BALL:
                 Ball currentBall = (Ball) object;
-                if (currentBall.isBallInactive()){
+                if (!mDrawnSnapshot.ballVisible[currentBall.getBallSlot()]){
+                    return false;
+                }
+                break;
+
+            //----TARGET----
+            // Targets should not be drawn once they have been collected.
+            case GameState.INTERACTABLE_TARGET:
+                Target currentTarget = (Target) object;
+                if (mDrawnSnapshot.targetCollected[currentTarget.getInteractableId()]){
                     return false;
                 }
                 break;
@@ -670,7 +1437,7 @@ public class GameEngine {
             // while you still have balls remaining. They should not be drawn
             // if the current active ball is the last ball.
             case GameState.DRAWABLE_GHOST_CIRCLES:
-                if (areAllBallsFired() || (isLevelComplete())) {
+                if (areAllBallsFired() || (mDrawnSnapshot.levelStatus == GameStatus.POST_PLAY)) {
                     return false;
                 }
                 break;
@@ -680,7 +1447,7 @@ public class GameEngine {
             // This is another firing aid. More specifically than the above ones though,
             // it should only be drawn when the flag mIsVelocityArrowActive is true.
             case GameState.DRAWABLE_VELOCITY_ARROW:
-                if ((!mIsVelocityArrowActive) || (areAllBallsFired()) || (isLevelComplete())){
+                if ((!mIsVelocityArrowActive) || (areAllBallsFired()) || (mDrawnSnapshot.levelStatus == GameStatus.POST_PLAY)){
                     return false;
                 }
                 break;
@@ -711,14 +1478,85 @@ public class GameEngine {
         mActivityContext = context;
     }
 
-    private void updateFPSinfo(){
+    /**
+     * Particles are only for show, so they are run by the renderer rather than the game. They advance once for
+     * every frame the game has run since the last draw, using where the balls were at the end of the latest one.
+     */
+    private void advanceParticles(RenderSnapshot snapshot){
+        if (snapshot.levelStatus == GameStatus.POST_PLAY) {
+            particleEngine.deactivate();
+        }
+
+        if (!particleEngine.isActive()) {
+            return;
+        }
+
+        long newFrames = Math.min(snapshot.frameNumber - mDrawnFrameNumber, GameState.MAX_FRAMES_PER_DRAW);
+        mDrawnFrameNumber = snapshot.frameNumber;
+
+        for (long frame = 0; frame < newFrames; frame++) {
+            for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+                Ball currentBall = mAllBalls.get(ballIndex);
+                int slot = currentBall.getBallSlot();
+
+                //skip inactive and stopped balls
+                if (!snapshot.ballEmitsParticles[slot]) {
+                    continue;
+                }
+
+                particleEngine.createParticles(snapshot.ballCenter[slot * 2], snapshot.ballCenter[(slot * 2) + 1],
+                        snapshot.ballVelocity[slot * 2], snapshot.ballVelocity[(slot * 2) + 1], currentBall.getRadius());
+            }
+            particleEngine.updateParticles();
+        }
+    }
+
+    /**
+     * Place balls and moving obstacles between where they were at the end of the last two frames,
+     * based on how much real time has passed since the latest frame was run up to.
+     */
+    private void interpolateMovingObjects(RenderSnapshot snapshot, long currentTime){
+
+        //Nothing moves after the level is over, so there is nothing to draw in between
+        float interpolation = 1f;
+        if (snapshot.levelStatus != GameStatus.POST_PLAY) {
+            interpolation = (float) (currentTime - snapshot.frameEndTime) / FRAME_LENGTH_NANOS;
+            interpolation = Math.max(0f, Math.min(interpolation, 1f));
+        }
+        float remaining = 1 - interpolation;
+
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
+            int slot = currentBall.getBallSlot();
+            if (!snapshot.ballVisible[slot]) {
+                continue;
+            }
+
+            //Step back from the latest position by the part of the last displacement that hasn't 'happened' yet
+            Matrix.translateM(mInterpolatedModelMatrix, 0, snapshot.ballModelMatrices, slot * 16,
+                    -snapshot.ballLastDisplacement[slot * 2] * remaining, -snapshot.ballLastDisplacement[(slot * 2) + 1] * remaining, 0);
+            Matrix.multiplyMM(currentBall.getModelProjectionMatrix(), 0, mVPMatrix, 0, mInterpolatedModelMatrix, 0);
+
+            if (snapshot.ballRotation[slot] != mDrawnBallRotation[slot]) {
+                rotateBall(currentBall, snapshot.ballRotation[slot]);
+                mDrawnBallRotation[slot] = snapshot.ballRotation[slot];
+            }
+        }
+
+        for (int index = 0; index < allMovingObstacles.size(); index++) {
+            allMovingObstacles.get(index).interpolateDrawCoords(snapshot.obstacleOffsets[index * 4], snapshot.obstacleOffsets[(index * 4) + 1],
+                    snapshot.obstacleOffsets[(index * 4) + 2], snapshot.obstacleOffsets[(index * 4) + 3], interpolation);
+        }
+    }
+
+    private void updateFPSinfo(long clockTime){
 
         if (!GameState.showFPS){
             return;
         }
 
         if (mPrevTime != 0) {
-            float currentTime = System.nanoTime();
+            float currentTime = clockTime;
             float timeLastFrame = currentTime - mPrevTime;
             timesPerFrame[mFrameCount % 10] = timeLastFrame;
             sumTotal = sumTotal + timeLastFrame;
@@ -734,7 +1572,7 @@ public class GameEngine {
                 }
             }
         } else {
-            mPrevTime = System.nanoTime();
+            mPrevTime = clockTime;
         }
     }
 
@@ -760,8 +1598,6 @@ public class GameEngine {
         float avgTimeNanos = sumTime / 10;
         float avgTimeSecs = avgTimeNanos / 1000000000;
 
-        mLastTenFrameAvg = avgTimeNanos / 1000000;
-
         return (1/avgTimeSecs);
     }
 
@@ -773,53 +1609,62 @@ public class GameEngine {
         float avgFPS = 1 / ((sumTotal / mFrameCount) / 1000000000);
     }
 
-    private boolean isLevelActive(){
-        return (currentLevelStatus == GameStatus.ACTIVE);
-    }
+    private void showCollisionStats(){
+        if (!GameState.SHOW_COLLISION_STATS){
+            return;
+        }
 
-    private boolean isLevelComplete() { return (currentLevelStatus == GameStatus.POST_PLAY);}
+        CollisionBuffer collisionPool = collisionDetection.getCollisions();
+        collisionStatistics.setCollisionPoolUsage(collisionPool.getHighWaterMark(), collisionPool.getCapacity());
+        collisionStatistics.printSummary(mChapter, mLevel);
+    }
 
-    public GameStatus getCurrentLevelStatus() {
-        return currentLevelStatus;
+    //Input commands run this level
+    public int getInputCommandCount(){
+        return mInputCommandCount;
     }
 
-    public float getFrameSize(){
+    //Input commands dropped this level, because the queue was full
+    public int getDroppedInputCount(){
+        return mInputCommands.getDroppedCount();
+    }
 
-        if (!GameState.VARIABLE_FRAME_SIZE) {
-            return GameState.FRAME_SIZE;
+    //Average time input commands waited between being queued and being run, in nanoseconds
+    public long getAverageInputDelayNanos(){
+        return (mInputCommandCount == 0) ? 0 : (mInputDelaySum / mInputCommandCount);
+    }
 
-        } else {
+    public long getMaxInputDelayNanos(){
+        return mInputDelayMax;
+    }
 
-            float frameSize;
+    private void showInputStats(){
+        if (!GameState.SHOW_INPUT_STATS){
+            return;
+        }
 
-            if (mFrameCount == 0) {
-                frameSize = 0.5f;
-                mFrameSizeHistory[mFrameCount % 3] = frameSize;
-                return frameSize;
+        float avgDelayMs = (mInputCommandCount == 0) ? 0 : (mInputDelaySum / (float) mInputCommandCount) / 1000000;
 
-            } else if (mFrameCount < 3) {
-                frameSize = (System.nanoTime() - mPrevTime) / 100000000;
-                mFrameSizeHistory[mFrameCount % 3] = frameSize;
-                return frameSize;
-            } else {
-                frameSize = (System.nanoTime() - mPrevTime) / 100000000;
-                mFrameSizeHistory[mFrameCount % 3] = frameSize;
-                return ((mFrameSizeHistory[0] + mFrameSizeHistory[1] + mFrameSizeHistory[2]) / 3);
-            }
-        }
+        System.out.println("Input stats for level " + mChapter + "." + mLevel);
+        System.out.println("  commands: " + mInputCommandCount + " (" + mInputCommands.getDroppedCount() + " dropped)");
+        System.out.println("  queueing delay: " + avgDelayMs + " ms average, " + (mInputDelayMax / 1000000f) + " ms max");
+    }
 
+    private boolean isLevelActive(){
+        return (currentLevelStatus == GameStatus.ACTIVE);
     }
 
-    public float getAvgFrameLength(){
-        return mLastTenFrameAvg;
+    private boolean isLevelComplete() { return (currentLevelStatus == GameStatus.POST_PLAY);}
+
+    public GameStatus getCurrentLevelStatus() {
+        return currentLevelStatus;
     }
 
     public void disableVelocityArrow(){
         mIsVelocityArrowActive = false;
     }
 
-    public void rotateBall(Ball currentBall) {
-        float angle = currentBall.getCurrentRotation();
+    public void rotateBall(Ball currentBall, float angle) {
         float[] newCoords = CommonFunctions.rotateBallCoords(angle, initialBallCoords);
         currentBall.setCoords(newCoords);
     }
@@ -854,10 +1699,9 @@ public class GameEngine {
     // This function is used before the level is activated (when the ball is fired)
     // so the player can see the obstacles moving.
     public void advanceMovingObstacles() {
-        for (MovingObstacle currentObstacle : allMovingObstacles){
-            currentObstacle.resetAABB(); //reset AABB
-            currentObstacle.moveByFrame(GameState.FRAME_SIZE); //move forward to the collision time
-            currentObstacle.updatePrevAABB();  //update saved value
+        for (int obstacleIndex = 0; obstacleIndex < allMovingObstacles.size(); obstacleIndex++) {
+            MovingObstacle currentObstacle = allMovingObstacles.get(obstacleIndex);
+            currentObstacle.endFrame(); //on to the next frame of its path
         }
     }
 
@@ -868,7 +1712,8 @@ public class GameEngine {
     private int getBallsInPlayCount() {
         int count = 0;
 
-        for (Ball currentBall : mAllBalls) {
+        for (int ballIndex = 0; ballIndex < mAllBalls.size(); ballIndex++) {
+            Ball currentBall = mAllBalls.get(ballIndex);
             if (currentBall.isBallMoving()) {
                 count++;
             }
@@ -895,8 +1740,6 @@ public class GameEngine {
     private void endLevelSuccess(){
         //eventually put some sort of graphic or message here
         success = true;
-        moveScoreDigits();
-        updateScoreDigitWaver(finalScoreText.getRandomMultiplier());
 
         //give them at least 1 point for 1 star
         if (currentScore == 0){
@@ -914,32 +1757,74 @@ public class GameEngine {
     private void endLevel(){
         currentLevelStatus = GameStatus.POST_PLAY;
         showFinalAvgFPS();
-        particleEngine.deactivate();
+        showCollisionStats();
+        showInputStats();
     }
 
     private void returnToSelectScreen() {
-        Intent data = new Intent();
+        final Intent data = new Intent();
         data.putExtra(END_LEVEL_SCORE, currentScore);
-        mParentActivity.setResult(mParentActivity.RESULT_OK, data);
+        mExited = true;
+        shutdownParallelNarrowphase();
+
+        //This may be called from the physics thread
+        mParentActivity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mParentActivity.setResult(mParentActivity.RESULT_OK, data);
+                mParentActivity.finish();
+            }
+        });
+    }
+
+    public boolean hasExited() {
+        return mExited;
+    }
+
+    /**
+     * Start running the game on its own thread (see PhysicsThread). Does nothing if it is already running,
+     * if no level has been loaded, or if the level is over.
+     */
+    public synchronized void startPhysicsThread() {
+        if ((mPhysicsThread != null) || (mSnapshots == null) || mExited) {
+            return;
+        }
+
+        //Don't try to catch up on the time the game wasn't running
+        setClock(mClock);
+
+        mPhysicsThread = new PhysicsThread(this);
+        mPhysicsThread.start();
+    }
 
-        mParentActivity.finish();
+    //Stop the physics thread (if running), and wait for it to finish the frame it is on
+    public synchronized void stopPhysicsThread() {
+        if (mPhysicsThread == null) {
+            return;
+        }
+
+        mPhysicsThread.shutdown();
+        mPhysicsThread = null;
     }
 
     public void postPlaySequence() {
 
-        if (success) {
+        if (mDrawnSnapshot.success) {
             postLevelSuccessSequence();
         } else {
             postLevelFailSequence();
         }
 
+    }
+
+    //The end of level sequence is timed in frames, so it is advanced along with them
+    private void advancePostPlay() {
         levelEndFrameCount++;
 
         if(levelEndFrameCount == 240) {
             releaseSounds();
             returnToSelectScreen();
         }
-
     }
 
     private void postLevelSuccessSequence() {
@@ -947,15 +1832,17 @@ public class GameEngine {
         // Set the background frame color
         GLES30.glClearColor(0.69f, 0.69f, 0.69f, 1.0f);
 
+        int frame = mDrawnSnapshot.levelEndFrameCount;
+
         endLevelSuccessImage.draw(mVPMatrix);
-        endLevelSuccessImage.updateImage(levelEndFrameCount);
+        endLevelSuccessImage.updateImage(frame);
 
         finalScoreText.draw(mVPMatrix);
-        finalScoreText.updateImage(levelEndFrameCount);
+        finalScoreText.updateImage(frame);
 
         for (int index = 0; index < 5; index++) {
             mScoreDigits[index].draw(mVPMatrix);
-            mScoreDigits[index].updateImage(levelEndFrameCount, index);
+            mScoreDigits[index].updateImage(frame, index);
         }
 
     }
@@ -992,6 +1879,16 @@ public class GameEngine {
         return (mCurrentActiveBallID < mTotalBalls);
     }
 
+    //Only for tests (running a level without a display), which need to see where the balls are
+    ArrayList<Ball> getAllBalls() {
+        return mAllBalls;
+    }
+
+    //Only for tests, which check where the moving obstacles go
+    ArrayList<MovingObstacle> getAllMovingObstacles() {
+        return allMovingObstacles;
+    }
+
     public void playBallPullBack() {
         soundEngine.playBallPullBack(0.5f,1);
     }
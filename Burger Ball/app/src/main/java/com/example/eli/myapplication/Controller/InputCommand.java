@@ -0,0 +1,32 @@
+package com.example.eli.myapplication.Controller;
+
+/**
+ * One touch input, passed from MyGLSurfaceView to the game through an InputCommandQueue.
+ * Instances are reused: InputCommandQueue.poll copies the next command into one.
+ */
+public class InputCommand {
+
+    //AIM_START - touched the ball, DRAG - pulled back by (x, y), FIRE - released at (x, y), CANCEL - touch taken away
+    public enum Type {AIM_START, DRAG, FIRE, CANCEL}
+
+    private Type mType;
+    private float mX;
+    private float mY;
+    private long mTime;
+
+    public void set(Type type, float x, float y, long time) {
+        mType = type;
+        mX = x;
+        mY = y;
+        mTime = time;
+    }
+
+    public Type getType() { return mType; }
+
+    public float getX() { return mX; }
+
+    public float getY() { return mY; }
+
+    //Clock time the command was queued
+    public long getTime() { return mTime; }
+}
@@ -0,0 +1,82 @@
+package com.example.eli.myapplication.Controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size ring buffer of input commands, from the UI thread (MyGLSurfaceView) to whichever thread runs the
+ * game (see GameEngine.drainInputCommands). There must be only one thread calling offer and one calling poll.
+ *
+ * Neither side locks or waits. The producer only moves the tail and the consumer only moves the head, and each
+ * publishes its index after it has finished with the slot, so a slot is never read and written at the same time.
+ * If the queue is full, the new command is dropped (and counted).
+ */
+public class InputCommandQueue {
+
+    private final InputCommand.Type[] mTypes;
+    private final float[] mX;
+    private final float[] mY;
+    private final long[] mTimes;
+    private final int mMask;
+
+    private final AtomicLong mHead = new AtomicLong(0);   //Next command to read (only moved by the consumer)
+    private final AtomicLong mTail = new AtomicLong(0);   //Next slot to write (only moved by the producer)
+    private volatile int mDroppedCount = 0;               //Only written by the producer
+
+    public InputCommandQueue(int capacity) {
+        //Round up to a power of two, so slots can be found with a mask
+        int size = 1;
+        while (size < capacity) {
+            size = size * 2;
+        }
+
+        mTypes = new InputCommand.Type[size];
+        mX = new float[size];
+        mY = new float[size];
+        mTimes = new long[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * Add a command to the end of the queue (producer only).
+     * Returns false if the queue was full, in which case the command is dropped.
+     */
+    public boolean offer(InputCommand.Type type, float x, float y, long time) {
+        long tail = mTail.get();
+
+        if (tail - mHead.get() == mTypes.length) {
+            mDroppedCount++;
+            return false;
+        }
+
+        int slot = (int) (tail & mMask);
+        mTypes[slot] = type;
+        mX[slot] = x;
+        mY[slot] = y;
+        mTimes[slot] = time;
+
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Copy the first command in the queue into result, and remove it (consumer only).
+     * Returns false if the queue was empty.
+     */
+    public boolean poll(InputCommand result) {
+        long head = mHead.get();
+
+        if (head == mTail.get()) {
+            return false;
+        }
+
+        int slot = (int) (head & mMask);
+        result.set(mTypes[slot], mX[slot], mY[slot], mTimes[slot]);
+
+        mHead.lazySet(head + 1);
+        return true;
+    }
+
+    public int getDroppedCount() {
+        return mDroppedCount;
+    }
+}
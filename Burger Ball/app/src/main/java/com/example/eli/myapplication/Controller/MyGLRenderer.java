@@ -46,12 +46,6 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     private final float[] mProjectionMatrix = new float[16];
     private final float[] mViewMatrix = new float[16];
 
-    private long mEndTime;
-    private long mStartTime = 0;
-    private long[] sleepTimes = new long[10];
-    private int frameCount = 0;
-    private long mFrameRateCap = (1000 / GameState.FRAME_RATE_CAP_SIZE);
-
 
     private float mAngle;
     private int mSlowMo = 0;
@@ -76,6 +70,8 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
         //REALLY IMPORTANT to keep here!
         //it seems that the drawable objects must be initialized no earlier than this point
         //or else openGL has no reference to them.
+        //(If the surface is being re-created, the level is loaded again, so stop the old one first)
+        mGame.stopPhysicsThread();
         mGame.loadLevel();
         //mGame.drawObjects();
 
@@ -83,6 +79,10 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
 
         mGame.drawObjects();
 
+        if (GameState.USE_PHYSICS_THREAD) {
+            mGame.startPhysicsThread();
+        }
+
     }
 
     public void setVPMatrix() {
@@ -99,21 +99,19 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     @Override
     public void onDrawFrame(GL10 unused) {
 
+        //Catch the game up to the current time. This runs however many fixed frames fit into the
+        // time since the last draw (possibly none), so the game runs at the same speed on any display.
+        // (With a physics thread, this is done there instead)
+        if (!GameState.USE_PHYSICS_THREAD) {
+            mGame.advanceTime();
+        }
+
         GameStatus levelStatus = mGame.getCurrentLevelStatus();
 
         switch (levelStatus) {
             case BEFORE_PLAY:
-                mGame.advanceMovingObstacles();
-                mGame.drawObjects();
-                break;
-
             case ACTIVE:
-                mGame.advanceFrame();
                 mGame.drawObjects();
-
-                if (GameState.FRAME_RATE_CAP){
-                    capFrameRate();
-                }
                 break;
 
             case POST_PLAY:
@@ -224,50 +222,6 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     public void slowMoFlip(){
         mSlowMo = (mSlowMo+1) % 2;
     }
-
-    private void capFrameRate(){
-
-        if (mStartTime == 0){
-            mStartTime = System.currentTimeMillis();
-            return;
-        }
-
-        mEndTime = System.currentTimeMillis();
-
-        if (GameState.AUTO_CAP_FRAME_RATE_SIZE){
-            if ((frameCount % 10) == 0) {
-                long avgFrameSizeLastTen = (long) (mGame.getAvgFrameLength() * .94);
-                long avgSleepTimeLastTen = getAvgSleepTime();
-                long desiredSleepTime = (long) (mFrameRateCap * 0.25);
-                long diffFromDesiredSleep = avgSleepTimeLastTen - desiredSleepTime;
-                mFrameRateCap = avgFrameSizeLastTen - (diffFromDesiredSleep/2);
-            }
-
-            if (mFrameRateCap <= 0){
-                mFrameRateCap = (1000 / GameState.FRAME_RATE_CAP_SIZE);
-            }
-        }
-
-        long sleepTime = mFrameRateCap - (mEndTime - mStartTime);
-        sleepTimes[frameCount % 10] = sleepTime;
-        frameCount++;
-        if (sleepTime > 0) {
-            try {
-                Thread.sleep(sleepTime);
-            } catch (Exception e) {
-            }
-        }
-        mStartTime = System.currentTimeMillis();
-
-    }
-
-    private long getAvgSleepTime(){
-        long sum = 0;
-        for (int index = 0; index < 10; index++){
-            sum = sum + sleepTimes[index];
-        }
-        return sum/10;
-    }
 }
 
 
@@ -95,6 +95,7 @@ public class MyGLSurfaceView extends GLSurfaceView {
                     mFiringBall = true;
                     mPreviousX = x;
                     mPreviousY = y;
+                    mGame.queueInput(InputCommand.Type.AIM_START, 0, 0);
                 }
 
                 return true;
@@ -106,9 +107,8 @@ public class MyGLSurfaceView extends GLSurfaceView {
                     float xChange = x - mPreviousX;
                     float yChange = y - mPreviousY;
 
-                    PointF initialVelocity = CommonFunctions.calculateInitialVelocity(xChange,yChange);
-
-                    mGame.activateBall(initialVelocity);
+                    //The ball is fired (and the arrow hidden) at the start of the next frame
+                    mGame.queueInput(InputCommand.Type.FIRE, xChange, yChange);
                     mGame.stopBallPullBack();
 
                     if (firstBall) {
@@ -116,8 +116,6 @@ public class MyGLSurfaceView extends GLSurfaceView {
                         firstBall = false;
                     }
 
-                    mGame.disableVelocityArrow();
-
                 }
 
                 return true;
@@ -129,7 +127,19 @@ public class MyGLSurfaceView extends GLSurfaceView {
                     float xChange = x - mPreviousX;
                     float yChange = y - mPreviousY;
 
-                    mGame.redrawArrow(xChange,yChange);
+                    mGame.queueInput(InputCommand.Type.DRAG, xChange, yChange);
+
+                }
+
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+
+                if (mFiringBall){
+
+                    mGame.queueInput(InputCommand.Type.CANCEL, 0, 0);
+                    mGame.stopBallPullBack();
+                    mFiringBall = false;
 
                 }
 
@@ -0,0 +1,45 @@
+package com.example.eli.myapplication.Controller;
+
+/**
+ * Runs the game (GameEngine.advanceTime) on its own thread, so a slow frame never holds up drawing.
+ * Used when GameState.USE_PHYSICS_THREAD is set. The renderer only reads the snapshots the game
+ * publishes at the end of every frame (see RenderSnapshotBuffer).
+ */
+public class PhysicsThread extends Thread {
+
+    private final GameEngine mGame;
+    private volatile boolean mRunning = true;
+
+    public PhysicsThread(GameEngine game) {
+        super("PhysicsThread");
+        mGame = game;
+    }
+
+    @Override
+    public void run() {
+        while (mRunning && !mGame.hasExited()) {
+            mGame.advanceTime();
+
+            //Sleep until the next frame is due
+            long sleepNanos = mGame.getNanosUntilNextFrame();
+            try {
+                Thread.sleep(sleepNanos / 1000000, (int) (sleepNanos % 1000000));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop the thread, and wait for the frame in progress (if any) to finish.
+     */
+    public void shutdown() {
+        mRunning = false;
+        interrupt();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
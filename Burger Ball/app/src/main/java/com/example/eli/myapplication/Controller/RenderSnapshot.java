@@ -0,0 +1,45 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Resources.GameState.GameStatus;
+
+/**
+ * Everything GameEngine.drawObjects needs from one frame of the game. It is copied out of the game
+ * objects at the end of every frame, so that frame can be drawn while the next one is being run
+ * (see RenderSnapshotBuffer). Nothing in here refers back to the live game objects.
+ */
+class RenderSnapshot {
+
+    long frameNumber;
+    long frameEndTime;     //Clock time the frame was run up to
+    GameStatus levelStatus;
+    boolean success;
+    int levelEndFrameCount;
+    int score;             //Score shown by the score digits
+
+    //Balls, indexed by ball slot
+    final boolean[] ballVisible;
+    final boolean[] ballEmitsParticles;
+    final float[] ballModelMatrices;      //16 per ball
+    final float[] ballLastDisplacement;   //x, y per ball
+    final float[] ballRotation;
+    final float[] ballCenter;             //x, y per ball
+    final float[] ballVelocity;           //x, y per ball
+
+    //Moving obstacles, in the same order as GameEngine's moving obstacle collection
+    final float[] obstacleOffsets;        //previous frame x, y, then this frame x, y per obstacle
+
+    //Indexed by interactable id
+    final boolean[] targetCollected;
+
+    RenderSnapshot(int ballCount, int movingObstacleCount, int idCapacity) {
+        ballVisible = new boolean[ballCount];
+        ballEmitsParticles = new boolean[ballCount];
+        ballModelMatrices = new float[ballCount * 16];
+        ballLastDisplacement = new float[ballCount * 2];
+        ballRotation = new float[ballCount];
+        ballCenter = new float[ballCount * 2];
+        ballVelocity = new float[ballCount * 2];
+        obstacleOffsets = new float[movingObstacleCount * 4];
+        targetCollected = new boolean[idCapacity];
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.eli.myapplication.Controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer that passes RenderSnapshots from the thread running the game to the thread
+ * drawing it. The game always has a back buffer to fill, and the renderer always has a front buffer
+ * to read, so neither ever waits on the other. The third buffer sits in between: publishing swaps it
+ * with the back buffer, and getLatest swaps it with the front buffer if it holds a newer snapshot.
+ *
+ * Only one thread may call getBackBuffer / publish, and only one (other) thread may call getLatest.
+ */
+class RenderSnapshotBuffer {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;   //Set when the middle buffer holds a snapshot the renderer hasn't seen
+
+    private final RenderSnapshot[] mSnapshots = new RenderSnapshot[3];
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+    private int mBack = 0;    //Only touched by the game
+    private int mFront = 2;   //Only touched by the renderer
+
+    RenderSnapshotBuffer(int ballCount, int movingObstacleCount, int idCapacity) {
+        for (int index = 0; index < mSnapshots.length; index++) {
+            mSnapshots[index] = new RenderSnapshot(ballCount, movingObstacleCount, idCapacity);
+        }
+    }
+
+    //The snapshot to fill in for the next publish()
+    RenderSnapshot getBackBuffer() {
+        return mSnapshots[mBack];
+    }
+
+    void publish() {
+        mBack = mMiddle.getAndSet(mBack | FRESH) & INDEX_MASK;
+    }
+
+    //The most recently published snapshot. It stays untouched until the next call.
+    RenderSnapshot getLatest() {
+        if ((mMiddle.get() & FRESH) != 0) {
+            mFront = mMiddle.getAndSet(mFront) & INDEX_MASK;
+        }
+        return mSnapshots[mFront];
+    }
+}
@@ -57,10 +57,7 @@ public class ActivateBallLogic {
             firingZoneCenter = CommonFunctions.getFiringZoneCenter(startingCoords);
         }
 
-        PointF currentBallCenter = ball.getCenter();
-
-        PointF distanceVector = new PointF(firingZoneCenter.x - currentBallCenter.x, firingZoneCenter.y - currentBallCenter.y);
-        float distance = distanceVector.length();
+        float distance = PointF.length(firingZoneCenter.x - ball.getCenterX(), firingZoneCenter.y - ball.getCenterY());
 
         //If the distance between them is less than the diameter, then this ball is in the firing zone.
         if (distance < (ball.getRadius() * 2)){
@@ -9,33 +9,86 @@ import com.example.eli.myapplication.Resources.GameState;
 import com.example.eli.myapplication.Model.MovingObstacle;
 import com.example.eli.myapplication.Model.Obstacle;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * The purpose of this class is to contain some of the more advanced ball properties and logic. To do this
- * we maintain multiple hashmaps corresponding to every ball's properties
+ * we maintain multiple arrays corresponding to every ball's properties, indexed by the ball's slot
+ * (see Ball.getBallSlot).
  * Created by Eli on 1/21/2017.
  */
 
 public class BallEngine {
 
-    private HashMap<Ball, PointF> rollingAccelMap = new HashMap<>();
-    private HashMap<Ball, Float> rollTimeMap = new HashMap<>();
+    //Used in ballCollisionsThisStep for balls that haven't been counted since the last clear
+    private static final int NOT_COUNTED = -1;
+
+    private float[] rollingAccelX;
+    private float[] rollingAccelY;
+    private float[] rollTimes;
 
     //Keeps track of how many objects this ball collided with in this frame
     //(only > 1 if multiple collisions happened at the exact same time)
     //(includes collisions where this ball is not the main ball)
-    private HashMap<Ball, Integer> ballCollisionsThisStep = new HashMap<>();
-    private HashMap<Ball, Integer> ballCollisionsThisFrame = new HashMap<>();
-    private HashMap<Ball, Integer> boundaryCollisionsThisFrame = new HashMap<>();
-    private HashMap<Ball, Integer> sameBoundaryCollisionsThisFrame = new HashMap<>();
-    private HashMap<Ball, Collision> lastCollisionMap = new HashMap<>();
+    private int[] ballCollisionsThisStep;
+    private int[] ballCollisionsThisFrame;
+    private int[] boundaryCollisionsThisFrame;
+    private Collision[] lastCollisions;
 
-    private BallStateMachine ballStateMachine;
+    //The surface each rolling ball is in contact with (see startSurfaceContact): the obstacle, the index of its side,
+    // and that side's axis pointing into the obstacle. Kept apart from lastCollisions, which only records what each
+    // ball last hit.
+    private Obstacle[] contactObstacles;
+    private int[] contactEdges;
+    private PointF[] contactAxes;
+
+    //Number of frames in a row each ball has been at rest (see updateSleepState)
+    private int[] restingFrames;
 
-    public BallEngine(float[] initialBallCoords) {
+    //Speed each ball was moving into the surface at its last obstacle collision (see isBallSettlingOnSurface).
+    //GameState.LARGE_NUMBER if its last collision wasn't with an obstacle, or a contact has already been made.
+    private float[] contactSpeeds;
+
+    private BallStateMachine ballStateMachine;
+    private RestingContactSolver restingContacts;
+
+    //Scratch vectors, so velocity calculations used during collision detection don't allocate.
+    //getVelocity / getAvgVelocity / calculatePositionChange (writing into result) don't touch these, so they can be
+    //called from several narrowphase workers at once (see ParallelNarrowphase).
+    private PointF mZeroVector = new PointF(0f,0f);
+    private PointF mFlatRollDeceleration = new PointF();
+    private PointF mRollingAccel = new PointF();
+    private PointF mPositionChange = new PointF();
+
+    //Only used on the game thread (velocity updates, state changes, and getMaxTravelDistance)
+    private PointF mTravelStartVelocity = new PointF();
+    private PointF mTravelEndVelocity = new PointF();
+    private PointF mBallVelocity = new PointF();
+    private PointF mRollingVector = new PointF();
+
+    public BallEngine(float[] initialBallCoords, int totalBalls) {
         ballStateMachine = new BallStateMachine(initialBallCoords);
+        restingContacts = new RestingContactSolver(this, totalBalls);
+
+        rollingAccelX = new float[totalBalls];
+        rollingAccelY = new float[totalBalls];
+        rollTimes = new float[totalBalls];
+
+        ballCollisionsThisStep = new int[totalBalls];
+        ballCollisionsThisFrame = new int[totalBalls];
+        boundaryCollisionsThisFrame = new int[totalBalls];
+        lastCollisions = new Collision[totalBalls];
+        contactObstacles = new Obstacle[totalBalls];
+        contactEdges = new int[totalBalls];
+        contactAxes = new PointF[totalBalls];
+        for (int slot = 0; slot < totalBalls; slot++) {
+            contactAxes[slot] = new PointF();
+        }
+        restingFrames = new int[totalBalls];
+        contactSpeeds = new float[totalBalls];
+        Arrays.fill(contactSpeeds, GameState.LARGE_NUMBER);
+
+        clearCollisionHistories();
     }
 
     public void updateBallState(Ball currentBall) {
@@ -43,106 +96,115 @@ public class BallEngine {
     }
 
     public void moveByFrame(Ball currentBall, float percentOfFrame){
-        PointF positionChange = calculatePositionChange(currentBall, percentOfFrame);
-        currentBall.updateAABB(positionChange.x, positionChange.y);
+        calculatePositionChange(currentBall, percentOfFrame, mPositionChange);
+        currentBall.updateAABB(mPositionChange.x, mPositionChange.y);
     }
 
     /**
-     * Calculate the position change of a ball after percentOfFrame, by computing the average
-     * velocity starting at current time and and ending at percentOfFrame. This is a slight
-     * simplification of how acceleration, velocity, and displacement are related, but for
-     * our purposes and over small frame steps, it is close enough.
+     * Calculate the position change of a ball after percentOfFrame (measured from the start of the current step).
+     * A ball's acceleration doesn't change during a step, so this is v * t + a * t^2 / 2, where v includes the
+     * velocity of the surface a rolling ball is on. A ball can be placed at any time in the step, without working
+     * through the times before it.
+     *
+     * This is exact for gravity (active balls) and inclines (the rolling acceleration only depends on the slope).
+     * On a flat obstacle the rolling deceleration depends on the velocity, so it is worked out from the velocity at
+     * the start of the step and held for the rest of it. That is exact for the step as it is run, but over several
+     * steps it only approximates slowing down in proportion to the velocity (the exponential slow-down the
+     * deceleration stands for).
      * @param currentBall
      * @param percentOfFrame
-     * @return
+     * @param result - written with the position change
      */
-    public PointF calculatePositionChange(Ball currentBall, float percentOfFrame){
-        PointF avgVelocity = getAvgVelocity(currentBall, percentOfFrame);
-        return new PointF(avgVelocity.x * percentOfFrame, avgVelocity.y * percentOfFrame);
+    public void calculatePositionChange(Ball currentBall, float percentOfFrame, PointF result){
+        getAvgVelocity(currentBall, percentOfFrame, result);
+        result.set(result.x * percentOfFrame, result.y * percentOfFrame);
     }
 
-    public void addBallCollision(Ball currentBall, Collision collision){
-        ballCollisionsThisStep = incrementCollisionMapEntry(ballCollisionsThisStep, currentBall);
-        ballCollisionsThisFrame = incrementCollisionMapEntry(ballCollisionsThisFrame, currentBall);
-        lastCollisionMap.put(currentBall,collision);
-    }
+    //Furthest the ball can get from where it started the step, within time: |v| t + |a| t^2 / 2
+    //(|a| t is worked out as the change in velocity, so this works for active and rolling balls alike)
+    public float getMaxTravelDistance(Ball currentBall, float time){
+        getVelocity(currentBall, 0, mTravelStartVelocity);
+        getVelocity(currentBall, time, mTravelEndVelocity);
 
-    public void addObstacleCollision(Ball currentBall, Collision collision){
+        float velocityChange = PointF.length(mTravelEndVelocity.x - mTravelStartVelocity.x, mTravelEndVelocity.y - mTravelStartVelocity.y);
+        return (mTravelStartVelocity.length() * time) + (velocityChange * time / 2);
+    }
 
-        boundaryCollisionsThisFrame = incrementCollisionMapEntry(boundaryCollisionsThisFrame, currentBall);
+    //Where the ball's center will be at time (measured from the start of the current step)
+    public void getPosition(Ball currentBall, float time, PointF result){
+        calculatePositionChange(currentBall, time, result);
+        result.set(currentBall.getPrevCenterX() + result.x, currentBall.getPrevCenterY() + result.y);
+    }
 
-        if (lastCollisionMap.get(currentBall) == null) {
-            sameBoundaryCollisionsThisFrame = incrementCollisionMapEntry(sameBoundaryCollisionsThisFrame, currentBall);
-            lastCollisionMap.put(currentBall,collision);
-        }
+    public void addBallCollision(Ball currentBall, Collision collision){
+        int slot = currentBall.getBallSlot();
 
-        if (sameLastCollision(currentBall, collision)) {
-            sameBoundaryCollisionsThisFrame = incrementCollisionMapEntry(sameBoundaryCollisionsThisFrame, currentBall);
+        if (ballCollisionsThisStep[slot] == NOT_COUNTED) {
+            ballCollisionsThisStep[slot] = 1;
         } else {
-            sameBoundaryCollisionsThisFrame.put(currentBall, 1);
-            lastCollisionMap.put(currentBall, collision);
+            ballCollisionsThisStep[slot]++;
         }
+        ballCollisionsThisFrame[slot]++;
+        setLastCollision(slot, collision);
+        contactSpeeds[slot] = GameState.LARGE_NUMBER;
+
+        restingContacts.clearRestingState(currentBall);
+        restingContacts.addBallContact(collision);
     }
 
-    private boolean sameLastCollision(Ball currentBall, Collision collision) {
-        Collision lastCollision = lastCollisionMap.get(currentBall);
-        if (collision.getObstacle().equals(lastCollision.getObstacle())) {
-            if (collision.getBoundaryAxis().equals(lastCollision.getBoundaryAxis())) {
-                return true;
-            }
-        }
-        return false;
+    //Called before the collision changes the ball's velocity
+    public void addObstacleCollision(Ball currentBall, Collision collision){
+        int slot = currentBall.getBallSlot();
+
+        boundaryCollisionsThisFrame[slot]++;
+        contactSpeeds[slot] = getSpeedIntoSurface(currentBall, collision);
+
+        restingContacts.clearRestingState(currentBall);
+        addSurfaceContact(currentBall, collision);
+        setLastCollision(slot, collision);
     }
 
-    public int getBoundaryCollisionCountThisFrame(Ball currentBall) {
-        if (boundaryCollisionsThisFrame.get(currentBall) == null) {
-            return 0;
+    //Collisions are pooled and reused every step, so keep our own copy of the last one
+    private void setLastCollision(int slot, Collision collision) {
+        if (lastCollisions[slot] == null) {
+            lastCollisions[slot] = new Collision();
         }
-        return boundaryCollisionsThisFrame.get(currentBall);
+        lastCollisions[slot].copyFrom(collision);
     }
 
-    public int getSameBoundaryCollisionCountThisFrame(Ball currentBall){
-        if (sameBoundaryCollisionsThisFrame.get(currentBall) == null) {
-            return 0;
-        }
-        return sameBoundaryCollisionsThisFrame.get(currentBall);
+    public int getBoundaryCollisionCountThisFrame(Ball currentBall) {
+        return boundaryCollisionsThisFrame[currentBall.getBallSlot()];
     }
 
     public int getBallCollisionsThisFrame(Ball currentBall){
-        if (ballCollisionsThisFrame.get(currentBall) == null) {
-            return 0;
-        }
-        return ballCollisionsThisFrame.get(currentBall);
+        return ballCollisionsThisFrame[currentBall.getBallSlot()];
     }
 
     public int getBallCollisionsThisStep(Ball currentBall) {
-        if (ballCollisionsThisStep.get(currentBall) == null) {
+        int ballCollisions = ballCollisionsThisStep[currentBall.getBallSlot()];
+        if (ballCollisions == NOT_COUNTED) {
             return 1;
         }
-        return ballCollisionsThisStep.get(currentBall);
+        return ballCollisions;
     }
 
     private PointF getRollingAccelForBall(Ball currentBall) {
         if (isBallOnFlatObstacle(currentBall)) {
             return getCurrentFlatRollDeceleration(currentBall);
         }
-        if (rollingAccelMap.get(currentBall) == null) {
-            return new PointF(0f,0f);
-        }
-        return rollingAccelMap.get(currentBall);
+        int slot = currentBall.getBallSlot();
+        mRollingAccel.set(rollingAccelX[slot], rollingAccelY[slot]);
+        return mRollingAccel;
     }
 
     public float getRollTimeForBall(Ball currentBall) {
-        if (rollTimeMap.get(currentBall) == null) {
-            return 0f;
-        }
-        return rollTimeMap.get(currentBall);
+        return rollTimes[currentBall.getBallSlot()];
     }
 
     public void clearFrameCollisionCount(Ball currentBall){
-        sameBoundaryCollisionsThisFrame.put(currentBall, 0);
-        ballCollisionsThisFrame.put(currentBall,0);
-        boundaryCollisionsThisFrame.put(currentBall, 0);
+        int slot = currentBall.getBallSlot();
+        ballCollisionsThisFrame[slot] = 0;
+        boundaryCollisionsThisFrame[slot] = 0;
     }
 
     /**
@@ -151,36 +213,48 @@ public class BallEngine {
      * and one for rolling balls (moving linearly across a single surface.
      * @param currentBall
      * @param timeStep
-     * @return
+     * @param result - written with the velocity
      */
-    public PointF getVelocity(Ball currentBall, float timeStep){
+    public void getVelocity(Ball currentBall, float timeStep, PointF result){
 
         PointF currentVelocity = currentBall.getVelocity();
 
         //we should either have an active ball,
         if (currentBall.isBallActive()) {
-            return new PointF(currentVelocity.x + (GameState.GRAVITY_CONSTANT.x * timeStep), currentVelocity.y + (GameState.GRAVITY_CONSTANT.y * timeStep));
+            result.set(currentVelocity.x + (GameState.GRAVITY_CONSTANT.x * timeStep), currentVelocity.y + (GameState.GRAVITY_CONSTANT.y * timeStep));
 
             //or else we have a rolling ball
         } else if (currentBall.isBallRolling()){
 
             PointF surfaceVelocity = getSurfaceVelocity(currentBall);
-            PointF rollingAccel = getRollingAccelForBall(currentBall);
+
+            //Same as getRollingAccelForBall, without the shared scratch vectors
+            float rollingAccelX;
+            float rollingAccelY;
+            if (isBallOnFlatObstacle(currentBall)) {
+                //From the velocity at the start of the step, so it's held for the whole step
+                rollingAccelX = -currentVelocity.x * GameState.ROLLING_DECELERATION_CONSTANT;
+                rollingAccelY = 0f;
+            } else {
+                rollingAccelX = this.rollingAccelX[currentBall.getBallSlot()];
+                rollingAccelY = this.rollingAccelY[currentBall.getBallSlot()];
+            }
 
             //Add current velocity, rolling velocity, and moving obstacle velocity.
             // Both rolling velocity and surface velocity can be 0
-            return new PointF(currentVelocity.x + (rollingAccel.x * timeStep) + surfaceVelocity.x,
-                    currentVelocity.y + (rollingAccel.y * timeStep) + surfaceVelocity.y);
+            result.set(currentVelocity.x + (rollingAccelX * timeStep) + surfaceVelocity.x,
+                    currentVelocity.y + (rollingAccelY * timeStep) + surfaceVelocity.y);
 
             //should never get here
         } else {
-            return new PointF(0f,0f);
+            result.set(0f,0f);
         }
     }
 
     private PointF getCurrentFlatRollDeceleration(Ball currentBall) {
         PointF currentVelocity = currentBall.getVelocity();
-        return new PointF(-currentVelocity.x * GameState.ROLLING_DECELERATION_CONSTANT,0f);
+        mFlatRollDeceleration.set(-currentVelocity.x * GameState.ROLLING_DECELERATION_CONSTANT,0f);
+        return mFlatRollDeceleration;
 
     }
 
@@ -189,17 +263,16 @@ public class BallEngine {
      * @return
      */
     private PointF getSurfaceVelocity(Ball currentBall) {
-        Collision lastCollision = lastCollisionMap.get(currentBall);
-        if (lastCollision == null) {
-            return new PointF(0f,0f);
+        Obstacle contactObstacle = getContactObstacle(currentBall);
+        if (contactObstacle == null) {
+            return mZeroVector;
         }
-        if (lastCollision.getObstacle().getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
+        if (contactObstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
             // To calculate obstacle velocity, we need to calculate
             // how much of the frame we have moved
-            MovingObstacle obstacle = (MovingObstacle) lastCollision.getObstacle();
-            return obstacle.getVelocity();
+            return ((MovingObstacle) contactObstacle).getVelocity();
         }
-        return new PointF(0f,0f);
+        return mZeroVector;
     }
 
     //update a balls velocity after time timeStep
@@ -218,24 +291,28 @@ public class BallEngine {
     //Update the velocity based on the current acceleration
     // (gravity if an active ball, or rolling accel for a rolling ball
     public void updateVelocityNonCollision(Ball currentBall, float timeStep) {
-        PointF ballVelocity = getVelocity(currentBall, timeStep);
+        getVelocity(currentBall, timeStep, mBallVelocity);
         //Subtract surface velocity here so it doesn't accumulate
         if (currentBall.isBallRolling()) {
             PointF surfaceVelocity = getSurfaceVelocity(currentBall);
-            ballVelocity.set(ballVelocity.x - surfaceVelocity.x, ballVelocity.y - surfaceVelocity.y);
+            mBallVelocity.set(mBallVelocity.x - surfaceVelocity.x, mBallVelocity.y - surfaceVelocity.y);
         }
-        currentBall.setVelocity(new PointF(ballVelocity.x, ballVelocity.y));
+        currentBall.setVelocity(mBallVelocity);
     }
 
-    //Get average velocity between current time and timeStep
-    public PointF getAvgVelocity(Ball currentBall, float timeStep){
-        PointF currentVelocity = getVelocity(currentBall, 0);
-        PointF finalVelocity = getVelocity(currentBall, timeStep);
-        return new PointF((currentVelocity.x + finalVelocity.x) / 2, (currentVelocity.y + finalVelocity.y) / 2);
+    //Get average velocity between current time and timeStep, written into result.
+    //The acceleration is held for the whole step (see calculatePositionChange), so this is just the velocity halfway through.
+    public void getAvgVelocity(Ball currentBall, float timeStep, PointF result){
+        getVelocity(currentBall, timeStep / 2, result);
     }
 
     public Collision getLastCollision(Ball currentBall) {
-        return lastCollisionMap.get(currentBall);
+        return lastCollisions[currentBall.getBallSlot()];
+    }
+
+    //The obstacle a rolling ball is rolling on (null if the ball has never rolled)
+    public Obstacle getContactObstacle(Ball currentBall) {
+        return contactObstacles[currentBall.getBallSlot()];
     }
 
     private void setRollingAcceleration(Ball currentBall, boolean flatObstacle) {
@@ -249,81 +326,35 @@ public class BallEngine {
 
     private void setRollingAccelIncline(Ball currentBall) {
 
-        PointF rollingVector = calculateRollingVectorIncline(currentBall);
+        PointF rollingVector = calculateRollingVectorIncline(currentBall, mRollingVector);
         double rollingAngle = Math.atan2(rollingVector.y, rollingVector.x);
         float rollingAcceleration = (float) (0.666 * GameState.GRAVITY_CONSTANT.y * Math.sin(rollingAngle));
-        PointF rollingAccelVector = new PointF(rollingAcceleration * (float) Math.cos(rollingAngle), rollingAcceleration * (float) Math.sin(rollingAngle));
-
-        rollingAccelMap.put(currentBall, rollingAccelVector);
+        int slot = currentBall.getBallSlot();
+        rollingAccelX[slot] = rollingAcceleration * (float) Math.cos(rollingAngle);
+        rollingAccelY[slot] = rollingAcceleration * (float) Math.sin(rollingAngle);
     }
 
     private void clearRollingAccel(Ball currentBall) {
-        rollingAccelMap.put(currentBall, new PointF(0f,0f));
-    }
-
-    private void setInitialRollingVelocity(Ball currentBall, boolean flatSurface) {
-        PointF rollingVector = calculateRollingVector(currentBall, flatSurface);
-        PointF directionalVelocity = calculateDirectionalVelocity(currentBall, rollingVector, flatSurface);
-        PointF finalVelocity = increaseVelocityForElasticLoss(directionalVelocity);
-        currentBall.setVelocity(finalVelocity);
-    }
-
-    /**
-     * Before a ball starts rolling, it undergoes a number of collisions each resulting in loss
-     * due to elasticity. Here, we add that loss back in.
-     * @param directionalVelocity
-     * @return
-     */
-    private PointF increaseVelocityForElasticLoss(PointF directionalVelocity) {
-        int affectedFrames = GameState.MAX_ELASTIC_COLLISIONS_PER_FRAME;
-        float elasticLoss = (float) Math.pow(GameState.ELASTIC_CONSTANT, affectedFrames);
-        return new PointF(directionalVelocity.x / elasticLoss, directionalVelocity.y / elasticLoss);
-    }
-
-    private PointF calculateRollingVector(Ball currentBall, boolean flatSurface) {
-        if (flatSurface) {
-            return calculateRollingVectorFlat(currentBall);
-        } else {
-            return calculateRollingVectorIncline(currentBall);
-        }
+        int slot = currentBall.getBallSlot();
+        rollingAccelX[slot] = 0f;
+        rollingAccelY[slot] = 0f;
     }
 
     /**
      * Calculate a vector representation of the surface the ball will be rolling down
      * @param currentBall
+     * @param result - written with the vector, and returned
      * @return
      */
-    private PointF calculateRollingVectorIncline(Ball currentBall) {
-        PointF collisionAxis = getLastCollision(currentBall).getBoundaryAxis();
+    private PointF calculateRollingVectorIncline(Ball currentBall, PointF result) {
+        PointF collisionAxis = contactAxes[currentBall.getBallSlot()];
         //warning - this code will break if gravity isn't solely in the negative Y-direction
         if (collisionAxis.x > 0 ) {
-            return new PointF(collisionAxis.y, -collisionAxis.x);
-        } else {
-            return new PointF(-collisionAxis.y, collisionAxis.x);
-        }
-    }
-
-    private PointF calculateRollingVectorFlat(Ball currentBall) {
-        PointF currentVelocity = getVelocity(currentBall, 0);
-        if (currentVelocity.x > 0) {
-            return new PointF(1f,0f);
-        } else {
-            return new PointF(-1f,0f);
-        }
-    }
-
-    private PointF calculateDirectionalVelocity(Ball currentBall, PointF rollingVector, boolean flatSurface) {
-        PointF currentVelocity = getVelocity(currentBall, 0);
-        float totalVelocity = currentVelocity.length();
-
-        if (flatSurface) {
-            return new PointF(rollingVector.x * totalVelocity, 0f);
-        }
-        if (currentVelocity.y > 0) {
-            return new PointF(-rollingVector.x * totalVelocity, -rollingVector.y * totalVelocity);
+            result.set(collisionAxis.y, -collisionAxis.x);
         } else {
-            return new PointF(rollingVector.x * totalVelocity, rollingVector.y * totalVelocity);
+            result.set(-collisionAxis.y, collisionAxis.x);
         }
+        return result;
     }
 
     private void setRollTime(Ball currentBall, boolean bottomBoundary) {
@@ -333,10 +364,10 @@ public class BallEngine {
             return;
         }
 
-        PointF remainingLength = calculateRemainingDistanceToBeRolled(currentBall);
+        float remainingLength = calculateRemainingDistanceToBeRolled(currentBall);
         float rollTime = calculateQuadraticRollTime(currentBall, remainingLength);
         rollTime = rollTime * 1.05f; //Add a bit extra so we don't get stuck on a corner after rolling.
-        rollTimeMap.put(currentBall, rollTime);
+        rollTimes[currentBall.getBallSlot()] = rollTime;
     }
 
     /**
@@ -344,18 +375,52 @@ public class BallEngine {
      * @param currentBall
      */
     private void setInfiniteRollTime(Ball currentBall) {
-        rollTimeMap.put(currentBall, GameState.LARGE_NUMBER);
+        rollTimes[currentBall.getBallSlot()] = GameState.LARGE_NUMBER;
     }
 
-    private PointF calculateRemainingDistanceToBeRolled(Ball currentBall) {
-        ArrayList<PointF> surfaceVertices = getSurfaceVertices(currentBall);
+    /**
+     * Distance along the surface the ball is rolling on, from the ball to the end of the surface it's heading for
+     * (the lower end, unless the ball is on a flat surface).
+     * @param currentBall
+     * @return
+     */
+    private float calculateRemainingDistanceToBeRolled(Ball currentBall) {
+        int slot = currentBall.getBallSlot();
+        Obstacle obstacle = contactObstacles[slot];
+        int vertexA = contactEdges[slot];
+        int vertexB = (vertexA + 1) % obstacle.getVertexCount(); //We need to wrap back to the first vertex at the end, so use modulus
+
+        float startX = obstacle.getBaseVertexX(vertexA);
+        float startY = obstacle.getBaseVertexY(vertexA);
+        float endX = obstacle.getBaseVertexX(vertexB);
+        float endY = obstacle.getBaseVertexY(vertexB);
+
+        //Make sure the end is the lower vertex. A ball on a flat surface can be rolling either way, so there
+        // the end is the one it's heading for.
+        boolean swapEnds;
+        if (isBallOnFlatObstacle(currentBall)) {
+            swapEnds = ((endX - startX) * currentBall.getVelocity().x < 0);
+        } else {
+            swapEnds = (startY < endY);
+        }
+        if (swapEnds) {
+            float swap = startX;
+            startX = endX;
+            endX = swap;
+            swap = startY;
+            startY = endY;
+            endY = swap;
+        }
 
-        PointF vertexA = surfaceVertices.get(0);
-        PointF vertexB = surfaceVertices.get(1);
+        //Project the ball's center (relative to the obstacle, which is offset if it has moved) onto the surface
+        float pointX = currentBall.getCenterX() - obstacle.getOffsetX() - startX;
+        float pointY = currentBall.getCenterY() - obstacle.getOffsetY() - startY;
+        float lineX = endX - startX;
+        float lineY = endY - startY;
+        float lineLength = PointF.length(lineX, lineY);
+        float distanceAlongLine = CommonFunctions.dotProduct(pointX, pointY, lineX, lineY) / lineLength;
 
-        PointF ballCenter = currentBall.getCenter();
-        PointF ballPointOnLine = projectPointOntoLine(vertexA, vertexB, ballCenter);
-        return new PointF(vertexB.x - ballPointOnLine.x, vertexB.y - ballPointOnLine.y);
+        return Math.abs(lineLength - distanceAlongLine);
     }
 
     /**
@@ -365,10 +430,10 @@ public class BallEngine {
      * @param remainingDistance - Distance vector remaining on the surface that ball is rolling down
      * @return
      */
-    private float calculateQuadraticRollTime(Ball currentBall, PointF remainingDistance) {
+    private float calculateQuadraticRollTime(Ball currentBall, float remainingDistance) {
         double quadA = getRollingAccelForBall(currentBall).length() / 2;
         double quadB = currentBall.getVelocity().length();
-        double quadC = -remainingDistance.length();
+        double quadC = -remainingDistance;
 
         //If ball is rolling on flat obstacle, accel will always be negative (slowing down)
         if (isBallOnFlatObstacle(currentBall)) {
@@ -393,129 +458,205 @@ public class BallEngine {
         }
     }
 
-    private ArrayList<PointF> getSurfaceVertices(Ball currentBall) {
-        Obstacle obstacle = (Obstacle) getLastCollision(currentBall).getObstacle();
+    //Index of the obstacle's boundary axis that matches the collision axis, or -1 if the ball hit a vertex instead of an edge
+    private int findBoundaryIndex(Obstacle obstacle, PointF collisionAxis) {
+        for (int index = 0; index < obstacle.getVertexCount(); index++) {
+            if ((obstacle.getBoundaryAxisX(index) == collisionAxis.x) && (obstacle.getBoundaryAxisY(index) == collisionAxis.y)) {
+                return index;
+            }
+        }
+        return -1;
+    }
 
-        PointF collisionAxis = getLastCollision(currentBall).getBoundaryAxis();
 
-        int boundaryIndex = 0;
-        for (int index = 0; index < obstacle.get2dCoordArray().length; index++) {
-            PointF currentBoundaryAxis = obstacle.getBoundaryAxis(index);
-            if (currentBoundaryAxis.equals(collisionAxis.x, collisionAxis.y)) {
-                boundaryIndex = index;
-                break;
-            }
+    /**
+     * True if the ball's last collision was a slow one (below GameState.CONTACT_VELOCITY) with the edge of an
+     * obstacle that gravity is pushing it into. Bouncing off it again would only lead to smaller and smaller
+     * bounces, so the ball should stay in contact with the surface instead (see startSurfaceContact).
+     */
+    public boolean isBallSettlingOnSurface(Ball currentBall) {
+        if (contactSpeeds[currentBall.getBallSlot()] >= GameState.CONTACT_VELOCITY) {
+            return false;
         }
 
-        ArrayList<PointF> vertices = obstacle.getSurfaceVertices(boundaryIndex);
+        Collision lastCollision = getLastCollision(currentBall);
+        Obstacle obstacle = (Obstacle) lastCollision.getObstacle();
+        PointF collisionAxis = lastCollision.getBoundaryAxis();
 
-        //Make sure vertices are oriented correctly (first is above second)
-        if (vertices.get(0).y < vertices.get(1).y) {
-            PointF first = vertices.get(0);
-            vertices.remove(0);
-            vertices.add(first);
+        if (findBoundaryIndex(obstacle, collisionAxis) == -1) {
+            return false;
         }
-        return vertices;
+
+        //Gravity pushing the ball onto the surface (along the axis, once it points into the obstacle)
+        return CommonFunctions.dotProduct(GameState.GRAVITY_CONSTANT, collisionAxis) * getInwardSign(obstacle, collisionAxis) > 0;
     }
 
-    private PointF projectPointOntoLine(PointF vertexA, PointF vertexB, PointF pointToProject) {
-        PointF pointVector = new PointF(pointToProject.x - vertexA.x, pointToProject.y - vertexA.y);
-        PointF line = new PointF(vertexB.x - vertexA.x, vertexB.y - vertexA.y);
-        PointF lineUnit = new PointF(line.x / line.length(), line.y / line.length());
-        float scalar = CommonFunctions.dotProduct(pointVector, lineUnit);
-        PointF pointOffset = new PointF(lineUnit.x * scalar, lineUnit.y * scalar);
-        PointF finalPoint = new PointF(vertexA.x + pointOffset.x, vertexA.y + pointOffset.y);
-        return finalPoint;
+    /**
+     * Keep the ball in contact with the surface it last hit: it rolls along it (moving with it, if it's a
+     * moving obstacle) until it rolls off the end, stops, or hits something else. While the contact holds,
+     * the surface is left out of collision detection (see CollisionDetection's pre-checks),
+     * so the ball raises no more collisions against it.
+     *
+     * The ball keeps its velocity along the surface (relative to it), and loses the rest.
+     */
+    public void startSurfaceContact(Ball currentBall) {
+        Collision lastCollision = getLastCollision(currentBall);
+        Obstacle obstacle = (Obstacle) lastCollision.getObstacle();
+        startContact(currentBall, obstacle, findBoundaryIndex(obstacle, lastCollision.getBoundaryAxis()));
     }
 
+    private void startContact(Ball currentBall, Obstacle obstacle, int boundaryIndex) {
+        int slot = currentBall.getBallSlot();
+        contactSpeeds[slot] = GameState.LARGE_NUMBER;
+
+        //The rolling calculations expect the axis to point into the obstacle (like the flat (0, -1) axis does)
+        float inwardSign = obstacle.isBoundaryAxisInward(boundaryIndex) ? 1f : -1f;
+        contactObstacles[slot] = obstacle;
+        contactEdges[slot] = boundaryIndex;
+        contactAxes[slot].set(obstacle.getBoundaryAxisX(boundaryIndex) * inwardSign, obstacle.getBoundaryAxisY(boundaryIndex) * inwardSign);
+        //The ball never collides with the side while it rolls, so it's kept as a resting contact here
+        if (obstacle.getType() == GameState.INTERACTABLE_OBSTACLE) {
+            restingContacts.addSurfaceContact(currentBall, obstacle, boundaryIndex);
+        }
 
-    public void handleSlowedBall(Ball currentBall) {
         boolean onFlatSurface = isBallOnFlatObstacle(currentBall);
         boolean onBottomObstacle = isBallOnBottomObstacle(currentBall);
 
-        //Order is important here- initial rolling velocity must be calculated before ball status
-        // has been updated to rolling, but roll time must be calculated after.
+        PointF velocity = mBallVelocity;
+        getVelocity(currentBall, 0, velocity);
+        PointF surfaceVelocity = getSurfaceVelocity(currentBall);
+        PointF collisionAxis = contactAxes[slot];
+
+        float relativeVelocityX = velocity.x - surfaceVelocity.x;
+        float relativeVelocityY = velocity.y - surfaceVelocity.y;
+        float normalVelocity = CommonFunctions.dotProduct(relativeVelocityX, relativeVelocityY, collisionAxis.x, collisionAxis.y);
+
+        //Order is important here- the velocity is set before the ball is rolling, and the roll time after
         setRollingAcceleration(currentBall, onFlatSurface);
-        setInitialRollingVelocity(currentBall, onFlatSurface);
+        currentBall.setVelocity(relativeVelocityX - (normalVelocity * collisionAxis.x),
+                relativeVelocityY - (normalVelocity * collisionAxis.y));
         currentBall.rollingBall();
         setRollTime(currentBall, onBottomObstacle);
     }
 
+    //Only the sides of obstacles that don't move are kept as resting contacts (see RestingContactSolver)
+    private void addSurfaceContact(Ball currentBall, Collision collision) {
+        if (collision.getObstacle().getType() != GameState.INTERACTABLE_OBSTACLE) {
+            return;
+        }
+
+        Obstacle obstacle = (Obstacle) collision.getObstacle();
+        int boundaryIndex = findBoundaryIndex(obstacle, collision.getBoundaryAxis());
+        if (boundaryIndex != -1) {
+            restingContacts.addSurfaceContact(currentBall, obstacle, boundaryIndex);
+        }
+    }
+
+    /**
+     * Called once at the start of every frame, before any ball is moved. Balls resting against each other
+     * (or against the side of an obstacle) have their velocities changed so they stay resting for the frame,
+     * instead of colliding again (see RestingContactSolver).
+     */
+    public void solveRestingContacts(float frameTime) {
+        restingContacts.solve(frameTime);
+    }
+
+    //True if the ball's resting contacts held it still this frame
+    public boolean isBallHeldByContacts(Ball currentBall) {
+        return restingContacts.isBallHeld(currentBall);
+    }
+
+    //A ball rolling along a flat obstacle that doesn't move can be pushed along it by its resting contacts
+    boolean isBallRollingOnFlatObstacle(Ball currentBall) {
+        return currentBall.isBallRolling() && isBallOnFlatObstacle(currentBall)
+                && (getContactObstacle(currentBall).getType() == GameState.INTERACTABLE_OBSTACLE);
+    }
+
+    //Rolling on a flat obstacle that doesn't move, with the other ball above it: the obstacle holds it up against the other ball
+    public boolean isBallHeldUpBySurface(Ball currentBall, Ball otherBall) {
+        return isBallRollingOnFlatObstacle(currentBall) && (otherBall.getPrevCenterY() > currentBall.getPrevCenterY());
+    }
+
+    //Change a rolling ball's velocity along its surface. How long it can roll for depends on its velocity.
+    void setRollingVelocity(Ball currentBall, float velocityX, float velocityY) {
+        currentBall.setVelocity(velocityX, velocityY);
+        setRollTime(currentBall, isBallOnBottomObstacle(currentBall));
+    }
+
+    //True if the ball's resting contacts are holding it up on the side of an obstacle this frame
+    public boolean isBallSupportedBySurface(Ball currentBall) {
+        return restingContacts.getSupportingObstacle(currentBall) != null;
+    }
+
+    /**
+     * Roll along the side that is holding the ball up, the same as if the ball had settled onto it
+     * (see startSurfaceContact), even though the ball may never have collided with it.
+     */
+    public void startSupportedSurfaceContact(Ball currentBall) {
+        startContact(currentBall, restingContacts.getSupportingObstacle(currentBall), restingContacts.getSupportingEdge(currentBall));
+    }
+
+    //Speed the ball is moving into the surface it collided with (relative to it, if it's a moving obstacle)
+    private float getSpeedIntoSurface(Ball currentBall, Collision collision) {
+        PointF velocity = mBallVelocity;
+        getVelocity(currentBall, collision.getTime(), velocity);
+        float velocityX = velocity.x;
+        float velocityY = velocity.y;
+
+        if (collision.getObstacle().getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
+            PointF obstacleVelocity = ((MovingObstacle) collision.getObstacle()).getVelocity();
+            velocityX = velocityX - obstacleVelocity.x;
+            velocityY = velocityY - obstacleVelocity.y;
+        }
+
+        PointF collisionAxis = collision.getBoundaryAxis();
+        return CommonFunctions.dotProduct(velocityX, velocityY, collisionAxis.x, collisionAxis.y)
+                * getInwardSign((Obstacle) collision.getObstacle(), collisionAxis);
+    }
+
+    //Edge axes don't all point into the obstacle (see Obstacle.isBoundaryAxisInward).
+    //-1 if the collision axis is an edge's axis pointing out of the obstacle, 1 otherwise.
+    private float getInwardSign(Obstacle obstacle, PointF collisionAxis) {
+        int boundaryIndex = findBoundaryIndex(obstacle, collisionAxis);
+        if ((boundaryIndex != -1) && !obstacle.isBoundaryAxisInward(boundaryIndex)) {
+            return -1f;
+        }
+        return 1f;
+    }
+
     /**
      * This function will break if gravity changes substantially.
      * @param currentBall
      * @return
      */
     public boolean isBallOnFlatObstacle(Ball currentBall) {
-        if (getLastCollision(currentBall).getBoundaryAxis().equals(0, -1)) {
+        if (contactAxes[currentBall.getBallSlot()].equals(0, -1)) {
             return true;
         }
         return false;
     }
 
     private boolean isBallOnBottomObstacle(Ball currentBall) {
-        Obstacle obstacle = (Obstacle) getLastCollision(currentBall).getObstacle();
-        return (obstacle.isBottomBoundary());
-    }
-
-    public void handleBallOnTopOfBall(Ball stuckBall) {
-
-        Ball otherBall = (Ball) getLastCollision(stuckBall).getObstacle();
-
-        //Determine which is on top
-        Ball topBall;
-        Ball bottomBall;
-        if (stuckBall.getCenter().y > otherBall.getCenter().y){
-            topBall = stuckBall;
-            bottomBall = otherBall;
-        } else {
-            topBall = otherBall;
-            bottomBall = stuckBall;
-        }
-
-        PointF topBallCenter = topBall.getCenter();
-        PointF bottomBallCenter = bottomBall.getCenter();
-        PointF distanceVector = new PointF(topBallCenter.x - bottomBallCenter.x, topBallCenter.y - bottomBallCenter.y);
-        PointF distanceVectorNormal = new PointF(distanceVector.x / distanceVector.length(), distanceVector.y / distanceVector.length());
-        topBall.setVelocity(distanceVectorNormal);
+        return getContactObstacle(currentBall).isBottomBoundary();
     }
 
     public void handleStuckBall(Ball stuckBall) {
         PointF collisionAxis = getLastCollision(stuckBall).getBoundaryAxis();
         //displace ball away from the collision axis
-        stuckBall.setVelocity(new PointF(-collisionAxis.x, -collisionAxis.y));
+        stuckBall.setVelocity(-collisionAxis.x, -collisionAxis.y);
     }
 
     public void clearCollisionHistories() {
-        ballCollisionsThisFrame.clear();
-        ballCollisionsThisStep.clear();
-        boundaryCollisionsThisFrame.clear();
-        sameBoundaryCollisionsThisFrame.clear();
+        Arrays.fill(ballCollisionsThisFrame, 0);
+        Arrays.fill(ballCollisionsThisStep, NOT_COUNTED);
+        Arrays.fill(boundaryCollisionsThisFrame, 0);
     }
 
-    private HashMap<Ball,Integer> incrementCollisionMapEntry(HashMap<Ball, Integer> map, Ball currentKey) {
-        if (map.get(currentKey) == null) {
-            map.put(currentKey, 1);
-            return map;
-        }
-        int currentValue = map.get(currentKey);
-        map.put(currentKey, currentValue+1);
-        return map;
-    }
-
-
-    public boolean isBallSlowedOnConsecutiveCollisionAxis(Ball currentBall) {
-        return (getSameBoundaryCollisionCountThisFrame(currentBall) > (GameState.FRAME_SIZE * GameState.SLOWED_BALL_CONSTANT));
-    }
 
     public boolean isBallSlowedOnCorner(Ball currentBall) {
         return (getBoundaryCollisionCountThisFrame(currentBall) > (GameState.FRAME_SIZE * GameState.STUCK_POINT_CONSTANT));
     }
 
-    public boolean isBallSlowedOnAnotherBall(Ball currentBall) {
-        return (getBallCollisionsThisFrame(currentBall) > GameState.BALL_BOUNCE_CONSTANT * GameState.FRAME_SIZE);
-    }
-
     public boolean isBallReallyStuck(Ball currentBall) {
         return (getBoundaryCollisionCountThisFrame(currentBall) > (GameState.FRAME_SIZE * GameState.DEACTIVATE_STUCK_BALL_CONSTANT));
     }
@@ -538,7 +679,7 @@ public class BallEngine {
 
             // just factor in the current acceleration and return a new velocity.
             updateVelocityNonCollision(currentBall, timeStep);
-            ballCollisionsThisStep.put(currentBall, 0);
+            ballCollisionsThisStep[currentBall.getBallSlot()] = 0;
             return;
         }
 
@@ -549,7 +690,7 @@ public class BallEngine {
             if (currentBall.didBallCollide()) {
                 updateVelocityCollision(currentBall, timeStep);
                 activateBall(currentBall); //In case ball was previously stopped
-                ballCollisionsThisStep.put(currentBall, 0);
+                ballCollisionsThisStep[currentBall.getBallSlot()] = 0;
                 return;
             }
         }
@@ -558,8 +699,13 @@ public class BallEngine {
         if (currentBall.isBallRolling()) {
             if (currentBall.didBallCollide()) {
                 updateVelocityCollision(currentBall, timeStep);
-                reactivateRollingBall(currentBall); //In case ball was previously stopped
-                ballCollisionsThisStep.put(currentBall, 0);
+                //A ball pushed along the flat obstacle it's on keeps rolling (see CollisionHandling.calculateVelocityHeldBallCollision)
+                if (isBallRollingOnFlatObstacle(currentBall) && (currentBall.getVelocity().y == 0)) {
+                    setRollingVelocity(currentBall, currentBall.getVelocity().x, 0f);
+                } else {
+                    reactivateRollingBall(currentBall); //In case ball was previously stopped
+                }
+                ballCollisionsThisStep[currentBall.getBallSlot()] = 0;
                 return;
             } else {
                 updateVelocityNonCollision(currentBall, timeStep);
@@ -574,7 +720,7 @@ public class BallEngine {
             } else {
                 updateVelocityNonCollision(currentBall, timeStep);
             }
-            ballCollisionsThisStep.put(currentBall, 0);
+            ballCollisionsThisStep[currentBall.getBallSlot()] = 0;
         }
 
         return;
@@ -582,7 +728,7 @@ public class BallEngine {
 
     public void decreaseRollTime(Ball currentBall, float timeStep) {
         float currentRollTime = getRollTimeForBall(currentBall);
-        rollTimeMap.put(currentBall, currentRollTime - timeStep);
+        rollTimes[currentBall.getBallSlot()] = currentRollTime - timeStep;
     }
 
     private void reactivateRollingBall(Ball currentBall) {
@@ -600,15 +746,77 @@ public class BallEngine {
         clearFrameCollisionCount(currentBall);
     }
 
+    /**
+     * Called at the end of every frame. A ball that has been at rest (see isBallResting) for GameState.SLEEP_FRAMES
+     * frames in a row is put to sleep. A rolling ball is stopped where it is first, so it wakes up stopped, like
+     * any other sleeping ball.
+     */
+    public void updateSleepState(Ball currentBall) {
+        int slot = currentBall.getBallSlot();
+
+        if (!isBallResting(currentBall)) {
+            restingFrames[slot] = 0;
+            return;
+        }
+
+        if (currentBall.isBallAsleep()) {
+            return;
+        }
+
+        restingFrames[slot]++;
+        if (restingFrames[slot] < GameState.SLEEP_FRAMES) {
+            return;
+        }
+
+        if (currentBall.isBallRolling()) {
+            currentBall.setVelocity(0f, 0f);
+            ballStateMachine.stopBall(currentBall, this);
+
+            //(A ball that stops where the next ball is fired from is taken out of play instead)
+            if (!currentBall.isBallStopped()) {
+                restingFrames[slot] = 0;
+                return;
+            }
+        }
+        currentBall.sleepBall();
+    }
+
+    /**
+     * Stopped, or rolling slower than GameState.SLEEP_VELOCITY on a flat obstacle that doesn't move. Only a collision
+     * can speed a ball up there, and a collision with anything that moves wakes it (see GameEngine.wakeBall).
+     * Balls keep being knocked about by tiny collisions with whatever they are resting against, so they aren't
+     * always slowed enough to be stopped by BallStateMachine.
+     */
+    private boolean isBallResting(Ball currentBall) {
+        if (currentBall.isBallStopped()) {
+            return true;
+        }
+
+        if (!currentBall.isBallRolling()) {
+            return false;
+        }
+
+        if ((getContactObstacle(currentBall).getType() != GameState.INTERACTABLE_OBSTACLE) || !isBallOnFlatObstacle(currentBall)) {
+            return false;
+        }
+        return currentBall.getVelocity().length() < GameState.SLEEP_VELOCITY;
+    }
+
+    //Wake a sleeping ball (something has come near it). It has to be at rest for another SLEEP_FRAMES to sleep again.
+    public void wakeBall(Ball currentBall) {
+        currentBall.wakeBall();
+        restingFrames[currentBall.getBallSlot()] = 0;
+    }
+
     protected void deactivateBall(Ball currentBall) {
         currentBall.deactivateBall();
     }
 
     //Get the available velocity (amount that is free to be transferred) at timeStep
-    public PointF getAvailableVelocity(Ball currentBall, float timeStep){
-        PointF newVelocity = getVelocity(currentBall, timeStep);
+    public void getAvailableVelocity(Ball currentBall, float timeStep, PointF result){
+        getVelocity(currentBall, timeStep, result);
         int ballCollisions = getBallCollisionsThisStep(currentBall);
-        return new PointF(newVelocity.x / ballCollisions, newVelocity.y / ballCollisions);
+        result.set(result.x / ballCollisions, result.y / ballCollisions);
     }
 
     public void setAllBallsFired() {
@@ -617,14 +825,13 @@ public class BallEngine {
 
     public void updateSpinRollingBall (Ball currentBall){
 
-        PointF currentVelocity = getVelocity(currentBall, 0);
-
-        Collision lastCollision = lastCollisionMap.get(currentBall);
-        PointF lastBoundaryAxis = lastCollision.getBoundaryAxis();
+        PointF currentVelocity = mBallVelocity;
+        getVelocity(currentBall, 0, currentVelocity);
 
-        PointF surfaceVector = new PointF(-lastBoundaryAxis.y, lastBoundaryAxis.x);
+        PointF contactAxis = contactAxes[currentBall.getBallSlot()];
 
-        float surfaceVelocity = CommonFunctions.dotProduct(currentVelocity, surfaceVector);
+        //Velocity along the surface
+        float surfaceVelocity = CommonFunctions.dotProduct(currentVelocity.x, currentVelocity.y, -contactAxis.y, contactAxis.x);
 
         currentBall.setSpin(surfaceVelocity / -8);
     }
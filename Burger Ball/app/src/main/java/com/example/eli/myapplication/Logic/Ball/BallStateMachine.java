@@ -14,6 +14,9 @@ public class BallStateMachine {
     boolean allBallsFired = false;
     float[] initialBallCoords;
 
+    //Scratch velocity, so the checks run every frame don't allocate
+    private PointF mCurrentVelocity = new PointF();
+
     public BallStateMachine (float[] initialBallCoords) {
         this.initialBallCoords = initialBallCoords;
     }
@@ -33,9 +36,20 @@ public class BallStateMachine {
     }
 
     private void updateActiveBall(Ball currentBall, BallEngine ballEngine) {
-        checkIsBallSlowedOnBoundary(currentBall, ballEngine);
+        //A ball that has settled onto a surface is rolling now, so none of the other checks apply
+        if (checkIsBallSettlingOnSurface(currentBall, ballEngine)) {
+            return;
+        }
+
+        //A ball resting on other balls (or on a side) is stopped (or rolls) once they are holding it up
+        if (checkIsBallRestingOnContacts(currentBall, ballEngine)) {
+            return;
+        }
+
+        //Repeated collisions are still counted for what neither of those can hold the ball on. A ball caught on
+        // the point of an obstacle (or wedged between sides) has no single side to roll along, and without the
+        // counts nothing would free it.
         checkIsBallSlowedOnCorner(currentBall, ballEngine);
-        checkIsBallSlowedOnAnotherBall(currentBall, ballEngine);
         checkIsBallReallyStuck(currentBall, ballEngine);
     }
 
@@ -54,11 +68,25 @@ public class BallStateMachine {
         allBallsFired = true;
     }
 
-    private void checkIsBallSlowedOnBoundary(Ball currentBall, BallEngine ballEngine) {
-        //Check if a ball has collided with an identical axis enough times to activate 'slowed ball logic'
-        if (ballEngine.isBallSlowedOnConsecutiveCollisionAxis(currentBall)) {
-            ballEngine.handleSlowedBall(currentBall);
+    private boolean checkIsBallSettlingOnSurface(Ball currentBall, BallEngine ballEngine) {
+        //Check if the ball's last bounce was slow enough that it should stay on the surface, instead of bouncing again
+        if (ballEngine.isBallSettlingOnSurface(currentBall)) {
+            ballEngine.startSurfaceContact(currentBall);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean checkIsBallRestingOnContacts(Ball currentBall, BallEngine ballEngine) {
+        if (ballEngine.isBallSupportedBySurface(currentBall)) {
+            ballEngine.startSupportedSurfaceContact(currentBall);
+            return true;
+        }
+        if (ballEngine.isBallHeldByContacts(currentBall)) {
+            stopBall(currentBall, ballEngine);
+            return true;
         }
+        return false;
     }
 
     private void checkIsBallSlowedOnCorner(Ball currentBall, BallEngine ballEngine) {
@@ -69,12 +97,6 @@ public class BallStateMachine {
         }
     }
 
-    private void checkIsBallSlowedOnAnotherBall(Ball currentBall, BallEngine ballEngine) {
-        if (ballEngine.isBallSlowedOnAnotherBall(currentBall)) {
-            ballEngine.handleBallOnTopOfBall(currentBall);
-        }
-    }
-
     private void checkIsBallReallyStuck(Ball currentBall, BallEngine ballEngine) {
         //If ball has been stuck for a while, we will simply deactivate.
         if (ballEngine.isBallReallyStuck(currentBall)) {
@@ -88,8 +110,8 @@ public class BallStateMachine {
             //We need to update the balls current velocity, because if we
             // are on a moving object, then we will forget that velocity
             // when we reactivate the ball.
-            PointF currentVelocity = ballEngine.getVelocity(currentBall, 0); //Get balls instantaneous velocity
-            currentBall.setVelocity(currentVelocity);
+            ballEngine.getVelocity(currentBall, 0, mCurrentVelocity); //Get balls instantaneous velocity
+            currentBall.setVelocity(mCurrentVelocity);
         }
     }
 
@@ -99,12 +121,24 @@ public class BallStateMachine {
             return;
         }
 
-        if (ballEngine.getVelocity(currentBall,0).length() < GameState.DEACTIVATE_BALL_VELOCITY ) {
-            if (ActivateBallLogic.isBallInFiringZone(null, currentBall, initialBallCoords) && !allBallsFired) {
-                currentBall.deactivateBall();
-            } else {
-                ballEngine.stopBall(currentBall);
-            }
+        //A ball pushed along the surface by another ball keeps rolling for the rest of the frame (see
+        // CollisionHandling.calculateVelocityHeldBallCollision). Stopped, the next push would knock it off the surface.
+        if (ballEngine.getBallCollisionsThisFrame(currentBall) > 0) {
+            return;
+        }
+
+        ballEngine.getVelocity(currentBall, 0, mCurrentVelocity);
+        if (mCurrentVelocity.length() < GameState.DEACTIVATE_BALL_VELOCITY ) {
+            stopBall(currentBall, ballEngine);
+        }
+    }
+
+    //A ball that stops where the next ball is fired from is taken out of play instead
+    void stopBall(Ball currentBall, BallEngine ballEngine) {
+        if (ActivateBallLogic.isBallInFiringZone(null, currentBall, initialBallCoords) && !allBallsFired) {
+            currentBall.deactivateBall();
+        } else {
+            ballEngine.stopBall(currentBall);
         }
     }
 
@@ -115,8 +149,8 @@ public class BallStateMachine {
             //We need to update the balls current velocity, because if we
             // are on a moving object, then we will forget that velocity
             // when we reactivate the ball.
-            PointF currentVelocity = ballEngine.getVelocity(currentBall, 0); //Get balls instantaneous velocity
-            currentBall.setVelocity(currentVelocity);
+            ballEngine.getVelocity(currentBall, 0, mCurrentVelocity); //Get balls instantaneous velocity
+            currentBall.setVelocity(mCurrentVelocity);
         }
     }
 }
@@ -0,0 +1,551 @@
+package com.example.eli.myapplication.Logic.Ball;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Collision;
+import com.example.eli.myapplication.Model.Obstacle;
+import com.example.eli.myapplication.Resources.CommonFunctions;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Keeps balls that are resting against each other (or against the side of an obstacle) from bouncing.
+ *
+ * Without this, a ball sitting on top of another ball keeps falling into it and bouncing off, a collision
+ * (and a sub-step) every time. In a pile, every bounce moves the balls around it, so they bounce too, and the
+ * pile never settles.
+ *
+ * Instead, every two balls (or ball and side) that collide are kept here as a contact, until they come apart
+ * again (GameState.CONTACT_BREAK_DISTANCE). The side a ball rolls along is kept as a contact too. Once at the start
+ * of every frame, the contacts that are closing slowly (below GameState.RESTING_CONTACT_VELOCITY, so resting rather
+ * than hitting) are solved: the balls' velocities are changed so that by the end of the frame nothing has moved closer
+ * than GameState.CONTACT_MARGIN to what it is resting against, and collision detection never sees them touch. The
+ * contacts are solved with sequential impulses- each contact in turn pushes its balls apart by just enough (it can
+ * never pull them together), and all of them are gone over GameState.CONTACT_SOLVER_ITERATIONS times, so a push can
+ * travel through a whole pile.
+ *
+ * Every ball that is awake and on something that doesn't move can be pushed any way, all balls weigh the same,
+ * and gravity pulls on all of them, even on stopped and rolling balls. So a stopped ball that has lost its support
+ * starts falling again, and a ball rolling along a side is held up by that side (it is only pushed along it).
+ * Sleeping balls, balls rolling on anything else, and obstacles stay where they are. Contacts with moving obstacles
+ * aren't kept (the ball rolls on them instead, see BallEngine.startSurfaceContact).
+ *
+ * A pile only settles if the pushes can travel all the way down it in a frame, so each contact starts the frame
+ * pushing as hard as it finished the last one, and the iterations only correct that.
+ *
+ * The solved velocities also tell BallStateMachine when a ball can stop being active
+ * (see isBallHeld and getSupportingObstacle).
+ */
+class RestingContactSolver {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_EDGE = -1;
+    //End of a ball's list of contacts (see mFirstContacts)
+    private static final int NO_CONTACT = -1;
+
+    private BallEngine ballEngine;
+
+    //Every contact is between mBalls[index] and either mOtherBalls[index], or the side mEdges[index] of
+    // mObstacles[index] (the other one is null). mOutwardSigns turns the side's boundary axis to point out of the obstacle.
+    private Ball[] mBalls;
+    private Ball[] mOtherBalls;
+    private Obstacle[] mObstacles;
+    private int[] mEdges;
+    private float[] mOutwardSigns;
+    private int mContactCount = 0;
+
+    //Each ball's contacts, as a list through the contacts: mFirstContacts is indexed by ball slot, and the next
+    // contact is mNextContacts[index] for the contact's mBalls[index], or mNextOtherContacts[index] for its other ball.
+    private int[] mFirstContacts;
+    private int[] mNextContacts;
+    private int[] mNextOtherContacts;
+
+    //Measured at the start of every frame: the contact's unit normal (pointing from the other side to mBalls[index]),
+    // and the gap between them. mImpulses is how hard the contact has pushed (kept from frame to frame), and
+    // mResting is false for contacts closing too fast to be solved (they collide instead).
+    private float[] mNormalX;
+    private float[] mNormalY;
+    private float[] mGaps;
+    private float[] mImpulses;
+    private boolean[] mResting;
+
+    //Indexed by ball slot: average velocity over the frame as the contacts have left it, and as it would be without
+    // them. mInverseMasses is 1 if the ball can be pushed, 0 if it can't.
+    private float[] mAvgVelocityX;
+    private float[] mAvgVelocityY;
+    private float[] mStartAvgVelocityX;
+    private float[] mStartAvgVelocityY;
+    private float[] mInverseMasses;
+
+    //The balls in any contact this frame, each once (mStarted is indexed by ball slot)
+    private Ball[] mSolvedBalls;
+    private int mSolvedBallCount = 0;
+    private boolean[] mStarted;
+
+    //Indexed by ball slot, set by findRestingBalls (see isBallHeld and getSupportingObstacle)
+    private boolean[] mHeld;
+    private Obstacle[] mSupportingObstacles;
+    private int[] mSupportingEdges;
+
+    private PointF mVelocity = new PointF();
+
+    RestingContactSolver(BallEngine ballEngine, int totalBalls) {
+        this.ballEngine = ballEngine;
+
+        mBalls = new Ball[INITIAL_CAPACITY];
+        mOtherBalls = new Ball[INITIAL_CAPACITY];
+        mObstacles = new Obstacle[INITIAL_CAPACITY];
+        mEdges = new int[INITIAL_CAPACITY];
+        mOutwardSigns = new float[INITIAL_CAPACITY];
+        mNextContacts = new int[INITIAL_CAPACITY];
+        mNextOtherContacts = new int[INITIAL_CAPACITY];
+        mNormalX = new float[INITIAL_CAPACITY];
+        mNormalY = new float[INITIAL_CAPACITY];
+        mGaps = new float[INITIAL_CAPACITY];
+        mImpulses = new float[INITIAL_CAPACITY];
+        mResting = new boolean[INITIAL_CAPACITY];
+
+        mFirstContacts = new int[totalBalls];
+        Arrays.fill(mFirstContacts, NO_CONTACT);
+        mAvgVelocityX = new float[totalBalls];
+        mAvgVelocityY = new float[totalBalls];
+        mStartAvgVelocityX = new float[totalBalls];
+        mStartAvgVelocityY = new float[totalBalls];
+        mInverseMasses = new float[totalBalls];
+        mSolvedBalls = new Ball[totalBalls];
+        mStarted = new boolean[totalBalls];
+        mHeld = new boolean[totalBalls];
+        mSupportingObstacles = new Obstacle[totalBalls];
+        mSupportingEdges = new int[totalBalls];
+    }
+
+    //Keep a contact between the two balls of a collision
+    void addBallContact(Collision collision) {
+        Ball ball = collision.getBall();
+        Ball otherBall = (Ball) collision.getObstacle();
+        if ((ball == otherBall) || hasBallContact(ball, otherBall)) {
+            return;
+        }
+
+        addContact(ball, otherBall, null, NO_EDGE);
+    }
+
+    //Keep a contact between a ball and the side of a (non-moving) obstacle it collided with, or is rolling along
+    void addSurfaceContact(Ball ball, Obstacle obstacle, int edge) {
+        if (hasSurfaceContact(ball, obstacle, edge)) {
+            return;
+        }
+
+        addContact(ball, null, obstacle, edge);
+    }
+
+    /**
+     * Solve every contact for the coming frame of length frameTime, changing the velocities of the balls
+     * in them. Any stopped ball the contacts no longer hold up is started again.
+     */
+    void solve(float frameTime) {
+        Arrays.fill(mHeld, false);
+        Arrays.fill(mSupportingObstacles, null);
+
+        removeBrokenContacts();
+        if (mContactCount == 0) {
+            return;
+        }
+
+        startBalls(frameTime);
+        solveContacts(frameTime);
+        applyVelocityChanges(frameTime);
+        findRestingBalls();
+    }
+
+    /**
+     * True if the contacts left the ball (nearly) still this frame, so it can be stopped.
+     * Cleared as soon as the ball collides with anything (see clearRestingState).
+     */
+    boolean isBallHeld(Ball currentBall) {
+        return mHeld[currentBall.getBallSlot()];
+    }
+
+    /**
+     * The obstacle whose side (getSupportingEdge) is holding the ball up against gravity this frame, or null.
+     * The ball can roll along it instead, as if it had settled onto it.
+     * Cleared as soon as the ball collides with anything (see clearRestingState).
+     */
+    Obstacle getSupportingObstacle(Ball currentBall) {
+        return mSupportingObstacles[currentBall.getBallSlot()];
+    }
+
+    int getSupportingEdge(Ball currentBall) {
+        return mSupportingEdges[currentBall.getBallSlot()];
+    }
+
+    void clearRestingState(Ball currentBall) {
+        int slot = currentBall.getBallSlot();
+        mHeld[slot] = false;
+        mSupportingObstacles[slot] = null;
+    }
+
+    //Works out every ball's average velocity over the frame without the contacts, and whether it can be pushed
+    private void startBalls(float frameTime) {
+        mSolvedBallCount = 0;
+        Arrays.fill(mStarted, false);
+
+        for (int index = 0; index < mContactCount; index++) {
+            startBall(mBalls[index], frameTime);
+            if (mOtherBalls[index] != null) {
+                startBall(mOtherBalls[index], frameTime);
+            }
+        }
+    }
+
+    private void startBall(Ball currentBall, float frameTime) {
+        int slot = currentBall.getBallSlot();
+        if (mStarted[slot]) {
+            return;
+        }
+        mStarted[slot] = true;
+        mSolvedBalls[mSolvedBallCount] = currentBall;
+        mSolvedBallCount++;
+
+        ballEngine.getAvgVelocity(currentBall, frameTime, mVelocity);
+        //A stopped or rolling ball's velocity has no gravity in it. Add what gravity would do over the frame,
+        // so its contacts have to hold it up.
+        if (!currentBall.isBallActive()) {
+            mVelocity.set(mVelocity.x + (GameState.GRAVITY_CONSTANT.x * frameTime / 2),
+                    mVelocity.y + (GameState.GRAVITY_CONSTANT.y * frameTime / 2));
+        }
+        mAvgVelocityX[slot] = mVelocity.x;
+        mAvgVelocityY[slot] = mVelocity.y;
+        mStartAvgVelocityX[slot] = mVelocity.x;
+        mStartAvgVelocityY[slot] = mVelocity.y;
+
+        mInverseMasses[slot] = isBallPushable(currentBall) ? 1f : 0f;
+    }
+
+    private boolean isBallPushable(Ball currentBall) {
+        if (currentBall.isBallAsleep()) {
+            return false;
+        }
+        return currentBall.isBallActive() || currentBall.isBallStopped() || ballEngine.isBallRollingOnFlatObstacle(currentBall);
+    }
+
+    //Works out the balls' average velocities over the frame, without changing the balls themselves yet
+    private void solveContacts(float frameTime) {
+        //Every resting contact starts off pushing as hard as it did last time
+        for (int index = 0; index < mContactCount; index++) {
+            mResting[index] = (getTotalInverseMass(index) > 0) && (getClosingSpeed(index) < GameState.RESTING_CONTACT_VELOCITY);
+            if (mResting[index]) {
+                applyImpulse(index, mImpulses[index]);
+            } else {
+                mImpulses[index] = 0f;
+            }
+        }
+
+        for (int iteration = 0; iteration < GameState.CONTACT_SOLVER_ITERATIONS; iteration++) {
+            for (int index = 0; index < mContactCount; index++) {
+                if (mResting[index]) {
+                    solveContact(index, frameTime);
+                }
+            }
+        }
+    }
+
+    //How far a push moves the contact's balls apart (0 if neither can be pushed)
+    private float getTotalInverseMass(int index) {
+        float totalInverseMass = mInverseMasses[mBalls[index].getBallSlot()];
+        if (mOtherBalls[index] != null) {
+            totalInverseMass = totalInverseMass + mInverseMasses[mOtherBalls[index].getBallSlot()];
+        }
+        return totalInverseMass;
+    }
+
+    //Speed the contact is closing at (negative if it's opening), with the velocities as the contacts have left them
+    private float getClosingSpeed(int index) {
+        int slot = mBalls[index].getBallSlot();
+        float relativeVelocityX = mAvgVelocityX[slot];
+        float relativeVelocityY = mAvgVelocityY[slot];
+
+        if (mOtherBalls[index] != null) {
+            int otherSlot = mOtherBalls[index].getBallSlot();
+            relativeVelocityX = relativeVelocityX - mAvgVelocityX[otherSlot];
+            relativeVelocityY = relativeVelocityY - mAvgVelocityY[otherSlot];
+        }
+
+        return -CommonFunctions.dotProduct(relativeVelocityX, relativeVelocityY, mNormalX[index], mNormalY[index]);
+    }
+
+    /**
+     * The contact can close by (gap - CONTACT_MARGIN) this frame. If the balls' average velocities would close it
+     * by more, push them apart along the normal (split between the balls that can move). Over the iterations,
+     * a contact takes back what it pushed earlier if that turns out not to be needed, but it never pulls.
+     */
+    private void solveContact(int index, float frameTime) {
+        float allowedClosingSpeed = getAllowedClosingSpeed(index, frameTime);
+        float impulse = (getClosingSpeed(index) - allowedClosingSpeed) / getTotalInverseMass(index);
+        float totalImpulse = Math.max(mImpulses[index] + impulse, 0f);
+        applyImpulse(index, totalImpulse - mImpulses[index]);
+        mImpulses[index] = totalImpulse;
+    }
+
+    /**
+     * A contact further apart than CONTACT_MARGIN can close down to it this frame. One already closer is only kept
+     * from closing any more (in a tight pile, there may be no room for every contact to open back up to the margin),
+     * and one that is overlapping is pushed back apart.
+     */
+    private float getAllowedClosingSpeed(int index, float frameTime) {
+        float gap = mGaps[index];
+        if (gap > GameState.CONTACT_MARGIN) {
+            return (gap - GameState.CONTACT_MARGIN) / frameTime;
+        }
+        return Math.min(gap, 0f) / frameTime;
+    }
+
+    //Push the contact's balls apart along its normal (a ball that can't be pushed has an inverse mass of 0)
+    private void applyImpulse(int index, float impulse) {
+        int slot = mBalls[index].getBallSlot();
+        float push = impulse * mInverseMasses[slot];
+        mAvgVelocityX[slot] = mAvgVelocityX[slot] + (push * mNormalX[index]);
+        mAvgVelocityY[slot] = mAvgVelocityY[slot] + (push * mNormalY[index]);
+
+        if (mOtherBalls[index] != null) {
+            int otherSlot = mOtherBalls[index].getBallSlot();
+            float otherPush = impulse * mInverseMasses[otherSlot];
+            mAvgVelocityX[otherSlot] = mAvgVelocityX[otherSlot] - (otherPush * mNormalX[index]);
+            mAvgVelocityY[otherSlot] = mAvgVelocityY[otherSlot] - (otherPush * mNormalY[index]);
+        }
+    }
+
+    private void applyVelocityChanges(float frameTime) {
+        for (int index = 0; index < mSolvedBallCount; index++) {
+            applyVelocityChange(mSolvedBalls[index], frameTime);
+            mSolvedBalls[index] = null;
+        }
+    }
+
+    /**
+     * An active ball's acceleration doesn't depend on its velocity, so changing its average velocity over the frame
+     * changes its velocity by the same amount. A ball rolling on a flat surface only moves along it, and slows down
+     * in proportion to its velocity (see GameState.ROLLING_DECELERATION_CONSTANT), so its velocity changes by a bit more.
+     * A stopped ball stays stopped if the contacts held it (nearly) still, and is started again if they didn't.
+     */
+    private void applyVelocityChange(Ball currentBall, float frameTime) {
+        int slot = currentBall.getBallSlot();
+        if (mInverseMasses[slot] == 0) {
+            return;
+        }
+        float changeX = mAvgVelocityX[slot] - mStartAvgVelocityX[slot];
+        float changeY = mAvgVelocityY[slot] - mStartAvgVelocityY[slot];
+
+        PointF velocity = currentBall.getVelocity();
+        if (currentBall.isBallRolling()) {
+            if (changeX != 0) {
+                ballEngine.setRollingVelocity(currentBall, velocity.x + (changeX / (1 - (GameState.ROLLING_DECELERATION_CONSTANT * frameTime / 2))), 0f);
+            }
+        } else if (currentBall.isBallStopped()) {
+            if (PointF.length(mAvgVelocityX[slot], mAvgVelocityY[slot]) >= GameState.RESTING_BALL_VELOCITY) {
+                ballEngine.activateBall(currentBall);
+                currentBall.setVelocity(changeX, changeY);
+            }
+        } else if ((changeX != 0) || (changeY != 0)) {
+            currentBall.setVelocity(velocity.x + changeX, velocity.y + changeY);
+        }
+    }
+
+    /**
+     * An active ball the contacts pushed is held if they left it (nearly) still. If one of the pushes came from
+     * a side that gravity pushes the ball into, the ball is supported by that side.
+     */
+    private void findRestingBalls() {
+        for (int index = 0; index < mContactCount; index++) {
+            if (mImpulses[index] == 0) {
+                continue;
+            }
+
+            markIfHeld(mBalls[index]);
+            if (mOtherBalls[index] != null) {
+                markIfHeld(mOtherBalls[index]);
+            } else if (mBalls[index].isBallActive() && (CommonFunctions.dotProduct(GameState.GRAVITY_CONSTANT.x,
+                    GameState.GRAVITY_CONSTANT.y, mNormalX[index], mNormalY[index]) < 0)) {
+                int slot = mBalls[index].getBallSlot();
+                mSupportingObstacles[slot] = mObstacles[index];
+                mSupportingEdges[slot] = mEdges[index];
+            }
+        }
+    }
+
+    private void markIfHeld(Ball currentBall) {
+        if (!currentBall.isBallActive()) {
+            return;
+        }
+        int slot = currentBall.getBallSlot();
+        mHeld[slot] = (PointF.length(mAvgVelocityX[slot], mAvgVelocityY[slot]) < GameState.RESTING_BALL_VELOCITY);
+    }
+
+    /**
+     * Measure every contact, and drop the ones that have come apart, that a ball has gone too far into, or that
+     * a ball has left play. Balls are at the start of the frame, so this is done on their previous positions.
+     */
+    private void removeBrokenContacts() {
+        int keptCount = 0;
+        for (int index = 0; index < mContactCount; index++) {
+            if (measureContact(index) && (Math.abs(mGaps[index]) <= GameState.CONTACT_BREAK_DISTANCE)) {
+                copyContact(index, keptCount);
+                keptCount++;
+            }
+        }
+
+        for (int index = keptCount; index < mContactCount; index++) {
+            mBalls[index] = null;
+            mOtherBalls[index] = null;
+            mObstacles[index] = null;
+        }
+        mContactCount = keptCount;
+
+        //The kept contacts have moved, so every ball's list is made again
+        Arrays.fill(mFirstContacts, NO_CONTACT);
+        for (int index = 0; index < mContactCount; index++) {
+            linkContact(index);
+        }
+    }
+
+    //Sets the contact's normal and gap. False if the contact can't be kept at all.
+    private boolean measureContact(int index) {
+        Ball ball = mBalls[index];
+        if (ball.isBallInactive()) {
+            return false;
+        }
+
+        if (mOtherBalls[index] != null) {
+            return measureBallContact(index, ball, mOtherBalls[index]);
+        }
+        return measureSurfaceContact(index, ball, mObstacles[index], mEdges[index]);
+    }
+
+    private boolean measureBallContact(int index, Ball ball, Ball otherBall) {
+        if (otherBall.isBallInactive()) {
+            return false;
+        }
+
+        float distanceX = ball.getPrevCenterX() - otherBall.getPrevCenterX();
+        float distanceY = ball.getPrevCenterY() - otherBall.getPrevCenterY();
+        float distance = PointF.length(distanceX, distanceY);
+        if (distance == 0) {
+            return false;
+        }
+
+        mNormalX[index] = distanceX / distance;
+        mNormalY[index] = distanceY / distance;
+        mGaps[index] = distance - ball.getRadius() - otherBall.getRadius();
+        return true;
+    }
+
+    private boolean measureSurfaceContact(int index, Ball ball, Obstacle obstacle, int edge) {
+        int nextVertex = (edge + 1) % obstacle.getVertexCount();
+        float startX = obstacle.getBaseVertexX(edge) + obstacle.getOffsetX();
+        float startY = obstacle.getBaseVertexY(edge) + obstacle.getOffsetY();
+        float sideX = obstacle.getBaseVertexX(nextVertex) + obstacle.getOffsetX() - startX;
+        float sideY = obstacle.getBaseVertexY(nextVertex) + obstacle.getOffsetY() - startY;
+
+        float centerX = ball.getPrevCenterX() - startX;
+        float centerY = ball.getPrevCenterY() - startY;
+
+        //Past either end of the side, the ball is at a corner (or has gone over the edge), which the side can't hold up
+        float along = CommonFunctions.dotProduct(centerX, centerY, sideX, sideY) / CommonFunctions.dotProduct(sideX, sideY, sideX, sideY);
+        if ((along < 0) || (along > 1)) {
+            return false;
+        }
+
+        mNormalX[index] = obstacle.getBoundaryAxisX(edge) * mOutwardSigns[index];
+        mNormalY[index] = obstacle.getBoundaryAxisY(edge) * mOutwardSigns[index];
+        mGaps[index] = CommonFunctions.dotProduct(centerX, centerY, mNormalX[index], mNormalY[index]) - ball.getRadius();
+        return true;
+    }
+
+    private boolean hasBallContact(Ball ball, Ball otherBall) {
+        int slot = ball.getBallSlot();
+        for (int index = mFirstContacts[slot]; index != NO_CONTACT; index = getNextContact(index, slot)) {
+            if ((mOtherBalls[index] == otherBall) || (mBalls[index] == otherBall)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasSurfaceContact(Ball ball, Obstacle obstacle, int edge) {
+        int slot = ball.getBallSlot();
+        for (int index = mFirstContacts[slot]; index != NO_CONTACT; index = getNextContact(index, slot)) {
+            if ((mObstacles[index] == obstacle) && (mEdges[index] == edge)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //The contact after index in the list of the ball in slot
+    private int getNextContact(int index, int slot) {
+        if (mBalls[index].getBallSlot() == slot) {
+            return mNextContacts[index];
+        }
+        return mNextOtherContacts[index];
+    }
+
+    private void addContact(Ball ball, Ball otherBall, Obstacle obstacle, int edge) {
+        if (mContactCount == mBalls.length) {
+            int capacity = mBalls.length * 2;
+            mBalls = Arrays.copyOf(mBalls, capacity);
+            mOtherBalls = Arrays.copyOf(mOtherBalls, capacity);
+            mObstacles = Arrays.copyOf(mObstacles, capacity);
+            mEdges = Arrays.copyOf(mEdges, capacity);
+            mOutwardSigns = Arrays.copyOf(mOutwardSigns, capacity);
+            mNextContacts = Arrays.copyOf(mNextContacts, capacity);
+            mNextOtherContacts = Arrays.copyOf(mNextOtherContacts, capacity);
+            mNormalX = Arrays.copyOf(mNormalX, capacity);
+            mNormalY = Arrays.copyOf(mNormalY, capacity);
+            mGaps = Arrays.copyOf(mGaps, capacity);
+            mImpulses = Arrays.copyOf(mImpulses, capacity);
+            mResting = Arrays.copyOf(mResting, capacity);
+        }
+
+        int index = mContactCount;
+        mContactCount++;
+        mBalls[index] = ball;
+        mOtherBalls[index] = otherBall;
+        mObstacles[index] = obstacle;
+        mEdges[index] = edge;
+        if (obstacle != null) {
+            mOutwardSigns[index] = obstacle.isBoundaryAxisInward(edge) ? -1f : 1f;
+        }
+        mImpulses[index] = 0f;
+        linkContact(index);
+    }
+
+    //Put the contact at the front of its balls' lists
+    private void linkContact(int index) {
+        int slot = mBalls[index].getBallSlot();
+        mNextContacts[index] = mFirstContacts[slot];
+        mFirstContacts[slot] = index;
+
+        if (mOtherBalls[index] != null) {
+            int otherSlot = mOtherBalls[index].getBallSlot();
+            mNextOtherContacts[index] = mFirstContacts[otherSlot];
+            mFirstContacts[otherSlot] = index;
+        }
+    }
+
+    private void copyContact(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        mBalls[to] = mBalls[from];
+        mOtherBalls[to] = mOtherBalls[from];
+        mObstacles[to] = mObstacles[from];
+        mEdges[to] = mEdges[from];
+        mOutwardSigns[to] = mOutwardSigns[from];
+        mNormalX[to] = mNormalX[from];
+        mNormalY[to] = mNormalY[from];
+        mGaps[to] = mGaps[from];
+        mImpulses[to] = mImpulses[from];
+    }
+}
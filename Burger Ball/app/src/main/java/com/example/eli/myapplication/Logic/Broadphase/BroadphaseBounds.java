@@ -0,0 +1,37 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Model.MovingObstacle;
+import com.example.eli.myapplication.Resources.GameState;
+
+/**
+ * The bounds pair sources register an object with. Moving obstacles are registered by the bounds of their
+ * whole path (see MovingObstacle.getSweptMinX), so once they are in a pair source they never need updating,
+ * the same as static obstacles. Where the obstacle really is during a step is left to the coarse collision test.
+ * Everything else uses its current bounding box.
+ */
+final class BroadphaseBounds {
+
+    private BroadphaseBounds() {
+    }
+
+    static boolean isSwept(Interactable object) {
+        return object.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE;
+    }
+
+    static float getMinX(Interactable object) {
+        return isSwept(object) ? ((MovingObstacle) object).getSweptMinX() : object.getMinX();
+    }
+
+    static float getMaxX(Interactable object) {
+        return isSwept(object) ? ((MovingObstacle) object).getSweptMaxX() : object.getMaxX();
+    }
+
+    static float getMinY(Interactable object) {
+        return isSwept(object) ? ((MovingObstacle) object).getSweptMinY() : object.getMinY();
+    }
+
+    static float getMaxY(Interactable object) {
+        return isSwept(object) ? ((MovingObstacle) object).getSweptMaxY() : object.getMaxY();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+
+import java.util.ArrayList;
+
+/**
+ * The simplest pair source: every ball still in play is paired with every other interactable object.
+ * There is no pruning at all, so this mostly exists as a reference to compare the other pair sources against.
+ */
+public class BruteForcePairs implements PairSource {
+
+    private ArrayList<Interactable> mAllInteractableObjects;
+
+    //Indexed by interactable id (e.g. targets that have been collected)
+    private boolean[] mRemoved;
+
+    public BruteForcePairs(ArrayList<Interactable> allInteractableObjects) {
+        mAllInteractableObjects = allInteractableObjects;
+        mRemoved = new boolean[CollisionPairs.getIdCapacity(allInteractableObjects)];
+    }
+
+    @Override
+    public void update(Interactable object) {
+        //Nothing is cached, so nothing to update
+    }
+
+    @Override
+    public void remove(Interactable object) {
+        mRemoved[object.getInteractableId()] = true;
+    }
+
+    @Override
+    public void findPairs(ArrayList<Ball> allBalls, CollisionPairs pairs) {
+
+        for (int ballIndex = 0; ballIndex < allBalls.size(); ballIndex++) {
+            Ball currentBall = allBalls.get(ballIndex);
+            if (currentBall.isBallInactive() || currentBall.isBallAsleep()) {
+                continue;
+            }
+
+            for (int index = 0; index < mAllInteractableObjects.size(); index++) {
+                Interactable curObject = mAllInteractableObjects.get(index);
+
+                if ((curObject != currentBall) && !mRemoved[curObject.getInteractableId()]) {
+                    pairs.addCandidate(currentBall, curObject);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Model.MovingObstacle;
+import com.example.eli.myapplication.Model.Obstacle;
+import com.example.eli.myapplication.Model.Target;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The collection of (ball, object) pairs produced by a PairSource for the current step.
+ *
+ * Two balls are only ever paired once. The 'owner' of a ball-ball pair (the ball that is tested
+ * against the other one) is decided by isPairOwner. Pairs are stored as a single long per pair
+ * (owner id in the upper half, other object id in the lower half), so sorting them puts them in
+ * order of owning ball, and then other object.
+ *
+ * Pairs are kept in a separate list for each kind of other object (static obstacle, moving obstacle,
+ * target, ball), with typed lookups from id back to the object, so GameEngine can test each kind in its
+ * own loop without checking types or casting. The lists (and lookups) are kept for the whole level, and
+ * only emptied between steps. There is no list of every pair: the kind of a pair is only checked once, when
+ * it is added.
+ */
+public class CollisionPairs {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    //Lookup from interactable id back to the object (only the array matching the object's kind is filled in)
+    private Obstacle[] mStaticObstaclesById;
+    private MovingObstacle[] mMovingObstaclesById;
+    private Target[] mTargetsById;
+    private Ball[] mBallsById;
+
+    private final PairList mStaticPairs = new PairList();
+    private final PairList mMovingPairs = new PairList();
+    private final PairList mTargetPairs = new PairList();
+    private final PairList mBallPairs = new PairList();
+
+    public CollisionPairs(ArrayList<Interactable> allInteractableObjects) {
+        int idCapacity = getIdCapacity(allInteractableObjects);
+        mStaticObstaclesById = new Obstacle[idCapacity];
+        mMovingObstaclesById = new MovingObstacle[idCapacity];
+        mTargetsById = new Target[idCapacity];
+        mBallsById = new Ball[idCapacity];
+
+        for (Interactable object : allInteractableObjects) {
+            int id = object.getInteractableId();
+
+            switch (object.getType()) {
+                case GameState.INTERACTABLE_OBSTACLE:
+                    mStaticObstaclesById[id] = (Obstacle) object;
+                    break;
+                case GameState.INTERACTABLE_MOVING_OBSTACLE:
+                    mMovingObstaclesById[id] = (MovingObstacle) object;
+                    break;
+                case GameState.INTERACTABLE_TARGET:
+                    mTargetsById[id] = (Target) object;
+                    break;
+                case GameState.INTERACTABLE_BALL:
+                    mBallsById[id] = (Ball) object;
+                    break;
+            }
+        }
+    }
+
+    public void clear() {
+        mStaticPairs.clear();
+        mMovingPairs.clear();
+        mTargetPairs.clear();
+        mBallPairs.clear();
+    }
+
+    //Number of pairs, of every kind
+    public int size() {
+        return mStaticPairs.size + mMovingPairs.size + mTargetPairs.size + mBallPairs.size;
+    }
+
+    //Ball / static obstacle pairs
+    public int getStaticPairCount() {
+        return mStaticPairs.size;
+    }
+
+    public Ball getStaticPairBall(int index) {
+        return mBallsById[mStaticPairs.getOwnerId(index)];
+    }
+
+    public Obstacle getStaticObstacle(int index) {
+        return mStaticObstaclesById[mStaticPairs.getOtherId(index)];
+    }
+
+    //Ball / moving obstacle pairs
+    public int getMovingPairCount() {
+        return mMovingPairs.size;
+    }
+
+    public Ball getMovingPairBall(int index) {
+        return mBallsById[mMovingPairs.getOwnerId(index)];
+    }
+
+    public MovingObstacle getMovingObstacle(int index) {
+        return mMovingObstaclesById[mMovingPairs.getOtherId(index)];
+    }
+
+    //Ball / target pairs
+    public int getTargetPairCount() {
+        return mTargetPairs.size;
+    }
+
+    public Ball getTargetPairBall(int index) {
+        return mBallsById[mTargetPairs.getOwnerId(index)];
+    }
+
+    public Target getTarget(int index) {
+        return mTargetsById[mTargetPairs.getOtherId(index)];
+    }
+
+    //Ball / ball pairs
+    public int getBallPairCount() {
+        return mBallPairs.size;
+    }
+
+    public Ball getBallPairOwner(int index) {
+        return mBallsById[mBallPairs.getOwnerId(index)];
+    }
+
+    public Ball getOtherBall(int index) {
+        return mBallsById[mBallPairs.getOtherId(index)];
+    }
+
+    /**
+     * Add a pair found by searching around a single ball. A ball-ball pair will be found once from
+     * each side, so only the side that owns the pair is kept.
+     */
+    public void addCandidate(Ball ball, Interactable otherObject) {
+
+        if (otherObject.getType() == GameState.INTERACTABLE_BALL) {
+            if (!isPairOwner(ball, (Ball) otherObject)) {
+                return;
+            }
+        }
+
+        add(ball, otherObject);
+    }
+
+    /**
+     * Add a pair found without any particular ball in mind (each pair is only found once).
+     * Pairs that don't include a ball are ignored.
+     */
+    public void addUnorderedPair(Interactable object1, Interactable object2) {
+        boolean object1IsBall = (object1.getType() == GameState.INTERACTABLE_BALL);
+        boolean object2IsBall = (object2.getType() == GameState.INTERACTABLE_BALL);
+
+        if (object1IsBall && object2IsBall) {
+            if (isPairOwner((Ball) object1, (Ball) object2)) {
+                add(object1, object2);
+            } else if (isPairOwner((Ball) object2, (Ball) object1)) {
+                add(object2, object1);
+            }
+
+        } else if (object1IsBall) {
+            add(object1, object2);
+
+        } else if (object2IsBall) {
+            add(object2, object1);
+        }
+    }
+
+    /**
+     * Put each kind of pair in order of owning ball, then other object.
+     */
+    public void sort() {
+        mStaticPairs.sort();
+        mMovingPairs.sort();
+        mTargetPairs.sort();
+        mBallPairs.sort();
+    }
+
+    /**
+     * Decide whether ball should be tested against otherBall. Each pair of balls is only tested once:
+     *  - Only moving (active or rolling) balls test against other balls.
+     *  - If both balls are moving, the ball later in the collection owns the pair.
+     *    Both balls have been advanced by the time pairs are tested, so either one could own it;
+     *    this keeps the same owner as when balls were tested one after another.
+     */
+    public static boolean isPairOwner(Ball ball, Ball otherBall) {
+        if (!ball.isBallMoving() || otherBall.isBallInactive()) {
+            return false;
+        }
+
+        if (!otherBall.isBallMoving()) {
+            return true;
+        }
+
+        return (ball.getInteractableId() > otherBall.getInteractableId());
+    }
+
+    /**
+     * Size needed for arrays indexed by interactable id. Objects can be removed part way through a level
+     * (e.g. collected targets), so this can be larger than the size of the collection.
+     */
+    static int getIdCapacity(ArrayList<Interactable> allInteractableObjects) {
+        int capacity = 0;
+
+        for (Interactable object : allInteractableObjects) {
+            capacity = Math.max(capacity, object.getInteractableId() + 1);
+        }
+
+        return capacity;
+    }
+
+    private void add(Interactable owner, Interactable otherObject) {
+        long pair = (((long) owner.getInteractableId()) << 32) | otherObject.getInteractableId();
+
+        switch (otherObject.getType()) {
+            case GameState.INTERACTABLE_OBSTACLE:
+                mStaticPairs.add(pair);
+                break;
+            case GameState.INTERACTABLE_MOVING_OBSTACLE:
+                mMovingPairs.add(pair);
+                break;
+            case GameState.INTERACTABLE_TARGET:
+                mTargetPairs.add(pair);
+                break;
+            case GameState.INTERACTABLE_BALL:
+                mBallPairs.add(pair);
+                break;
+        }
+    }
+
+    private static class PairList {
+        long[] pairs = new long[INITIAL_CAPACITY];
+        int size = 0;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(long pair) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size] = pair;
+            size++;
+        }
+
+        void sort() {
+            Arrays.sort(pairs, 0, size);
+        }
+
+        int getOwnerId(int index) {
+            return (int) (pairs[index] >>> 32);
+        }
+
+        int getOtherId(int index) {
+            return (int) (pairs[index] & 0xFFFFFFFFL);
+        }
+    }
+}
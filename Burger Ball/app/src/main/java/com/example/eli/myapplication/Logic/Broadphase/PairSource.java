@@ -0,0 +1,36 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+
+import java.util.ArrayList;
+
+/**
+ * A pair source is the broadphase stage of collision detection. Once every moving ball has been
+ * advanced for the current step, it lists the (ball, object) pairs that might be colliding, so
+ * CollisionDetection only needs to run on those. Which implementation is used is selected with
+ * GameEngine.setPairSourceType (see GameState.PairSourceType).
+ */
+public interface PairSource {
+
+    /**
+     * Called when an object has moved outside of the normal ball advancement.
+     * (Moving obstacles don't need this, see BroadphaseBounds.)
+     */
+    void update(Interactable object);
+
+    /**
+     * Called when an object leaves the level for good (e.g. a target that has been collected).
+     */
+    void remove(Interactable object);
+
+    /**
+     * Fill pairs with every pair of objects that may be colliding. Balls have already been advanced
+     * by the time this is called. Each pair only needs to be added once; CollisionPairs takes care of
+     * deciding which ball 'owns' a ball-ball pair.
+     *
+     * Sleeping balls (see Ball.isBallAsleep) don't move, and don't need to be searched around, but other balls
+     * must still be paired with them (GameEngine skips any pairs owned by a sleeping ball).
+     */
+    void findPairs(ArrayList<Ball> allBalls, CollisionPairs pairs);
+}
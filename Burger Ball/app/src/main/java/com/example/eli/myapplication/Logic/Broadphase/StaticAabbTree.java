@@ -0,0 +1,239 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+
+/**
+ * A bounding volume hierarchy over the static geometry of a level (obstacles, borders and targets).
+ * Static geometry never changes after the level is loaded, so the tree is built once, and only queried
+ * after that. Moving obstacles are in the tree as well (see BroadphaseBounds). Nodes are stored flat in
+ * primitive arrays (children of a node are stored right after it in depth-first order) so a query is
+ * just a walk over a few arrays.
+ *
+ * Each ball queries the tree with its swept bounding box (where it was at the start of the step, plus
+ * where it has been advanced to). Balls aren't in the tree; there are only a few of them, so every ball is
+ * simply paired with all the others.
+ */
+public class StaticAabbTree implements PairSource {
+
+    //Leaves hold up to this many objects
+    private static final int MAX_LEAF_SIZE = 4;
+
+    //The coarse collision test accepts objects within 1 unit of each other, so queries
+    // are expanded by the same amount to never miss a pair the coarse test would accept.
+    private static final float QUERY_MARGIN = 1f;
+
+    //Objects indexed by interactable id
+    private Interactable[] mObjects;
+
+    //Ids of the static objects, reordered while building so that each leaf covers a contiguous range
+    private int[] mItems;
+    private int mItemCount;
+
+    //Collected targets stay in the tree, but are skipped
+    private boolean[] mRemoved;
+
+    //Balls (ids), which are tested against every ball
+    private int[] mDynamicIds;
+    private int mDynamicCount;
+
+    //Nodes. For internal nodes the left child is the next node, and mNodeRight holds the right child.
+    //For leaves mNodeRight is -1, and mNodeStart / mNodeCount give the range of mItems it holds.
+    private float[] mNodeMinX;
+    private float[] mNodeMaxX;
+    private float[] mNodeMinY;
+    private float[] mNodeMaxY;
+    private int[] mNodeRight;
+    private int[] mNodeStart;
+    private int[] mNodeCount;
+    private int mNodeTotal;
+
+    //Traversal stack, reused between queries
+    private int[] mStack;
+
+    public StaticAabbTree(ArrayList<Interactable> allInteractableObjects) {
+
+        int objectCount = CollisionPairs.getIdCapacity(allInteractableObjects);
+
+        mObjects = new Interactable[objectCount];
+        mRemoved = new boolean[objectCount];
+        mItems = new int[objectCount];
+        mDynamicIds = new int[objectCount];
+
+        for (Interactable object : allInteractableObjects) {
+            int id = object.getInteractableId();
+            mObjects[id] = object;
+
+            if (isStatic(object)) {
+                mItems[mItemCount] = id;
+                mItemCount++;
+            } else {
+                mDynamicIds[mDynamicCount] = id;
+                mDynamicCount++;
+            }
+        }
+
+        //A binary tree with leaves of at least one item never has more than 2n - 1 nodes
+        int maxNodes = Math.max(1, (2 * mItemCount) - 1);
+        mNodeMinX = new float[maxNodes];
+        mNodeMaxX = new float[maxNodes];
+        mNodeMinY = new float[maxNodes];
+        mNodeMaxY = new float[maxNodes];
+        mNodeRight = new int[maxNodes];
+        mNodeStart = new int[maxNodes];
+        mNodeCount = new int[maxNodes];
+        mStack = new int[maxNodes];
+
+        if (mItemCount > 0) {
+            buildNode(0, mItemCount);
+        }
+    }
+
+    @Override
+    public void update(Interactable object) {
+        //Static objects never move, moving obstacles are stored by their whole path, and balls aren't stored in
+        // the tree
+    }
+
+    @Override
+    public void remove(Interactable object) {
+        mRemoved[object.getInteractableId()] = true;
+    }
+
+    @Override
+    public void findPairs(ArrayList<Ball> allBalls, CollisionPairs pairs) {
+
+        for (int ballIndex = 0; ballIndex < allBalls.size(); ballIndex++) {
+            Ball currentBall = allBalls.get(ballIndex);
+            if (currentBall.isBallInactive() || currentBall.isBallAsleep()) {
+                continue;
+            }
+
+            //Swept bounding box: covers the ball at the start of the step and where it has been advanced to
+            float minX = Math.min(currentBall.getPrevMinX(), currentBall.getMinX()) - QUERY_MARGIN;
+            float maxX = Math.max(currentBall.getPrevMaxX(), currentBall.getMaxX()) + QUERY_MARGIN;
+            float minY = Math.min(currentBall.getPrevMinY(), currentBall.getMinY()) - QUERY_MARGIN;
+            float maxY = Math.max(currentBall.getPrevMaxY(), currentBall.getMaxY()) + QUERY_MARGIN;
+
+            queryTree(currentBall, minX, maxX, minY, maxY, pairs);
+
+            for (int index = 0; index < mDynamicCount; index++) {
+                Interactable curObject = mObjects[mDynamicIds[index]];
+
+                if (curObject != currentBall) {
+                    pairs.addCandidate(currentBall, curObject);
+                }
+            }
+        }
+    }
+
+    private void queryTree(Ball ball, float minX, float maxX, float minY, float maxY, CollisionPairs pairs) {
+
+        if (mItemCount == 0) {
+            return;
+        }
+
+        int stackSize = 0;
+        mStack[stackSize++] = 0;
+
+        while (stackSize > 0) {
+            int node = mStack[--stackSize];
+
+            if ((mNodeMaxX[node] < minX) || (mNodeMinX[node] > maxX) || (mNodeMaxY[node] < minY) || (mNodeMinY[node] > maxY)) {
+                continue;
+            }
+
+            if (mNodeRight[node] == -1) {
+                int end = mNodeStart[node] + mNodeCount[node];
+
+                for (int index = mNodeStart[node]; index < end; index++) {
+                    int id = mItems[index];
+
+                    if (!mRemoved[id]) {
+                        pairs.addCandidate(ball, mObjects[id]);
+                    }
+                }
+            } else {
+                mStack[stackSize++] = mNodeRight[node];
+                mStack[stackSize++] = node + 1;
+            }
+        }
+    }
+
+    /**
+     * Build the subtree over mItems[start, end), splitting at the median of the longer axis.
+     * Returns the index of the node that was created.
+     */
+    private int buildNode(int start, int end) {
+        int node = mNodeTotal;
+        mNodeTotal++;
+
+        //Bounds of every object in this node, and of their centers (used to pick the split axis)
+        float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float centerMinX = Float.MAX_VALUE, centerMaxX = -Float.MAX_VALUE, centerMinY = Float.MAX_VALUE, centerMaxY = -Float.MAX_VALUE;
+
+        for (int index = start; index < end; index++) {
+            Interactable object = mObjects[mItems[index]];
+
+            minX = Math.min(minX, BroadphaseBounds.getMinX(object));
+            maxX = Math.max(maxX, BroadphaseBounds.getMaxX(object));
+            minY = Math.min(minY, BroadphaseBounds.getMinY(object));
+            maxY = Math.max(maxY, BroadphaseBounds.getMaxY(object));
+
+            centerMinX = Math.min(centerMinX, getCenter(object, true));
+            centerMaxX = Math.max(centerMaxX, getCenter(object, true));
+            centerMinY = Math.min(centerMinY, getCenter(object, false));
+            centerMaxY = Math.max(centerMaxY, getCenter(object, false));
+        }
+
+        mNodeMinX[node] = minX;
+        mNodeMaxX[node] = maxX;
+        mNodeMinY[node] = minY;
+        mNodeMaxY[node] = maxY;
+        mNodeStart[node] = start;
+        mNodeCount[node] = end - start;
+
+        if (end - start <= MAX_LEAF_SIZE) {
+            mNodeRight[node] = -1;
+            return node;
+        }
+
+        boolean splitOnX = (centerMaxX - centerMinX) >= (centerMaxY - centerMinY);
+        sortByCenter(start, end, splitOnX);
+
+        int middle = (start + end) / 2;
+        buildNode(start, middle);
+        mNodeRight[node] = buildNode(middle, end);
+
+        return node;
+    }
+
+    //Only done once per level, so a simple insertion sort is fine
+    private void sortByCenter(int start, int end, boolean onX) {
+        for (int i = start + 1; i < end; i++) {
+            int id = mItems[i];
+            float center = getCenter(mObjects[id], onX);
+            int j = i - 1;
+
+            while ((j >= start) && (getCenter(mObjects[mItems[j]], onX) > center)) {
+                mItems[j + 1] = mItems[j];
+                j--;
+            }
+            mItems[j + 1] = id;
+        }
+    }
+
+    private float getCenter(Interactable object, boolean onX) {
+        if (onX) {
+            return (BroadphaseBounds.getMinX(object) + BroadphaseBounds.getMaxX(object)) / 2;
+        }
+        return (BroadphaseBounds.getMinY(object) + BroadphaseBounds.getMaxY(object)) / 2;
+    }
+
+    private boolean isStatic(Interactable object) {
+        return object.getType() != GameState.INTERACTABLE_BALL;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Model.Obstacle;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Signed distance from every point of a grid over the arena to the nearest static obstacle (borders included),
+ * negative inside an obstacle. Static obstacles never move, so the field is baked once per level, and kept
+ * outside the Java heap in a direct buffer.
+ *
+ * GameEngine uses it to skip testing a ball against static obstacles altogether, during a step the ball can't
+ * get near any of them (see isClear). Reading the field is a single lookup, however many obstacles the level has.
+ *
+ * Baking is cached on disk (in the app's cache directory), keyed by a hash of the static geometry, so it only
+ * has to be done the first time a level is played.
+ */
+public class StaticDistanceField {
+
+    //Changing the file layout (or the way distances are worked out) needs a new version, to ignore old files
+    private static final int FILE_MAGIC = 0x53444631;   //"SDF1"
+    private static final int HEADER_BYTES = 20;         //magic, hash (long), columns, rows
+
+    //The coarse collision test accepts objects within 1 unit of each other, so the same margin is kept here
+    // to never skip a pair the coarse test would accept.
+    private static final float CLEARANCE_MARGIN = 1f;
+
+    private final float mCellSize;
+    private final int mColumns;
+    private final int mRows;
+
+    //Distance can be out by at most this much between grid points (half the diagonal of a cell)
+    private final float mSampleError;
+
+    private final FloatBuffer mDistances;
+
+    private StaticDistanceField(float cellSize, int columns, int rows, FloatBuffer distances) {
+        mCellSize = cellSize;
+        mColumns = columns;
+        mRows = rows;
+        mSampleError = cellSize * (float) Math.sqrt(2) / 2;
+        mDistances = distances;
+    }
+
+    /**
+     * Load the field for this level's static obstacles from the cache, or bake it (and cache it) if it isn't there.
+     * PARAMS:
+     *   allInteractableObjects - Every interactable object in the level (only static obstacles are used)
+     *   cacheDir - Where baked fields are kept (may be null, to always bake)
+     */
+    public static StaticDistanceField load(ArrayList<Interactable> allInteractableObjects, File cacheDir) {
+        float cellSize = GameState.DISTANCE_FIELD_CELL_SIZE;
+        int columns = (int) Math.ceil(GameState.FULL_WIDTH / cellSize) + 1;
+        int rows = (int) Math.ceil(GameState.FULL_HEIGHT / cellSize) + 1;
+
+        ArrayList<Obstacle> obstacles = new ArrayList<>();
+        for (Interactable object : allInteractableObjects) {
+            if (object.getType() == GameState.INTERACTABLE_OBSTACLE) {
+                obstacles.add((Obstacle) object);
+            }
+        }
+
+        long hash = hashGeometry(obstacles, cellSize, columns, rows);
+        File cacheFile = (cacheDir != null) ? new File(cacheDir, "sdf_" + Long.toHexString(hash) + ".bin") : null;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(columns * rows * 4).order(ByteOrder.nativeOrder());
+
+        if ((cacheFile == null) || !readCache(cacheFile, hash, columns, rows, buffer)) {
+            bake(obstacles, cellSize, columns, rows, buffer.asFloatBuffer());
+
+            if (cacheFile != null) {
+                writeCache(cacheFile, hash, columns, rows, buffer);
+            }
+        }
+
+        return new StaticDistanceField(cellSize, columns, rows, buffer.asFloatBuffer());
+    }
+
+    /**
+     * True if nothing static is within reach of the point, so a ball centered there that moves no further than
+     * reach - radius during the step can't touch a static obstacle.
+     * PARAMS:
+     *   x, y - Where the ball starts the step
+     *   reach - Ball radius, plus the furthest it can move during the step
+     */
+    public boolean isClear(float x, float y, float reach) {
+        int column = Math.round(x / mCellSize);
+        int row = Math.round(y / mCellSize);
+
+        //Outside the arena (shouldn't happen), so assume the worst
+        if ((column < 0) || (column >= mColumns) || (row < 0) || (row >= mRows)) {
+            return false;
+        }
+
+        //The nearest grid point is at most mSampleError away, so the distance from (x, y) is at least this much
+        float distance = mDistances.get((row * mColumns) + column) - mSampleError;
+        return distance > reach + CLEARANCE_MARGIN;
+    }
+
+    private static void bake(ArrayList<Obstacle> obstacles, float cellSize, int columns, int rows, FloatBuffer distances) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                float x = column * cellSize;
+                float y = row * cellSize;
+
+                float minDistance = GameState.LARGE_NUMBER;
+                for (Obstacle obstacle : obstacles) {
+                    minDistance = Math.min(minDistance, signedDistance(obstacle, x, y));
+                }
+                distances.put((row * columns) + column, minDistance);
+            }
+        }
+    }
+
+    //Distance from the point to the polygon's edges, negative if the point is inside it
+    private static float signedDistance(Obstacle obstacle, float x, float y) {
+        float minDistanceSquared = GameState.LARGE_NUMBER;
+        boolean inside = false;
+
+        int vertexCount = obstacle.getVertexCount();
+        for (int index = 0; index < vertexCount; index++) {
+            float aX = obstacle.getBaseVertexX(index);
+            float aY = obstacle.getBaseVertexY(index);
+            float bX = obstacle.getBaseVertexX((index + 1) % vertexCount);
+            float bY = obstacle.getBaseVertexY((index + 1) % vertexCount);
+
+            //Distance to the edge from a to b
+            float edgeX = bX - aX;
+            float edgeY = bY - aY;
+            float edgeLengthSquared = (edgeX * edgeX) + (edgeY * edgeY);
+            float t = 0f;
+            if (edgeLengthSquared > 0) {
+                t = Math.max(0f, Math.min(1f, (((x - aX) * edgeX) + ((y - aY) * edgeY)) / edgeLengthSquared));
+            }
+            float offsetX = x - (aX + (t * edgeX));
+            float offsetY = y - (aY + (t * edgeY));
+            minDistanceSquared = Math.min(minDistanceSquared, (offsetX * offsetX) + (offsetY * offsetY));
+
+            //Count edge crossings of a ray going right from the point
+            if (((aY > y) != (bY > y)) && (x < aX + ((y - aY) * edgeX / edgeY))) {
+                inside = !inside;
+            }
+        }
+
+        float distance = (float) Math.sqrt(minDistanceSquared);
+        return inside ? -distance : distance;
+    }
+
+    private static long hashGeometry(ArrayList<Obstacle> obstacles, float cellSize, int columns, int rows) {
+        //64 bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ FILE_MAGIC) * 0x100000001b3L;
+        hash = (hash ^ Float.floatToIntBits(cellSize)) * 0x100000001b3L;
+        hash = (hash ^ columns) * 0x100000001b3L;
+        hash = (hash ^ rows) * 0x100000001b3L;
+
+        for (Obstacle obstacle : obstacles) {
+            hash = (hash ^ obstacle.getVertexCount()) * 0x100000001b3L;
+            for (int index = 0; index < obstacle.getVertexCount(); index++) {
+                hash = (hash ^ Float.floatToIntBits(obstacle.getBaseVertexX(index))) * 0x100000001b3L;
+                hash = (hash ^ Float.floatToIntBits(obstacle.getBaseVertexY(index))) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    //Fill the buffer from the cache file. Returns false (leaving the buffer in an unknown state) if it can't be used.
+    private static boolean readCache(File cacheFile, long hash, int columns, int rows, ByteBuffer buffer) {
+        if (cacheFile.length() != HEADER_BYTES + buffer.capacity()) {
+            return false;
+        }
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(cacheFile);
+            FileChannel channel = inputStream.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            readFully(channel, header);
+            if ((header.getInt(0) != FILE_MAGIC) || (header.getLong(4) != hash)
+                    || (header.getInt(12) != columns) || (header.getInt(16) != rows)) {
+                return false;
+            }
+
+            buffer.clear();
+            readFully(channel, buffer);
+            buffer.clear();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            close(inputStream);
+        }
+    }
+
+    //Failing to write the cache just means baking again next time
+    private static void writeCache(File cacheFile, long hash, int columns, int rows, ByteBuffer buffer) {
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            FileChannel channel = outputStream.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            header.putInt(FILE_MAGIC).putLong(hash).putInt(columns).putInt(rows);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer data = buffer.duplicate();
+            data.clear();
+            writeFully(channel, data);
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+            return;
+        } finally {
+            close(outputStream);
+        }
+
+        //Only replace the real file once the whole field is written
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Distance field cache ended early");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void close(Closeable stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
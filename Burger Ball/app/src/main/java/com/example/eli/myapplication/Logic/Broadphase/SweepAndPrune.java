@@ -0,0 +1,251 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+
+/**
+ * Sweep and prune along the x axis. Every object contributes two endpoints (the min and max x of its
+ * bounding box, see BroadphaseBounds) to one sorted list, which is kept between steps. Each step only
+ * the endpoints of balls change, and only by a small amount, so re-sorting the list with an insertion
+ * sort is close to linear. Sweeping the sorted list from left to right then gives every pair of
+ * objects whose x ranges overlap, without comparing every object against every other one.
+ *
+ * Pairs that don't include a ball are skipped, and the y axis is left to the coarse collision test.
+ */
+public class SweepAndPrune implements PairSource {
+
+    //The coarse collision test accepts objects within 1 unit of each other, so ball
+    // endpoints are pushed out by the same amount to never miss a pair the coarse test would accept.
+    private static final float BALL_MARGIN = 1f;
+
+    //Objects and balls, indexed by interactable id (mBalls is null for anything that isn't a ball)
+    private Interactable[] mObjects;
+    private Ball[] mBalls;
+
+    //Sorted endpoints. Each endpoint is stored as (id << 1), plus 1 if it is the max endpoint.
+    private float[] mEndpointValues;
+    private int[] mEndpoints;
+    private int mEndpointCount;
+
+    //Current position of each object's endpoints in the sorted list (-1 once removed)
+    private int[] mMinEndpointIndex;
+    private int[] mMaxEndpointIndex;
+
+    //Objects whose endpoints need to be refreshed every step (balls)
+    private int[] mBallIds;
+    private int mBallCount;
+
+    //Objects whose x range contains the current sweep position
+    private int[] mActive;
+    private int[] mActivePosition;
+    private int mActiveCount;
+
+    public SweepAndPrune(ArrayList<Interactable> allInteractableObjects) {
+
+        int objectCount = CollisionPairs.getIdCapacity(allInteractableObjects);
+
+        mObjects = new Interactable[objectCount];
+        mBalls = new Ball[objectCount];
+        mBallIds = new int[objectCount];
+        mEndpointValues = new float[objectCount * 2];
+        mEndpoints = new int[objectCount * 2];
+        mMinEndpointIndex = new int[objectCount];
+        mMaxEndpointIndex = new int[objectCount];
+        mActive = new int[objectCount];
+        mActivePosition = new int[objectCount];
+
+        for (int index = 0; index < objectCount; index++) {
+            mMinEndpointIndex[index] = -1;
+            mMaxEndpointIndex[index] = -1;
+            mActivePosition[index] = -1;
+        }
+
+        for (Interactable object : allInteractableObjects) {
+            int id = object.getInteractableId();
+            mObjects[id] = object;
+
+            if (object.getType() == GameState.INTERACTABLE_BALL) {
+                mBalls[id] = (Ball) object;
+                mBallIds[mBallCount] = id;
+                mBallCount++;
+            }
+
+            mMinEndpointIndex[id] = mEndpointCount;
+            mEndpoints[mEndpointCount] = id << 1;
+            mEndpointCount++;
+
+            mMaxEndpointIndex[id] = mEndpointCount;
+            mEndpoints[mEndpointCount] = (id << 1) + 1;
+            mEndpointCount++;
+
+            update(object);
+        }
+
+        sortEndpoints();
+    }
+
+    /**
+     * Refresh an object's endpoint values. The list is re-sorted the next time pairs are found.
+     */
+    @Override
+    public void update(Interactable object) {
+        int id = object.getInteractableId();
+
+        if (mMinEndpointIndex[id] == -1) {
+            return;
+        }
+
+        float margin = (mBalls[id] != null) ? BALL_MARGIN : 0f;
+        mEndpointValues[mMinEndpointIndex[id]] = BroadphaseBounds.getMinX(object) - margin;
+        mEndpointValues[mMaxEndpointIndex[id]] = BroadphaseBounds.getMaxX(object) + margin;
+    }
+
+    /**
+     * Permanently remove an object's endpoints (e.g. a target that has been collected).
+     */
+    @Override
+    public void remove(Interactable object) {
+        int id = object.getInteractableId();
+
+        if (mMinEndpointIndex[id] == -1) {
+            return;
+        }
+
+        //Close the gaps left by both endpoints, keeping the rest of the list in order
+        int writeIndex = 0;
+        for (int readIndex = 0; readIndex < mEndpointCount; readIndex++) {
+            int endpoint = mEndpoints[readIndex];
+
+            if ((endpoint >> 1) == id) {
+                continue;
+            }
+
+            setEndpoint(writeIndex, endpoint, mEndpointValues[readIndex]);
+            writeIndex++;
+        }
+
+        mEndpointCount = writeIndex;
+        mMinEndpointIndex[id] = -1;
+        mMaxEndpointIndex[id] = -1;
+    }
+
+    @Override
+    public void findPairs(ArrayList<Ball> allBalls, CollisionPairs pairs) {
+
+        //Balls have been advanced since last time, so their endpoints need refreshing.
+        //(Moving obstacles' endpoints already cover their whole path)
+        for (int index = 0; index < mBallCount; index++) {
+            Ball currentBall = mBalls[mBallIds[index]];
+
+            //(Sleeping balls haven't moved)
+            if (!currentBall.isBallInactive() && !currentBall.isBallAsleep()) {
+                update(currentBall);
+            }
+        }
+
+        sortEndpoints();
+
+        //Sweep from left to right. When an object's min endpoint is reached, it overlaps (on the x axis)
+        // with everything currently active.
+        mActiveCount = 0;
+
+        for (int index = 0; index < mEndpointCount; index++) {
+            int endpoint = mEndpoints[index];
+            int id = endpoint >> 1;
+
+            //Inactive balls can't collide with anything
+            if ((mBalls[id] != null) && mBalls[id].isBallInactive()) {
+                continue;
+            }
+
+            if ((endpoint & 1) == 0) {
+                reportOverlaps(id, pairs);
+                addActive(id);
+            } else {
+                removeActive(id);
+            }
+        }
+
+        //Anything left over (only possible if an endpoint was out of order, e.g. NaN) is cleared for next time
+        while (mActiveCount > 0) {
+            removeActive(mActive[mActiveCount - 1]);
+        }
+    }
+
+    private void reportOverlaps(int id, CollisionPairs pairs) {
+        boolean isBall = (mBalls[id] != null);
+
+        for (int index = 0; index < mActiveCount; index++) {
+            int otherId = mActive[index];
+
+            if (isBall || (mBalls[otherId] != null)) {
+                pairs.addUnorderedPair(mObjects[id], mObjects[otherId]);
+            }
+        }
+    }
+
+    private void addActive(int id) {
+        mActivePosition[id] = mActiveCount;
+        mActive[mActiveCount] = id;
+        mActiveCount++;
+    }
+
+    private void removeActive(int id) {
+        int position = mActivePosition[id];
+
+        if (position == -1) {
+            return;
+        }
+
+        //Order doesn't matter, so swap the last active object into the gap
+        mActiveCount--;
+        int lastId = mActive[mActiveCount];
+        mActive[position] = lastId;
+        mActivePosition[lastId] = position;
+        mActivePosition[id] = -1;
+    }
+
+    /**
+     * Insertion sort. Endpoints barely move between steps, so this is close to linear.
+     * When values are equal, min endpoints go before max endpoints, so touching objects still overlap.
+     */
+    private void sortEndpoints() {
+
+        for (int i = 1; i < mEndpointCount; i++) {
+            int endpoint = mEndpoints[i];
+            float value = mEndpointValues[i];
+            int j = i - 1;
+
+            while ((j >= 0) && comesAfter(mEndpoints[j], mEndpointValues[j], endpoint, value)) {
+                setEndpoint(j + 1, mEndpoints[j], mEndpointValues[j]);
+                j--;
+            }
+
+            if (j + 1 != i) {
+                setEndpoint(j + 1, endpoint, value);
+            }
+        }
+    }
+
+    private boolean comesAfter(int endpoint1, float value1, int endpoint2, float value2) {
+        if (value1 > value2) {
+            return true;
+        }
+
+        return (value1 == value2) && ((endpoint1 & 1) == 1) && ((endpoint2 & 1) == 0);
+    }
+
+    private void setEndpoint(int index, int endpoint, float value) {
+        mEndpoints[index] = endpoint;
+        mEndpointValues[index] = value;
+
+        if ((endpoint & 1) == 0) {
+            mMinEndpointIndex[endpoint >> 1] = index;
+        } else {
+            mMaxEndpointIndex[endpoint >> 1] = index;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.eli.myapplication.Logic.Broadphase;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+
+/**
+ * A uniform grid laid over the arena (GameState.FULL_WIDTH x GameState.FULL_HEIGHT), used as a
+ * broadphase before CollisionDetection. Each cell keeps a list of the interactable objects whose
+ * bounding box overlaps it, so a ball only needs to be collision checked against the objects
+ * sharing a cell with it, instead of every object in the level.
+ *
+ * Static obstacles, targets and moving obstacles (see BroadphaseBounds) are inserted once when the
+ * level is loaded. Balls are re-binned with update(), which only touches the cells if the range of
+ * cells covered by the ball has actually changed. Objects that reach outside the arena (such as the
+ * outer borders) are clamped into the edge cells.
+ */
+public class UniformGrid implements PairSource {
+
+    //Size of each (square) cell. A ball is 20 units across, so most balls will cover 1-4 cells.
+    public static final float CELL_SIZE = 25f;
+
+    //The coarse collision test accepts objects within 1 unit of each other, so queries
+    // are expanded by the same amount to never miss a pair the coarse test would accept.
+    private static final float QUERY_MARGIN = 1f;
+
+    private final int mColumns;
+    private final int mRows;
+    private final ArrayList<ArrayList<Interactable>> mCells;
+
+    //Range of cells currently covered by each object, indexed by interactable id.
+    //A value of -1 in mCellMinX means the object is not in the grid.
+    private int[] mCellMinX;
+    private int[] mCellMaxX;
+    private int[] mCellMinY;
+    private int[] mCellMaxY;
+
+    //Used to make sure an object spanning several cells is only returned once per query
+    private int[] mQueryStamp;
+    private int mCurrentStamp = 0;
+
+    //Reused for each ball while finding pairs
+    private ArrayList<Interactable> mCandidates = new ArrayList<>();
+
+    public UniformGrid(ArrayList<Interactable> allInteractableObjects) {
+
+        mColumns = (int) Math.ceil(GameState.FULL_WIDTH / CELL_SIZE);
+        mRows = (int) Math.ceil(GameState.FULL_HEIGHT / CELL_SIZE);
+
+        mCells = new ArrayList<>(mColumns * mRows);
+        for (int index = 0; index < mColumns * mRows; index++) {
+            mCells.add(new ArrayList<Interactable>());
+        }
+
+        int objectCount = CollisionPairs.getIdCapacity(allInteractableObjects);
+        mCellMinX = new int[objectCount];
+        mCellMaxX = new int[objectCount];
+        mCellMinY = new int[objectCount];
+        mCellMaxY = new int[objectCount];
+        mQueryStamp = new int[objectCount];
+
+        for (int index = 0; index < objectCount; index++) {
+            mCellMinX[index] = -1;
+        }
+
+        //Static objects (and moving obstacles) are inserted here and never touched again.
+        //Balls are inserted at their starting location, and kept current with update().
+        for (Interactable object : allInteractableObjects) {
+            insert(object);
+        }
+    }
+
+    /**
+     * Re-bin every ball that is still in play (and awake), then find the candidates around each of them.
+     */
+    @Override
+    public void findPairs(ArrayList<Ball> allBalls, CollisionPairs pairs) {
+
+        for (int ballIndex = 0; ballIndex < allBalls.size(); ballIndex++) {
+            Ball currentBall = allBalls.get(ballIndex);
+            if (!currentBall.isBallInactive() && !currentBall.isBallAsleep()) {
+                update(currentBall);
+            }
+        }
+
+        for (int ballIndex = 0; ballIndex < allBalls.size(); ballIndex++) {
+            Ball currentBall = allBalls.get(ballIndex);
+            if (currentBall.isBallInactive() || currentBall.isBallAsleep()) {
+                continue;
+            }
+
+            findCandidates(currentBall, mCandidates);
+
+            for (int index = 0; index < mCandidates.size(); index++) {
+                pairs.addCandidate(currentBall, mCandidates.get(index));
+            }
+        }
+    }
+
+    /**
+     * Re-bin an object that may have moved. If its bounding box still covers the same cells,
+     * nothing needs to be done.
+     */
+    @Override
+    public void update(Interactable object) {
+        int id = object.getInteractableId();
+
+        //Already covers its whole path
+        if ((mCellMinX[id] == -1) || BroadphaseBounds.isSwept(object)) {
+            return;
+        }
+
+        int minX = getColumn(object.getMinX());
+        int maxX = getColumn(object.getMaxX());
+        int minY = getRow(object.getMinY());
+        int maxY = getRow(object.getMaxY());
+
+        if ((minX == mCellMinX[id]) && (maxX == mCellMaxX[id]) && (minY == mCellMinY[id]) && (maxY == mCellMaxY[id])) {
+            return;
+        }
+
+        removeFromCells(object);
+        addToCells(object, minX, maxX, minY, maxY);
+    }
+
+    /**
+     * Permanently remove an object from the grid (e.g. a target that has been collected).
+     */
+    @Override
+    public void remove(Interactable object) {
+        int id = object.getInteractableId();
+
+        if (mCellMinX[id] == -1) {
+            return;
+        }
+
+        removeFromCells(object);
+        mCellMinX[id] = -1;
+    }
+
+    /**
+     * Collect every object sharing a cell with the given object's bounding box (excluding itself).
+     * Candidates are returned sorted by interactable id, which is the same order they would be
+     * visited in when looping over the full collection of interactable objects.
+     *
+     * PARAMS:
+     *   object - The object to find candidates for (usually a ball)
+     *   candidates - Collection that is cleared and then filled with the results
+     */
+    public void findCandidates(Interactable object, ArrayList<Interactable> candidates) {
+        candidates.clear();
+        mCurrentStamp++;
+
+        int minX = getColumn(object.getMinX() - QUERY_MARGIN);
+        int maxX = getColumn(object.getMaxX() + QUERY_MARGIN);
+        int minY = getRow(object.getMinY() - QUERY_MARGIN);
+        int maxY = getRow(object.getMaxY() + QUERY_MARGIN);
+
+        mQueryStamp[object.getInteractableId()] = mCurrentStamp;
+
+        for (int row = minY; row <= maxY; row++) {
+            for (int column = minX; column <= maxX; column++) {
+
+                ArrayList<Interactable> cell = mCells.get((row * mColumns) + column);
+
+                for (int index = 0; index < cell.size(); index++) {
+                    Interactable candidate = cell.get(index);
+                    int candidateId = candidate.getInteractableId();
+
+                    if (mQueryStamp[candidateId] != mCurrentStamp) {
+                        mQueryStamp[candidateId] = mCurrentStamp;
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+
+        sortById(candidates);
+    }
+
+    private void insert(Interactable object) {
+        addToCells(object, getColumn(BroadphaseBounds.getMinX(object)), getColumn(BroadphaseBounds.getMaxX(object)),
+                getRow(BroadphaseBounds.getMinY(object)), getRow(BroadphaseBounds.getMaxY(object)));
+    }
+
+    private void addToCells(Interactable object, int minX, int maxX, int minY, int maxY) {
+        int id = object.getInteractableId();
+
+        for (int row = minY; row <= maxY; row++) {
+            for (int column = minX; column <= maxX; column++) {
+                mCells.get((row * mColumns) + column).add(object);
+            }
+        }
+
+        mCellMinX[id] = minX;
+        mCellMaxX[id] = maxX;
+        mCellMinY[id] = minY;
+        mCellMaxY[id] = maxY;
+    }
+
+    private void removeFromCells(Interactable object) {
+        int id = object.getInteractableId();
+
+        for (int row = mCellMinY[id]; row <= mCellMaxY[id]; row++) {
+            for (int column = mCellMinX[id]; column <= mCellMaxX[id]; column++) {
+                mCells.get((row * mColumns) + column).remove(object);
+            }
+        }
+    }
+
+    private int getColumn(float x) {
+        return clamp((int) Math.floor(x / CELL_SIZE), mColumns);
+    }
+
+    private int getRow(float y) {
+        return clamp((int) Math.floor(y / CELL_SIZE), mRows);
+    }
+
+    private int clamp(int cell, int cellCount) {
+        if (cell < 0) {
+            return 0;
+        }
+        if (cell >= cellCount) {
+            return cellCount - 1;
+        }
+        return cell;
+    }
+
+    //Candidate lists are short, so a simple insertion sort is plenty.
+    private void sortById(ArrayList<Interactable> candidates) {
+        for (int i = 1; i < candidates.size(); i++) {
+            Interactable current = candidates.get(i);
+            int currentId = current.getInteractableId();
+            int j = i - 1;
+
+            while ((j >= 0) && (candidates.get(j).getInteractableId() > currentId)) {
+                candidates.set(j + 1, candidates.get(j));
+                j--;
+            }
+            candidates.set(j + 1, current);
+        }
+    }
+}
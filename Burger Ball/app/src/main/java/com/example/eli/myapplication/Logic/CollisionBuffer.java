@@ -0,0 +1,71 @@
+package com.example.eli.myapplication.Logic;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Collision;
+import com.example.eli.myapplication.Model.Interactable;
+
+import java.util.Arrays;
+
+/**
+ * Holds the collisions found during one step. The Collision objects are allocated up front and
+ * reused every step (reset() just empties the buffer), so finding collisions doesn't create garbage.
+ *
+ * The buffer starts at GameState.COLLISION_BUFFER_CAPACITY. If a step ever finds more collisions than
+ * that, it grows rather than dropping any; the high-water mark shows whether the capacity is big enough.
+ */
+public class CollisionBuffer {
+
+    private Collision[] mCollisions;
+    private int mSize = 0;
+    private int mHighWaterMark = 0;
+
+    public CollisionBuffer(int capacity) {
+        mCollisions = new Collision[capacity];
+        fill(0);
+    }
+
+    public void reset() {
+        mSize = 0;
+    }
+
+    public Collision add(float time, float boundaryAxisX, float boundaryAxisY, Interactable obstacle, Ball ball) {
+        if (mSize == mCollisions.length) {
+            int oldCapacity = mCollisions.length;
+            mCollisions = Arrays.copyOf(mCollisions, oldCapacity * 2);
+            fill(oldCapacity);
+        }
+
+        Collision collision = mCollisions[mSize];
+        collision.set(time, boundaryAxisX, boundaryAxisY, obstacle, ball);
+        mSize++;
+
+        if (mSize > mHighWaterMark) {
+            mHighWaterMark = mSize;
+        }
+
+        return collision;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public Collision get(int index) {
+        return mCollisions[index];
+    }
+
+    public int getCapacity() {
+        return mCollisions.length;
+    }
+
+    //Most collisions that have been in the buffer at once
+    public int getHighWaterMark() {
+        return mHighWaterMark;
+    }
+
+    private void fill(int start) {
+        for (int index = start; index < mCollisions.length; index++) {
+            mCollisions[index] = new Collision();
+        }
+    }
+}
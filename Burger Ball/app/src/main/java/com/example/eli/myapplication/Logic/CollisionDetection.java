@@ -1,10 +1,8 @@
 package com.example.eli.myapplication.Logic;
 
 import android.graphics.PointF;
-import android.util.Log;
 
 import com.example.eli.myapplication.Logic.Ball.BallEngine;
-import com.example.eli.myapplication.Model.InvalidBallPositionException;
 import com.example.eli.myapplication.Resources.CommonFunctions;
 import com.example.eli.myapplication.Resources.GameState;
 import com.example.eli.myapplication.Model.Interactable;
@@ -14,459 +12,249 @@ import com.example.eli.myapplication.Model.MovingObstacle;
 import com.example.eli.myapplication.Model.Obstacle;
 import com.example.eli.myapplication.Model.Target;
 
-import java.util.ArrayList;
-
 
 /**
  * This class contains the methods used to detect collisions between balls and obstacles.
- * It is intended to be initialized once per frame step within the GameEngine loop, because
- * a collection of Collisions is maintained between each iteration. This collection is
+ * It is created once per level, and reset() at the start of every frame step within the GameEngine loop.
+ * The Collisions found during the step are kept in a buffer, which is
  * reviewed upon completion of collision detection by the CollisionHandling class.
  */
 public class CollisionDetection {
 
     private BallEngine ballEngine;
+    private SeparatingAxisCache axisCache;
 
-    public CollisionDetection(BallEngine ballEngine) {
-        this.ballEngine = ballEngine;
-    }
-
-    private class Penetration {
-        PointF mNormalAxis;
-        float mPenetrationDistance;
-        PointF mVertex;
-        boolean mNearestVertexAxis;
+    //Set when changes to axisCache are held back (see SeparatingAxisCache.deferAxis)
+    private SeparatingAxisCache.PendingAxes pendingAxes;
 
-        Penetration(PointF normalAxis, float penetrationDistance, PointF vertex, boolean nearestVertexAxis){
-            mNormalAxis = normalAxis;
-            mPenetrationDistance = penetrationDistance;
-            mVertex = vertex;
-            mNearestVertexAxis = nearestVertexAxis;
-        }
+    public CollisionDetection(BallEngine ballEngine, SeparatingAxisCache axisCache) {
+        this(ballEngine, axisCache, null);
     }
 
-    private ArrayList<Penetration> penetrationHistory = new ArrayList<Penetration>();
-    private ArrayList<Collision> mCollisions = new ArrayList<>();
-
-    public ArrayList<Collision> getCollisions(){
-        return mCollisions;
+    /**
+     * PARAMS
+     *   pendingAxes - If not null, changes to axisCache are recorded here, for the caller to commit
+     */
+    public CollisionDetection(BallEngine ballEngine, SeparatingAxisCache axisCache, SeparatingAxisCache.PendingAxes pendingAxes) {
+        this.ballEngine = ballEngine;
+        this.axisCache = axisCache;
+        this.pendingAxes = pendingAxes;
     }
 
-    public void addPenetrationToHistory(PointF axis, float penetrationDistance, PointF vertex, boolean nearestVertexAxis){
-        penetrationHistory.add(new Penetration(axis, penetrationDistance, vertex, nearestVertexAxis));
+    //Forget all collisions found during the previous step
+    public void reset() {
+        mCollisions.reset();
     }
 
-    public void clearPenetrationHistory(){
-        penetrationHistory.clear();
+    //Results of detailed collision testing
+    public static final int NO_COLLISION = 0;
+    public static final int COLLISION = 1;
+    public static final int INVALID_BALL_POSITION = 2;
+
+    //How far apart (or overlapping) a ball and an obstacle can be at the start of a step, and still count as touching
+    private static final float TOUCHING_DISTANCE = 0.001f;
+    //Number of times findTimeOfImpact halves the step to find the side or vertex the ball meets first
+    private static final int CONTACT_SEARCH_STEPS = 16;
+    //Returned by quadraticCollisionTime when the objects don't meet within the step
+    private static final double NO_CONTACT = -1;
+
+    //Motion of the ball relative to the obstacle being swept by findTimeOfImpact, with the obstacle left where it was
+    // at the start of the step: position = start + velocity * t + halfAccel * t^2
+    private float mSweepStartX;
+    private float mSweepStartY;
+    private float mSweepVelocityX;
+    private float mSweepVelocityY;
+    private float mSweepHalfAccelX;
+    private float mSweepHalfAccelY;
+    private float mSweepOffsetX;
+    private float mSweepOffsetY;
+    private float mSweepRadius;
+    //-1 or 1 for each side of the obstacle, so that sign * boundary axis points out of it
+    private float[] mOutwardSigns = new float[8];
+
+    //Side or vertex of the obstacle nearest the ball, found by distanceToObstacle (the other one is -1)
+    private int mNearestEdge;
+    private int mNearestVertex;
+
+    //Scratch vectors, reused by every test
+    private PointF mAvgVelocity = new PointF();
+    private PointF mStepStartVelocity = new PointF();
+    private PointF mStepEndVelocity = new PointF();
+    private PointF mOtherAvgVelocity = new PointF();
+    private PointF mPositionChange = new PointF();
+    private PointF mOtherPositionChange = new PointF();
+    private PointF mFeatureAxis = new PointF();
+
+    //Axis to push a ball out along, when INVALID_BALL_POSITION is returned
+    private PointF mInvalidPositionAxis = new PointF();
+
+    private CollisionBuffer mCollisions = new CollisionBuffer(GameState.COLLISION_BUFFER_CAPACITY);
+
+    //Separating axis test counters, since they were last handed to CollisionStatistics
+    private int mPolygonTests = 0;
+    private int mAxesTested = 0;
+    private int mCachedAxisLookups = 0;
+    private int mCachedAxisHits = 0;
+
+    public CollisionBuffer getCollisions(){
+        return mCollisions;
     }
 
-    //closest axis = minimum penetration
-    public Penetration findClosestAxis(Ball ball, Obstacle obstacle){
-
-        //sanity check
-        if (penetrationHistory.size() == 0) {
-            return null;
-        }
-
-        //set the defaults
-        float minPenetration = GameState.SMALL_NUMBER;
-        Penetration minHistoryItem = null;
-
-        for (Penetration history : penetrationHistory) {
-
-            //Since penetration distances are negative numbers, we want to find the largest value (i.e. closest to zero)
-            //to find the minimum penetration.
-            if (history.mPenetrationDistance > minPenetration) {
-                minHistoryItem = history;
-                minPenetration = history.mPenetrationDistance;
-
-                //This should mean that we have two parallel axis's. We must determine which one is the intersecting one.
-            } else if (history.mPenetrationDistance == minPenetration) {
-
-                float currentDistance = calculateBallDistanceFromAxis(history, ball);
-                float previousDistance = calculateBallDistanceFromAxis(minHistoryItem, ball);
-
-                if (currentDistance < previousDistance) {
-                    minHistoryItem = history;
-                    minPenetration = history.mPenetrationDistance;
-                }
-            }
-        }
-
-        return minHistoryItem;
+    /**
+     * Only valid right after doPolygonCollisionDetection returned INVALID_BALL_POSITION.
+     * Points inward, like all boundary axes.
+     */
+    public PointF getInvalidPositionAxis(){
+        return mInvalidPositionAxis;
     }
 
-    private float calculateBallDistanceFromAxis(Penetration penetration, Ball ball) {
-        PointF surfaceVector = new PointF(-penetration.mNormalAxis.y, penetration.mNormalAxis.x);
-        PointF nearestPoint = penetration.mVertex;
-        PointF ballPos = ball.getCenter();
-        PointF ballToPointVector = new PointF(ballPos.x - nearestPoint.x, ballPos.y - nearestPoint.y);
-
-        float ballSurfaceProjDistance = CommonFunctions.dotProduct(ballToPointVector, surfaceVector);
-        PointF ballSurfaceProj = new PointF(surfaceVector.x * ballSurfaceProjDistance, surfaceVector.y * ballSurfaceProjDistance);
+    //Add the separating axis test counters to stats, and start counting again
+    public void moveAxisStatsTo(CollisionStatistics stats){
+        stats.addSeparatingAxisTests(mPolygonTests, mAxesTested, mCachedAxisLookups, mCachedAxisHits);
+        discardAxisStats();
+    }
 
-        PointF ballSurfaceProjCoord = new PointF(nearestPoint.x + ballSurfaceProj.x, nearestPoint.y + ballSurfaceProj.y);
-        return new PointF(ballPos.x - ballSurfaceProjCoord.x, ballPos.y - ballSurfaceProjCoord.y).length();
+    //Start counting again, without keeping the counts (for tests whose results were thrown away)
+    public void discardAxisStats(){
+        mPolygonTests = 0;
+        mAxesTested = 0;
+        mCachedAxisLookups = 0;
+        mCachedAxisHits = 0;
     }
 
     /**
-     * Exclude testing certain objects (inactive balls, balls that haven't been moved
-     * yet this frame, etc.), based on the state that the ball is in.
-     * @param otherObject
+     * Exclude testing certain objects (inactive balls, static obstacles for stopped balls, etc.), based on the
+     * state that the ball is in. There is one for each kind of other object, since GameEngine's collision passes
+     * already know what kind of object every pair holds.
      * @return TRUE if we should test this object, FALSE if we don't need to test
      */
-    public boolean ballCollisionPreChecks(Ball currentBall, Interactable otherObject) {
-
-        //For stopped balls, the only thing we need to test are moving obstacles.
-        if (currentBall.isBallStopped()) {
-            if (otherObject.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
-                return true;
-            }
-            return false;
-
-        //Defer to moving ball collision prechecks
-        } else if (currentBall.isBallActive()) {
-
-            return movingBallCollisionPrechecks(currentBall, otherObject);
-
-        //For rolling balls, we need to exclude the current rolling surface.
-        //After that, follow the same logic as active balls.
-        } else if (currentBall.isBallRolling()) {
-
-            Interactable obstacleRollingDown = ballEngine.getLastCollision(currentBall).getObstacle();
-            if (obstacleRollingDown.equals(otherObject)) {
-                return false;
-            }
-            return movingBallCollisionPrechecks(currentBall, otherObject);
-
-        }
-
-        return false;
+    public boolean staticObstaclePreChecks(Ball currentBall, Obstacle obstacle) {
+        return isBallMovingPast(currentBall, obstacle);
     }
 
-    /**
-     * For moving balls, check all obstacles, and check all moving balls that have been advanced.
-     * @param currentBall
-     * @param otherObject
-     * @return whether or not this Object is eligible for further collision testing
-     */
-    private boolean movingBallCollisionPrechecks(Ball currentBall, Interactable otherObject) {
-
-        //Do pre-checks if the other obstacle is a ball
-        if (otherObject.getType() == GameState.INTERACTABLE_BALL) {
-            Ball tempBall = (Ball) otherObject;
-
-            //Don't need to check inactive balls
-            if (tempBall.isBallInactive()) {
-                return false;
-            }
-
-            //If the other ball is moving, make sure it has been advanced this frame.
-            //The purpose of this is to insure we only check each ball-pair once.
-            // For example, the first ball to be advanced each frame would not be collision checked
-            // with any balls, but the last ball would be checked with every ball.
-            if (tempBall.isBallMoving() && !tempBall.hasBallBeenAdvanced()) {
-                return false;
-            }
-        }
-        return true;
+    public boolean movingObstaclePreChecks(Ball currentBall, MovingObstacle obstacle) {
+        //Stopped balls still need testing, since the obstacle can run into them
+        return currentBall.isBallStopped() || isBallMovingPast(currentBall, obstacle);
     }
 
-    /**
-     * This helper method reduces complexity by calling one of three collision detection
-     * methods, based on the obstacle type. One other approach I considered was having
-     * each object type (Ball / Target / Obstacle) override an abstract collision detection method
-     * in Interactable. However, I rejected this due to the increased complexity this would add
-     * to each object class, preferring to keep all collision detection code isolated in one class.
-     */
-    public void detailedCollisionTesting(Ball ball, Interactable object, float timeStep) throws InvalidBallPositionException {
+    public boolean targetPreChecks(Ball currentBall, Target target) {
+        return isBallMovingPast(currentBall, target);
+    }
 
-        if (object.getType()== GameState.INTERACTABLE_BALL){
-            doBallCollisionDetection(ball, (Ball) object, timeStep);
-            return;
-        }
+    public boolean ballPreChecks(Ball currentBall, Ball otherBall) {
+        return !otherBall.isBallInactive() && isBallMovingPast(currentBall, otherBall);
+    }
 
-        if ((object.getType()== GameState.INTERACTABLE_OBSTACLE) || (object.getType()== GameState.INTERACTABLE_MOVING_OBSTACLE)){
-            doPolygonCollisionDetection(ball, (Obstacle) object, timeStep);
-            return;
+    //Active balls test everything, rolling balls everything but their rolling surface, and stopped balls nothing
+    private boolean isBallMovingPast(Ball currentBall, Interactable otherObject) {
+        if (currentBall.isBallActive()) {
+            return true;
         }
 
-        if (object.getType()== GameState.INTERACTABLE_TARGET){
-            doTargetCollisionDetection(ball, (Target) object, timeStep);
-            return;
+        if (currentBall.isBallRolling()) {
+            return !ballEngine.getContactObstacle(currentBall).equals(otherObject);
         }
 
+        return false;
     }
 
-    private void doBallCollisionDetection(Ball ball1, Ball ball2, float timeStep) throws InvalidBallPositionException {
-        PointF ball1center;
-        PointF ball2center;
-
-        PointF distanceVector;
-        float distance;
-
-        ball1center = ball1.getCenter();
-        ball2center = ball2.getCenter();
-
-        distanceVector = new PointF(ball1center.x - ball2center.x, ball1center.y - ball2center.y);
-        distance = distanceVector.length();
+    public int doBallCollisionDetection(Ball ball1, Ball ball2, float timeStep) {
+        float distance = PointF.length(ball1.getCenterX() - ball2.getCenterX(), ball1.getCenterY() - ball2.getCenterY());
 
         if (distance >= (ball1.getRadius() + ball2.getRadius())){
-            return;
+            return NO_COLLISION;
         }
 
         //We now can be sure that there was a collision.
         //Calculate more collision info, such as timing, and save the collision event
-        calculateBallBallCollisionInfo(ball1, ball2, timeStep);
+        return calculateBallBallCollisionInfo(ball1, ball2, timeStep);
     }
 
     //This is almost exactly the same as doBallCollisionDetection.
     //However, I think it is more clear to have a separate method, so we can name variables more
     // accurately, and avoid checking the type for any different code that is needed.
-    private void doTargetCollisionDetection(Ball ball, Target target, float timeStep){
-        PointF ballCenter;
-        PointF targetCenter;
+    public int doTargetCollisionDetection(Ball ball, Target target, float timeStep){
+        float targetCenterX = target.getCenterX();
+        float targetCenterY = target.getCenterY();
 
-        PointF distanceVector;
-        float distance;
-
-        ballCenter = ball.getCenter();
-        targetCenter = target.getCenter();
-
-        distanceVector = new PointF(ballCenter.x - targetCenter.x, ballCenter.y - targetCenter.y);
-        distance = distanceVector.length();
+        float distance = PointF.length(ball.getCenterX() - targetCenterX, ball.getCenterY() - targetCenterY);
 
         if (distance >= (ball.getRadius() + target.getRadius())){
-            return;
+            return NO_COLLISION;
         }
 
         //We now can be sure that there was a collision.
         //Calculate more collision info, such as timing, and save the collision event
-        calculateBallPointCollisionInfo(ball, targetCenter, target, timeStep, target.getRadius());
+        return calculateBallPointCollisionInfo(ball, targetCenterX, targetCenterY, target, timeStep, target.getRadius());
     }
 
-    /**
-     * This method calculates the precise collision time between a ball and an obstacle.
-     * It makes use of a penetration object, which contains data about how far into an obstacle
-     * the ball penetrated, as well as the ball velocity and the current time step.
-     *
-     * PARAMS:
-     *   ball - The current ball
-     *   penetration - Object containing information about the penetration distance and axis
-     *   obstacle - The obstacle that has been struck
-     *   timeStep - The step (length) of the current iteration
-     */
-    private void calculateBallBoundaryCollisionInfo(Ball ball, Penetration penetration, Interactable obstacle, float timeStep){
-
-        //grab information from the penetration object
-        PointF boundaryAxis = penetration.mNormalAxis;
-        float penetrationDistance = penetration.mPenetrationDistance;
-
-        //get general info about the ball and frame
-        PointF ballVelocity = ballEngine.getAvgVelocity(ball, timeStep);
-        PointF prevVelocityStep;
-        PointF totalVelocity;
-
-        prevVelocityStep = new PointF(ballVelocity.x * timeStep, ballVelocity.y * timeStep);
-        totalVelocity = ballVelocity;
-
-        //Calculate the angle of the ball's velocity against the boundary axis
-        double prevAngle = Math.acos(CommonFunctions.dotProduct(boundaryAxis, totalVelocity) / (boundaryAxis.length() * totalVelocity.length()));
-
-        //Use prev angle and basic trig to calculate how far the ball traveled through the obstacle (hypotenuse)
-        double hypotenuse = Math.abs(penetrationDistance) / Math.cos(prevAngle);
-
-        //Calculate the collision time, based on the percent of velocity used before the collision, and the time step.
-        //For example, if a ball uses 50% of velocity before colliding, and the time step was 0.5, then the collision occurred at 0.25.
-        float percentOfVelocityBeforeCollision = (prevVelocityStep.length() - (float) Math.abs(hypotenuse)) / prevVelocityStep.length();
-        float collisionTime = (percentOfVelocityBeforeCollision) * timeStep;
-
-        //once a ball gets really close, this can happen... not sure why
-        if (collisionTime < 0){
-            collisionTime = 0.01f;
-        }
-
-        //add this collision to the collection of collisions this frame
-        Collision curCollision = new Collision(collisionTime, boundaryAxis, obstacle, ball);
-        mCollisions.add(curCollision);
-    }
-
-    private void calculateBallMovingBoundaryCollisionInfo(Ball ball, Penetration penetration, Interactable obstacle, float timeStep) throws InvalidBallPositionException {
-
-        //grab information from the penetration object
-        PointF boundaryAxis = penetration.mNormalAxis;
-        float penetrationDistance = penetration.mPenetrationDistance;
-
-        //get general info about the ball and frame
-        PointF ballVelocity = ballEngine.getAvgVelocity(ball, timeStep);
-        PointF prevVelocityStep;
-        PointF totalVelocity;
-
-        MovingObstacle tempObstacle = (MovingObstacle) obstacle;
-        PointF obstacleVelocity = tempObstacle.getVelocity();
-        prevVelocityStep = new PointF((ballVelocity.x - obstacleVelocity.x) * timeStep, (ballVelocity.y - obstacleVelocity.y) * timeStep);
-
-        totalVelocity = new PointF(ballVelocity.x - obstacleVelocity.x, ballVelocity.y - obstacleVelocity.y);
-
-        //Calculate the angle of the ball's velocity against the boundary axis
-        if (totalVelocity.length() == 0) {
-            throw new InvalidBallPositionException(boundaryAxis);
-        }
-
-        double prevAngle = Math.acos(CommonFunctions.dotProduct(boundaryAxis, totalVelocity) / (boundaryAxis.length() * totalVelocity.length()));
-
-        //Use prev angle and basic trig to calculate how far the ball traveled through the obstacle (hypotenuse)
-        double hypotenuse = Math.abs(penetrationDistance) / Math.cos(prevAngle);
-
-        //Calculate the collision time, based on the percent of velocity used before the collision, and the time step.
-        //For example, if a ball uses 50% of velocity before colliding, and the time step was 0.5, then the collision occurred at 0.25.
-        float percentOfVelocityBeforeCollision = (prevVelocityStep.length() - (float) Math.abs(hypotenuse)) / prevVelocityStep.length();
-        float collisionTime = (percentOfVelocityBeforeCollision) * timeStep;
-
-        //once a ball gets really close, this can happen... not sure why
-        if (collisionTime < 0){
-            collisionTime = 0.01f;
-        }
-
-        //add this collision to the collection of collisions this frame
-        Collision curCollision = new Collision(collisionTime, boundaryAxis, obstacle, ball);
-        mCollisions.add(curCollision);
-    }
-
-
-    private void calculateBallBallCollisionInfo(Ball ball1, Ball ball2, float timeStep) throws InvalidBallPositionException {
+    private int calculateBallBallCollisionInfo(Ball ball1, Ball ball2, float timeStep) {
 
         //get necessary information to calculate quadratic
-        PointF ball1PrevCenter = ball1.getPrevCenter();
-        PointF ball2PrevCenter = ball2.getPrevCenter();
-        PointF oldDistanceVector = new PointF(ball1PrevCenter.x - ball2PrevCenter.x, ball1PrevCenter.y - ball2PrevCenter.y);
-
-        //technically, we would need to do a cubic equation if we wanted to factor gravity in perfectly.
-        //However, it will be close enough to use the average velocity from the current timestep
-        PointF ball1AvgVel = ballEngine.getAvgVelocity(ball1, timeStep);
-        PointF ball2AvgVel = ballEngine.getAvgVelocity(ball2, timeStep);
-        PointF velocityDifference = new PointF(ball1AvgVel.x - ball2AvgVel.x, ball1AvgVel.y - ball2AvgVel.y);
+        float ball1PrevCenterX = ball1.getPrevCenterX();
+        float ball1PrevCenterY = ball1.getPrevCenterY();
+        float ball2PrevCenterX = ball2.getPrevCenterX();
+        float ball2PrevCenterY = ball2.getPrevCenterY();
+
+        //Two active balls have the same acceleration (gravity), so their relative velocity is constant and this is exact.
+        //If either one is rolling it isn't quite, but the average velocity over the step is close enough.
+        ballEngine.getAvgVelocity(ball1, timeStep, mAvgVelocity);
+        ballEngine.getAvgVelocity(ball2, timeStep, mOtherAvgVelocity);
         float distanceBetweenBalls = ball1.getRadius() + ball2.getRadius();
 
-        float collisionTime = 0.01f;
-        try {
-            //calculate the collision time using quadratic formula
-            collisionTime = (float) quadraticCollisionTime(velocityDifference, oldDistanceVector, distanceBetweenBalls, timeStep);
-        } catch (Exception e) {}
+        //calculate the collision time using quadratic formula
+        double contactTime = quadraticCollisionTime(mAvgVelocity.x - mOtherAvgVelocity.x, mAvgVelocity.y - mOtherAvgVelocity.y,
+                ball1PrevCenterX - ball2PrevCenterX, ball1PrevCenterY - ball2PrevCenterY, distanceBetweenBalls, timeStep);
 
-        if (collisionTime < 0) {
-            collisionTime = 0.01f;
+        //Already overlapping and moving apart
+        if (contactTime == NO_CONTACT) {
+            return NO_COLLISION;
         }
+        float collisionTime = (float) contactTime;
 
         //calculate the boundary axis based on the collision-point location of the two balls
-        PointF ball1Displacement = ballEngine.calculatePositionChange(ball1, collisionTime);
-        PointF ball2Displacement = ballEngine.calculatePositionChange(ball2, collisionTime);
-        PointF ball1NewPos = new PointF(ball1PrevCenter.x + ball1Displacement.x, ball1PrevCenter.y + ball1Displacement.y);
-        PointF ball2NewPos = new PointF(ball2PrevCenter.x + ball2Displacement.x, ball2PrevCenter.y + ball2Displacement.y);
-        PointF[] vertexArray = new PointF[]{ball1NewPos, ball2NewPos};
-        PointF boundaryAxis = makeNormalVectorBetweenPoints(vertexArray, 0);
-
-        //add this collision to the collection
-        mCollisions.add(new Collision(collisionTime, boundaryAxis, ball2, ball1));
-    }
-
-    private PointF makeNormalVectorBetweenPoints(PointF[] obstacleCoords, int index){
-        //We need to make a line between two vertexes
-        int vertexA = index;
-        int vertexB = (index + 1) % obstacleCoords.length; //We need to wrap back to the first vertex at the end, so use modulus
+        ballEngine.getPosition(ball1, collisionTime, mPositionChange);
+        ballEngine.getPosition(ball2, collisionTime, mOtherPositionChange);
 
         //formula to find the normal vector from a line is (-y, x)
-        float xComponent = -(obstacleCoords[vertexB].y - obstacleCoords[vertexA].y);
-        float yComponent = (obstacleCoords[vertexB].x - obstacleCoords[vertexA].x);
+        float xComponent = -(mOtherPositionChange.y - mPositionChange.y);
+        float yComponent = (mOtherPositionChange.x - mPositionChange.x);
 
-        //create vector and normalize
-        PointF normalAxis = new PointF(xComponent, yComponent);
-        float normalAxisLength = normalAxis.length();
-        normalAxis.set(normalAxis.x / normalAxisLength, normalAxis.y / normalAxisLength);
-
-        return normalAxis;
+        //add this collision to the collection (with the normalized vector as the boundary axis)
+        float normalAxisLength = PointF.length(xComponent, yComponent);
+        mCollisions.add(collisionTime, xComponent / normalAxisLength, yComponent / normalAxisLength, ball2, ball1);
+        return COLLISION;
     }
 
-    private void calculateBallPointCollisionInfo(Ball ball, PointF vertex, Interactable obstacle,
-                                                 float timeStep, float radius){
+    private int calculateBallPointCollisionInfo(Ball ball, float pointX, float pointY, Interactable target,
+                                                float timeStep, float radius){
 
         //get necessary information to calculate quadratic
-        PointF boundaryAxis = new PointF(0f,0f);
-        PointF ball1PrevCenter = ball.getPrevCenter();
-        PointF distanceFromVertex = new PointF(ball1PrevCenter.x - vertex.x, ball1PrevCenter.y - vertex.y);
-        PointF velocityDifference = ballEngine.getAvgVelocity(ball, timeStep);
+        float distanceFromPointX = ball.getPrevCenterX() - pointX;
+        float distanceFromPointY = ball.getPrevCenterY() - pointY;
+        ballEngine.getAvgVelocity(ball, timeStep, mAvgVelocity);
         float distanceThreshold = ball.getRadius() + radius;
 
-        float collisionTime = 0.01f;
-        try {
-            //calculate the collision time using the quadratic formula
-            collisionTime = (float) quadraticCollisionTime(velocityDifference, distanceFromVertex, distanceThreshold, timeStep);
-        } catch (Exception e) {}
-
-        //sanity check
-        if (collisionTime < 0){
-            collisionTime = 0.01f;
-        }
+        //A target is collected as soon as the ball touches it, even if the ball started the step on it and is leaving
+        float collisionTime = 0f;
+        if (PointF.length(distanceFromPointX, distanceFromPointY) > distanceThreshold) {
 
-        //If we are handling a nearest-vertex collision (and not a target collision), then...
-        if (radius == 0) {
-            //update the boundary axis based on the collision-point location of the ball (this will make velocity calculation more accurate)
-            boundaryAxis = updateBoundaryAxis(ball, collisionTime, vertex);
+            //calculate the collision time using the quadratic formula
+            double contactTime = quadraticCollisionTime(mAvgVelocity.x, mAvgVelocity.y, distanceFromPointX, distanceFromPointY, distanceThreshold, timeStep);
+            if (contactTime == NO_CONTACT) {
+                return NO_COLLISION;
+            }
+            collisionTime = (float) contactTime;
         }
 
         //add this collision to the collection
-        Collision collision = new Collision(collisionTime, boundaryAxis, obstacle, ball);
-        mCollisions.add(collision);
+        mCollisions.add(collisionTime, 0f, 0f, target, ball);
+        return COLLISION;
     }
 
-    private void calculateBallMovingPointCollisionInfo(Ball ball, Penetration penetration,
-                                                       MovingObstacle obstacle, float timeStep) throws InvalidBallPositionException {
-
-        //Get vertex from penetration
-        PointF vertex = penetration.mVertex;
-
-        //get necessary information to calculate quadratic
-        PointF ball1PrevCenter = ball.getPrevCenter();
-        PointF distanceFromVertex = new PointF(ball1PrevCenter.x - vertex.x, ball1PrevCenter.y - vertex.y);
-        PointF ballVelocity = ballEngine.getAvgVelocity(ball, timeStep);
-        PointF obstacleVelocity = obstacle.getVelocity();
-
-        //get current distance (instead of prev distance)
-        PointF ballCenter = ball.getCenter();
-        PointF currentVertexPos = new PointF(vertex.x + (obstacleVelocity.x * timeStep), vertex.y + (obstacleVelocity.y * timeStep));
-        PointF distanceFromVertexAfterTimestep = new PointF(ballCenter.x - currentVertexPos.x, ballCenter.y - currentVertexPos.y);
-
-        PointF velocityDifference = new PointF(ballVelocity.x - obstacleVelocity.x, ballVelocity.y - obstacleVelocity.y);
-        if (velocityDifference.length() == 0) {
-            throw new InvalidBallPositionException(penetration.mNormalAxis);
-        }
-        float distanceThreshold = ball.getRadius();
-
-        //calculate the collision time using the quadratic formula
-        float collisionTime = 0.01f;
-        try {
-            collisionTime = (float) quadraticCollisionTime(velocityDifference, distanceFromVertex, distanceThreshold, timeStep);
-        } catch (Exception e) {}
-
-        if (collisionTime > timeStep) {
-            throw new InvalidBallPositionException(penetration.mNormalAxis);
-        }
-
-        //For now, we are only handling moving nearest vertex collisions.
-        // if we want to handle moving target collisions, this if-statement will need to change.
-        PointF boundaryAxis = new PointF(0f,0f);
-        if (true) {
-            //update the boundary axis based on the collision-point location of the ball (this will make velocity calculation more accurate)
-            boundaryAxis = updateBoundaryAxisMovingVertex(ball, collisionTime, obstacleVelocity, vertex);
-        }
-
-        if (collisionTime < 0) {
-            throw new InvalidBallPositionException(penetration.mNormalAxis);
-        }
-
-        //add this collision to the collection
-        Collision collision = new Collision(collisionTime, boundaryAxis, obstacle, ball);
-        mCollisions.add(collision);
+    private int invalidBallPosition(float axisX, float axisY) {
+        mInvalidPositionAxis.set(axisX, axisY);
+        return INVALID_BALL_POSITION;
     }
 
 
@@ -474,182 +262,416 @@ public class CollisionDetection {
     //  velocityDifference: vector representing how the distance between the objects is changing
     //  distanceDifference: vector representing the current distance between the objects
     //  distanceThreshold: How close the objects need to be before they are considered collided
-    private double quadraticCollisionTime(PointF velocityDifference, PointF distanceDifference, float distanceThreshold, float timeStep) throws Exception{
-        double quadA = (velocityDifference.x * velocityDifference.x) + (velocityDifference.y * velocityDifference.y);
-        double quadB =  (2 * (distanceDifference.x * velocityDifference.x)) + (2 * distanceDifference.y * velocityDifference.y);
-        double quadC = (distanceDifference.x * distanceDifference.x) + (distanceDifference.y * distanceDifference.y) - (distanceThreshold * distanceThreshold);
+    //Returns the first time within the step that they are distanceThreshold apart, 0 if they already were
+    // at the start of the step and are getting closer, or NO_CONTACT if they don't meet within the step.
+    private double quadraticCollisionTime(float velocityDifferenceX, float velocityDifferenceY, float distanceDifferenceX,
+                                          float distanceDifferenceY, float distanceThreshold, float timeStep) {
+        double quadA = (velocityDifferenceX * velocityDifferenceX) + (velocityDifferenceY * velocityDifferenceY);
+        double quadB =  (2 * (distanceDifferenceX * velocityDifferenceX)) + (2 * distanceDifferenceY * velocityDifferenceY);
+        double quadC = (distanceDifferenceX * distanceDifferenceX) + (distanceDifferenceY * distanceDifferenceY) - (distanceThreshold * distanceThreshold);
 
-        //-b +/- sqrt(b^2 - 4ac) / 2a
-
-        double squareRoot = Math.sqrt((quadB * quadB) - (4*quadA*quadC));
-        double result1 = (-quadB + squareRoot) / (2*quadA);
-        double result2 = (-quadB - squareRoot) / (2*quadA);
-
-        if (isResultWithinBounds(result1, timeStep) && isResultWithinBounds(result2, timeStep)) {
-            return Math.min(result1, result2);
-        }
-        if (isResultWithinBounds(result1, timeStep)) {
-            return result1;
-        }
-        if (isResultWithinBounds(result2, timeStep)) {
-            return result2;
+        //Touching or overlapping at the start of the step
+        if (quadC <= 0) {
+            return (quadB < 0) ? 0 : NO_CONTACT;
         }
 
-        //At this point, since neither quadratics were within the range, something
-        // likely went wrong. Since we know a collision did occur, it's most likely it actually occurred
-        // before the frame started, so return the lower of the results.
-        return Math.min(result1, result2);
+        return firstRootInStep(quadA, quadB, quadC, 0, timeStep);
     }
 
-    private boolean isResultWithinBounds(double result, float timeStep) {
-        return ((result > 0) && (result <= timeStep));
-    }
+    /**
+     * First time between earliest and latest at which quadA * t^2 + quadB * t + quadC = 0, or NO_CONTACT if there isn't one.
+     * Uses the form of the quadratic formula that doesn't lose precision when quadA or quadC is small.
+     */
+    private double firstRootInStep(double quadA, double quadB, double quadC, double earliest, double latest) {
+        double root1;
+        double root2;
 
-    private void doPolygonCollisionDetection(Ball ball, Obstacle obstacle, float timeStep) throws InvalidBallPositionException {
+        if (quadA == 0) {
+            if (quadB == 0) {
+                return NO_CONTACT;
+            }
+            root1 = -quadC / quadB;
+            root2 = root1;
+        } else {
+            double discriminant = (quadB * quadB) - (4 * quadA * quadC);
+            if (discriminant < 0) {
+                return NO_CONTACT;
+            }
 
-        //reset projection history
-        clearPenetrationHistory();
+            double q = -0.5 * (quadB + Math.copySign(Math.sqrt(discriminant), quadB));
+            if (q == 0) {
+                //Both roots are 0
+                root1 = 0;
+                root2 = 0;
+            } else {
+                root1 = Math.min(q / quadA, quadC / q);
+                root2 = Math.max(q / quadA, quadC / q);
+            }
+        }
 
-        //gather info
-        PointF ballCenter = ball.getCenter();
+        if ((root1 >= earliest) && (root1 <= latest)) {
+            return root1;
+        }
+        if ((root2 >= earliest) && (root2 <= latest)) {
+            return root2;
+        }
+        return NO_CONTACT;
+    }
+
+    public int doPolygonCollisionDetection(Ball ball, Obstacle obstacle, float timeStep) {
 
-        //Grab the current coords of the obstacle (get temp coords if it's moving)
-        PointF[] obstacleCoords;
+        //Grab how far the obstacle has moved from where it was created, by the end of the step (its temp coords if it's moving),
+        // and at the start of the step. Its vertices and cached projections are shifted by these.
+        float offsetX;
+        float offsetY;
         if (obstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
             MovingObstacle temp = (MovingObstacle) obstacle;
-            obstacleCoords = temp.getTempCoords();
+            offsetX = temp.getTempOffsetX();
+            offsetY = temp.getTempOffsetY();
         } else {
-            obstacleCoords = obstacle.get2dCoordArray();
+            offsetX = 0f;
+            offsetY = 0f;
         }
+        int vertexCount = obstacle.getVertexCount();
 
-
+        //gather info
+        float ballCenterX = ball.getCenterX();
+        float ballCenterY = ball.getCenterY();
         float radius = ball.getRadius();
 
+        //Try the axis that separated this pair last step first (see SeparatingAxisCache).
+        //(The nearest vertex axis is always tried first anyway.)
+        mPolygonTests++;
+        int cachedAxis = axisCache.getAxis(ball, obstacle);
+        if (cachedAxis != SeparatingAxisCache.NO_AXIS) {
+            mCachedAxisLookups++;
+        }
+        if (cachedAxis >= 0) {
+            mAxesTested++;
+
+            if (isGap(obstacle.getBoundaryAxisX(cachedAxis), obstacle.getBoundaryAxisY(cachedAxis), obstacle.getProjectionMin(cachedAxis, offsetX, offsetY),
+                    obstacle.getProjectionMax(cachedAxis, offsetX, offsetY), ballCenterX, ballCenterY, radius)) {
+                return separatedBy(ball, obstacle, cachedAxis, cachedAxis);
+            }
+        }
+
         //First, we will check the nearest vertex axis.
         //find distance to closest vertex
-        int nearestVertexIndex = getNearestVertexIndex(obstacleCoords, ballCenter);
-        PointF nearestVertex = obstacleCoords[nearestVertexIndex];
-        PointF nearestVertexToBall = new PointF(nearestVertex.x - ballCenter.x,nearestVertex.y - ballCenter.y);
+        int nearestVertexIndex = getNearestVertexIndex(obstacle, offsetX, offsetY, ballCenterX, ballCenterY);
+        float nearestVertexToBallX = (obstacle.getBaseVertexX(nearestVertexIndex) + offsetX) - ballCenterX;
+        float nearestVertexToBallY = (obstacle.getBaseVertexY(nearestVertexIndex) + offsetY) - ballCenterY;
 
         //normalize vector
-        float nearestVertexLength = nearestVertexToBall.length();
-        PointF normalAxis = new PointF(nearestVertexToBall.x / nearestVertexLength, nearestVertexToBall.y / nearestVertexLength);
+        float nearestVertexLength = PointF.length(nearestVertexToBallX, nearestVertexToBallY);
+        float normalAxisX = nearestVertexToBallX / nearestVertexLength;
+        float normalAxisY = nearestVertexToBallY / nearestVertexLength;
 
-        //Determine if a gap exists in the projection
-        PointF nearestVertexPrevPos = obstacle.get2dCoordArray()[nearestVertexIndex];
-        boolean gapDetected = projectPointsAndTestForGap(normalAxis, obstacleCoords, ballCenter, radius, nearestVertex, true, nearestVertexPrevPos);
+        //Determine if a gap exists in the projection.
+        mAxesTested++;
+        boolean gapDetected = projectPointsAndTestForGap(normalAxisX, normalAxisY, obstacle, offsetX, offsetY, ballCenterX, ballCenterY, radius);
 
         if (gapDetected) {
             //definitely no collision, exit
-            return;
+            return separatedBy(ball, obstacle, cachedAxis, -1);
         }
 
         //or else we need to keep on going.
         //Now, do a projection test on every vertex pair.
-        //calculate normal axis for each vertex pair, and project all the points onto each normal axis
-        for (int index = 0; index < obstacleCoords.length; index++) {
-            normalAxis = obstacle.getBoundaryAxis(index);
+        //The obstacle's projection onto each of its boundary axes is cached, so only the ball needs projecting.
+        for (int index = 0; index < vertexCount; index++) {
 
-            //project each vertex / circle onto the current normal axis, check for gap
-            gapDetected = projectPointsAndTestForGap(normalAxis, obstacleCoords, ballCenter, radius, obstacleCoords[index], false, null);
+            //project the circle onto the current normal axis, check for gap
+            mAxesTested++;
+            gapDetected = isGap(obstacle.getBoundaryAxisX(index), obstacle.getBoundaryAxisY(index),
+                    obstacle.getProjectionMin(index, offsetX, offsetY), obstacle.getProjectionMax(index, offsetX, offsetY),
+                    ballCenterX, ballCenterY, radius);
 
             if (gapDetected) {
                 //definitely no collision, exit
-                return;
+                return separatedBy(ball, obstacle, cachedAxis, index);
             }
         }
 
-        //Collision has occurred.
-        //Need to calculate timing and save collision info
-        getBoundaryCollisionInfo(ball, obstacle, timeStep);
+        //Collision has occurred. Find out when it started.
+        setCachedAxis(ball, obstacle, SeparatingAxisCache.NO_AXIS);
+        return findTimeOfImpact(ball, obstacle, timeStep);
     }
 
     /**
-     * Calculate precise collision information so we can handle it appropriately.
-     * Use one of four methods, depending on if the obstacle is moving, and if the
-     * collision occurred on a flat part of the obstacle or a point.
-     * @param ball
-     * @param obstacle
-     * @param timeStep
-     * @throws Exception
+     * Find exactly when during the step the ball first touched the obstacle, and add that collision to the collection.
+     * Only called once the ball is known to overlap the obstacle at the end of the step.
+     *
+     * A ball's acceleration doesn't change during a step (see BallEngine.calculatePositionChange), and a moving obstacle
+     * is taken to move in a straight line to where it is at the end of the step. So relative to the obstacle, the ball
+     * follows a parabola. Halving the step finds which side or vertex it meets first, and then the time it meets it is
+     * solved for exactly: a quadratic for a side (its distance from the side's line), or a few Newton steps for a
+     * vertex (the distance from a point along a parabola is a quartic).
+     *
+     * A ball that starts the step touching the obstacle, and moving (or being pulled) into it, collides at 0.
+     * One that starts the step overlapping it and moving out of it doesn't collide at all.
+     *
+     * RETURNS
+     *   COLLISION, NO_COLLISION, or INVALID_BALL_POSITION (a moving obstacle is pushing into a ball that overlaps it)
      */
-    private void getBoundaryCollisionInfo(Ball ball, Obstacle obstacle, float timeStep) throws InvalidBallPositionException {
+    private int findTimeOfImpact(Ball ball, Obstacle obstacle, float timeStep) {
+        setSweep(ball, obstacle, timeStep);
 
-        //Find the most likely axis of penetration, based on depth of penetration.
-        Penetration pHistory = findClosestAxis(ball, obstacle);
+        //Touching or overlapping at the start of the step
+        double startDistance = distanceToObstacle(obstacle, 0);
+        if (startDistance <= TOUCHING_DISTANCE) {
+            boolean closing = isClosingOnNearestFeature(obstacle);
 
-        //Calculate info based on whether the ball collided with a point or a flat wall.
-        //If mNearestVertexAxis, then we know ball collided with the corner of an obstacle
-        if (pHistory.mNearestVertexAxis){
+            if (startDistance < -TOUCHING_DISTANCE) {
+                if (!closing) {
+                    return NO_COLLISION;
+                }
+                if (obstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
+                    getNearestFeatureAxis(obstacle, 0, mInvalidPositionAxis);
+                    return INVALID_BALL_POSITION;
+                }
+                return addObstacleCollision(ball, obstacle, 0);
+            }
 
-            //Moving obstacle or stationary obstacle.
-            if (obstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
-                MovingObstacle movingObstacle = (MovingObstacle) obstacle;
-                calculateBallMovingPointCollisionInfo(ball, pHistory, movingObstacle, timeStep);
-            } else {
-                calculateBallPointCollisionInfo(ball, pHistory.mVertex, obstacle, timeStep, 0);
+            if (closing) {
+                return addObstacleCollision(ball, obstacle, 0);
             }
 
-        //Otherwise, we know the ball collided on a normal boundary of the obstacle
-        } else {
+            //Otherwise it is moving away, and comes back later in the step
+        }
 
-            //Moving obstacle or stationary obstacle.
-            if (obstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
-                calculateBallMovingBoundaryCollisionInfo(ball, pHistory, obstacle, timeStep);
+        //The test that found the overlap can be off by rounding, for a ball that only just reaches the obstacle
+        if (distanceToObstacle(obstacle, timeStep) > 0) {
+            return NO_COLLISION;
+        }
+
+        //Narrow down when the ball reaches the obstacle, and so which side or vertex it reaches.
+        //(A parabola this short only ever enters a convex shape once)
+        double earliest = 0;
+        double latest = timeStep;
+        for (int step = 0; step < CONTACT_SEARCH_STEPS; step++) {
+            double middle = (earliest + latest) / 2;
+            if (distanceToObstacle(obstacle, middle) > 0) {
+                earliest = middle;
             } else {
-                calculateBallBoundaryCollisionInfo(ball, pHistory, obstacle, timeStep);
+                latest = middle;
             }
         }
+        distanceToObstacle(obstacle, latest);
+
+        double contactTime;
+        if (mNearestEdge != -1) {
+            contactTime = solveEdgeContactTime(obstacle, mNearestEdge, earliest, latest);
+        } else {
+            contactTime = solveVertexContactTime(obstacle, mNearestVertex, earliest, latest);
+        }
+        return addObstacleCollision(ball, obstacle, (float) contactTime);
+    }
+
+    //Set up the motion of the ball relative to the obstacle for the step (see mSweepStartX)
+    private void setSweep(Ball ball, Obstacle obstacle, float timeStep) {
+        ballEngine.getVelocity(ball, 0, mStepStartVelocity);
+        ballEngine.getVelocity(ball, timeStep, mStepEndVelocity);
+
+        mSweepStartX = ball.getPrevCenterX();
+        mSweepStartY = ball.getPrevCenterY();
+        mSweepVelocityX = mStepStartVelocity.x;
+        mSweepVelocityY = mStepStartVelocity.y;
+        mSweepHalfAccelX = (mStepEndVelocity.x - mStepStartVelocity.x) / (2 * timeStep);
+        mSweepHalfAccelY = (mStepEndVelocity.y - mStepStartVelocity.y) / (2 * timeStep);
+        mSweepOffsetX = obstacle.getOffsetX();
+        mSweepOffsetY = obstacle.getOffsetY();
+        mSweepRadius = ball.getRadius();
+
+        if (obstacle.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE) {
+            MovingObstacle movingObstacle = (MovingObstacle) obstacle;
+            mSweepVelocityX = mSweepVelocityX - ((movingObstacle.getTempOffsetX() - mSweepOffsetX) / timeStep);
+            mSweepVelocityY = mSweepVelocityY - ((movingObstacle.getTempOffsetY() - mSweepOffsetY) / timeStep);
+        }
 
+        //Only grows when an obstacle has more sides than any seen before
+        int vertexCount = obstacle.getVertexCount();
+        if (mOutwardSigns.length < vertexCount) {
+            mOutwardSigns = new float[vertexCount];
+        }
+        for (int index = 0; index < vertexCount; index++) {
+            mOutwardSigns[index] = obstacle.isBoundaryAxisInward(index) ? -1f : 1f;
+        }
+    }
+
+    private double getSweepX(double time) {
+        return mSweepStartX + (mSweepVelocityX * time) + (mSweepHalfAccelX * time * time);
     }
 
-    private PointF updateBoundaryAxis(Ball ball, float collisionTime, PointF nearestVertex){
-        //move ball to new pos
-        PointF newBallPos = calculateNewBallPos(ball, collisionTime);
+    private double getSweepY(double time) {
+        return mSweepStartY + (mSweepVelocityY * time) + (mSweepHalfAccelY * time * time);
+    }
+
+    /**
+     * Distance between the edge of the swept ball at time and the obstacle (negative if they overlap).
+     * Also finds the side (mNearestEdge) or vertex (mNearestVertex) of the obstacle nearest the ball.
+     */
+    private double distanceToObstacle(Obstacle obstacle, double time) {
+        double ballX = getSweepX(time);
+        double ballY = getSweepY(time);
+        int vertexCount = obstacle.getVertexCount();
+
+        //The side the ball is furthest out from (the nearest side, if the ball's center is inside the obstacle)
+        double furthestOutside = GameState.SMALL_NUMBER;
+        int furthestOutsideEdge = -1;
+        //Nearest point on any side the ball's center is out from
+        double nearestDistance = GameState.LARGE_NUMBER;
+        mNearestEdge = -1;
+        mNearestVertex = -1;
+
+        for (int index = 0; index < vertexCount; index++) {
+            int nextIndex = (index + 1) % vertexCount;
+            double vertexAX = obstacle.getBaseVertexX(index) + mSweepOffsetX;
+            double vertexAY = obstacle.getBaseVertexY(index) + mSweepOffsetY;
+            double toBallX = ballX - vertexAX;
+            double toBallY = ballY - vertexAY;
+
+            double outside = mOutwardSigns[index] * ((obstacle.getBoundaryAxisX(index) * toBallX) + (obstacle.getBoundaryAxisY(index) * toBallY));
+            if (outside > furthestOutside) {
+                furthestOutside = outside;
+                furthestOutsideEdge = index;
+            }
+            if (outside <= 0) {
+                continue;
+            }
+
+            //How far along the side the ball is (0 at this vertex, 1 at the next one)
+            double sideX = (obstacle.getBaseVertexX(nextIndex) + mSweepOffsetX) - vertexAX;
+            double sideY = (obstacle.getBaseVertexY(nextIndex) + mSweepOffsetY) - vertexAY;
+            double alongSide = ((toBallX * sideX) + (toBallY * sideY)) / ((sideX * sideX) + (sideY * sideY));
+
+            //Nearest to one of the ends of the side, or to somewhere along it
+            double distance;
+            int edge = -1;
+            int vertex = -1;
+            if (alongSide <= 0) {
+                distance = Math.hypot(toBallX, toBallY);
+                vertex = index;
+            } else if (alongSide >= 1) {
+                distance = Math.hypot(toBallX - sideX, toBallY - sideY);
+                vertex = nextIndex;
+            } else {
+                distance = outside;
+                edge = index;
+            }
 
-        //calculate new collision axis
-        PointF collisionAxis = new PointF(nearestVertex.x - newBallPos.x, nearestVertex.y - newBallPos.y);
-        float collisionAxisLength = collisionAxis.length();
-        collisionAxis.set(collisionAxis.x / collisionAxisLength, collisionAxis.y / collisionAxisLength);
-        return collisionAxis;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                mNearestEdge = edge;
+                mNearestVertex = vertex;
+            }
+        }
+
+        //Center inside the obstacle
+        if (furthestOutside <= 0) {
+            mNearestEdge = furthestOutsideEdge;
+            mNearestVertex = -1;
+            return furthestOutside - mSweepRadius;
+        }
+
+        return nearestDistance - mSweepRadius;
     }
+    //True if the ball is moving (or being pulled) toward the side or vertex found by the last distanceToObstacle(obstacle, 0)
+    private boolean isClosingOnNearestFeature(Obstacle obstacle) {
+        getNearestFeatureAxis(obstacle, 0, mFeatureAxis);
 
-    private PointF updateBoundaryAxisMovingVertex(Ball ball, float collisionTime, PointF obstacleVelocity, PointF nearestVertex) {
+        //(The axis points from the ball into the obstacle)
+        float closingSpeed = CommonFunctions.dotProduct(mFeatureAxis.x, mFeatureAxis.y, mSweepVelocityX, mSweepVelocityY);
+        if (closingSpeed != 0) {
+            return closingSpeed > 0;
+        }
+        return CommonFunctions.dotProduct(mFeatureAxis.x, mFeatureAxis.y, mSweepHalfAccelX, mSweepHalfAccelY) > 0;
+    }
 
-        //move ball to new pos
-        PointF newBallPos = calculateNewBallPos(ball, collisionTime);
+    /**
+     * Unit vector from the ball into the obstacle, through the side or vertex found by the last distanceToObstacle
+     * (at time): the side's boundary axis turned to point inward, or the direction from the ball to the vertex.
+     */
+    private void getNearestFeatureAxis(Obstacle obstacle, double time, PointF result) {
+        if (mNearestEdge != -1) {
+            float inwardSign = -mOutwardSigns[mNearestEdge];
+            result.set(inwardSign * obstacle.getBoundaryAxisX(mNearestEdge), inwardSign * obstacle.getBoundaryAxisY(mNearestEdge));
+            return;
+        }
 
-        //Move vertex to new pos
-        PointF newVertexPos = calculateNewVertexPos(nearestVertex, collisionTime, obstacleVelocity);
+        float toVertexX = (float) ((obstacle.getBaseVertexX(mNearestVertex) + mSweepOffsetX) - getSweepX(time));
+        float toVertexY = (float) ((obstacle.getBaseVertexY(mNearestVertex) + mSweepOffsetY) - getSweepY(time));
+        float length = PointF.length(toVertexX, toVertexY);
+        result.set(toVertexX / length, toVertexY / length);
+    }
 
-        //calculate new collision axis
-        PointF collisionAxis = new PointF(newVertexPos.x - newBallPos.x, newVertexPos.y - newBallPos.y);
-        float collisionAxisLength = collisionAxis.length();
-        collisionAxis.set(collisionAxis.x / collisionAxisLength, collisionAxis.y / collisionAxisLength);
-        return collisionAxis;
+    /**
+     * Exact time the swept ball reaches the line a side is on, given that it happens between about earliest and latest.
+     * The distance from the line is a quadratic in time: distance + speed * t + halfAccel * t^2 - radius.
+     */
+    private double solveEdgeContactTime(Obstacle obstacle, int edge, double earliest, double latest) {
+        float outwardX = mOutwardSigns[edge] * obstacle.getBoundaryAxisX(edge);
+        float outwardY = mOutwardSigns[edge] * obstacle.getBoundaryAxisY(edge);
+        float vertexX = obstacle.getBaseVertexX(edge) + mSweepOffsetX;
+        float vertexY = obstacle.getBaseVertexY(edge) + mSweepOffsetY;
+
+        double quadC = CommonFunctions.dotProduct(outwardX, outwardY, mSweepStartX - vertexX, mSweepStartY - vertexY) - mSweepRadius;
+        double quadB = CommonFunctions.dotProduct(outwardX, outwardY, mSweepVelocityX, mSweepVelocityY);
+        double quadA = CommonFunctions.dotProduct(outwardX, outwardY, mSweepHalfAccelX, mSweepHalfAccelY);
+
+        //Allow for rounding in the search that found earliest and latest
+        double margin = latest - earliest;
+        double contactTime = firstRootInStep(quadA, quadB, quadC, Math.max(earliest - margin, 0), latest + margin);
+        if (contactTime == NO_CONTACT) {
+            return latest;
+        }
+        return Math.min(Math.max(contactTime, earliest), latest);
     }
 
-    private PointF calculateNewBallPos(Ball ball, float collisionTime) {
-        PointF prevBallPos = ball.getPrevCenter();
-        PointF ballDisplacement = ballEngine.calculatePositionChange(ball, collisionTime);
-        //new ball position
-        return new PointF(prevBallPos.x + ballDisplacement.x, prevBallPos.y + ballDisplacement.y);
+    /**
+     * Exact time the swept ball reaches a vertex, given that it happens between earliest and latest. The squared distance
+     * from the vertex is a quartic in time, so this takes Newton steps from latest (where the ball has only just reached it).
+     */
+    private double solveVertexContactTime(Obstacle obstacle, int vertex, double earliest, double latest) {
+        float vertexX = obstacle.getBaseVertexX(vertex) + mSweepOffsetX;
+        float vertexY = obstacle.getBaseVertexY(vertex) + mSweepOffsetY;
+        double contactTime = latest;
+
+        for (int step = 0; step < 3; step++) {
+            double fromVertexX = getSweepX(contactTime) - vertexX;
+            double fromVertexY = getSweepY(contactTime) - vertexY;
+            double velocityX = mSweepVelocityX + (2 * mSweepHalfAccelX * contactTime);
+            double velocityY = mSweepVelocityY + (2 * mSweepHalfAccelY * contactTime);
+
+            double overlap = (fromVertexX * fromVertexX) + (fromVertexY * fromVertexY) - (mSweepRadius * mSweepRadius);
+            double overlapRate = 2 * ((fromVertexX * velocityX) + (fromVertexY * velocityY));
+            if (overlapRate >= 0) {
+                break;
+            }
+            contactTime = Math.min(Math.max(contactTime - (overlap / overlapRate), earliest), latest);
+        }
+
+        return contactTime;
     }
 
-    private PointF calculateNewVertexPos(PointF vertex, float collisionTime, PointF vertexVelocity) {
-        PointF vertexDisplacement = new PointF(vertexVelocity.x * collisionTime, vertexVelocity.y * collisionTime);
-        return new PointF(vertex.x + vertexDisplacement.x, vertex.y + vertexDisplacement.y);
+    //Add the collision with the side or vertex found by the last distanceToObstacle
+    private int addObstacleCollision(Ball ball, Obstacle obstacle, float collisionTime) {
+        if (mNearestEdge != -1) {
+            mCollisions.add(collisionTime, obstacle.getBoundaryAxisX(mNearestEdge), obstacle.getBoundaryAxisY(mNearestEdge), obstacle, ball);
+        } else {
+            //A vertex has no boundary axis, so use the direction from the ball to it when they meet
+            Collision collision = mCollisions.add(collisionTime, 0f, 0f, obstacle, ball);
+            getNearestFeatureAxis(obstacle, collisionTime, collision.getBoundaryAxis());
+        }
+        return COLLISION;
     }
 
-    private int getNearestVertexIndex(PointF[] obstacleCoords, PointF ballCenter){
+    private int getNearestVertexIndex(Obstacle obstacle, float offsetX, float offsetY, float ballCenterX, float ballCenterY){
         float smallestLength = GameState.LARGE_NUMBER;
         float currentLength;
         int nearestVertexIndex = -1;
-        PointF distanceVector;
 
-        for (int i = 0; i < obstacleCoords.length; i++){
-            distanceVector = new PointF(obstacleCoords[i].x - ballCenter.x, obstacleCoords[i].y - ballCenter.y);
-            currentLength = distanceVector.length();
+        for (int i = 0; i < obstacle.getVertexCount(); i++){
+            currentLength = PointF.length((obstacle.getBaseVertexX(i) + offsetX) - ballCenterX, (obstacle.getBaseVertexY(i) + offsetY) - ballCenterY);
             if (currentLength < smallestLength){
                 smallestLength = currentLength;
                 nearestVertexIndex = i;
@@ -659,14 +681,38 @@ public class CollisionDetection {
         return nearestVertexIndex;
     }
 
-    private boolean projectPointsAndTestForGap(PointF normalAxis, PointF[] obstacleCoords, PointF ballCenter,
-                                               float radius, PointF vertex, boolean nearestVertexAxis, PointF oldVertex){
+    //Remember the axis that separated the ball and obstacle, for next step
+    private int separatedBy(Ball ball, Obstacle obstacle, int cachedAxis, int axis){
+        if (axis == cachedAxis) {
+            mCachedAxisHits++;
+        }
+        setCachedAxis(ball, obstacle, axis);
+        return NO_COLLISION;
+    }
+
+    private void setCachedAxis(Ball ball, Obstacle obstacle, int axis){
+        if (pendingAxes == null) {
+            axisCache.setAxis(ball, obstacle, axis);
+        } else {
+            axisCache.deferAxis(pendingAxes, ball, obstacle, axis);
+        }
+    }
+
+    /**
+     * Project the obstacle and the ball onto an axis, and check if there is a gap between them.
+     *
+     * PARAMS
+     *   offsetX, offsetY - How far the obstacle has moved from where it was created
+     */
+    private boolean projectPointsAndTestForGap(float normalAxisX, float normalAxisY, Obstacle obstacle, float offsetX, float offsetY,
+                                               float ballCenterX, float ballCenterY, float radius){
         //Project points onto normal axis and find min / max
         float vertexMin = GameState.LARGE_NUMBER;
         float vertexMax = GameState.SMALL_NUMBER;
 
-        for (int i = 0; i < obstacleCoords.length; i++) {
-            float vertexProjection = CommonFunctions.dotProduct(normalAxis, obstacleCoords[i]);
+        for (int i = 0; i < obstacle.getVertexCount(); i++) {
+            float vertexProjection = CommonFunctions.dotProduct(normalAxisX, normalAxisY,
+                    obstacle.getBaseVertexX(i) + offsetX, obstacle.getBaseVertexY(i) + offsetY);
 
             if (vertexProjection > vertexMax)
                 vertexMax = vertexProjection;
@@ -674,65 +720,24 @@ public class CollisionDetection {
                 vertexMin = vertexProjection;
         }
 
-        //project circle points onto normal axis (max is radius, min is negative radius)
-        float circleProjection = CommonFunctions.dotProduct(normalAxis, ballCenter);
-        float circleMin = circleProjection - radius;
-        float circleMax = circleProjection + radius;
-
-        //calculate results comparing vertex / circle
-        float result1 = vertexMin - circleMax;
-        float result2 = circleMin - vertexMax;
-
-        //check if the gap is greater than 0 (min - max > 0), which means definitely no collision!
-        if ((result1 > 0) || (result2 > 0 )){
-            return true;
-        } else {
-
-            if(nearestVertexAxis) {
-                vertex = new PointF(oldVertex.x, oldVertex.y);
-            }
-
-            //Penetration will be a negative number; because a positive number indicates a gap
-            addPenetrationToHistory(normalAxis, Math.max(result1, result2), vertex, nearestVertexAxis);
-            return false;
-        }
+        return isGap(normalAxisX, normalAxisY, vertexMin, vertexMax, ballCenterX, ballCenterY, radius);
+    }
 
+    //Check for a gap between the obstacle's projection onto the axis (vertexMin to vertexMax) and the ball's
+    private boolean isGap(float normalAxisX, float normalAxisY, float vertexMin, float vertexMax, float ballCenterX, float ballCenterY,
+                          float radius){
+        float circleProjection = CommonFunctions.dotProduct(normalAxisX, normalAxisY, ballCenterX, ballCenterY);
+        return ((vertexMin - (circleProjection + radius)) > 0) || (((circleProjection - radius) - vertexMax) > 0);
     }
 
     /**
-     * This method performs pre-checks to determine if two objects may reasonably be colliding.
-     * This consists of:
-     *  1) Making sure that if the obstacle is a ball, it has already been moved this frame
-     *     (If a ball hasn't moved yet, we must wait until later to test it)
-     *  2) Checking the bounding boxes, to see if they intersect on both the y and x axis.
-     *
-     * PARAMS
-     *   ball - The current ball being tested
-     *   obstacle - The current Interactable object being tested
-     *
+     * Check the bounding boxes, to see if they intersect on both the y and x axis (with a little room to spare).
      * RETURNS
-     *   A boolean, true meaning they may be colliding, and detailed collision testing is needed.
+     *   True meaning they may be colliding, and detailed collision testing is needed.
      *   False meaning they are definitely not colliding.
      */
-    public boolean coarseCollisionTesting(Ball ball, Interactable obstacle){
-
-        //Do pre-checks if the other obstacle is a ball
-        if (obstacle.getType() == GameState.INTERACTABLE_BALL){
-            Ball tempBall = (Ball) obstacle;
-
-            //Don't need to check inactive balls
-            if (tempBall.isBallInactive()) {
-                return false;
-            }
-
-            //If the other ball is active (moving), make sure it has been moved this frame.
-            if (tempBall.isBallActive() && !tempBall.hasBallBeenAdvanced()) {
-                return false;
-            }
-
-        }
+    public boolean boundingBoxesOverlap(Ball ball, Interactable obstacle){
 
-        //Test Bounding boxes
         //x axis
         if (((ball.getMaxX()) + 1 >= obstacle.getMinX()) && (obstacle.getMaxX() >= ball.getMinX() - 1)){
 
@@ -0,0 +1,228 @@
+package com.example.eli.myapplication.Logic;
+
+import com.example.eli.myapplication.Model.Collision;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+
+/**
+ * Collisions predicted for the rest of the current frame, ordered by time. Used by GameEngine
+ * when the EVENT_QUEUE collision schedule is selected (see GameState.CollisionSchedule).
+ *
+ * Event times are measured from the start of the frame, rather than from the start of the step
+ * they were found in, so events predicted in an earlier step are still valid in later ones as
+ * long as neither object's trajectory has changed since.
+ *
+ * Events are never searched for and removed. Instead, every interactable object has a generation
+ * number that is bumped by invalidate() whenever its trajectory changes. Each event remembers the
+ * generations of its two objects, and is simply dropped when it reaches the front of the queue if
+ * either of them has changed.
+ */
+public class CollisionEventQueue {
+
+    //Event storage. Collisions are owned by the queue, and slots are reused once an event is removed.
+    private Collision[] mEvents;
+    private int[] mBallGeneration;
+    private int[] mObjectGeneration;
+    private int[] mSequence;
+    private int[] mFreeSlots;
+    private int mFreeCount;
+
+    //Binary min-heap of event slots, ordered by time (then by the order they were added)
+    private int[] mHeap;
+    private int mSize = 0;
+    private int mNextSequence = 0;
+
+    //Current generation of each interactable object, indexed by interactable id
+    private int[] mGenerations;
+
+    public CollisionEventQueue(ArrayList<Interactable> allInteractableObjects, int capacity) {
+        int idCapacity = 0;
+        for (Interactable object : allInteractableObjects) {
+            idCapacity = Math.max(idCapacity, object.getInteractableId() + 1);
+        }
+        mGenerations = new int[idCapacity];
+
+        mEvents = new Collision[0];
+        mBallGeneration = new int[0];
+        mObjectGeneration = new int[0];
+        mSequence = new int[0];
+        mFreeSlots = new int[0];
+        mHeap = new int[0];
+        mFreeCount = 0;
+        grow(capacity);
+    }
+
+    /**
+     * Forget every event (called at the start of every frame).
+     */
+    public void clear() {
+        mSize = 0;
+        mNextSequence = 0;
+        mFreeCount = mEvents.length;
+
+        for (int index = 0; index < mEvents.length; index++) {
+            mFreeSlots[index] = index;
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Drop every queued event involving this object.
+     */
+    public void invalidate(Interactable object) {
+        mGenerations[object.getInteractableId()]++;
+    }
+
+    /**
+     * Queue every collision in the buffer.
+     * PARAMS:
+     *   collisions - Collisions found by CollisionDetection, with times measured from the start of the step
+     *   timeElapsed - How far into the frame the step started
+     */
+    public void addAll(CollisionBuffer collisions, float timeElapsed) {
+        for (int index = 0; index < collisions.size(); index++) {
+            Collision collision = collisions.get(index);
+
+            if (mFreeCount == 0) {
+                grow(mEvents.length * 2);
+            }
+
+            int slot = mFreeSlots[--mFreeCount];
+            mEvents[slot].set(timeElapsed + collision.getTime(), collision.getBoundaryAxis().x, collision.getBoundaryAxis().y,
+                    collision.getObstacle(), collision.getBall());
+            mBallGeneration[slot] = mGenerations[collision.getBall().getInteractableId()];
+            mObjectGeneration[slot] = mGenerations[collision.getObstacle().getInteractableId()];
+            mSequence[slot] = mNextSequence++;
+
+            mHeap[mSize] = slot;
+            siftUp(mSize);
+            mSize++;
+        }
+    }
+
+    /**
+     * Remove the first trajectory-affecting collisions (every event tied for the earliest time), along with any
+     * target collisions at or before that time, and add them to the result buffer.
+     * If there are no trajectory-affecting collisions left, every remaining target collision is removed.
+     *
+     * Times in the result are measured from timeElapsed (the start of the current step), which is what
+     * CollisionHandling expects.
+     */
+    public void pollFirstCollisions(float timeElapsed, CollisionBuffer result) {
+        float firstCollisionTime = GameState.LARGE_NUMBER;
+
+        while (mSize > 0) {
+            int slot = mHeap[0];
+            Collision event = mEvents[slot];
+
+            if (isValid(slot)) {
+                if (event.getTime() > firstCollisionTime) {
+                    break;
+                }
+
+                //The first trajectory-affecting collision sets the cutoff for everything after it
+                if ((firstCollisionTime == GameState.LARGE_NUMBER) && (event.getObstacle().getType() != GameState.INTERACTABLE_TARGET)) {
+                    firstCollisionTime = event.getTime();
+                }
+
+                result.add(event.getTime() - timeElapsed, event.getBoundaryAxis().x, event.getBoundaryAxis().y,
+                        event.getObstacle(), event.getBall());
+            }
+
+            removeFirst();
+        }
+    }
+
+    private boolean isValid(int slot) {
+        Collision event = mEvents[slot];
+        return (mBallGeneration[slot] == mGenerations[event.getBall().getInteractableId()])
+                && (mObjectGeneration[slot] == mGenerations[event.getObstacle().getInteractableId()]);
+    }
+
+    private void removeFirst() {
+        mFreeSlots[mFreeCount++] = mHeap[0];
+        mSize--;
+
+        if (mSize > 0) {
+            mHeap[0] = mHeap[mSize];
+            siftDown(0);
+        }
+    }
+
+    private boolean isEarlier(int slotA, int slotB) {
+        float timeA = mEvents[slotA].getTime();
+        float timeB = mEvents[slotB].getTime();
+
+        if (timeA != timeB) {
+            return timeA < timeB;
+        }
+        return mSequence[slotA] < mSequence[slotB];
+    }
+
+    private void siftUp(int index) {
+        int slot = mHeap[index];
+
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isEarlier(slot, mHeap[parent])) {
+                break;
+            }
+            mHeap[index] = mHeap[parent];
+            index = parent;
+        }
+        mHeap[index] = slot;
+    }
+
+    private void siftDown(int index) {
+        int slot = mHeap[index];
+
+        while (true) {
+            int child = (index * 2) + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if ((child + 1 < mSize) && isEarlier(mHeap[child + 1], mHeap[child])) {
+                child++;
+            }
+            if (!isEarlier(mHeap[child], slot)) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            index = child;
+        }
+        mHeap[index] = slot;
+    }
+
+    private void grow(int newCapacity) {
+        int oldCapacity = mEvents.length;
+
+        Collision[] events = new Collision[newCapacity];
+        System.arraycopy(mEvents, 0, events, 0, oldCapacity);
+        for (int index = oldCapacity; index < newCapacity; index++) {
+            events[index] = new Collision();
+        }
+        mEvents = events;
+
+        mBallGeneration = copyOf(mBallGeneration, newCapacity);
+        mObjectGeneration = copyOf(mObjectGeneration, newCapacity);
+        mSequence = copyOf(mSequence, newCapacity);
+        mHeap = copyOf(mHeap, newCapacity);
+
+        //Every new slot starts out free
+        mFreeSlots = copyOf(mFreeSlots, newCapacity);
+        for (int index = oldCapacity; index < newCapacity; index++) {
+            mFreeSlots[mFreeCount++] = index;
+        }
+    }
+
+    private int[] copyOf(int[] array, int newLength) {
+        int[] result = new int[newLength];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, newLength));
+        return result;
+    }
+}
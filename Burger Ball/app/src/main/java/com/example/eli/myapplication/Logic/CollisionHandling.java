@@ -15,32 +15,41 @@ import java.util.ArrayList;
 
 /**
  * Created by Eli on 6/6/2016.
+ *
+ * Created once per level, and reset() with the collisions found by CollisionDetection at every frame step.
+ * The collections here are reused between steps, so they are only valid until the next reset().
  */
 public class CollisionHandling {
 
-    ArrayList<Collision> mCollisions;
+    CollisionBuffer mCollisions;
+    ArrayList<Collision> mFirstCollisions = new ArrayList<>();
     ArrayList<Collision> mBoundaryCollisions = new ArrayList<>();
     ArrayList<Collision> mBallCollisions = new ArrayList<>();
+    ArrayList<Target> mHitTargets = new ArrayList<>();
 
+    //Scratch velocities, so handling collisions doesn't allocate
+    private PointF mOldVelocity = new PointF();
+    private PointF mNewVelocity = new PointF();
+    private PointF mBall1Velocity = new PointF();
+    private PointF mBall2Velocity = new PointF();
+    private PointF mNewVelocity2 = new PointF();
 
-
-    public CollisionHandling(ArrayList<Collision> allCollisions){
+    public void reset(CollisionBuffer allCollisions){
         mCollisions = allCollisions;
+        mFirstCollisions.clear();
+        mBoundaryCollisions.clear();
+        mBallCollisions.clear();
+        mHitTargets.clear();
     }
 
     public ArrayList<Collision> getFirstCollision() {
 
-        //sanity check
-        if (mCollisions.size() == 0){
-            return null;
-        }
-
-        //Initialize arraylist
-        ArrayList<Collision> firstCollision = new ArrayList<>();
         float firstCollisionTime = GameState.LARGE_NUMBER; //time should always be less than this big number...
 
-        //loop through all finding the earliest collision
-        for (Collision collision : mCollisions){
+        //loop through all finding the earliest collision.
+        //The earliest set is built up in one pass: it is restarted whenever an earlier collision is found.
+        for (int index = 0; index < mCollisions.size(); index++){
+            Collision collision = mCollisions.get(index);
 
             //Don't care about target collisions here-  they don't affect any trajectories
             if(collision.getObstacle().getType() == GameState.INTERACTABLE_TARGET){
@@ -49,30 +58,25 @@ public class CollisionHandling {
 
             float curCollisionTime = collision.getTime();
 
-            //Set defaults
-            if (firstCollision.size() == 0){
-                firstCollision.add(collision);
-                firstCollisionTime = curCollisionTime;
-
-                //If current collision is the earliest thus far
-            } else if (curCollisionTime < firstCollisionTime){
-                firstCollision.clear();
-                firstCollision.add(collision);
+            //Set defaults, or current collision is the earliest thus far
+            if ((mFirstCollisions.size() == 0) || (curCollisionTime < firstCollisionTime)){
+                mFirstCollisions.clear();
+                mFirstCollisions.add(collision);
                 firstCollisionTime = curCollisionTime;
 
                 //If current collision tied for the earliest, add it to the list
             } else if (curCollisionTime == firstCollisionTime){
-                firstCollision.add(collision);
+                mFirstCollisions.add(collision);
             }
 
         }
 
         //caller of this function expects a null value if there are no first collisions.
-        if (firstCollision.size()==0){
+        if (mFirstCollisions.size()==0){
             return null;
         }
 
-        return firstCollision;
+        return mFirstCollisions;
     }
 
 
@@ -83,7 +87,8 @@ public class CollisionHandling {
     // In order to better handle an edge case involving a ball simultaneously colliding with
     // a boundary and another ball, it makes more sense to handle boundary collisions first
     public void handleBoundaryCollisions(BallEngine ballEngine, SoundEngine soundEngine){
-        for (Collision currentCollision : mBoundaryCollisions){
+        for (int collisionIndex = 0; collisionIndex < mBoundaryCollisions.size(); collisionIndex++) {
+            Collision currentCollision = mBoundaryCollisions.get(collisionIndex);
             if (currentCollision.getObstacle().getType() == GameState.INTERACTABLE_MOVING_OBSTACLE){
                 calculateSpinChangeMovingBorder(ballEngine, currentCollision);
                 calculateVelocityMovingBorderCollision(ballEngine, currentCollision);
@@ -103,14 +108,16 @@ public class CollisionHandling {
     }
 
     public void handleBallCollisions(BallEngine ballEngine, SoundEngine soundEngine){
-        for (Collision currentCollision : mBallCollisions){
+        for (int collisionIndex = 0; collisionIndex < mBallCollisions.size(); collisionIndex++) {
+            Collision currentCollision = mBallCollisions.get(collisionIndex);
             calculateSpinChangeBallCollision(currentCollision, ballEngine);
             calculateVelocityBallCollision(currentCollision, ballEngine);
 
             Ball ball = currentCollision.getBall();
-            PointF prevVelocity = ballEngine.getAvgVelocity(ball,0);
+            PointF prevVelocity = mBall1Velocity;
+            ballEngine.getAvgVelocity(ball, 0, prevVelocity);
             PointF newVelocity = ball.getNewVelocity();
-            float change = new PointF(prevVelocity.x - newVelocity.x, prevVelocity.y - newVelocity.y).length();
+            float change = PointF.length(prevVelocity.x - newVelocity.x, prevVelocity.y - newVelocity.y);
             float volume = CommonFunctions.getIntensityOfBallSound(change);
             soundEngine.playBallBallCollide(volume,0.5f);
         }
@@ -122,17 +129,18 @@ public class CollisionHandling {
     private void calculateVelocityStationaryBorderCollision(BallEngine ballEngine, Collision collision){
         Ball ball = collision.getBall();
         PointF boundaryAxis = collision.getBoundaryAxis();
-        PointF oldVelocity = ballEngine.getVelocity(ball, collision.getTime());
+        PointF oldVelocity = mOldVelocity;
+        ballEngine.getVelocity(ball, collision.getTime(), oldVelocity);
 
         //Formula to use:
         // New Velocity =  v - (2(n · v) n )
         // n= normal vector (boundary axis), v= incoming vector
 
         float velocityChange = 2 * CommonFunctions.dotProduct(oldVelocity, boundaryAxis);
-        PointF velocityChangeVector = new PointF(boundaryAxis.x * velocityChange, boundaryAxis.y * velocityChange);
-        PointF newVelocity = new PointF(oldVelocity.x - velocityChangeVector.x, oldVelocity.y - velocityChangeVector.y);
+        PointF newVelocity = mNewVelocity;
+        newVelocity.set(oldVelocity.x - (boundaryAxis.x * velocityChange), oldVelocity.y - (boundaryAxis.y * velocityChange));
 
-        newVelocity = reduceVelocityElasticLoss(ballEngine, ball, newVelocity);
+        reduceVelocityElasticLoss(ballEngine, ball, newVelocity);
 
         ball.setVelocity(newVelocity);
 
@@ -152,17 +160,26 @@ public class CollisionHandling {
 
         //get tangent vector and normal vector of the collision
         PointF UTangentVector = collision.getBoundaryAxis();
-        PointF UNormalVector = new PointF(UTangentVector.y, -UTangentVector.x);
+        float UNormalX = UTangentVector.y;
+        float UNormalY = -UTangentVector.x;
 
         //get velocities for balls
-        PointF ball1velocity = ballEngine.getAvailableVelocity(ball1, collision.getTime());  //if a ball collides with more than one other ball,
-        PointF ball2velocity = ballEngine.getAvailableVelocity(ball2, collision.getTime());  //available velocity will differ from normal velocity
+        PointF ball1velocity = mBall1Velocity;
+        PointF ball2velocity = mBall2Velocity;
+        ballEngine.getAvailableVelocity(ball1, collision.getTime(), ball1velocity);  //if a ball collides with more than one other ball,
+        ballEngine.getAvailableVelocity(ball2, collision.getTime(), ball2velocity);  //available velocity will differ from normal velocity
 
         //determine component velocities for ball1 / ball2 in the tangent / normal directions
         float velocity1tangent = CommonFunctions.dotProduct(ball1velocity, UTangentVector);
-        float velocity1normal = CommonFunctions.dotProduct(ball1velocity, UNormalVector);
+        float velocity1normal = CommonFunctions.dotProduct(ball1velocity.x, ball1velocity.y, UNormalX, UNormalY);
         float velocity2tangent = CommonFunctions.dotProduct(ball2velocity, UTangentVector);
-        float velocity2normal = CommonFunctions.dotProduct(ball2velocity, UNormalVector);
+        float velocity2normal = CommonFunctions.dotProduct(ball2velocity.x, ball2velocity.y, UNormalX, UNormalY);
+
+        //A ball rolling on a flat obstacle that is hit from above is held up by the obstacle
+        if (ballEngine.isBallHeldUpBySurface(ball1, ball2) || ballEngine.isBallHeldUpBySurface(ball2, ball1)) {
+            calculateVelocityHeldBallCollision(ballEngine, ball1, ball2, UNormalX, UNormalY, velocity1normal - velocity2normal);
+            return;
+        }
 
         //calculate new tangential velocities (they are the same, no force between objects in tangential direction)
         float newVelocity1tangent = velocity1tangent;
@@ -172,28 +189,62 @@ public class CollisionHandling {
         float newVelocity1normal = velocity2normal;
         float newVelocity2normal = velocity1normal;
 
-        //convert scalar tangential & normal values into vectors
-        PointF newVelocity1normalVector = new PointF(newVelocity1normal * UNormalVector.x, newVelocity1normal * UNormalVector.y);
-        PointF newVelocity1tangentVector = new PointF(newVelocity1tangent * UTangentVector.x, newVelocity1tangent * UTangentVector.y);
-        PointF newVelocity2normalVector = new PointF(newVelocity2normal * UNormalVector.x, newVelocity2normal * UNormalVector.y);
-        PointF newVelocity2tangentVector = new PointF(newVelocity2tangent * UTangentVector.x, newVelocity2tangent * UTangentVector.y);
-
-        //add tangential and normal components together to get sum velocity
-        PointF newVelocity1 = new PointF(newVelocity1normalVector.x + newVelocity1tangentVector.x, newVelocity1normalVector.y + newVelocity1tangentVector.y);
-        PointF newVelocity2 = new PointF(newVelocity2normalVector.x + newVelocity2tangentVector.x, newVelocity2normalVector.y + newVelocity2tangentVector.y);
+        //convert scalar tangential & normal values into vectors, and add them together to get sum velocity
+        PointF newVelocity1 = mNewVelocity;
+        PointF newVelocity2 = mNewVelocity2;
+        newVelocity1.set((newVelocity1normal * UNormalX) + (newVelocity1tangent * UTangentVector.x),
+                (newVelocity1normal * UNormalY) + (newVelocity1tangent * UTangentVector.y));
+        newVelocity2.set((newVelocity2normal * UNormalX) + (newVelocity2tangent * UTangentVector.x),
+                (newVelocity2normal * UNormalY) + (newVelocity2tangent * UTangentVector.y));
 
         //subtract for elasticity
-        newVelocity1 = reduceVelocityElasticLoss(ballEngine, ball1, newVelocity1);
-        newVelocity2 = reduceVelocityElasticLoss(ballEngine, ball2, newVelocity2);
+        reduceVelocityElasticLoss(ballEngine, ball1, newVelocity1);
+        reduceVelocityElasticLoss(ballEngine, ball2, newVelocity2);
 
         //set velocity
         ball1.addNewVelocity(newVelocity1);
         ball2.addNewVelocity(newVelocity2);
     }
 
+    /**
+     * Same as calculateVelocityBallCollision, but one (or both) of the balls is rolling on a flat obstacle, and the
+     * other ball is pushing it into it. The obstacle takes the part of the push that is into it, so that ball's
+     * velocity only changes along the obstacle, and it keeps rolling (see BallEngine.updateBallVelocity).
+     * Along the normal, a held ball is only as easy to push as its normal is flat (normalX^2, instead of 1).
+     * Pushed the same as a free ball, it would go into the obstacle, bounce straight back into the other ball, and
+     * so on: a run of collisions, each slower than the last, without the step ever moving on.
+     * @param normalVelocity - how fast ball1 is moving towards ball2 along the normal
+     */
+    private void calculateVelocityHeldBallCollision(BallEngine ballEngine, Ball ball1, Ball ball2, float normalX,
+                                                    float normalY, float normalVelocity) {
+        boolean ball1Held = ballEngine.isBallHeldUpBySurface(ball1, ball2);
+        boolean ball2Held = ballEngine.isBallHeldUpBySurface(ball2, ball1);
+        float ball1InverseMass = ball1Held ? (normalX * normalX) : 1f;
+        float ball2InverseMass = ball2Held ? (normalX * normalX) : 1f;
+
+        //Reverse the normal velocity between the balls (elastic, the same as swapping it for two free balls)
+        float impulse = 0f;
+        if ((ball1InverseMass + ball2InverseMass) > 0) {
+            impulse = -2 * normalVelocity / (ball1InverseMass + ball2InverseMass);
+        }
+
+        PointF newVelocity1 = mNewVelocity;
+        PointF newVelocity2 = mNewVelocity2;
+        newVelocity1.set(mBall1Velocity.x + (impulse * normalX), mBall1Velocity.y + (ball1Held ? 0f : (impulse * normalY)));
+        newVelocity2.set(mBall2Velocity.x - (impulse * normalX), mBall2Velocity.y - (ball2Held ? 0f : (impulse * normalY)));
+
+        //subtract for elasticity
+        reduceVelocityElasticLoss(ballEngine, ball1, newVelocity1);
+        reduceVelocityElasticLoss(ballEngine, ball2, newVelocity2);
+
+        ball1.addNewVelocity(newVelocity1);
+        ball2.addNewVelocity(newVelocity2);
+    }
+
     public void updateCollisionCollections(BallEngine ballEngine, ArrayList<Collision> collisions){
 
-        for (Collision currentCollision : collisions) {
+        for (int collisionIndex = 0; collisionIndex < collisions.size(); collisionIndex++) {
+            Collision currentCollision = collisions.get(collisionIndex);
 
             if (currentCollision.getObstacle().getType() == GameState.INTERACTABLE_BALL) {
 
@@ -213,16 +264,18 @@ public class CollisionHandling {
     }
 
     public ArrayList<Target> getTargetCollisions(float firstCollisionTime){
-        ArrayList<Target> hitTargets = new ArrayList<>();
+        mHitTargets.clear();
+
+        for (int index = 0; index < mCollisions.size(); index++){
+            Collision collision = mCollisions.get(index);
 
-        for (Collision collision : mCollisions){
             if (collision.getObstacle().getType() == GameState.INTERACTABLE_TARGET){
                 if (collision.getTime() <= firstCollisionTime){
-                    hitTargets.add((Target) collision.getObstacle());
+                    mHitTargets.add((Target) collision.getObstacle());
                 }
             }
         }
-        return hitTargets;
+        return mHitTargets;
     }
 
     //**Reference:
@@ -231,17 +284,20 @@ public class CollisionHandling {
     private void calculateVelocityMovingBorderCollision(BallEngine ballEngine, Collision collision){
         Ball ball = collision.getBall();
         PointF boundaryAxis = collision.getBoundaryAxis();
-        PointF oldVelocity = ballEngine.getVelocity(ball, collision.getTime());
+        PointF totalCollisionVelocity = mOldVelocity;
+        ballEngine.getVelocity(ball, collision.getTime(), totalCollisionVelocity);
         MovingObstacle obstacle = (MovingObstacle)collision.getObstacle();
         PointF obstacleVelocity = obstacle.getVelocity();
 
         //In order to calculate the new velocity, we will need to add together the velocities of
         // the moving obstacle and the ball. In order to do that, we will need to first calculate
         // how much of the obstacle velocity is in the direction of the collision.
-        PointF outerBoundaryAxis = new PointF(-boundaryAxis.x, -boundaryAxis.y); //normal boundary axis points inside, we want to point outside.
-        float velocityInCollisionDirection = (obstacleVelocity.x * outerBoundaryAxis.x) + (obstacleVelocity.y * outerBoundaryAxis.y);
-        PointF obstacleDirectionalVel = new PointF(outerBoundaryAxis.x * velocityInCollisionDirection, outerBoundaryAxis.y * velocityInCollisionDirection);
-        PointF totalCollisionVelocity = new PointF(oldVelocity.x - obstacleDirectionalVel.x, oldVelocity.y - obstacleDirectionalVel.y);
+        float outerBoundaryAxisX = -boundaryAxis.x; //normal boundary axis points inside, we want to point outside.
+        float outerBoundaryAxisY = -boundaryAxis.y;
+        float velocityInCollisionDirection = (obstacleVelocity.x * outerBoundaryAxisX) + (obstacleVelocity.y * outerBoundaryAxisY);
+        float obstacleDirectionalVelX = outerBoundaryAxisX * velocityInCollisionDirection;
+        float obstacleDirectionalVelY = outerBoundaryAxisY * velocityInCollisionDirection;
+        totalCollisionVelocity.set(totalCollisionVelocity.x - obstacleDirectionalVelX, totalCollisionVelocity.y - obstacleDirectionalVelY);
 
         //Now that we know how fast the ball and obstacle collided, we can pretend the
         // obstacle is stationary to calculate the change in velocity the collision will cause
@@ -251,53 +307,59 @@ public class CollisionHandling {
         // n= normal vector (boundary axis), v= incoming vector
 
         float velocityChange = 2 * CommonFunctions.dotProduct(totalCollisionVelocity, boundaryAxis);
-        PointF velocityChangeVector = new PointF(boundaryAxis.x * velocityChange, boundaryAxis.y * velocityChange);
-        PointF newVelocity = new PointF(totalCollisionVelocity.x - velocityChangeVector.x, totalCollisionVelocity.y - velocityChangeVector.y);
+        PointF newVelocity = mNewVelocity;
+        newVelocity.set(totalCollisionVelocity.x - (boundaryAxis.x * velocityChange), totalCollisionVelocity.y - (boundaryAxis.y * velocityChange));
 
-        PointF newVelocityElastic = reduceVelocityElasticLoss(ballEngine, ball, newVelocity);
+        reduceVelocityElasticLoss(ballEngine, ball, newVelocity);
 
         //Finally, we must add the obstacle directional velocity with the post-collision change
-        // in velocity (newVelocityElastic), to get our ball's final velocity.
-        PointF finalVelocity = new PointF(newVelocityElastic.x + obstacleDirectionalVel.x, newVelocityElastic.y + obstacleDirectionalVel.y);
-
-        ball.setVelocity(finalVelocity);
+        // in velocity (after elastic loss), to get our ball's final velocity.
+        ball.setVelocity(newVelocity.x + obstacleDirectionalVelX, newVelocity.y + obstacleDirectionalVelY);
 
         //handle edge case of rolling ball colliding with obstacle.
         if (ball.isBallRolling()) {
             ball.activateBall();
+
+        //and of the obstacle running into a stopped ball (the new velocity is set directly, so
+        // BallEngine.updateBallVelocity can't tell that the ball collided)
+        } else if (ball.isBallStopped()) {
+            ballEngine.activateBall(ball);
         }
 
     }
 
-    private PointF reduceVelocityElasticLoss(BallEngine ballEngine, Ball currentBall, PointF velocity) {
+    //Reduces velocity in place
+    private void reduceVelocityElasticLoss(BallEngine ballEngine, Ball currentBall, PointF velocity) {
         if (ballEngine.shouldElasticLossBeAppliedForCollision(currentBall)) {
-            velocity = new PointF(velocity.x * GameState.ELASTIC_CONSTANT, velocity.y * GameState.ELASTIC_CONSTANT);
+            velocity.set(velocity.x * GameState.ELASTIC_CONSTANT, velocity.y * GameState.ELASTIC_CONSTANT);
         }
-        return velocity;
     }
 
     private void calculateSpinChangeStationaryBorder(BallEngine ballEngine, Collision collision) {
         Ball ball = collision.getBall();
         PointF boundaryAxis = collision.getBoundaryAxis();
-        PointF oldVelocity = ballEngine.getVelocity(ball, collision.getTime());
+        PointF oldVelocity = mOldVelocity;
+        ballEngine.getVelocity(ball, collision.getTime(), oldVelocity);
 
-        calculateSpinChange(ball,oldVelocity,boundaryAxis);
+        calculateSpinChange(ball, oldVelocity, boundaryAxis.x, boundaryAxis.y);
     }
 
     private void calculateSpinChangeMovingBorder(BallEngine ballEngine, Collision collision) {
         Ball ball = collision.getBall();
         PointF boundaryAxis = collision.getBoundaryAxis();
-        PointF oldVelocity = ballEngine.getVelocity(ball, collision.getTime());
+        PointF totalCollisionVelocity = mOldVelocity;
+        ballEngine.getVelocity(ball, collision.getTime(), totalCollisionVelocity);
         MovingObstacle obstacle = (MovingObstacle)collision.getObstacle();
         PointF obstacleVelocity = obstacle.getVelocity();
 
         //Use code from calculateVelocityMovingBorderCollision to calculate total impact velocity
-        PointF outerBoundaryAxis = new PointF(-boundaryAxis.x, -boundaryAxis.y); //normal boundary axis points inside, we want to point outside.
-        float velocityInCollisionDirection = (obstacleVelocity.x * outerBoundaryAxis.x) + (obstacleVelocity.y * outerBoundaryAxis.y);
-        PointF obstacleDirectionalVel = new PointF(outerBoundaryAxis.x * velocityInCollisionDirection, outerBoundaryAxis.y * velocityInCollisionDirection);
-        PointF totalCollisionVelocity = new PointF(oldVelocity.x - obstacleDirectionalVel.x, oldVelocity.y - obstacleDirectionalVel.y);
+        float outerBoundaryAxisX = -boundaryAxis.x; //normal boundary axis points inside, we want to point outside.
+        float outerBoundaryAxisY = -boundaryAxis.y;
+        float velocityInCollisionDirection = (obstacleVelocity.x * outerBoundaryAxisX) + (obstacleVelocity.y * outerBoundaryAxisY);
+        totalCollisionVelocity.set(totalCollisionVelocity.x - (outerBoundaryAxisX * velocityInCollisionDirection),
+                totalCollisionVelocity.y - (outerBoundaryAxisY * velocityInCollisionDirection));
 
-        calculateSpinChange(ball, totalCollisionVelocity, boundaryAxis);
+        calculateSpinChange(ball, totalCollisionVelocity, boundaryAxis.x, boundaryAxis.y);
     }
 
     private void calculateSpinChangeBallCollision(Collision collision, BallEngine ballEngine) {
@@ -306,30 +368,32 @@ public class CollisionHandling {
         Ball ball2 = (Ball) collision.getObstacle();
 
         //get velocities
-        PointF ball1vel = ballEngine.getVelocity(ball1, collision.getTime());
-        PointF ball2vel = ballEngine.getVelocity(ball2, collision.getTime());
+        PointF ball1vel = mBall1Velocity;
+        PointF ball2vel = mBall2Velocity;
+        ballEngine.getVelocity(ball1, collision.getTime(), ball1vel);
+        ballEngine.getVelocity(ball2, collision.getTime(), ball2vel);
 
         //get collision axis
-        PointF collisionAxis1 = collision.getBoundaryAxis();
-        collisionAxis1 = new PointF(collisionAxis1.y, -collisionAxis1.x);
+        PointF collisionAxis = collision.getBoundaryAxis();
 
         //calculate spin changes
-        calculateSpinChange(ball1, ball1vel, collisionAxis1);
-        calculateSpinChange(ball2, ball2vel, collisionAxis1);
+        calculateSpinChange(ball1, ball1vel, collisionAxis.y, -collisionAxis.x);
+        calculateSpinChange(ball2, ball2vel, collisionAxis.y, -collisionAxis.x);
     }
 
     private float getCollisionVelocity(BallEngine ballEngine, Collision collision) {
         Ball ball = collision.getBall();
         PointF boundaryAxis = collision.getBoundaryAxis();
-        PointF oldVelocity = ballEngine.getVelocity(ball, collision.getTime());
+        PointF oldVelocity = mOldVelocity;
+        ballEngine.getVelocity(ball, collision.getTime(), oldVelocity);
 
         return CommonFunctions.dotProduct(oldVelocity, boundaryAxis);
     }
 
-    private void calculateSpinChange(Ball ball, PointF oldVelocity, PointF boundaryAxis) {
+    private void calculateSpinChange(Ball ball, PointF oldVelocity, float boundaryAxisX, float boundaryAxisY) {
 
-        PointF surfaceVector = new PointF(-boundaryAxis.y, boundaryAxis.x);
-        float surfaceVelocity = CommonFunctions.dotProduct(oldVelocity, surfaceVector);
+        //Velocity along the surface
+        float surfaceVelocity = CommonFunctions.dotProduct(oldVelocity.x, oldVelocity.y, -boundaryAxisY, boundaryAxisX);
 
         if (Math.abs(oldVelocity.length()) < 1.2) {
             ball.setSpin(surfaceVelocity / -11);
@@ -0,0 +1,255 @@
+package com.example.eli.myapplication.Logic;
+
+/**
+ * Keeps running tallies of how much work collision detection is doing, both for the current
+ * frame and for the whole level. GameEngine feeds it while advancing frames, and prints a summary
+ * to the console at the end of the level if GameState.SHOW_COLLISION_STATS is set.
+ *
+ * 'Considered' pairs are the pairs a ball would have been tested against without a broadphase
+ * (every other interactable object). 'Candidate' pairs are the ones the broadphase actually
+ * handed to collision detection, and 'pruned' pairs are the difference between the two.
+ */
+public class CollisionStatistics {
+
+    //Current frame
+    private int mFramePairsConsidered;
+    private int mFrameCandidatePairs;
+    private int mFrameSubSteps;
+    private int mFramePairTests;
+    private int mFrameCollisionsFound;
+    private int mFrameCollisionsHandled;
+    private boolean mFrameOverBudget;
+    private int mFrameAwakeBalls;
+    private int mFrameSleepingBalls;
+
+    //Whole level
+    private int mFrames;
+    private long mTotalSubSteps;
+    private long mTotalPairTests;
+    private long mTotalCollisionsFound;
+    private long mTotalCollisionsHandled;
+    private int mMaxFrameSubSteps;
+    private int mMaxFramePairTests;
+    private int mFramesOverBudget;
+    private int mParallelPasses;
+    private long mStaticPairsSkipped;
+
+    //Separating axis tests (see SeparatingAxisCache)
+    private long mPolygonTests;
+    private long mAxesTested;
+    private long mCachedAxisLookups;
+    private long mCachedAxisHits;
+    private long mTotalAwakeBalls;
+    private long mTotalSleepingBalls;
+    private long mTotalPairsConsidered;
+    private long mTotalCandidatePairs;
+
+    //Collision pool usage (see CollisionBuffer)
+    private int mCollisionPoolHighWaterMark;
+    private int mCollisionPoolCapacity;
+
+    public void startFrame() {
+        mFramePairsConsidered = 0;
+        mFrameCandidatePairs = 0;
+        mFrameSubSteps = 0;
+        mFramePairTests = 0;
+        mFrameCollisionsFound = 0;
+        mFrameCollisionsHandled = 0;
+        mFrameOverBudget = false;
+        mFrameAwakeBalls = 0;
+        mFrameSleepingBalls = 0;
+    }
+
+    public void endFrame() {
+        mFrames++;
+        mTotalPairsConsidered = mTotalPairsConsidered + mFramePairsConsidered;
+        mTotalCandidatePairs = mTotalCandidatePairs + mFrameCandidatePairs;
+        mTotalSubSteps = mTotalSubSteps + mFrameSubSteps;
+        mTotalPairTests = mTotalPairTests + mFramePairTests;
+        mTotalCollisionsFound = mTotalCollisionsFound + mFrameCollisionsFound;
+        mTotalCollisionsHandled = mTotalCollisionsHandled + mFrameCollisionsHandled;
+        mMaxFrameSubSteps = Math.max(mMaxFrameSubSteps, mFrameSubSteps);
+        mMaxFramePairTests = Math.max(mMaxFramePairTests, mFramePairTests);
+        if (mFrameOverBudget) {
+            mFramesOverBudget++;
+        }
+        mTotalAwakeBalls = mTotalAwakeBalls + mFrameAwakeBalls;
+        mTotalSleepingBalls = mTotalSleepingBalls + mFrameSleepingBalls;
+    }
+
+    //One pass through the step loop in GameEngine.advanceFrameStep (every collision adds another)
+    public void addSubStep() {
+        mFrameSubSteps++;
+    }
+
+    //One pair handed to the narrowphase (detailed testing in CollisionDetection)
+    public void addPairTest() {
+        mFramePairTests++;
+    }
+
+    //Pairs handed to the narrowphase all at once (see ParallelNarrowphase)
+    public void addPairTests(int pairTests) {
+        mFramePairTests = mFramePairTests + pairTests;
+    }
+
+    //A ball / static obstacle pair that wasn't tested, because the ball couldn't reach any static obstacle
+    public void addStaticPairSkipped() {
+        mStaticPairsSkipped++;
+    }
+
+    /**
+     * Record separating axis tests between balls and obstacles.
+     * PARAMS:
+     *   polygonTests - Ball / obstacle pairs tested
+     *   axesTested - Axes tested across all of them
+     *   cachedAxisLookups - Tests that had an axis from the previous step to try first
+     *   cachedAxisHits - Tests where that axis still separated the pair
+     */
+    public void addSeparatingAxisTests(int polygonTests, int axesTested, int cachedAxisLookups, int cachedAxisHits) {
+        mPolygonTests = mPolygonTests + polygonTests;
+        mAxesTested = mAxesTested + axesTested;
+        mCachedAxisLookups = mCachedAxisLookups + cachedAxisLookups;
+        mCachedAxisHits = mCachedAxisHits + cachedAxisHits;
+    }
+
+    //One collision detection pass that tested its pairs in parallel
+    public void addParallelPass() {
+        mParallelPasses++;
+    }
+
+    //Collisions found by one collision detection pass
+    public void addCollisionsFound(int collisions) {
+        mFrameCollisionsFound = mFrameCollisionsFound + collisions;
+    }
+
+    //Trajectory-affecting collisions handled at the end of one step (every one tied for the earliest time)
+    public void addCollisionsHandled(int collisions) {
+        mFrameCollisionsHandled = mFrameCollisionsHandled + collisions;
+    }
+
+    //The frame ran out of sub-steps or pair tests (see GameEngine.setFrameBudget)
+    public void setFrameOverBudget() {
+        mFrameOverBudget = true;
+    }
+
+    /**
+     * Record the outcome of one broadphase query.
+     * PARAMS:
+     *   pairsConsidered - Number of pairs a full scan would have tested
+     *   candidatePairs - Number of pairs the broadphase returned
+     */
+    public void addBroadphaseQuery(int pairsConsidered, int candidatePairs) {
+        mFramePairsConsidered = mFramePairsConsidered + pairsConsidered;
+        mFrameCandidatePairs = mFrameCandidatePairs + candidatePairs;
+    }
+
+    /**
+     * Record how many balls in play were awake and asleep at the end of the frame.
+     */
+    public void setBallCounts(int awakeBalls, int sleepingBalls) {
+        mFrameAwakeBalls = awakeBalls;
+        mFrameSleepingBalls = sleepingBalls;
+    }
+
+    public void setCollisionPoolUsage(int highWaterMark, int capacity) {
+        mCollisionPoolHighWaterMark = highWaterMark;
+        mCollisionPoolCapacity = capacity;
+    }
+
+    public int getFrameSubSteps() {
+        return mFrameSubSteps;
+    }
+
+    public int getFramePairTests() {
+        return mFramePairTests;
+    }
+
+    public int getFrameCollisionsFound() {
+        return mFrameCollisionsFound;
+    }
+
+    public int getFrameCollisionsHandled() {
+        return mFrameCollisionsHandled;
+    }
+
+    public boolean isFrameOverBudget() {
+        return mFrameOverBudget;
+    }
+
+    public int getFrameAwakeBalls() {
+        return mFrameAwakeBalls;
+    }
+
+    public int getFrameSleepingBalls() {
+        return mFrameSleepingBalls;
+    }
+
+    public int getFrameCandidatePairs() {
+        return mFrameCandidatePairs;
+    }
+
+    public int getFramePrunedPairs() {
+        return mFramePairsConsidered - mFrameCandidatePairs;
+    }
+
+    public long getTotalPairTests() {
+        return mTotalPairTests;
+    }
+
+    public long getTotalCollisionsHandled() {
+        return mTotalCollisionsHandled;
+    }
+
+    public long getTotalCandidatePairs() {
+        return mTotalCandidatePairs;
+    }
+
+    public long getTotalPrunedPairs() {
+        return mTotalPairsConsidered - mTotalCandidatePairs;
+    }
+
+    public int getParallelPasses() {
+        return mParallelPasses;
+    }
+
+    public long getTotalAxesTested() {
+        return mAxesTested;
+    }
+
+    public long getTotalCachedAxisHits() {
+        return mCachedAxisHits;
+    }
+
+    public long getTotalCachedAxisLookups() {
+        return mCachedAxisLookups;
+    }
+
+    public long getTotalPolygonTests() {
+        return mPolygonTests;
+    }
+
+    public void printSummary(int chapter, int level) {
+        float candidatesPerFrame = (mFrames == 0) ? 0 : (float) mTotalCandidatePairs / mFrames;
+        float prunedPerFrame = (mFrames == 0) ? 0 : (float) getTotalPrunedPairs() / mFrames;
+        float subStepsPerFrame = (mFrames == 0) ? 0 : (float) mTotalSubSteps / mFrames;
+        float awakePerFrame = (mFrames == 0) ? 0 : (float) mTotalAwakeBalls / mFrames;
+        float sleepingPerFrame = (mFrames == 0) ? 0 : (float) mTotalSleepingBalls / mFrames;
+        float prunedPercent = (mTotalPairsConsidered == 0) ? 0 : (100f * getTotalPrunedPairs()) / mTotalPairsConsidered;
+        float cachedAxisHitPercent = (mCachedAxisLookups == 0) ? 0 : (100f * mCachedAxisHits) / mCachedAxisLookups;
+        float axesPerPolygonTest = (mPolygonTests == 0) ? 0 : (float) mAxesTested / mPolygonTests;
+
+        System.out.println("Collision stats for level " + chapter + "." + level + " over " + mFrames + " frames");
+        System.out.println("  sub-steps: " + mTotalSubSteps + " (" + subStepsPerFrame + " per frame)");
+        System.out.println("  max per frame: " + mMaxFrameSubSteps + " sub-steps, " + mMaxFramePairTests + " pair tests ("
+                + mFramesOverBudget + " frames over budget)");
+        System.out.println("  pair tests: " + mTotalPairTests + ", collisions found: " + mTotalCollisionsFound
+                + ", handled: " + mTotalCollisionsHandled + ", parallel passes: " + mParallelPasses);
+        System.out.println("  static pairs skipped by the distance field: " + mStaticPairsSkipped);
+        System.out.println("  separating axis cache: " + mCachedAxisHits + " hits of " + mCachedAxisLookups + " (" + cachedAxisHitPercent
+                + "%), " + axesPerPolygonTest + " axes tested per obstacle pair");
+        System.out.println("  balls in play: " + awakePerFrame + " awake, " + sleepingPerFrame + " asleep (per frame)");
+        System.out.println("  candidate pairs: " + mTotalCandidatePairs + " (" + candidatesPerFrame + " per frame)");
+        System.out.println("  pruned pairs: " + getTotalPrunedPairs() + " (" + prunedPerFrame + " per frame, " + prunedPercent + "%)");
+        System.out.println("  collision pool high-water mark: " + mCollisionPoolHighWaterMark + " of " + mCollisionPoolCapacity);
+    }
+}
@@ -19,6 +19,7 @@ import com.example.eli.myapplication.Model.Interactable;
 import com.example.eli.myapplication.Model.MovePath;
 import com.example.eli.myapplication.Model.MovingObstacle;
 import com.example.eli.myapplication.Model.Obstacle;
+import com.example.eli.myapplication.Model.ObstacleGeometry;
 import com.example.eli.myapplication.Model.ScoreDigits;
 import com.example.eli.myapplication.Model.SelectionCircle;
 import com.example.eli.myapplication.Model.Target;
@@ -38,6 +39,7 @@ public class LevelInitialization {
     private ArrayList<Drawable> mAllDrawableObjects = new ArrayList<>();
     private ArrayList<Interactable> mAllInteractableObjects = new ArrayList<>();
     private ArrayList<MovingObstacle> mAllMovingObstacles = new ArrayList<>();
+    private ObstacleGeometry mObstacleGeometry;
     private ScoreDigits[] mScoreDigits = new ScoreDigits[5];
     private VelocityArrow mVelocityArrow;
     private EndLevelSuccessImage endLevelSuccessImage;
@@ -77,6 +79,8 @@ public class LevelInitialization {
         loadTargets(currentLevelData);  //Load level specific targets
         initializeBalls(currentLevelData);  //Initialize the balls
         initializeDrawables();  //Add all objects that need to be drawn but are not interactable
+        assignInteractableIds();  //Number every interactable object, in the order they will be collision checked
+        mObstacleGeometry = new ObstacleGeometry(mAllInteractableObjects);  //Pack the shape of every obstacle for collision testing
 
     }
 
@@ -92,6 +96,7 @@ public class LevelInitialization {
         for(int index=0; index < mTotalBalls; index++) {
 
             Ball ball = new Ball(newBallCoords, new PointF(0f, 0f), GameState.ballRadius, mCurrentBallTexture);
+            ball.setBallSlot(index);
             mAllBalls.add(ball);
             mAllDrawableObjects.add(ball);
             mAllInteractableObjects.add(ball);
@@ -151,6 +156,17 @@ public class LevelInitialization {
 
     }
 
+    //----------------
+    //Give each interactable object its index within mAllInteractableObjects.
+    // The broadphase uses these ids to keep per-object data in plain arrays, and to return
+    // candidates in the same order they appear in the interactable collection.
+    //
+    private void assignInteractableIds(){
+        for (int index = 0; index < mAllInteractableObjects.size(); index++){
+            mAllInteractableObjects.get(index).setInteractableId(index);
+        }
+    }
+
     private void initializeDrawables(){
 
         //Selection circle
@@ -244,6 +260,11 @@ public class LevelInitialization {
 
     public static int loadGLTexture(int imagePointer) {
 
+        //Without a context (the level is only being simulated, e.g. in tests) there is nothing to draw with
+        if (mActivityContext == null) {
+            return 0;
+        }
+
         int[] temp = new int[1];
         // loading texture
         Bitmap bitmap = BitmapFactory.decodeResource(mActivityContext.getResources(), imagePointer);
@@ -0,0 +1,248 @@
+package com.example.eli.myapplication.Logic;
+
+import android.annotation.TargetApi;
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Logic.Ball.BallEngine;
+import com.example.eli.myapplication.Logic.Broadphase.CollisionPairs;
+import com.example.eli.myapplication.Model.Collision;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs detailed collision testing for one step's pairs on a ForkJoinPool. Used by GameEngine for scenes with a
+ * lot of pairs (see GameState.PARALLEL_NARROWPHASE_MIN_PAIRS).
+ *
+ * GameEngine does the pre-checks for each kind of pair (static obstacle, moving obstacle, target, ball) the same
+ * way it does when testing them one after another, and queues the pairs that pass. The queued pairs are split into
+ * one contiguous chunk per worker, in that order, and every chunk has its own CollisionDetection (and so its own
+ * scratch space and collision buffer). Testing only reads the balls and obstacles, so chunks never get in each
+ * other's way. Afterwards the chunks' collisions are copied out in chunk order, which is exactly the order testing
+ * the pairs one after another would have found them in.
+ *
+ * The one thing testing can change is a ball's velocity, when a ball is found in an invalid position (see
+ * GameEngine.displaceInvalidBall). That has to happen before any later pair involving the ball is tested, so a
+ * chunk stops at its first invalid position, and testPairs stops there too. The caller moves the ball, then tests
+ * the rest of the pairs itself. The chunks after it have already been tested, so everything they did is thrown
+ * away: their collisions, their counters, and their changes to the SeparatingAxisCache (which every chunk holds
+ * back until testPairs knows which pairs count). That leaves the cache and statistics exactly as testing the pairs
+ * one after another would have.
+ */
+@TargetApi(21)
+public class ParallelNarrowphase {
+
+    public static final int NO_INVALID_PAIR = -1;
+
+    private final ForkJoinPool mPool;
+    private final SeparatingAxisCache mAxisCache;
+    private final Chunk[] mChunks;
+    private final TestAllChunks mTestAllChunks = new TestAllChunks();
+
+    //Indices (into CollisionPairs' list for each kind) of the pairs that passed the pre-checks, tested in this order
+    private final PairQueue mStaticTests = new PairQueue();
+    private final PairQueue mMovingTests = new PairQueue();
+    private final PairQueue mTargetTests = new PairQueue();
+    private final PairQueue mBallTests = new PairQueue();
+
+    //Set by testPairs
+    private CollisionPairs mPairs;
+    private float mTimeStep;
+    private PointF mInvalidPositionAxis;
+
+    public ParallelNarrowphase(BallEngine ballEngine, SeparatingAxisCache axisCache, int workers) {
+        mPool = new ForkJoinPool(workers);
+        mAxisCache = axisCache;
+        mChunks = new Chunk[workers];
+
+        for (int index = 0; index < workers; index++) {
+            SeparatingAxisCache.PendingAxes pendingAxes = new SeparatingAxisCache.PendingAxes();
+            mChunks[index] = new Chunk(new CollisionDetection(ballEngine, axisCache, pendingAxes), pendingAxes);
+        }
+    }
+
+    public int getWorkers() {
+        return mChunks.length;
+    }
+
+    public void clear() {
+        mStaticTests.clear();
+        mMovingTests.clear();
+        mTargetTests.clear();
+        mBallTests.clear();
+    }
+
+    //Queue a pair for detailed testing. Each kind of pair has to be added in the order it is in CollisionPairs.
+    public void addStaticPair(int pairIndex) {
+        mStaticTests.add(pairIndex);
+    }
+
+    public void addMovingPair(int pairIndex) {
+        mMovingTests.add(pairIndex);
+    }
+
+    public void addTargetPair(int pairIndex) {
+        mTargetTests.add(pairIndex);
+    }
+
+    public void addBallPair(int pairIndex) {
+        mBallTests.add(pairIndex);
+    }
+
+    /**
+     * Test every queued pair, add the collisions found to result (in pair order), and record the tests in stats.
+     * RETURNS
+     *   NO_INVALID_PAIR if every pair was tested. Otherwise, the index (into CollisionPairs' moving obstacle pairs)
+     *   of the first pair that found its ball in an invalid position (see getInvalidPositionAxis). Only a moving
+     *   obstacle can leave a ball there. Pairs after that one don't count as tested.
+     */
+    public int testPairs(CollisionPairs pairs, float timeStep, CollisionBuffer result, CollisionStatistics stats) {
+        mPairs = pairs;
+        mTimeStep = timeStep;
+
+        //Split the pairs as evenly as possible
+        int testCount = mStaticTests.size + mMovingTests.size + mTargetTests.size + mBallTests.size;
+        int start = 0;
+        for (int index = 0; index < mChunks.length; index++) {
+            int end = start + ((testCount - start) / (mChunks.length - index));
+            mChunks[index].reinitialize();
+            mChunks[index].setRange(start, end);
+            start = end;
+        }
+
+        mTestAllChunks.reinitialize();
+        mPool.invoke(mTestAllChunks);
+        stats.addParallelPass();
+
+        //Merge, up to the first invalid position
+        int invalidPair = NO_INVALID_PAIR;
+        for (Chunk chunk : mChunks) {
+            if (invalidPair != NO_INVALID_PAIR) {
+                chunk.pendingAxes.clear();
+                chunk.CD.discardAxisStats();
+                continue;
+            }
+
+            CollisionBuffer collisions = chunk.CD.getCollisions();
+            for (int index = 0; index < collisions.size(); index++) {
+                Collision collision = collisions.get(index);
+                result.add(collision.getTime(), collision.getBoundaryAxis().x, collision.getBoundaryAxis().y,
+                        collision.getObstacle(), collision.getBall());
+            }
+            mAxisCache.commit(chunk.pendingAxes);
+            chunk.CD.moveAxisStatsTo(stats);
+            stats.addPairTests(chunk.pairTests);
+
+            if (chunk.invalidTest != NO_INVALID_PAIR) {
+                mInvalidPositionAxis = chunk.CD.getInvalidPositionAxis();
+                invalidPair = mMovingTests.pairs[chunk.invalidTest - mStaticTests.size];
+            }
+        }
+
+        return invalidPair;
+    }
+
+    //Only valid right after testPairs returned a pair index. Points inward, like all boundary axes.
+    public PointF getInvalidPositionAxis() {
+        return mInvalidPositionAxis;
+    }
+
+    public void shutdown() {
+        mPool.shutdown();
+    }
+
+    private class TestAllChunks extends RecursiveAction {
+        @Override
+        protected void compute() {
+            invokeAll(mChunks);
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+
+        final CollisionDetection CD;
+        final SeparatingAxisCache.PendingAxes pendingAxes;
+
+        //Range of queued tests to run, counting the static, moving, target and then ball tests one after another
+        private int mStart;
+        private int mEnd;
+
+        //Results
+        int pairTests;
+        int invalidTest;
+
+        Chunk(CollisionDetection CD, SeparatingAxisCache.PendingAxes pendingAxes) {
+            this.CD = CD;
+            this.pendingAxes = pendingAxes;
+        }
+
+        void setRange(int start, int end) {
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            CD.reset();
+            pendingAxes.clear();
+            pairTests = 0;
+            invalidTest = NO_INVALID_PAIR;
+
+            int test = mStart;
+
+            int end = Math.min(mEnd, mStaticTests.size);
+            for (; test < end; test++) {
+                int pairIndex = mStaticTests.pairs[test];
+                CD.doPolygonCollisionDetection(mPairs.getStaticPairBall(pairIndex), mPairs.getStaticObstacle(pairIndex), mTimeStep);
+                pairTests++;
+            }
+
+            int first = mStaticTests.size;
+            end = Math.min(mEnd, first + mMovingTests.size);
+            for (; test < end; test++) {
+                int pairIndex = mMovingTests.pairs[test - first];
+                int result = CD.doPolygonCollisionDetection(mPairs.getMovingPairBall(pairIndex), mPairs.getMovingObstacle(pairIndex), mTimeStep);
+                pairTests++;
+
+                if (result == CollisionDetection.INVALID_BALL_POSITION) {
+                    invalidTest = test;
+                    return;
+                }
+            }
+
+            first = first + mMovingTests.size;
+            end = Math.min(mEnd, first + mTargetTests.size);
+            for (; test < end; test++) {
+                int pairIndex = mTargetTests.pairs[test - first];
+                CD.doTargetCollisionDetection(mPairs.getTargetPairBall(pairIndex), mPairs.getTarget(pairIndex), mTimeStep);
+                pairTests++;
+            }
+
+            first = first + mTargetTests.size;
+            end = Math.min(mEnd, first + mBallTests.size);
+            for (; test < end; test++) {
+                int pairIndex = mBallTests.pairs[test - first];
+                CD.doBallCollisionDetection(mPairs.getBallPairOwner(pairIndex), mPairs.getOtherBall(pairIndex), mTimeStep);
+                pairTests++;
+            }
+        }
+    }
+
+    private static class PairQueue {
+        int[] pairs = new int[64];
+        int size = 0;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int pairIndex) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size] = pairIndex;
+            size++;
+        }
+    }
+}
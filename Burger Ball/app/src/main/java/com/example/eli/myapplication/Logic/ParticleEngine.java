@@ -5,7 +5,6 @@ import android.graphics.PointF;
 import android.opengl.GLES30;
 
 import com.example.eli.myapplication.Controller.MyGLRenderer;
-import com.example.eli.myapplication.Model.Ball;
 import com.example.eli.myapplication.Model.Particle;
 import com.example.eli.myapplication.Resources.GameState;
 
@@ -241,29 +240,22 @@ public class ParticleEngine {
         currentParticle.setPosition(newPosition);
     }
 
-    public void createNewParticles(ArrayList<Ball> mAllBalls) {
-        for (Ball currentBall : mAllBalls) {
-
-            //skip inactive and stopped balls
-            if (!currentBall.isBallActive()) {
-                continue;
-            }
-
-            createParticlesForBall(currentBall);
-        }
-    }
-
-    private void createParticlesForBall (Ball ball) {
-        PointF ballVelocity = ball.getVelocity();
+    /**
+     * Create a frame's worth of particles behind a ball. Only the ball's position, velocity and size are passed in,
+     * rather than the Ball itself, so particles can be made from a snapshot of the ball (see GameEngine.drawObjects).
+     */
+    public void createParticles(float centerX, float centerY, float velocityX, float velocityY, float radius) {
+        PointF ballCenter = new PointF(centerX, centerY);
+        PointF ballVelocity = new PointF(velocityX, velocityY);
         float ballVelocityLength = ballVelocity.length();
 
-        PointF particleAxisOpposite = calculateParticleAxisOpposite(ball);
-        PointF particleAxisChangeA = calculateParticleAxisChangeA(ball,particleAxisOpposite);
-        PointF particleAxisChangeB = calculateParticleAxisChangeB(ball,particleAxisOpposite);
+        PointF particleAxisOpposite = calculateParticleAxisOpposite(ballCenter, ballVelocity, radius);
+        PointF particleAxisChangeA = calculateParticleAxisChangeA(ballCenter, ballVelocity, radius, particleAxisOpposite);
+        PointF particleAxisChangeB = calculateParticleAxisChangeB(ballCenter, ballVelocity, radius, particleAxisOpposite);
 
-        PointF velocityAxisOpposite = calculateVelocityOpposite(ball);
-        PointF velocityAxisChangeA = calculateVelocityChangeA(ball, velocityAxisOpposite);
-        PointF velocityAxisChangeB = calculateVelocityChangeB(ball, velocityAxisOpposite);
+        PointF velocityAxisOpposite = calculateVelocityOpposite(ballVelocity);
+        PointF velocityAxisChangeA = calculateVelocityChangeA(ballVelocity, velocityAxisOpposite);
+        PointF velocityAxisChangeB = calculateVelocityChangeB(ballVelocity, velocityAxisOpposite);
 
         int numParticles = determineNumParticlesToGenerate(ballVelocityLength);
         ParticleSpeed speedClass = getParticleSpeedClass(ballVelocityLength);
@@ -454,50 +446,38 @@ public class ParticleEngine {
         }
     }
 
-    private PointF calculateParticleAxisOpposite(Ball ball) {
-        PointF ballCenter = ball.getCenter();
-        PointF ballVelocity = ball.getVelocity();
-        float ballRadius = ball.getRadius();
+    private PointF calculateParticleAxisOpposite(PointF ballCenter, PointF ballVelocity, float ballRadius) {
         float ballVelocityLength = ballVelocity.length();
         PointF ballOpposite = new PointF((-ballVelocity.x / ballVelocityLength) * ballRadius, (-ballVelocity.y / ballVelocityLength) * ballRadius);
         return new PointF(ballCenter.x + ballOpposite.x, ballCenter.y + ballOpposite.y);
     }
 
-    private PointF calculateParticleAxisChangeA(Ball ball, PointF particleAxisOpposite) {
-        PointF ballCenter = ball.getCenter();
-        PointF ballVelocity = ball.getVelocity();
-        float ballRadius = ball.getRadius();
+    private PointF calculateParticleAxisChangeA(PointF ballCenter, PointF ballVelocity, float ballRadius, PointF particleAxisOpposite) {
         float ballVelocityLength = ballVelocity.length();
         PointF ballNormalA = new PointF((-ballVelocity.y / ballVelocityLength) * ballRadius, (ballVelocity.x / ballVelocityLength) * ballRadius);
         PointF particleAxisA = new PointF(ballCenter.x + ballNormalA.x, ballCenter.y + ballNormalA.y);
         return new PointF(particleAxisOpposite.x - particleAxisA.x, particleAxisOpposite.y - particleAxisA.y);
     }
 
-    private PointF calculateParticleAxisChangeB(Ball ball, PointF particleAxisOpposite) {
-        PointF ballCenter = ball.getCenter();
-        PointF ballVelocity = ball.getVelocity();
-        float ballRadius = ball.getRadius();
+    private PointF calculateParticleAxisChangeB(PointF ballCenter, PointF ballVelocity, float ballRadius, PointF particleAxisOpposite) {
         float ballVelocityLength = ballVelocity.length();
         PointF ballNormalB = new PointF((ballVelocity.y / ballVelocityLength) * ballRadius, (-ballVelocity.x / ballVelocityLength) * ballRadius);
         PointF particleAxisB = new PointF(ballCenter.x + ballNormalB.x, ballCenter.y + ballNormalB.y);
         return new PointF(particleAxisB.x - particleAxisOpposite.x, particleAxisB.y - particleAxisOpposite.y);
     }
 
-    private PointF calculateVelocityOpposite(Ball ball) {
-        PointF ballVelocity = ball.getVelocity();
+    private PointF calculateVelocityOpposite(PointF ballVelocity) {
         float ballVelocityLength = ballVelocity.length();
         return new PointF((-ballVelocity.x / ballVelocityLength), (-ballVelocity.y / ballVelocityLength));
     }
 
-    private PointF calculateVelocityChangeA(Ball ball, PointF velocityOpposite) {
-        PointF ballVelocity = ball.getVelocity();
+    private PointF calculateVelocityChangeA(PointF ballVelocity, PointF velocityOpposite) {
         float ballVelocityLength = ballVelocity.length();
         PointF velocityNormalA = new PointF((-ballVelocity.y / ballVelocityLength), (ballVelocity.x / ballVelocityLength));
         return new PointF(velocityOpposite.x - velocityNormalA.x, velocityOpposite.y - velocityNormalA.y);
     }
 
-    private PointF calculateVelocityChangeB(Ball ball, PointF velocityOpposite) {
-        PointF ballVelocity = ball.getVelocity();
+    private PointF calculateVelocityChangeB(PointF ballVelocity, PointF velocityOpposite) {
         float ballVelocityLength = ballVelocity.length();
         PointF velocityNormalB = new PointF((ballVelocity.y / ballVelocityLength), (-ballVelocity.x / ballVelocityLength));
         return new PointF(velocityNormalB.x - velocityOpposite.x, velocityNormalB.y - velocityOpposite.y);
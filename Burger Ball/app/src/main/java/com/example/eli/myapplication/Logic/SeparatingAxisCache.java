@@ -0,0 +1,117 @@
+package com.example.eli.myapplication.Logic;
+
+import com.example.eli.myapplication.Logic.Broadphase.CollisionPairs;
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Interactable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Remembers, for every (ball, obstacle) pair, the axis that last separated them in CollisionDetection's
+ * separating axis test. A ball doesn't move far between one step and the next, so the same axis almost always
+ * still separates, and testing it first usually ends the test after one axis instead of several.
+ *
+ * A pair only keeps its axis while it stays in the broadphase. update() is called with every step's pairs,
+ * and a pair that wasn't in the previous step's pairs starts over with no axis.
+ *
+ * Each pair only ever belongs to one CollisionDetection at a time (see ParallelNarrowphase), so several can
+ * share one cache. A CollisionDetection working on part of a step's pairs in parallel can hold its changes back
+ * in PendingAxes, and have them committed once it is known which of its pairs would have been tested at all.
+ */
+public class SeparatingAxisCache {
+
+    //No axis is known for the pair
+    public static final int NO_AXIS = -2;
+
+    private final int mIdCapacity;
+
+    //Indexed by (ball slot * mIdCapacity) + interactable id. Axes are -1 for the nearest vertex axis,
+    // or the index of one of the obstacle's boundary axes.
+    private final int[] mAxes;
+    private final int[] mLastSeen;
+    private int mStep = 0;
+
+    public SeparatingAxisCache(ArrayList<Interactable> allInteractableObjects, int ballCount) {
+        int idCapacity = 0;
+        for (Interactable object : allInteractableObjects) {
+            idCapacity = Math.max(idCapacity, object.getInteractableId() + 1);
+        }
+        mIdCapacity = idCapacity;
+
+        mAxes = new int[ballCount * idCapacity];
+        mLastSeen = new int[ballCount * idCapacity];
+        Arrays.fill(mAxes, NO_AXIS);
+        Arrays.fill(mLastSeen, -1);
+    }
+
+    /**
+     * Start a new step with the obstacle pairs found by the pair source. Pairs that weren't found last step forget their axis.
+     */
+    public void update(CollisionPairs pairs) {
+        mStep++;
+
+        for (int index = 0; index < pairs.getStaticPairCount(); index++) {
+            updatePair(getKey(pairs.getStaticPairBall(index), pairs.getStaticObstacle(index)));
+        }
+        for (int index = 0; index < pairs.getMovingPairCount(); index++) {
+            updatePair(getKey(pairs.getMovingPairBall(index), pairs.getMovingObstacle(index)));
+        }
+    }
+
+    private void updatePair(int key) {
+        if (mLastSeen[key] != mStep - 1) {
+            mAxes[key] = NO_AXIS;
+        }
+        mLastSeen[key] = mStep;
+    }
+
+    public int getAxis(Ball ball, Interactable obstacle) {
+        return mAxes[getKey(ball, obstacle)];
+    }
+
+    public void setAxis(Ball ball, Interactable obstacle, int axis) {
+        mAxes[getKey(ball, obstacle)] = axis;
+    }
+
+    /**
+     * Same as setAxis, but only recorded in pending, until commit. A pair's axis is only looked up before it is
+     * changed (and only once a step), so holding the change back doesn't change what testing finds.
+     */
+    public void deferAxis(PendingAxes pending, Ball ball, Interactable obstacle, int axis) {
+        pending.add(getKey(ball, obstacle), axis);
+    }
+
+    //Make every change recorded in pending, in the order they were recorded, and empty it
+    public void commit(PendingAxes pending) {
+        for (int index = 0; index < pending.mSize; index++) {
+            mAxes[pending.mKeys[index]] = pending.mAxes[index];
+        }
+        pending.clear();
+    }
+
+    private int getKey(Ball ball, Interactable obstacle) {
+        return (ball.getBallSlot() * mIdCapacity) + obstacle.getInteractableId();
+    }
+
+    //Axis changes held back by deferAxis
+    public static class PendingAxes {
+        private int[] mKeys = new int[64];
+        private int[] mAxes = new int[64];
+        private int mSize = 0;
+
+        public void clear() {
+            mSize = 0;
+        }
+
+        private void add(int key, int axis) {
+            if (mSize == mKeys.length) {
+                mKeys = Arrays.copyOf(mKeys, mSize * 2);
+                mAxes = Arrays.copyOf(mAxes, mSize * 2);
+            }
+            mKeys[mSize] = key;
+            mAxes[mSize] = axis;
+            mSize++;
+        }
+    }
+}
@@ -38,6 +38,12 @@ public class SoundEngine {
     public SoundEngine(Context context, boolean muteSound) {
         this.context = context;
 
+        //Without a context (the level is only being simulated, e.g. in tests) there are no sounds to load
+        if (context == null) {
+            this.muteSound = true;
+            return;
+        }
+
         SoundPool.Builder builder = new SoundPool.Builder().setMaxStreams(8);
         soundPool = builder.build();
 
@@ -80,6 +86,9 @@ public class SoundEngine {
     }
 
     public void stopBallPullBack() {
+        if (!active) {
+            return;
+        }
         soundPool.stop(ballPullHandle);
     }
 
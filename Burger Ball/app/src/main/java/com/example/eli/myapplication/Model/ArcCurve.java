@@ -0,0 +1,92 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+/**
+ * Part of a circle. The angle changes at a constant rate along an arc, so no arc length table is needed.
+ */
+class ArcCurve extends PathCurve {
+
+    private static final double QUARTER_TURN = Math.PI / 2;
+
+    //Center, relative to the start of the arc
+    private final float mCenterX;
+    private final float mCenterY;
+    private final float mRadius;
+
+    //Angles (radians) of the start of the arc around the center, and how far it goes (positive is counterclockwise)
+    private final double mStartAngle;
+    private final double mSweep;
+
+    private float mMinX;
+    private float mMaxX;
+    private float mMinY;
+    private float mMaxY;
+
+    ArcCurve(float centerX, float centerY, float sweepDegrees) {
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mRadius = PointF.length(centerX, centerY);
+        mStartAngle = Math.atan2(-centerY, -centerX);
+        mSweep = Math.toRadians(sweepDegrees);
+
+        //The circle is furthest out in each direction at a multiple of a quarter turn, so the bounds are
+        // the ends of the arc and any of those the arc goes through.
+        PointF point = new PointF();
+        getPoint(1f, point);
+        mMinX = Math.min(0f, point.x);
+        mMaxX = Math.max(0f, point.x);
+        mMinY = Math.min(0f, point.y);
+        mMaxY = Math.max(0f, point.y);
+
+        double lowAngle = Math.min(mStartAngle, mStartAngle + mSweep);
+        double highAngle = Math.max(mStartAngle, mStartAngle + mSweep);
+        for (double quarter = Math.ceil(lowAngle / QUARTER_TURN); quarter * QUARTER_TURN <= highAngle; quarter++) {
+            float x = mCenterX + (mRadius * (float) Math.cos(quarter * QUARTER_TURN));
+            float y = mCenterY + (mRadius * (float) Math.sin(quarter * QUARTER_TURN));
+            mMinX = Math.min(mMinX, x);
+            mMaxX = Math.max(mMaxX, x);
+            mMinY = Math.min(mMinY, y);
+            mMaxY = Math.max(mMaxY, y);
+        }
+    }
+
+    @Override
+    float getLength() {
+        return mRadius * (float) Math.abs(mSweep);
+    }
+
+    @Override
+    void getPoint(float fraction, PointF result) {
+        double angle = mStartAngle + (mSweep * clampFraction(fraction));
+        result.set(mCenterX + (mRadius * (float) Math.cos(angle)), mCenterY + (mRadius * (float) Math.sin(angle)));
+    }
+
+    //Tangent to the circle, turning the same way as the arc
+    @Override
+    void getDirection(float fraction, PointF result) {
+        double angle = mStartAngle + (mSweep * clampFraction(fraction));
+        float turn = Math.signum((float) mSweep);
+        result.set(-turn * (float) Math.sin(angle), turn * (float) Math.cos(angle));
+    }
+
+    @Override
+    float getMinX() {
+        return mMinX;
+    }
+
+    @Override
+    float getMaxX() {
+        return mMaxX;
+    }
+
+    @Override
+    float getMinY() {
+        return mMinY;
+    }
+
+    @Override
+    float getMaxY() {
+        return mMaxY;
+    }
+}
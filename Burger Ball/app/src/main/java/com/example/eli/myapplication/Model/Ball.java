@@ -29,6 +29,8 @@ public class Ball extends Interactable implements Movable {
 
     private float[] mModelMatrix = new float[16];
     private float[] mModelProjectionMatrix = new float[16];
+    private float mLastDisplacementX = 0;
+    private float mLastDisplacementY = 0;
     private float mRadius;
    // private float[] mVelocity = new float[2];
     private PointF mVelocity;
@@ -40,8 +42,13 @@ public class Ball extends Interactable implements Movable {
     private PointF mDisplacementVector = new PointF(0f, 0f);
     private ballStatus ballState;
 
-    //used for collision detection, tracks whether we have advanced this ball yet for the current frame
-    boolean mHasMovedForward;
+    //A stopped ball that has been left alone long enough is put to sleep (see BallEngine.updateSleepState).
+    //Sleeping balls are skipped by collision detection until something comes near them.
+    private boolean mAsleep = false;
+
+    //Index of this ball within the level's balls, assigned at level load.
+    //BallEngine keeps its per-ball data in arrays indexed by this slot.
+    private int mBallSlot = -1;
 
 
     /**
@@ -57,7 +64,7 @@ public class Ball extends Interactable implements Movable {
 
         Matrix.setIdentityM(mModelMatrix, 0);
 
-        mVelocity = velocity;
+        mVelocity = new PointF(velocity.x, velocity.y);
         mRadius = radius;
         ballState = ballStatus.INACTIVE;
 
@@ -70,6 +77,10 @@ public class Ball extends Interactable implements Movable {
     public void draw(float[] mvpMatrix) {
         //Each ball should keep its own copy of the model projection matrix to be drawn with
         super.draw(mModelProjectionMatrix);
+    }
+
+    //Called at the end of every frame the ball is in play
+    public void endFrame() {
         updatePrevAABB();
         currentRotation = (currentRotation + currentSpin) % 360;
     }
@@ -80,14 +91,21 @@ public class Ball extends Interactable implements Movable {
         //Call BallEngine.moveByFrame!
     }
 
+    //The velocity is copied, so the caller can go on reusing newVelocity
     public void setVelocity(PointF newVelocity){
+        mVelocity.set(newVelocity.x, newVelocity.y);
+    }
 
-        System.out.println("setting velocity: " + newVelocity);
-        mVelocity = newVelocity;
+    public void setVelocity(float velocityX, float velocityY){
+        mVelocity.set(velocityX, velocityY);
     }
 
     public float getRadius() { return mRadius; }
 
+    public void setBallSlot(int ballSlot) { mBallSlot = ballSlot; }
+
+    public int getBallSlot() { return mBallSlot; }
+
     public void resetAABB(){
         mMinXCoord = mPrevAABB[0];
         mMaxXCoord = mPrevAABB[1];
@@ -103,6 +121,23 @@ public class Ball extends Interactable implements Movable {
         mPrevAABB[3] = mMaxYCoord;
     }
 
+    //Bounding box at the start of the current step (before the ball was advanced)
+    public float getPrevMinX(){
+        return mPrevAABB[0];
+    }
+
+    public float getPrevMaxX(){
+        return mPrevAABB[1];
+    }
+
+    public float getPrevMinY(){
+        return mPrevAABB[2];
+    }
+
+    public float getPrevMaxY(){
+        return mPrevAABB[3];
+    }
+
     public PointF getPrevCenter(){
         PointF center;
         float xCenter = (mPrevAABB[0] + mPrevAABB[1]) / 2;
@@ -113,6 +148,28 @@ public class Ball extends Interactable implements Movable {
         return center;
     }
 
+    public float getPrevCenterX(){
+        return (mPrevAABB[0] + mPrevAABB[1]) / 2;
+    }
+
+    public float getPrevCenterY(){
+        return (mPrevAABB[2] + mPrevAABB[3]) / 2;
+    }
+
+    //Displacement over the last frame (used to draw the ball in between frames)
+    public void setLastDisplacement(float x, float y){
+        mLastDisplacementX = x;
+        mLastDisplacementY = y;
+    }
+
+    public float getLastDisplacementX(){
+        return mLastDisplacementX;
+    }
+
+    public float getLastDisplacementY(){
+        return mLastDisplacementY;
+    }
+
     public PointF getDisplacementVector(){
         return mDisplacementVector;
     }
@@ -125,17 +182,6 @@ public class Ball extends Interactable implements Movable {
         mDisplacementVector.set(mDisplacementVector.x + additionalDisplacement.x, mDisplacementVector.y + additionalDisplacement.y);
     }
 
-    public void setBallMoved(){
-        mHasMovedForward = true;
-    }
-
-    public boolean hasBallBeenAdvanced(){
-        return mHasMovedForward;
-    }
-
-    public void clearMovedStatus(){
-        mHasMovedForward = false;
-    }
 
 
 
@@ -176,12 +222,24 @@ public class Ball extends Interactable implements Movable {
         return ((ballState == ballStatus.ACTIVE) || (ballState == ballStatus.ROLLING));
     }
 
+    public boolean isBallAsleep() { return mAsleep; }
+
+    //Only stopped balls can sleep
+    public void sleepBall() {
+        mAsleep = isBallStopped();
+    }
+
+    public void wakeBall() {
+        mAsleep = false;
+    }
+
     public ballStatus getBallState() {
         return ballState;
     }
 
     public void activateBall(){
         ballState = ballStatus.ACTIVE;
+        mAsleep = false;
     }
 
     public void stopBall(){
@@ -190,16 +248,22 @@ public class Ball extends Interactable implements Movable {
 
     public void rollingBall() {
         ballState = ballStatus.ROLLING;
+        mAsleep = false;
     }
 
     public void deactivateBall() {
         ballState = ballStatus.INACTIVE;
+        mAsleep = false;
     }
 
     public float[] getModelMatrix(){
         return mModelMatrix;
     }
 
+    public float[] getModelProjectionMatrix(){
+        return mModelProjectionMatrix;
+    }
+
     public void setModelProjectionMatrix(float[] modelProjectionMatrix){
         mModelProjectionMatrix = modelProjectionMatrix;
     }
@@ -214,7 +278,7 @@ public class Ball extends Interactable implements Movable {
 
     public void updateVelocityWithNewVelocity() {
         setVelocity(mNewVelocity);
-        mNewVelocity = new PointF(0f,0f);
+        mNewVelocity.set(0f,0f);
     }
 
     public PointF getNewVelocity() {
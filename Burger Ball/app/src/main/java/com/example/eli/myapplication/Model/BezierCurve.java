@@ -0,0 +1,239 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+/**
+ * A cubic Bézier curve (quadratic curves are turned into the same cubic, see quadratic()).
+ *
+ * A Bézier curve's parameter doesn't move along it at a constant speed, so an arc length table is built once,
+ * giving the parameter at evenly spaced fractions of the curve's length, along with how fast the parameter changes
+ * there (one over the curve's speed). Looking up a point is then one table lookup (and cubic Hermite interpolation,
+ * which keeps the speed even between table entries, not just at them), and one evaluation of the curve. The
+ * direction comes straight from the curve's derivative at that parameter.
+ *
+ * The bounds are exact: the curve is furthest out in x (or y) at its ends, or where that coordinate of the
+ * derivative is 0, which is a quadratic in the parameter.
+ */
+class BezierCurve extends PathCurve {
+
+    //Number of pieces the arc length table splits the curve into, and the number of straight pieces used to measure it
+    private static final int ARC_LENGTH_SAMPLES = 128;
+    private static final int MEASURE_SAMPLES = 1024;
+
+    //Control points (the first one is always the start, (0, 0))
+    private final float mControl1X;
+    private final float mControl1Y;
+    private final float mControl2X;
+    private final float mControl2Y;
+    private final float mEndX;
+    private final float mEndY;
+
+    private final float mLength;
+
+    private final float mMinX;
+    private final float mMaxX;
+    private final float mMinY;
+    private final float mMaxY;
+
+    //Curve parameter at every 1 / ARC_LENGTH_SAMPLES of the curve's length, and how much it changes over one of those
+    // pieces at that point (if the curve kept the speed it has there)
+    private final float[] mParameters = new float[ARC_LENGTH_SAMPLES + 1];
+    private final float[] mParameterSlopes = new float[ARC_LENGTH_SAMPLES + 1];
+
+    BezierCurve(float control1X, float control1Y, float control2X, float control2Y, float endX, float endY) {
+        mControl1X = control1X;
+        mControl1Y = control1Y;
+        mControl2X = control2X;
+        mControl2Y = control2Y;
+        mEndX = endX;
+        mEndY = endY;
+
+        //Length of the curve up to every sample, measured along straight pieces
+        float[] lengths = new float[MEASURE_SAMPLES + 1];
+        PointF point = new PointF();
+        float prevX = 0f;
+        float prevY = 0f;
+        for (int index = 1; index <= MEASURE_SAMPLES; index++) {
+            getCurvePoint((float) index / MEASURE_SAMPLES, point);
+            lengths[index] = lengths[index - 1] + PointF.length(point.x - prevX, point.y - prevY);
+            prevX = point.x;
+            prevY = point.y;
+        }
+        mLength = lengths[MEASURE_SAMPLES];
+
+        //Turn it around, to find the parameter at evenly spaced lengths
+        int sample = 0;
+        for (int index = 0; index <= ARC_LENGTH_SAMPLES; index++) {
+            float length = mLength * index / ARC_LENGTH_SAMPLES;
+            while ((sample < MEASURE_SAMPLES - 1) && (lengths[sample + 1] < length)) {
+                sample++;
+            }
+
+            float sampleLength = lengths[sample + 1] - lengths[sample];
+            float sampleFraction = (sampleLength > 0) ? ((length - lengths[sample]) / sampleLength) : 0f;
+            mParameters[index] = (sample + Math.max(0f, Math.min(1f, sampleFraction))) / MEASURE_SAMPLES;
+        }
+
+        //How fast the parameter changes at each entry. Where the curve stops (a control point on an end point), use
+        // the slope between neighbouring entries instead.
+        for (int index = 0; index <= ARC_LENGTH_SAMPLES; index++) {
+            getDerivative(mParameters[index], point);
+            float speed = point.length();
+            if (speed > 0) {
+                mParameterSlopes[index] = (mLength / ARC_LENGTH_SAMPLES) / speed;
+            } else {
+                int before = Math.max(0, index - 1);
+                int after = Math.min(ARC_LENGTH_SAMPLES, index + 1);
+                mParameterSlopes[index] = (mParameters[after] - mParameters[before]) / (after - before);
+            }
+        }
+
+        //Start with the ends, and widen to wherever the derivative of x or y is 0 along the curve
+        float minX = Math.min(0f, mEndX);
+        float maxX = Math.max(0f, mEndX);
+        float minY = Math.min(0f, mEndY);
+        float maxY = Math.max(0f, mEndY);
+        double[] extremes = new double[4];
+        int extremeCount = findTurningPoints(mControl1X, mControl2X, mEndX, extremes, 0);
+        extremeCount = findTurningPoints(mControl1Y, mControl2Y, mEndY, extremes, extremeCount);
+        for (int index = 0; index < extremeCount; index++) {
+            getCurvePoint((float) extremes[index], point);
+            minX = Math.min(minX, point.x);
+            maxX = Math.max(maxX, point.x);
+            minY = Math.min(minY, point.y);
+            maxY = Math.max(maxY, point.y);
+        }
+        mMinX = minX;
+        mMaxX = maxX;
+        mMinY = minY;
+        mMaxY = maxY;
+    }
+
+    /**
+     * Add every parameter strictly between 0 and 1 where one coordinate of the curve stops changing.
+     * With d0, d1, d2 the differences between consecutive control points, the derivative is
+     * 3 * ((d0 - 2 * d1 + d2) * t^2 + 2 * (d1 - d0) * t + d0).
+     * Returns the new number of parameters in roots.
+     */
+    private static int findTurningPoints(float control1, float control2, float end, double[] roots, int count) {
+        double d0 = control1;
+        double d1 = control2 - control1;
+        double d2 = end - control2;
+        double a = d0 - (2 * d1) + d2;
+        double b = 2 * (d1 - d0);
+        double c = d0;
+
+        //Nearly linear derivative (a quadratic curve, or a cubic with evenly spaced control points)
+        if (Math.abs(a) < 1e-9) {
+            if (b != 0) {
+                count = addRoot(-c / b, roots, count);
+            }
+            return count;
+        }
+
+        double discriminant = (b * b) - (4 * a * c);
+        if (discriminant < 0) {
+            return count;
+        }
+        double root = Math.sqrt(discriminant);
+        count = addRoot((-b + root) / (2 * a), roots, count);
+        count = addRoot((-b - root) / (2 * a), roots, count);
+        return count;
+    }
+
+    private static int addRoot(double t, double[] roots, int count) {
+        if ((t > 0) && (t < 1)) {
+            roots[count] = t;
+            count++;
+        }
+        return count;
+    }
+
+    //A quadratic curve is the cubic curve with its control points 2/3 of the way to the quadratic's control point
+    static BezierCurve quadratic(float controlX, float controlY, float endX, float endY) {
+        return new BezierCurve(controlX * 2 / 3, controlY * 2 / 3,
+                endX + ((controlX - endX) * 2 / 3), endY + ((controlY - endY) * 2 / 3), endX, endY);
+    }
+
+    @Override
+    float getLength() {
+        return mLength;
+    }
+
+    @Override
+    void getPoint(float fraction, PointF result) {
+        getCurvePoint(getParameter(fraction), result);
+    }
+
+    @Override
+    void getDirection(float fraction, PointF result) {
+        getDerivative(getParameter(fraction), result);
+        float directionX = result.x;
+        float directionY = result.y;
+        float directionLength = PointF.length(directionX, directionY);
+
+        //The derivative can be 0 where a control point sits on an end point, so head straight for the end instead
+        if (directionLength == 0) {
+            directionX = mEndX;
+            directionY = mEndY;
+            directionLength = PointF.length(directionX, directionY);
+        }
+
+        if (directionLength == 0) {
+            result.set(0f, 0f);
+        } else {
+            result.set(directionX / directionLength, directionY / directionLength);
+        }
+    }
+
+    @Override
+    float getMinX() {
+        return mMinX;
+    }
+
+    @Override
+    float getMaxX() {
+        return mMaxX;
+    }
+
+    @Override
+    float getMinY() {
+        return mMinY;
+    }
+
+    @Override
+    float getMaxY() {
+        return mMaxY;
+    }
+
+    //Curve parameter a fraction of the curve's length along it
+    private float getParameter(float fraction) {
+        float sample = clampFraction(fraction) * ARC_LENGTH_SAMPLES;
+        int index = Math.min((int) sample, ARC_LENGTH_SAMPLES - 1);
+        float u = sample - index;
+        float u2 = u * u;
+        float u3 = u2 * u;
+
+        //Cubic Hermite basis
+        float parameter = (((2 * u3) - (3 * u2) + 1) * mParameters[index])
+                + ((u3 - (2 * u2) + u) * mParameterSlopes[index])
+                + (((-2 * u3) + (3 * u2)) * mParameters[index + 1])
+                + ((u3 - u2) * mParameterSlopes[index + 1]);
+        return clampFraction(parameter);
+    }
+
+    private void getDerivative(float t, PointF result) {
+        float mt = 1 - t;
+        result.set((3 * mt * mt * mControl1X) + (6 * mt * t * (mControl2X - mControl1X)) + (3 * t * t * (mEndX - mControl2X)),
+                (3 * mt * mt * mControl1Y) + (6 * mt * t * (mControl2Y - mControl1Y)) + (3 * t * t * (mEndY - mControl2Y)));
+    }
+
+    private void getCurvePoint(float t, PointF result) {
+        float mt = 1 - t;
+        float weight1 = 3 * mt * mt * t;
+        float weight2 = 3 * mt * t * t;
+        float weight3 = t * t * t;
+        result.set((weight1 * mControl1X) + (weight2 * mControl2X) + (weight3 * mEndX),
+                (weight1 * mControl1Y) + (weight2 * mControl2Y) + (weight3 * mEndY));
+    }
+}
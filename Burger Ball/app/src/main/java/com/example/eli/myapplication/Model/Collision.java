@@ -4,16 +4,22 @@ import android.graphics.PointF;
 
 /**
  * Created by Eli on 5/2/2016.
+ *
+ * Collisions are pooled (see CollisionBuffer), so the same object is reused for different
+ * collisions. Anything that needs a collision to outlive the current step should keep a copy.
  */
 public class Collision {
     private float mTime; //percent time into the frame that collision occurred
-    private PointF mBoundaryAxis; //normalized boundary axis of the obstacle where collision occurred
+    private PointF mBoundaryAxis = new PointF(); //normalized boundary axis of the obstacle where collision occurred
     private Interactable mObstacle; //the obstacle that was struck
     private Ball mBall;
 
-    public Collision(float time, PointF boundaryAxis, Interactable obstacle, Ball ball){
+    public Collision(){
+    }
+
+    public void set(float time, float boundaryAxisX, float boundaryAxisY, Interactable obstacle, Ball ball){
         mTime = time;
-        mBoundaryAxis = boundaryAxis;
+        mBoundaryAxis.set(boundaryAxisX, boundaryAxisY);
         mObstacle = obstacle;
         mBall = ball;
 
@@ -23,6 +29,10 @@ public class Collision {
         }
     }
 
+    public void copyFrom(Collision other){
+        set(other.mTime, other.mBoundaryAxis.x, other.mBoundaryAxis.y, other.mObstacle, other.mBall);
+    }
+
     public float getTime(){
         return mTime;
     }
@@ -85,7 +85,8 @@ public class Drawable {
             0.1f, -0.1f, 0.0f,   // bottom right
             0.1f,  0.1f, 0.0f }; // top right
 
-    private final short drawOrder[] = { 0, 1, 2, 0, 2, 3 }; // order to draw vertices
+    //order to draw vertices: a fan of triangles from the first vertex ({ 0, 1, 2, 0, 2, 3 } for a quad)
+    private final short drawOrder[];
 
     private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
 
@@ -117,7 +118,8 @@ public class Drawable {
     public Drawable(float[] borderCoords, int texturePointer) {
 
         calculateTextureCoefficients(borderCoords);
-        setTextureMappingCoords();
+        setTextureMappingCoords(borderCoords);
+        drawOrder = getFanDrawOrder(borderCoords.length / COORDS_PER_VERTEX);
 
         /*
         if (activityContext != null) {
@@ -262,6 +264,18 @@ public class Drawable {
         vertexBuffer.position(0);
     }
 
+    /**
+     * Same as setCoords, refilling the existing vertex buffer instead of allocating a new one.
+     * Only for objects whose coords are only ever changed on the thread that draws them, with the same vertex count.
+     */
+    public void updateCoords(float[] newCoords){
+        mBorderCoords = newCoords;
+
+        vertexBuffer.clear();
+        vertexBuffer.put(mBorderCoords);
+        vertexBuffer.position(0);
+    }
+
     public float[] getCoords() {
         return mBorderCoords;
     }
@@ -321,16 +335,49 @@ public class Drawable {
         }
     }
 
-    private void setTextureMappingCoords(){
-        texture = new float[]{
-                // Mapping coordinates for the vertices (y,x)
-                0.0f, 0.0f,     // bottom left     (V2)
-                1.0f * mYCoefficient, 0.0f,     // top left  (V1)
-                1.0f * mYCoefficient, 1.0f * mXCoefficient,     // top right    (V4)
-                0.0f, 1.0f * mXCoefficient      // bottom right (V3)
-        };
+    private void setTextureMappingCoords(float[] borderCoords){
+        int vertexCount = borderCoords.length / COORDS_PER_VERTEX;
+        if (vertexCount == 4) {
+            texture = new float[]{
+                    // Mapping coordinates for the vertices (y,x)
+                    0.0f, 0.0f,     // bottom left     (V2)
+                    1.0f * mYCoefficient, 0.0f,     // top left  (V1)
+                    1.0f * mYCoefficient, 1.0f * mXCoefficient,     // top right    (V4)
+                    0.0f, 1.0f * mXCoefficient      // bottom right (V3)
+            };
+            return;
+        }
+
+        //Any other shape is mapped by where each vertex is in its bounding box, the same way the quad's corners are
+        float minX = GameState.LARGE_NUMBER;
+        float maxX = GameState.SMALL_NUMBER;
+        float minY = GameState.LARGE_NUMBER;
+        float maxY = GameState.SMALL_NUMBER;
+        for (int index = 0; index < borderCoords.length; index += COORDS_PER_VERTEX) {
+            minX = Math.min(minX, borderCoords[index]);
+            maxX = Math.max(maxX, borderCoords[index]);
+            minY = Math.min(minY, borderCoords[index + 1]);
+            maxY = Math.max(maxY, borderCoords[index + 1]);
+        }
 
+        texture = new float[vertexCount * 2];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            float x = borderCoords[vertex * COORDS_PER_VERTEX];
+            float y = borderCoords[(vertex * COORDS_PER_VERTEX) + 1];
+            texture[vertex * 2] = ((maxY - y) / (maxY - minY)) * mYCoefficient;
+            texture[(vertex * 2) + 1] = ((x - minX) / (maxX - minX)) * mXCoefficient;
+        }
+    }
 
+    //Only right for convex shapes, which is all the collision testing handles anyway
+    private static short[] getFanDrawOrder(int vertexCount){
+        short[] order = new short[(vertexCount - 2) * 3];
+        for (int triangle = 0; triangle < vertexCount - 2; triangle++) {
+            order[triangle * 3] = 0;
+            order[(triangle * 3) + 1] = (short) (triangle + 1);
+            order[(triangle * 3) + 2] = (short) (triangle + 2);
+        }
+        return order;
     }
 
     protected void updateTexture(int newTexture){
@@ -30,8 +30,9 @@ public class Interactable extends Drawable {
     protected float mMinYCoord;
     protected float mMaxYCoord;
 
-    //Coordinates represented as an intuitive PointF array
-    protected PointF[] m2dCoordArray;
+    //Position of this object in the level's collection of interactable objects.
+    //Assigned once by LevelInitialization, and used to index per-object collision bookkeeping.
+    private int mInteractableId = -1;
 
     /**
      * Sets up the drawing object data for use in an OpenGL ES context.
@@ -40,31 +41,31 @@ public class Interactable extends Drawable {
 
         super(borderCoords,texturePointer);
 
-        set2dCoordArrayFromFullCoords();
-        setupAABB();
+        setupAABB(borderCoords);
 
     }
 
-    protected void setupAABB(){
+    //borderCoords holds x, y, z per vertex
+    protected void setupAABB(float[] borderCoords){
         float currentXMax = 0.0f;
         float currentYMax = 0.0f;
         float currentXMin = GameState.FULL_HEIGHT;
         float currentYMin = GameState.FULL_HEIGHT;
 
         //get AABB for X & Y coordinates
-        for(int i=0;i < m2dCoordArray.length; i++){
+        for(int i=0;i < borderCoords.length; i += COORDS_PER_VERTEX){
 
             //for x
-            if (m2dCoordArray[i].x > currentXMax)
-                currentXMax = m2dCoordArray[i].x;
-            if (m2dCoordArray[i].x < currentXMin)
-                currentXMin = m2dCoordArray[i].x;
+            if (borderCoords[i] > currentXMax)
+                currentXMax = borderCoords[i];
+            if (borderCoords[i] < currentXMin)
+                currentXMin = borderCoords[i];
 
             //for y
-            if (m2dCoordArray[i].y > currentYMax)
-                currentYMax = m2dCoordArray[i].y;
-            if (m2dCoordArray[i].y < currentYMin)
-                currentYMin = m2dCoordArray[i].y;
+            if (borderCoords[i + 1] > currentYMax)
+                currentYMax = borderCoords[i + 1];
+            if (borderCoords[i + 1] < currentYMin)
+                currentYMin = borderCoords[i + 1];
         }
 
         mMinXCoord = currentXMin;
@@ -83,22 +84,6 @@ public class Interactable extends Drawable {
         mMaxYCoord = mMaxYCoord + yChange;
     }
 
-    public PointF[] get2dCoordArray(){
-        return m2dCoordArray;
-    }
-
-    private void set2dCoordArrayFromFullCoords(){
-        int numberOfCoords = mBorderCoords.length / 3;
-        PointF[] coords = new PointF[numberOfCoords];
-
-        for (int i = 0; i < numberOfCoords; i++){
-            PointF currentCoord = new PointF(mBorderCoords[i*3], mBorderCoords[(i*3) + 1]);
-            coords[i] = currentCoord;
-        }
-
-        m2dCoordArray = coords;
-    }
-
     public float getMinX(){
         return mMinXCoord;
     }
@@ -115,6 +100,14 @@ public class Interactable extends Drawable {
         return mMaxYCoord;
     }
 
+    public void setInteractableId(int interactableId){
+        mInteractableId = interactableId;
+    }
+
+    public int getInteractableId(){
+        return mInteractableId;
+    }
+
     //TODO Move this to just Ball class?
     public PointF getCenter(){
 
@@ -127,5 +120,14 @@ public class Interactable extends Drawable {
         return center;
     }
 
+    //Components of getCenter, for callers that shouldn't allocate a PointF
+    public float getCenterX(){
+        return (mMaxXCoord + mMinXCoord) / 2;
+    }
+
+    public float getCenterY(){
+        return (mMaxYCoord + mMinYCoord) / 2;
+    }
+
 
 }
\ No newline at end of file
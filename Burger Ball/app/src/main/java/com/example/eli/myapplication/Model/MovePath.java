@@ -2,55 +2,222 @@ package com.example.eli.myapplication.Model;
 
 import android.graphics.PointF;
 
-import java.util.ArrayList;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.Arrays;
 
 /**
  * Created by Eli on 9/10/2016.
+ *
+ * A repeating path made of single movements, one after another. Each movement lasts its duration plus one frames
+ * (the way the original frame counter played them), and the path starts over from its first movement once the
+ * last one is done. A path has to end where it started (see isClosed), so starting over never makes the obstacle
+ * jump, and everywhere it goes is inside the same bounds every cycle. A path with no movements stays still.
+ *
+ * Where each movement starts (frame and offset) is worked out as movements are added, so the offset at any
+ * point of the path is a binary search over the movements, rather than something built up frame by frame.
+ *
+ * Besides straight movements (SingleMovement), a path can have curved movements: Bézier curves and circular arcs.
+ * The obstacle moves along a curve at a constant speed, and the curve's position and direction at any point are
+ * worked out directly (see PathCurve), so curved movements cost no more per frame than straight ones.
  */
 public class MovePath {
 
-    //This collection of single movements determines how the path proceeds
-    ArrayList<SingleMovement> path = new ArrayList();
+    //Movements, in order. Curved movements have a curve, and no velocity.
+    private PointF[] mVelocities = new PointF[4];
+    private PathCurve[] mCurves = new PathCurve[4];
+    private int[] mStartFrames = new int[4];
+    private float[] mStartOffsetX = new float[4];
+    private float[] mStartOffsetY = new float[4];
+    private int mMovementCount = 0;
+
+    //Length of one cycle, and the offset at the end of it (before starting over)
+    private int mCycleFrames = 0;
+    private float mEndOffsetX = 0f;
+    private float mEndOffsetY = 0f;
+
+    //How far the end of a path can be from its start and still count as closed (rounding, over many movements)
+    private static final float CLOSED_TOLERANCE = 0.01f;
 
-    //These counters keep track of where we currently are on the path
-    int currentIndex; //Index determines which single movement we are executing
-    int currentDuration;  //Duration determines how far on the single movement we are
+    //Range of offsets over the whole cycle. Offsets change linearly during a straight movement, so its extremes are
+    // at its start or end. Curves give their own bounds.
+    private float mMinOffsetX = 0f;
+    private float mMaxOffsetX = 0f;
+    private float mMinOffsetY = 0f;
+    private float mMaxOffsetY = 0f;
 
     public MovePath(){
-        currentIndex=0;
-        currentDuration = 0;
     }
 
     public void addMovement(SingleMovement singleMovement){
-        path.add(singleMovement);
+        PointF velocity = singleMovement.getVelocity();
+        int frames = singleMovement.getDuration() + 1;
+
+        addMovement(velocity, null, frames);
+
+        mEndOffsetX = mEndOffsetX + (velocity.x * frames * GameState.FRAME_SIZE);
+        mEndOffsetY = mEndOffsetY + (velocity.y * frames * GameState.FRAME_SIZE);
+
+        mMinOffsetX = Math.min(mMinOffsetX, mEndOffsetX);
+        mMaxOffsetX = Math.max(mMaxOffsetX, mEndOffsetX);
+        mMinOffsetY = Math.min(mMinOffsetY, mEndOffsetY);
+        mMaxOffsetY = Math.max(mMaxOffsetY, mEndOffsetY);
+    }
+
+    /**
+     * Add a quadratic Bézier curve. Points are relative to where the movement starts, and, like SingleMovement,
+     * the movement lasts its duration plus one frames.
+     */
+    public void addQuadraticCurve(PointF control, PointF end, int duration){
+        addCurve(BezierCurve.quadratic(control.x, control.y, end.x, end.y), duration + 1);
+    }
+
+    /**
+     * Add a cubic Bézier curve. Points are relative to where the movement starts, and, like SingleMovement,
+     * the movement lasts its duration plus one frames.
+     */
+    public void addCubicCurve(PointF control1, PointF control2, PointF end, int duration){
+        addCurve(new BezierCurve(control1.x, control1.y, control2.x, control2.y, end.x, end.y), duration + 1);
+    }
+
+    /**
+     * Add part of a circle around center (relative to where the movement starts), going sweepDegrees around it
+     * (positive is counterclockwise). Like SingleMovement, the movement lasts its duration plus one frames.
+     */
+    public void addArc(PointF center, float sweepDegrees, int duration){
+        addCurve(new ArcCurve(center.x, center.y, sweepDegrees), duration + 1);
+    }
+
+    private void addCurve(PathCurve curve, int frames){
+        addMovement(null, curve, frames);
+
+        mMinOffsetX = Math.min(mMinOffsetX, mEndOffsetX + curve.getMinX());
+        mMaxOffsetX = Math.max(mMaxOffsetX, mEndOffsetX + curve.getMaxX());
+        mMinOffsetY = Math.min(mMinOffsetY, mEndOffsetY + curve.getMinY());
+        mMaxOffsetY = Math.max(mMaxOffsetY, mEndOffsetY + curve.getMaxY());
+
+        PointF end = new PointF();
+        curve.getPoint(1f, end);
+        mEndOffsetX = mEndOffsetX + end.x;
+        mEndOffsetY = mEndOffsetY + end.y;
+    }
+
+    //Add a movement to the tables, starting at the current end of the path
+    private void addMovement(PointF velocity, PathCurve curve, int frames){
+        if (mMovementCount == mVelocities.length) {
+            int capacity = mVelocities.length * 2;
+            mVelocities = Arrays.copyOf(mVelocities, capacity);
+            mCurves = Arrays.copyOf(mCurves, capacity);
+            mStartFrames = Arrays.copyOf(mStartFrames, capacity);
+            mStartOffsetX = Arrays.copyOf(mStartOffsetX, capacity);
+            mStartOffsetY = Arrays.copyOf(mStartOffsetY, capacity);
+        }
+
+        mVelocities[mMovementCount] = velocity;
+        mCurves[mMovementCount] = curve;
+        mStartFrames[mMovementCount] = mCycleFrames;
+        mStartOffsetX[mMovementCount] = mEndOffsetX;
+        mStartOffsetY[mMovementCount] = mEndOffsetY;
+        mMovementCount++;
+
+        mCycleFrames = mCycleFrames + frames;
     }
 
-    public ArrayList<SingleMovement> getPath(){
-        return path;
+    //Number of frames before the path starts over (0 if it has no movements)
+    public int getCycleFrames(){
+        return mCycleFrames;
     }
 
-    public void incrementDuration(){
-        int currentMovementDuration = path.get(currentIndex).getDuration();
+    //True if the path ends where it started, so it can repeat without the obstacle jumping back
+    public boolean isClosed(){
+        return (Math.abs(mEndOffsetX) <= CLOSED_TOLERANCE) && (Math.abs(mEndOffsetY) <= CLOSED_TOLERANCE);
+    }
+
+    //Furthest the path ever goes from where it starts, in each direction
+    public float getMinOffsetX(){
+        return mMinOffsetX;
+    }
 
-        if (currentDuration < currentMovementDuration){
-            currentDuration++;
-        } else if (currentDuration >= currentMovementDuration) {
-            currentDuration = 0;
-            currentIndex = ((currentIndex + 1) % path.size());
+    public float getMaxOffsetX(){
+        return mMaxOffsetX;
+    }
+
+    public float getMinOffsetY(){
+        return mMinOffsetY;
+    }
+
+    public float getMaxOffsetY(){
+        return mMaxOffsetY;
+    }
+
+    /**
+     * Velocity frameTime into a frame of the path (frames past the end of the cycle wrap around).
+     * Straight movements have the same velocity the whole way. Curved ones head along the curve, at the speed
+     * that gets them to the end of it on time.
+     */
+    public void getVelocity(int frame, float frameTime, PointF result){
+        if (mCycleFrames == 0) {
+            result.set(0f, 0f);
+            return;
         }
+
+        int cycleFrame = frame % mCycleFrames;
+        int movement = findMovement(cycleFrame);
+
+        PathCurve curve = mCurves[movement];
+        if (curve == null) {
+            PointF velocity = mVelocities[movement];
+            result.set(velocity.x, velocity.y);
+            return;
+        }
+
+        float duration = getMovementFrames(movement) * GameState.FRAME_SIZE;
+        float time = ((cycleFrame - mStartFrames[movement]) * GameState.FRAME_SIZE) + frameTime;
+        float speed = curve.getLength() / duration;
+        curve.getDirection(time / duration, result);
+        result.set(result.x * speed, result.y * speed);
     }
 
-    public PointF getCurrentVelocity(){
-        return path.get(currentIndex).getVelocity();
+    /**
+     * Offset from the start of the path, frameTime into a frame of the path (frames past the end of the cycle
+     * wrap around). The velocity of a straight movement stays the same for the whole frame, even if frameTime runs
+     * slightly past its end. A curved movement stops at the end of its curve.
+     */
+    public void getOffset(int frame, float frameTime, PointF result){
+        if (mCycleFrames == 0) {
+            result.set(0f, 0f);
+            return;
+        }
+
+        int cycleFrame = frame % mCycleFrames;
+        int movement = findMovement(cycleFrame);
+
+        float time = ((cycleFrame - mStartFrames[movement]) * GameState.FRAME_SIZE) + frameTime;
+
+        PathCurve curve = mCurves[movement];
+        if (curve == null) {
+            PointF velocity = mVelocities[movement];
+            result.set(mStartOffsetX[movement] + (velocity.x * time), mStartOffsetY[movement] + (velocity.y * time));
+            return;
+        }
+
+        curve.getPoint(time / (getMovementFrames(movement) * GameState.FRAME_SIZE), result);
+        result.set(mStartOffsetX[movement] + result.x, mStartOffsetY[movement] + result.y);
     }
 
-    public boolean isAtBeginning() {
-        return ((currentDuration == 0) && (currentIndex == 0));
+    private int getMovementFrames(int movement){
+        int endFrame = (movement + 1 < mMovementCount) ? mStartFrames[movement + 1] : mCycleFrames;
+        return endFrame - mStartFrames[movement];
     }
 
-    public String getStatus() {
-        String status = "Duration: " + currentDuration + " / " + path.get(currentIndex).getDuration();
-        status = status + "| Index: " + currentIndex + " / " + path.size();
-        return status;
+    //Index of the movement playing during a frame of the cycle
+    private int findMovement(int cycleFrame){
+        int index = Arrays.binarySearch(mStartFrames, 0, mMovementCount, cycleFrame);
+
+        //Not the first frame of a movement, so it's part of the one before the insertion point
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index;
     }
 }
@@ -10,116 +10,153 @@ import com.example.eli.myapplication.Resources.GameState;
 public class MovingObstacle extends Obstacle implements Movable {
 
     private MovePath path;
-    private PointF mVelocity;
-    private float[] mPrevAABB = new float[4];
-    private PointF[] tempCoords;
-    private PointF[] baseCoords;
+
+    //Velocity along the path during the current step
+    private PointF mVelocity = new PointF();
+
+    //Where the obstacle is on its path: the frame of the path, and how far into that frame it has moved.
+    //The temp time is where it will be at the end of the current step.
+    private int mPathFrame = 0;
+    private float mFrameTime = 0f;
+    private float mTempFrameTime = 0f;
+
+    //How far the obstacle has moved from where it was created (its base shape), now and at the end of the current step
+    private PointF mOffset = new PointF();
+    private PointF mTempOffset = new PointF();
+
+    //Drawn coords (x, y, z per vertex), refilled from the obstacle's geometry by interpolateDrawCoords
+    private float[] mDrawCoords;
+
+    //Offset at the end of the last two frames, used to draw the obstacle in between them
+    private float mPrevFrameOffsetX = 0;
+    private float mPrevFrameOffsetY = 0;
+    private float mFrameOffsetX = 0;
+    private float mFrameOffsetY = 0;
 
     public MovingObstacle(float[] borderCoords, int texturePointer, MovePath path) {
         // initialize vertex byte buffer for shape coordinates
         super(borderCoords, texturePointer);
+        if (!path.isClosed()) {
+            throw new IllegalArgumentException("Moving obstacle paths must end where they start");
+        }
         setType(GameState.INTERACTABLE_MOVING_OBSTACLE);
         this.path = path;
-        updatePrevAABB();
-        resetTempCoords();
-        baseCoords = get2dCoordArray().clone();
-        mVelocity = path.getCurrentVelocity();
+        mDrawCoords = new float[borderCoords.length];
+        path.getVelocity(mPathFrame, 0f, mVelocity);
 
     }
 
+    //Move on to the next frame of the path (starting over at the end of it)
     public void moveObstacle(){
-        // increment path counter
-        path.incrementDuration();
-        mVelocity = path.getCurrentVelocity();
-
-        //Every full cycle reset to original coords to prevent 'slippage'
-        if (path.isAtBeginning()) {
-            set2dCoordArray(baseCoords);
-            setupAABB();
+        mPathFrame++;
+        if (mPathFrame >= path.getCycleFrames()) {
+            mPathFrame = 0;
         }
+        mFrameTime = 0f;
+        mTempFrameTime = 0f;
+        path.getVelocity(mPathFrame, 0f, mVelocity);
 
-        //transpose back to openGL coords
-        float[] fullCoords = getFullCoordsFrom2dCoordArray();
-        setCoords(fullCoords);
+        //Taken straight from the path, so nothing builds up from one frame to the next
+        path.getOffset(mPathFrame, 0f, mOffset);
+        mTempOffset.set(mOffset.x, mOffset.y);
+        updateAABB();
+
+        //The drawn coords are set separately, by interpolateDrawCoords
 
     }
 
-    private void update2dCoordArray(float timeStep){
+    //The AABB always follows the current offset
+    private void updateAABB(){
+        mMinXCoord = getBaseMinX() + mOffset.x;
+        mMaxXCoord = getBaseMaxX() + mOffset.x;
+        mMinYCoord = getBaseMinY() + mOffset.y;
+        mMaxYCoord = getBaseMaxY() + mOffset.y;
+    }
 
-        //Update actual coords
-        PointF[] coords = get2dCoordArray();
-        coords = increment2dCoordArray(coords, timeStep);
-        set2dCoordArray(coords);
+    private void updateTempAABB(){
+        mMinXCoord = getBaseMinX() + mTempOffset.x;
+        mMaxXCoord = getBaseMaxX() + mTempOffset.x;
+        mMinYCoord = getBaseMinY() + mTempOffset.y;
+        mMaxYCoord = getBaseMaxY() + mTempOffset.y;
+    }
 
-        //Update temp coords
-        setTempCoordArray(coords.clone());
+    /**
+     * Bounds of everywhere the obstacle goes over its whole path. The path repeats, so these never change,
+     * and the broadphase can treat the obstacle as if it were static.
+     */
+    public float getSweptMinX(){
+        return getBaseMinX() + path.getMinOffsetX();
     }
 
-    private PointF[] increment2dCoordArray(PointF[] coords, float timeStep){
+    public float getSweptMaxX(){
+        return getBaseMaxX() + path.getMaxOffsetX();
+    }
 
-        for (int i = 0; i < coords.length; i++){
-            PointF curCoordinate = coords[i];
-            PointF newCoordinate = new PointF(curCoordinate.x + (mVelocity.x * timeStep), curCoordinate.y + (mVelocity.y * timeStep));
-            coords[i] = newCoordinate;
-        }
+    public float getSweptMinY(){
+        return getBaseMinY() + path.getMinOffsetY();
+    }
 
-        return coords;
+    public float getSweptMaxY(){
+        return getBaseMaxY() + path.getMaxOffsetY();
     }
 
-    private void set2dCoordArray(PointF[] newCoords){
-        m2dCoordArray = newCoords;
+    //Called at the end of every frame
+    public void endFrame(){
+        moveObstacle();
+
+        mPrevFrameOffsetX = mFrameOffsetX;
+        mPrevFrameOffsetY = mFrameOffsetY;
+        mFrameOffsetX = getOffsetX();
+        mFrameOffsetY = getOffsetY();
     }
 
-    private void setTempCoordArray(PointF[] newCoords) { tempCoords = newCoords; }
+    public float getPrevFrameOffsetX() { return mPrevFrameOffsetX; }
 
-    private float[] getFullCoordsFrom2dCoordArray(){
-        PointF[] coords = get2dCoordArray();
-        float[] fullCoords= new float[coords.length * 3];
+    public float getPrevFrameOffsetY() { return mPrevFrameOffsetY; }
 
-        //'Full coords' is a single array of floats, with slots for x,y,and z.
-        //For an object with 4 points, this would be float[12].
-        for (int i = 0; i < fullCoords.length; i=i+3){
-            int arrayIndex = i / 3;
-            fullCoords[i] = coords[arrayIndex].x;
-            fullCoords[i+1] = coords[arrayIndex].y;
-            fullCoords[i+2] = 0f;
-        }
+    public float getFrameOffsetX() { return mFrameOffsetX; }
 
-        return fullCoords;
-    }
+    public float getFrameOffsetY() { return mFrameOffsetY; }
 
-    @Override
-    public void draw(float[] mvpMatrix){
+    /**
+     * Set the drawn coords somewhere between two offsets (usually where the obstacle was at the end of the last two frames).
+     * Only the offsets are passed in, so this can be called while the obstacle itself is being moved on another thread.
+     * PARAMS:
+     *   interpolation - 0 for the previous offset, 1 for the latest offset
+     */
+    public void interpolateDrawCoords(float prevOffsetX, float prevOffsetY, float offsetX, float offsetY, float interpolation){
+        float shiftX = prevOffsetX + ((offsetX - prevOffsetX) * interpolation);
+        float shiftY = prevOffsetY + ((offsetY - prevOffsetY) * interpolation);
 
-        moveObstacle();
-        super.draw(mvpMatrix);
-        updatePrevAABB();
+        mGeometry.getDrawCoords(mGeometryRecord, shiftX, shiftY, mDrawCoords);
+        updateCoords(mDrawCoords);
     }
 
     /////*********************
 
-    public void moveByFrame(float percentOfFrame){
-        updateAABB(percentOfFrame * mVelocity.x, percentOfFrame* mVelocity.y);
-        update2dCoordArray(percentOfFrame);
+    //Move the obstacle (and its temp position) timeStep further into the current frame
+    public void moveByFrame(float timeStep){
+        mFrameTime = mFrameTime + timeStep;
+        mTempFrameTime = mFrameTime;
+        path.getOffset(mPathFrame, mFrameTime, mOffset);
+        mTempOffset.set(mOffset.x, mOffset.y);
+        updateAABB();
     }
 
-    public void moveTempCoordsByFrame(float percentOfFrame) {
-        updateAABB(percentOfFrame * mVelocity.x, percentOfFrame* mVelocity.y);
-        incrementTempCoords(percentOfFrame);
+    //Set the temp position to timeStep past the current one. The AABB is moved there too, for collision testing.
+    //The velocity is taken from the middle of the step (it only changes during curved movements).
+    public void moveTempCoordsByFrame(float timeStep) {
+        mTempFrameTime = mFrameTime + timeStep;
+        path.getOffset(mPathFrame, mTempFrameTime, mTempOffset);
+        path.getVelocity(mPathFrame, mFrameTime + (timeStep / 2), mVelocity);
+        updateTempAABB();
     }
 
+    //Nothing to do, since the AABB is worked out from the offset every time it moves
     public void resetAABB(){
-        mMinXCoord = mPrevAABB[0];
-        mMaxXCoord = mPrevAABB[1];
-        mMinYCoord = mPrevAABB[2];
-        mMaxYCoord = mPrevAABB[3];
     }
 
     public void updatePrevAABB(){
-        mPrevAABB[0] = mMinXCoord;
-        mPrevAABB[1] = mMaxXCoord;
-        mPrevAABB[2] = mMinYCoord;
-        mPrevAABB[3] = mMaxYCoord;
     }
 
     //Get a balls velocity after timeStep (calculates gravity)
@@ -132,18 +169,23 @@ public class MovingObstacle extends Obstacle implements Movable {
         return new PointF(mVelocity.x * frameFraction, mVelocity.y * frameFraction);
     }
 
+    @Override
+    public float getOffsetX() {
+        return mOffset.x;
+    }
 
-    public void incrementTempCoords(float timeStep){
-        tempCoords = getTempCoords();
-        tempCoords = increment2dCoordArray(tempCoords, timeStep);
+    @Override
+    public float getOffsetY() {
+        return mOffset.y;
     }
 
-    public PointF[] getTempCoords() {
-        return tempCoords;
+    //Offset at the end of the current step
+    public float getTempOffsetX() {
+        return mTempOffset.x;
     }
 
-    public void resetTempCoords() {
-        tempCoords = get2dCoordArray().clone();
+    public float getTempOffsetY() {
+        return mTempOffset.y;
     }
 
 }
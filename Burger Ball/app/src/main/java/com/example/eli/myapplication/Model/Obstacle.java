@@ -17,30 +17,34 @@ package com.example.eli.myapplication.Model;
 
 import android.graphics.PointF;
 
+import com.example.eli.myapplication.Resources.CommonFunctions;
 import com.example.eli.myapplication.Resources.GameState;
 
-import java.util.ArrayList;
 
 /**
  * A two-dimensional border
  */
 public class Obstacle extends Interactable {
 
-    ArrayList<PointF> boundaryAxisCollection = new ArrayList<>();
     boolean isBottomBoundary = false;
 
-    float area;
+    //Vertices, boundary axes, projections onto them, and area, as they were when the obstacle was created.
+    //Neither the axes nor the shape ever change (moving obstacles only translate), so these never need recalculating.
+    ObstacleGeometry mGeometry;
+    int mGeometryRecord;
+
+    //Coords (x, y, z per vertex) the obstacle was created with, only kept until ObstacleGeometry has packed them
+    private float[] mCreationCoords;
 
     /**
      * Sets up the drawing object data for use in an OpenGL ES context.
+     * The obstacle can't be collision tested until the level's ObstacleGeometry has been built.
      */
     public Obstacle(float[] borderCoords, int texturePointer) {
         // initialize vertex byte buffer for shape coordinates
         super(borderCoords, texturePointer);
         setType(GameState.INTERACTABLE_OBSTACLE);
-        calculateBoundaryAxes();
-
-        calculateArea();
+        mCreationCoords = borderCoords;
     }
 
     /**
@@ -53,80 +57,115 @@ public class Obstacle extends Interactable {
         super.draw(mvpMatrix);
     }
 
-    private void calculateBoundaryAxes() {
-        PointF[] obstacleCoords = get2dCoordArray();
+    float[] getCreationCoords() {
+        return mCreationCoords;
+    }
+
+    //Called by ObstacleGeometry once the obstacle has been packed. From then on it is drawn from its packed vertices too.
+    void setGeometry(ObstacleGeometry geometry, int record) {
+        mGeometry = geometry;
+        mGeometryRecord = record;
 
-        for (int index = 0; index < obstacleCoords.length; index++) {
-            PointF normalAxis = makeNormalVectorBetweenPoints(obstacleCoords, index);
-            boundaryAxisCollection.add(normalAxis);
-        }
-        System.out.println("CALCULATE BOUNDARY AXIS");
+        float[] drawCoords = new float[mCreationCoords.length];
+        mGeometry.getDrawCoords(mGeometryRecord, getOffsetX(), getOffsetY(), drawCoords);
+        updateCoords(drawCoords);
+        mCreationCoords = null;
     }
 
-    private PointF makeNormalVectorBetweenPoints(PointF[] obstacleCoords, int index) {
-        //We need to make a line between two vertexes
-        int vertexA = index;
-        int vertexB = (index + 1) % obstacleCoords.length; //We need to wrap back to the first vertex at the end, so use modulus
+    //AABB where the obstacle was created
+    float getBaseMinX() {
+        return mGeometry.getMinX(mGeometryRecord);
+    }
 
-        //formula to find the normal vector from a line is (-y, x)
-        float xComponent = -(obstacleCoords[vertexB].y - obstacleCoords[vertexA].y);
-        float yComponent = (obstacleCoords[vertexB].x - obstacleCoords[vertexA].x);
+    float getBaseMaxX() {
+        return mGeometry.getMaxX(mGeometryRecord);
+    }
 
-        //create vector and normalize
-        PointF normalAxis = new PointF(xComponent, yComponent);
-        float normalAxisLength = normalAxis.length();
-        normalAxis.set(normalAxis.x / normalAxisLength, normalAxis.y / normalAxisLength);
+    float getBaseMinY() {
+        return mGeometry.getMinY(mGeometryRecord);
+    }
 
-        return normalAxis;
+    float getBaseMaxY() {
+        return mGeometry.getMaxY(mGeometryRecord);
     }
 
-    public PointF getBoundaryAxis(int index) {
-        if (index < boundaryAxisCollection.size()) {
-            return boundaryAxisCollection.get(index);
-        }
-        return new PointF(0f,0f);
+    public int getVertexCount() {
+        return mGeometry.getVertexCount(mGeometryRecord);
     }
 
-    public ArrayList<PointF> getAllBoundaryAxis() {
-        return boundaryAxisCollection;
+    /**
+     * Vertex of the obstacle where it was created. Add getOffsetX / getOffsetY for where it is now.
+     */
+    public float getBaseVertexX(int index) {
+        return mGeometry.getVertexX(mGeometryRecord, index);
     }
 
-    public ArrayList<PointF> getSurfaceVertices(int surfaceIndex) {
-        PointF[] obstacleCoords = get2dCoordArray();
+    public float getBaseVertexY(int index) {
+        return mGeometry.getVertexY(mGeometryRecord, index);
+    }
 
-        int vertexA = surfaceIndex;
-        int vertexB = (surfaceIndex + 1) % obstacleCoords.length; //We need to wrap back to the first vertex at the end, so use modulus
+    /**
+     * Min / max of the obstacle projected onto one of its boundary axes, at its current position.
+     */
+    public float getProjectionMin(int index) {
+        return getProjectionMin(index, getOffsetX(), getOffsetY());
+    }
 
-        ArrayList<PointF> vertices = new ArrayList<>();
-        vertices.add(obstacleCoords[vertexA]);
-        vertices.add(obstacleCoords[vertexB]);
-        return vertices;
+    public float getProjectionMax(int index) {
+        return getProjectionMax(index, getOffsetX(), getOffsetY());
     }
 
-    public void setBottomBoundary() {
-        isBottomBoundary = true;
+    /**
+     * Min / max of the obstacle projected onto one of its boundary axes, after it has been moved
+     * by (offsetX, offsetY) from where it was created.
+     */
+    public float getProjectionMin(int index, float offsetX, float offsetY) {
+        return mGeometry.getProjectionMin(mGeometryRecord, index)
+                + CommonFunctions.dotProduct(getBoundaryAxisX(index), getBoundaryAxisY(index), offsetX, offsetY);
     }
 
-    public boolean isBottomBoundary() {
-        return isBottomBoundary;
+    public float getProjectionMax(int index, float offsetX, float offsetY) {
+        return mGeometry.getProjectionMax(mGeometryRecord, index)
+                + CommonFunctions.dotProduct(getBoundaryAxisX(index), getBoundaryAxisY(index), offsetX, offsetY);
+    }
+
+    //How far the obstacle has moved since it was created (a regular obstacle never moves)
+    public float getOffsetX() {
+        return 0f;
+    }
+
+    public float getOffsetY() {
+        return 0f;
+    }
+
+    //Unit normal of the side from vertex index to vertex index + 1
+    public float getBoundaryAxisX(int index) {
+        return mGeometry.getAxisX(mGeometryRecord, index);
     }
 
-    public void calculateArea() {
-        PointF[] obstacleCoords = get2dCoordArray();
+    public float getBoundaryAxisY(int index) {
+        return mGeometry.getAxisY(mGeometryRecord, index);
+    }
 
-        float dist1 = new PointF(obstacleCoords[0].x - obstacleCoords[1].x, obstacleCoords[0].y - obstacleCoords[1].y).length();
-        float dist2 = new PointF(obstacleCoords[1].x - obstacleCoords[2].x, obstacleCoords[1].y - obstacleCoords[1].y).length();
-        float dist3 = new PointF(obstacleCoords[2].x - obstacleCoords[3].x, obstacleCoords[2].y - obstacleCoords[3].y).length();
-        float dist4 = new PointF(obstacleCoords[3].x - obstacleCoords[0].x, obstacleCoords[3].y - obstacleCoords[0].y).length();
+    //True if the boundary axis points into the obstacle. Axes come from the order of the vertices, so they don't all
+    // face the same way; the side is at the low end of the obstacle's projection if its axis points inward.
+    public boolean isBoundaryAxisInward(int index) {
+        float sideProjection = CommonFunctions.dotProduct(getBoundaryAxisX(index), getBoundaryAxisY(index),
+                getBaseVertexX(index), getBaseVertexY(index));
+        return (sideProjection - mGeometry.getProjectionMin(mGeometryRecord, index))
+                < (mGeometry.getProjectionMax(mGeometryRecord, index) - sideProjection);
+    }
 
-        float area1 = (dist1 * dist2) / 2;
-        float area2 = (dist3 * dist4) / 2;
+    public void setBottomBoundary() {
+        isBottomBoundary = true;
+    }
 
-        area = area1+area2;
+    public boolean isBottomBoundary() {
+        return isBottomBoundary;
     }
 
     public float getArea() {
-        return area;
+        return mGeometry.getArea(mGeometryRecord);
     }
 
-}
\ No newline at end of file
+}
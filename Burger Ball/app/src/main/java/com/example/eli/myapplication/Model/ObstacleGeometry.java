@@ -0,0 +1,195 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Resources.CommonFunctions;
+import com.example.eli.myapplication.Resources.GameState;
+
+import java.util.ArrayList;
+
+/**
+ * The shape of every obstacle in a level (borders and moving obstacles included), packed into one float array.
+ * Built once by LevelInitialization, after which Obstacle reads its vertices, boundary axes, projections and area
+ * from here (for drawing as well as collision testing), instead of each obstacle keeping its own collection of PointF objects.
+ *
+ * Each obstacle's record is a header, then one record per edge, so its size depends on how many vertices the
+ * obstacle has (at least 3, and convex, for the separating axis test). Edge i runs from vertex i to vertex i + 1.
+ * All values are for the obstacle where it was created (moving obstacles only translate, so Obstacle adds its
+ * offset where needed).
+ */
+public class ObstacleGeometry {
+
+    //Obstacle header: vertex count, AABB, and area
+    private static final int VERTEX_COUNT = 0;
+    private static final int MIN_X = 1;
+    private static final int MAX_X = 2;
+    private static final int MIN_Y = 3;
+    private static final int MAX_Y = 4;
+    private static final int AREA = 5;
+    private static final int HEADER_STRIDE = 6;
+
+    //Edge record: first vertex of the edge, the edge's boundary axis (unit length), and the obstacle projected onto that axis
+    private static final int VERTEX_X = 0;
+    private static final int VERTEX_Y = 1;
+    private static final int AXIS_X = 2;
+    private static final int AXIS_Y = 3;
+    private static final int PROJECTION_MIN = 4;
+    private static final int PROJECTION_MAX = 5;
+    private static final int EDGE_STRIDE = 6;
+
+    private final float[] mData;
+
+    /**
+     * Pack every obstacle in the collection, and attach each one to its record (see Obstacle.setGeometry).
+     * Obstacles must still be where they were created.
+     */
+    public ObstacleGeometry(ArrayList<Interactable> allInteractableObjects) {
+        ArrayList<Obstacle> obstacles = new ArrayList<>();
+        int size = 0;
+        for (Interactable object : allInteractableObjects) {
+            if ((object.getType() == GameState.INTERACTABLE_OBSTACLE) || (object.getType() == GameState.INTERACTABLE_MOVING_OBSTACLE)) {
+                Obstacle obstacle = (Obstacle) object;
+                obstacles.add(obstacle);
+                size = size + getRecordSize(obstacle.getCreationCoords().length / Drawable.COORDS_PER_VERTEX);
+            }
+        }
+
+        mData = new float[size];
+
+        int record = 0;
+        for (Obstacle obstacle : obstacles) {
+            pack(record, obstacle);
+            obstacle.setGeometry(this, record);
+            record = record + getRecordSize(getVertexCount(record));
+        }
+    }
+
+    private void pack(int record, Obstacle obstacle) {
+        //x, y, z per vertex
+        float[] coords = obstacle.getCreationCoords();
+        int vertexCount = coords.length / Drawable.COORDS_PER_VERTEX;
+        if (vertexCount < 3) {
+            throw new IllegalArgumentException("Obstacles need at least 3 vertices, found " + vertexCount);
+        }
+
+        mData[record + VERTEX_COUNT] = vertexCount;
+        mData[record + MIN_X] = obstacle.getMinX();
+        mData[record + MAX_X] = obstacle.getMaxX();
+        mData[record + MIN_Y] = obstacle.getMinY();
+        mData[record + MAX_Y] = obstacle.getMaxY();
+        mData[record + AREA] = calculateArea(coords, vertexCount);
+
+        for (int index = 0; index < vertexCount; index++) {
+            int edge = getEdge(record, index);
+            float vertexAX = coords[index * Drawable.COORDS_PER_VERTEX];
+            float vertexAY = coords[(index * Drawable.COORDS_PER_VERTEX) + 1];
+            mData[edge + VERTEX_X] = vertexAX;
+            mData[edge + VERTEX_Y] = vertexAY;
+
+            //formula to find the normal vector from a line is (-y, x). (Wrap back to the first vertex at the end.)
+            int vertexB = ((index + 1) % vertexCount) * Drawable.COORDS_PER_VERTEX;
+            float axisX = -(coords[vertexB + 1] - vertexAY);
+            float axisY = (coords[vertexB] - vertexAX);
+            float axisLength = PointF.length(axisX, axisY);
+            axisX = axisX / axisLength;
+            axisY = axisY / axisLength;
+            mData[edge + AXIS_X] = axisX;
+            mData[edge + AXIS_Y] = axisY;
+
+            float min = GameState.LARGE_NUMBER;
+            float max = GameState.SMALL_NUMBER;
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                float vertexProjection = CommonFunctions.dotProduct(axisX, axisY,
+                        coords[vertex * Drawable.COORDS_PER_VERTEX], coords[(vertex * Drawable.COORDS_PER_VERTEX) + 1]);
+
+                if (vertexProjection > max)
+                    max = vertexProjection;
+                if (vertexProjection < min)
+                    min = vertexProjection;
+            }
+            mData[edge + PROJECTION_MIN] = min;
+            mData[edge + PROJECTION_MAX] = max;
+        }
+    }
+
+    //Shoelace formula, so it holds for any simple polygon, whichever way round its vertices go
+    private static float calculateArea(float[] coords, int vertexCount) {
+        float doubleArea = 0f;
+        for (int index = 0; index < vertexCount; index++) {
+            int vertexA = index * Drawable.COORDS_PER_VERTEX;
+            int vertexB = ((index + 1) % vertexCount) * Drawable.COORDS_PER_VERTEX;
+            doubleArea = doubleArea + ((coords[vertexA] * coords[vertexB + 1]) - (coords[vertexB] * coords[vertexA + 1]));
+        }
+
+        return Math.abs(doubleArea) / 2;
+    }
+
+    private static int getRecordSize(int vertexCount) {
+        return HEADER_STRIDE + (vertexCount * EDGE_STRIDE);
+    }
+
+    private static int getEdge(int record, int index) {
+        return record + HEADER_STRIDE + (index * EDGE_STRIDE);
+    }
+
+    //Everything below takes the record an obstacle was given in setGeometry
+
+    public int getVertexCount(int record) {
+        return (int) mData[record + VERTEX_COUNT];
+    }
+
+    public float getMinX(int record) {
+        return mData[record + MIN_X];
+    }
+
+    public float getMaxX(int record) {
+        return mData[record + MAX_X];
+    }
+
+    public float getMinY(int record) {
+        return mData[record + MIN_Y];
+    }
+
+    public float getMaxY(int record) {
+        return mData[record + MAX_Y];
+    }
+
+    public float getArea(int record) {
+        return mData[record + AREA];
+    }
+
+    public float getVertexX(int record, int index) {
+        return mData[getEdge(record, index) + VERTEX_X];
+    }
+
+    public float getVertexY(int record, int index) {
+        return mData[getEdge(record, index) + VERTEX_Y];
+    }
+
+    public float getAxisX(int record, int index) {
+        return mData[getEdge(record, index) + AXIS_X];
+    }
+
+    public float getAxisY(int record, int index) {
+        return mData[getEdge(record, index) + AXIS_Y];
+    }
+
+    public float getProjectionMin(int record, int index) {
+        return mData[getEdge(record, index) + PROJECTION_MIN];
+    }
+
+    public float getProjectionMax(int record, int index) {
+        return mData[getEdge(record, index) + PROJECTION_MAX];
+    }
+
+    /**
+     * Fill drawn coords (x, y, z per vertex) with the obstacle's vertices, moved by (offsetX, offsetY) from where
+     * it was created, so that what is drawn is exactly what the ball collides with.
+     */
+    public void getDrawCoords(int record, float offsetX, float offsetY, float[] drawCoords) {
+        for (int index = 0; index < getVertexCount(record); index++) {
+            drawCoords[index * Drawable.COORDS_PER_VERTEX] = getVertexX(record, index) + offsetX;
+            drawCoords[(index * Drawable.COORDS_PER_VERTEX) + 1] = getVertexY(record, index) + offsetY;
+        }
+    }
+}
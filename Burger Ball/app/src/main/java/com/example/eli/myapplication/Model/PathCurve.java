@@ -0,0 +1,38 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+/**
+ * The shape of a curved movement in a MovePath. The obstacle moves along the curve at a constant speed, so
+ * positions are looked up by how far along the curve (by length) the obstacle is.
+ *
+ * Everything is relative to where the movement starts, so every curve starts at (0, 0).
+ */
+abstract class PathCurve {
+
+    //Total length of the curve
+    abstract float getLength();
+
+    /**
+     * Point on the curve, a fraction (0 to 1) of the curve's length along it.
+     */
+    abstract void getPoint(float fraction, PointF result);
+
+    /**
+     * Direction the curve is heading (unit length), a fraction (0 to 1) of the curve's length along it.
+     */
+    abstract void getDirection(float fraction, PointF result);
+
+    //Bounds of every point on the curve (the smallest box around it, so moving obstacles' swept bounds stay tight)
+    abstract float getMinX();
+
+    abstract float getMaxX();
+
+    abstract float getMinY();
+
+    abstract float getMaxY();
+
+    static float clampFraction(float fraction) {
+        return Math.max(0f, Math.min(1f, fraction));
+    }
+}
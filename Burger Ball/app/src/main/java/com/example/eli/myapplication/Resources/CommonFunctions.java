@@ -190,6 +190,11 @@ public class CommonFunctions {
         return ((vector1.x * vector2.x) + (vector1.y * vector2.y));
     }
 
+    //Same as above, for vectors that are held as separate components
+    public static float dotProduct(float vector1X, float vector1Y, float vector2X, float vector2Y){
+        return ((vector1X * vector2X) + (vector1Y * vector2Y));
+    }
+
     public static float[] updateVelocityArrow(float angle, float height, PointF responseCenter){
 
         float adjustedRadius = GameState.mResponseRadius * GameState.xRatioAndroidToArena;
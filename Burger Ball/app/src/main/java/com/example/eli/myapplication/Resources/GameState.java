@@ -22,39 +22,55 @@ public class GameState {
     //Game mechanics and feel
     //========================
 
-    //How far objects will advance per frame. Should be set lower when FPS is higher, and higher when FPS is lower.
+    //How far objects will advance per frame.
     public static final float FRAME_SIZE = 0.5f;
-    //this is a strange flag that will change the frame size automatically, based on how fast the game is running.
-    // Seems to make it pretty choppy, but we'll keep it as an option for now.
-    public static final boolean VARIABLE_FRAME_SIZE = false;
-
-    //This setting will force the frame rate to be capped at a certain rate. If this cap is set low enough,
-    //it will make the frame rate more consistent.
-    public static final boolean FRAME_RATE_CAP = false;
-    //Maximum 'frames' (calls to onDrawFrame in MyGLRenderer) that are allowed per second.
-    //Does nothing if FRAME_RATE_CAP is set to false
-    public static final long FRAME_RATE_CAP_SIZE = 36;
-    //This setting will determine an automatic frame rate cap based on past performance.
-    //It will do nothing if FRAME_RATE_CAP is set to false.
-    public static final boolean AUTO_CAP_FRAME_RATE_SIZE = false;
-
-    //num of collisions with an identical surface per frame size of 1 that will activate slowed ball handling.
-    //If the ball is currently on a flat, non-moving obstacle, it will be deactivated.
-    // If the surface isn't flat or the obstacle is moving, 'rolling' mode will be activated.
-    public static final int SLOWED_BALL_CONSTANT = 20;
-    //num of collisions per frame size that will 'bounce' a ball stuck on another ball.
-    public static final int BALL_BOUNCE_CONSTANT = 16;
+    //Number of frames the game advances per second of real time, no matter how often the screen is drawn.
+    public static final int FRAMES_PER_SECOND = 60;
+    //If drawing falls further behind than this many frames (e.g. after the app was paused),
+    // the extra time is dropped instead of being caught up all at once.
+    public static final int MAX_FRAMES_PER_DRAW = 5;
+    //Run the game on its own thread (see PhysicsThread), instead of on the render thread before every draw.
+    public static final boolean USE_PHYSICS_THREAD = true;
+
+    //Speed into a surface below which a ball stops bouncing off it, and rolls along it instead (see
+    // BallEngine.isBallSettlingOnSurface). A bounce this slow would rise less than 0.03 before landing again.
+    public static final float CONTACT_VELOCITY = 0.1f;
+    //Resting contacts between balls, or a ball and a side (see RestingContactSolver): passes over all of them
+    // every frame, how close they are let get (more than gravity can bend a frame's path by, FRAME_SIZE^2 * 0.18 / 8),
+    // how far apart (or overlapping) before the contact is dropped, and the speed below which a ball they hold is stopped
+    // (or a stopped ball stays stopped).
+    public static final int CONTACT_SOLVER_ITERATIONS = 16;
+    public static final float CONTACT_MARGIN = 0.01f;
+    public static final float CONTACT_BREAK_DISTANCE = 1f;
+    public static final float RESTING_BALL_VELOCITY = 0.005f;
+    //Speed below which two sides of a resting contact meet without bouncing. Much faster than CONTACT_VELOCITY: a contact
+    // only lasts while they stay within CONTACT_BREAK_DISTANCE, and a pile of balls bouncing off each other never settles.
+    public static final float RESTING_CONTACT_VELOCITY = 1.5f;
     //num of collisions with any obstacle surface within 1 frame that will 'bounce' a stuck ball.
     // Practically speaking, this should only happen when a ball gets stuck on a point of an obstacle.
-    // Any other consecutive collisions should activate SLOWED_BALL_CONSTANT first. Points are different
-    // because they never have the exact same collision boundary axis.
+    // A ball bouncing on the side of an obstacle settles onto it first (see CONTACT_VELOCITY), but a point
+    // has no side to roll along.
     public static final int STUCK_POINT_CONSTANT = 40;
     //num of collisions in 1 frame with any obstacle surface that will deactivate a stuck ball.
     public static final int DEACTIVATE_STUCK_BALL_CONSTANT = 70;
 
+    //Most sub-steps (collision detection passes) and narrowphase pair tests GameEngine.advanceFrameStep will do in
+    // one frame. Once either runs out, the rest of the frame is finished without any more collision detection
+    // (see GameEngine.finishFrameConservatively). The sub-step budget has to stay above
+    // DEACTIVATE_STUCK_BALL_CONSTANT * FRAME_SIZE, or stuck balls would never be counted as stuck.
+    //Can be changed at runtime with GameEngine.setFrameBudget.
+    public static final int MAX_SUB_STEPS_PER_FRAME = 48;
+    public static final int MAX_PAIR_TESTS_PER_FRAME = 1500;
+
     //Speed at which a rolling ball will be deactivated.
     public static final float DEACTIVATE_BALL_VELOCITY = 0.02f;
 
+    //Number of frames in a row a ball has to be at rest before it is put to sleep (skipped by collision detection
+    // until a moving ball or moving obstacle comes near it).
+    public static final int SLEEP_FRAMES = 30;
+    //Speed below which a ball rolling on a flat, static obstacle counts as being at rest (for SLEEP_FRAMES)
+    public static final float SLEEP_VELOCITY = 0.1f;
+
     //Max possible firing velocity for balls in the X and Y components.
     public static final float MAX_INITIAL_VELOCITY = 10f;
 
@@ -73,6 +89,38 @@ public class GameState {
     //Eventually should be used to display an FPS rate within the game.
     public static final boolean showFPS = true;
 
+    //Prints broadphase statistics (candidate vs. pruned collision pairs) to the console at the end of each level.
+    //Only for profiling; the same numbers are always available from GameEngine.getCollisionStatistics.
+    public static final boolean SHOW_COLLISION_STATS = false;
+
+    //Prints how long touch input waited to be run (see InputCommandQueue) to the console at the end of each level.
+    //Only for profiling; the same numbers are always available from GameEngine (getInputCommandCount, ...).
+    public static final boolean SHOW_INPUT_STATS = false;
+
+    //Broadphase used to find the (ball, object) pairs that need collision testing.
+    //Can be changed at runtime with GameEngine.setPairSourceType.
+    public static final PairSourceType DEFAULT_PAIR_SOURCE = PairSourceType.UNIFORM_GRID;
+
+    //How collisions are found again after each collision within a frame.
+    //Can be changed at runtime with GameEngine.setCollisionSchedule.
+    public static final CollisionSchedule DEFAULT_COLLISION_SCHEDULE = CollisionSchedule.FULL_RESCAN;
+
+    //Spacing of the grid the static obstacle distance field is sampled on (see StaticDistanceField)
+    public static final float DISTANCE_FIELD_CELL_SIZE = 2.5f;
+
+    //Number of threads detailed collision testing is split across (see ParallelNarrowphase). 1 means it is never split.
+    //Can be changed at runtime with GameEngine.setNarrowphaseWorkers. Only used on API 21 and up.
+    public static final int NARROWPHASE_WORKERS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    //Fewest pairs a step has to have before they are tested in parallel. Below this, handing them to other threads
+    // costs more than it saves.
+    public static final int PARALLEL_NARROWPHASE_MIN_PAIRS = 256;
+
+    //Starting number of pooled collisions available to each frame step (see CollisionBuffer)
+    public static final int COLLISION_BUFFER_CAPACITY = 32;
+
+    //Number of touch inputs that can wait for the next frame before new ones are dropped (see InputCommandQueue)
+    public static final int INPUT_QUEUE_CAPACITY = 64;
+
     //=====================
     //Dimensions and sizes
     //=====================
@@ -161,5 +209,11 @@ public class GameState {
 
     //State of the game
     public enum GameStatus {BEFORE_PLAY, ACTIVE, POST_PLAY}
+
+    public enum PairSourceType {BRUTE_FORCE, UNIFORM_GRID, SWEEP_AND_PRUNE, STATIC_AABB_TREE}
+
+    //FULL_RESCAN re-tests every pair after every collision (the original behaviour).
+    //EVENT_QUEUE keeps the predicted collisions in a queue, and only re-tests balls whose trajectory has changed.
+    public enum CollisionSchedule {FULL_RESCAN, EVENT_QUEUE}
 }
 
@@ -23,6 +23,23 @@ public class LevelData {
 
     float[] ballInitialCoords = null;
 
+    /**
+     * A level that isn't one of the sets (only used by tests). Coordinates are given the same way as for the
+     * levels below. ballInitialCoords can be null, to fire balls from the usual place.
+     */
+    public LevelData(ArrayList<float[]> obstacleCoords, ArrayList<float[]> targetCoords, int numOfBalls, float[] ballInitialCoords){
+        mObstacleCoords.addAll(obstacleCoords);
+        mTargetCoords.addAll(targetCoords);
+        mNumOfBalls = numOfBalls;
+        this.ballInitialCoords = ballInitialCoords;
+    }
+
+    //Add a moving obstacle to a level that isn't one of the sets (only used by tests)
+    public void addMovingObstacle(float[] movingObstacleCoords, MovePath path){
+        mMovingObstacleCoords.add(movingObstacleCoords);
+        mMovingObstaclePaths.add(path);
+    }
+
     public LevelData(int chapter, int level){
         switch (chapter){
             case 1:
@@ -203,21 +220,21 @@ public class LevelData {
 
                 MovePath path142 = new MovePath();
                 path142.addMovement(new SingleMovement(new PointF(0f,-1f), 50));
-                path142.addMovement(new SingleMovement(new PointF(0f,.25f), 200));
+                path142.addMovement(new SingleMovement(new PointF(0f,.25f), 203));
 
                 MovePath path143 = new MovePath();
                 path143.addMovement(new SingleMovement(new PointF(0f,-1f), 50));
-                path143.addMovement(new SingleMovement(new PointF(0f,.25f), 200));
+                path143.addMovement(new SingleMovement(new PointF(0f,.25f), 203));
 
                 MovePath path144 = new MovePath();
                 path144.addMovement(new SingleMovement(new PointF(-.25f,0f), 25));
                 path144.addMovement(new SingleMovement(new PointF(1f,0f), 50));
-                path144.addMovement(new SingleMovement(new PointF(-.25f,0f), 175));
+                path144.addMovement(new SingleMovement(new PointF(-.25f,0f), 177));
 
                 MovePath path145 = new MovePath();
                 path145.addMovement(new SingleMovement(new PointF(.25f,0f), 25));
                 path145.addMovement(new SingleMovement(new PointF(-1f,0f), 50));
-                path145.addMovement(new SingleMovement(new PointF(.25f,0f), 175));
+                path145.addMovement(new SingleMovement(new PointF(.25f,0f), 177));
 
                 mMovingObstacleCoords.add(obstacle142coords);
                 mMovingObstacleCoords.add(obstacle143coords);
@@ -894,7 +911,7 @@ public class LevelData {
                 path342.addMovement(new SingleMovement(new PointF(1.0f, 0f), 100));
                 path342.addMovement(new SingleMovement(new PointF(0f, -0.8f), 550));
                 path342.addMovement(new SingleMovement(new PointF(-1.0f, 0f), 100));
-                path342.addMovement(new SingleMovement(new PointF(0f,0.8f), 38));
+                path342.addMovement(new SingleMovement(new PointF(0f,0.8f), 37));
 
                 mMovingObstacleCoords.add(obstacle341coords);
                 mMovingObstacleCoords.add(obstacle342coords);
@@ -23,6 +23,7 @@ import android.os.Bundle;
 import com.example.eli.myapplication.Controller.GameEngine;
 import com.example.eli.myapplication.Controller.MyGLSurfaceView;
 import com.example.eli.myapplication.Logic.MediaPlayerService;
+import com.example.eli.myapplication.Resources.GameState;
 import com.example.eli.myapplication.View.MainActivity;
 
 public class OpenGLES20Activity extends BackgroundMusicActivitySimple {
@@ -53,6 +54,7 @@ public class OpenGLES20Activity extends BackgroundMusicActivitySimple {
         // If your OpenGL application is memory intensive,
         // you should consider de-allocating objects that
         // consume significant memory here.
+        mGame.stopPhysicsThread();
         mGLView.onPause();
     }
 
@@ -63,6 +65,9 @@ public class OpenGLES20Activity extends BackgroundMusicActivitySimple {
         // If you de-allocated graphic objects for onPause()
         // this is a good place to re-allocate them.
         mGLView.onResume();
+        if (GameState.USE_PHYSICS_THREAD) {
+            mGame.startPhysicsThread();
+        }
     }
 
     @Override
@@ -0,0 +1,71 @@
+package android.graphics;
+
+/**
+ * Plain JVM copy of android.graphics.PointF, for the local unit tests. The android.jar these tests are
+ * run against only has stubs (that do nothing, or return default values), and the game keeps every vector
+ * in a PointF, so the tests need one that works. It comes before android.jar on the test classpath.
+ */
+public class PointF {
+    public float x;
+    public float y;
+
+    public PointF() {}
+
+    public PointF(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public final void set(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public final void set(PointF p) {
+        this.x = p.x;
+        this.y = p.y;
+    }
+
+    public final void negate() {
+        x = -x;
+        y = -y;
+    }
+
+    public final void offset(float dx, float dy) {
+        x += dx;
+        y += dy;
+    }
+
+    public final boolean equals(float x, float y) {
+        return this.x == x && this.y == y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PointF pointF = (PointF) o;
+        return (Float.compare(pointF.x, x) == 0) && (Float.compare(pointF.y, y) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (x != +0.0f ? Float.floatToIntBits(x) : 0);
+        result = 31 * result + (y != +0.0f ? Float.floatToIntBits(y) : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PointF(" + x + ", " + y + ")";
+    }
+
+    public final float length() {
+        return length(x, y);
+    }
+
+    public static float length(float x, float y) {
+        return (float) Math.hypot(x, y);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Resources.GameState.CollisionSchedule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The EVENT_QUEUE schedule has to play every level the same way as FULL_RESCAN: the same collisions handled in
+ * every frame, and every ball in the same state and place.
+ *
+ * The two can't match bit for bit. An event predicted in an earlier step is handled at the time it was predicted
+ * with, where FULL_RESCAN finds it again from where the balls are now, and the two times can round differently.
+ * Bouncing balls off each other blows that up, so frames are only compared until a ball has drifted more than
+ * DRIFT away from where it is with FULL_RESCAN. After that, both levels are played out, and have to end the same.
+ *
+ * How many frames matched, and the pair tests each schedule needed, are printed for every level.
+ */
+public class CollisionScheduleTest {
+
+    private static final int MAX_FRAMES = 4000;
+    private static final float DRIFT = 0.01f;
+
+    @Test
+    public void eventQueueMatchesFullRescanInEveryLevel() {
+        LevelRunner.forEachLevel(new LevelRunner.LevelTest() {
+            @Override
+            public void run(String levelString, Random random) {
+                //Fire a ball every 90 frames, in any direction
+                compare(levelString, new LevelRunner(levelString), new LevelRunner(levelString), random, 90, 10f, 10f);
+            }
+        });
+    }
+
+    @Test
+    public void eventQueueMatchesFullRescanInBallPile() {
+        for (int pile = 1; pile <= 4; pile++) {
+            LevelRunner fullRescan = new LevelRunner("1.1", TestLevels.createBallPile());
+            LevelRunner eventQueue = new LevelRunner("1.1", TestLevels.createBallPile());
+
+            //Fire a ball every 25 frames, almost straight down
+            compare("pile " + pile, fullRescan, eventQueue, new Random(pile), 25, 0.3f, 0f);
+
+            //Every ball has come to rest in both (the level only ends once they have)
+            for (int index = 0; index < fullRescan.getBalls().size(); index++) {
+                assertTrue("pile " + pile + " ball " + index + " didn't stop", fullRescan.getBalls().get(index).isBallStopped());
+                assertTrue("pile " + pile + " ball " + index + " didn't stop", eventQueue.getBalls().get(index).isBallStopped());
+            }
+
+            //The pile is where re-testing only the balls that changed pays off
+            long fullRescanTests = fullRescan.getGameEngine().getCollisionStatistics().getTotalPairTests();
+            long eventQueueTests = eventQueue.getGameEngine().getCollisionStatistics().getTotalPairTests();
+            assertTrue("pile " + pile + ": " + eventQueueTests + " pair tests, " + fullRescanTests + " with FULL_RESCAN",
+                    eventQueueTests < fullRescanTests);
+        }
+    }
+
+    private void compare(final String name, final LevelRunner fullRescan, final LevelRunner eventQueue, Random random,
+                         int fireInterval, float maxVelocityX, float maxVelocityY) {
+        fullRescan.getGameEngine().setCollisionSchedule(CollisionSchedule.FULL_RESCAN);
+        eventQueue.getGameEngine().setCollisionSchedule(CollisionSchedule.EVENT_QUEUE);
+
+        final CollisionStatistics fullRescanStats = fullRescan.getGameEngine().getCollisionStatistics();
+        final CollisionStatistics eventQueueStats = eventQueue.getGameEngine().getCollisionStatistics();
+
+        //The first frame a ball had drifted too far to compare (-1 until then)
+        final int[] driftFrame = {-1};
+        LevelRunner.playInStep(fullRescan, eventQueue, random, fireInterval, maxVelocityX, maxVelocityY, MAX_FRAMES,
+                new LevelRunner.FrameListener() {
+                    @Override
+                    public void frameRun(int frame) {
+                        if (driftFrame[0] >= 0) {
+                            return;
+                        }
+                        String at = name + " frame " + frame;
+                        assertEquals(at + ": collisions handled", fullRescanStats.getFrameCollisionsHandled(),
+                                eventQueueStats.getFrameCollisionsHandled());
+                        assertEquals(at + ": sub-steps", fullRescanStats.getFrameSubSteps(), eventQueueStats.getFrameSubSteps());
+
+                        if (!assertCloseBalls(at, fullRescan.getBalls(), eventQueue.getBalls())) {
+                            driftFrame[0] = frame;
+                        }
+                    }
+                });
+
+        //Play out whichever level is still going
+        fullRescan.advanceFrames(MAX_FRAMES);
+        eventQueue.advanceFrames(MAX_FRAMES);
+        assertTrue(name + ": FULL_RESCAN never ended", fullRescan.hasLevelEnded());
+        assertTrue(name + ": EVENT_QUEUE never ended", eventQueue.hasLevelEnded());
+        assertEquals(name + ": how the level ended", fullRescan.getGameEngine().getCurrentLevelStatus(),
+                eventQueue.getGameEngine().getCurrentLevelStatus());
+        if (driftFrame[0] < 0) {
+            assertEquals(name + ": ended on a different frame", fullRescan.getFrame(), eventQueue.getFrame());
+            assertEquals(name + ": score", fullRescan.getGameEngine().getScore(), eventQueue.getGameEngine().getScore());
+        }
+
+        System.out.println(name + ": " + ((driftFrame[0] < 0) ? "matched to the end" : "matched until frame " + driftFrame[0])
+                + ", " + fullRescanStats.getTotalPairTests() + " pair tests with FULL_RESCAN, "
+                + eventQueueStats.getTotalPairTests() + " with EVENT_QUEUE");
+    }
+
+    /**
+     * Checks every ball is in the same state, and returns false (without checking anything else) once one
+     * has drifted more than DRIFT away.
+     */
+    private boolean assertCloseBalls(String at, ArrayList<Ball> expectedBalls, ArrayList<Ball> actualBalls) {
+        for (int index = 0; index < expectedBalls.size(); index++) {
+            Ball expected = expectedBalls.get(index);
+            Ball actual = actualBalls.get(index);
+            if ((Math.abs(expected.getCenterX() - actual.getCenterX()) > DRIFT)
+                    || (Math.abs(expected.getCenterY() - actual.getCenterY()) > DRIFT)) {
+                return false;
+            }
+        }
+
+        for (int index = 0; index < expectedBalls.size(); index++) {
+            Ball expected = expectedBalls.get(index);
+            Ball actual = actualBalls.get(index);
+            String ball = at + " ball " + index;
+            assertEquals(ball + " state", expected.getBallState(), actual.getBallState());
+            assertEquals(ball + " asleep", expected.isBallAsleep(), actual.isBallAsleep());
+        }
+        return true;
+    }
+}
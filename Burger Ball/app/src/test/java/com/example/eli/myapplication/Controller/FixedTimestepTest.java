@@ -0,0 +1,119 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * GameEngine.advanceTime turns real time into whole frames, so the game has to play out the same however often
+ * it is called, no frame time can be lost between calls, and a long pause is only caught up on a few frames'
+ * worth. These drive it with a made-up clock instead of the system one.
+ */
+public class FixedTimestepTest {
+
+    private static final long SECOND_NANOS = 1000000000L;
+    private static final long FRAME_LENGTH_NANOS = SECOND_NANOS / GameState.FRAMES_PER_SECOND;
+
+    //Level with moving obstacles, fired into every second and a half
+    private static final String LEVEL = "1.4";
+    private static final int SHOT_INTERVAL_FRAMES = 90;
+    private static final int SECONDS = 20;
+
+    //A clock that only moves when it is told to
+    private static class FakeClock implements GameClock {
+        long time = 0;
+
+        @Override
+        public long nanoTime() {
+            return time;
+        }
+    }
+
+    @Test
+    public void sixtyAndHundredTwentyHertzGiveTheSameGame() {
+        FakeClock sixtyClock = new FakeClock();
+        LevelRunner sixty = new LevelRunner(LEVEL);
+        sixty.getGameEngine().setClock(sixtyClock);
+        FakeClock hundredTwentyClock = new FakeClock();
+        LevelRunner hundredTwenty = new LevelRunner(LEVEL);
+        hundredTwenty.getGameEngine().setClock(hundredTwentyClock);
+
+        Random random = new Random(LEVEL.hashCode());
+        for (int step = 0; step <= SECONDS * 60; step++) {
+            //Both clocks are at the same time after every 60 Hz step (and every other 120 Hz step)
+            sixtyClock.time = (step * SECOND_NANOS) / 60;
+            sixty.getGameEngine().advanceTime();
+            for (int half = 1; half >= 0; half--) {
+                hundredTwentyClock.time = (((step * 2) - half) * SECOND_NANOS) / 120;
+                hundredTwenty.getGameEngine().advanceTime();
+            }
+
+            String at = "at " + sixtyClock.time + " ns";
+            assertEquals(at + ": frames run", sixty.getGameEngine().getFramesRun(), hundredTwenty.getGameEngine().getFramesRun());
+            LevelRunner.assertSameBalls(at, sixty.getBalls(), hundredTwenty.getBalls());
+            if (sixty.hasLevelEnded()) {
+                assertEquals(at + ": level ended", sixty.hasLevelEnded(), hundredTwenty.hasLevelEnded());
+                return;
+            }
+
+            //Fire into both between frames, once the same frame has been run
+            if (((sixty.getGameEngine().getFramesRun() % SHOT_INTERVAL_FRAMES) == 5) && sixty.getGameEngine().areBallsAvailable()) {
+                float velocityX = ((random.nextFloat() * 2) - 1) * 10f;
+                float velocityY = random.nextFloat() * 10f;
+                sixty.fireBall(velocityX, velocityY);
+                hundredTwenty.fireBall(velocityX, velocityY);
+            }
+        }
+    }
+
+    @Test
+    public void leftoverTimeIsKeptForTheNextCall() {
+        FakeClock clock = new FakeClock();
+        LevelRunner runner = new LevelRunner(LEVEL);
+        runner.getGameEngine().setClock(clock);
+        runner.getGameEngine().advanceTime();
+
+        //Calls that don't line up with frames (sometimes less than a frame apart, sometimes more)
+        long[] gaps = {5000000L, 25000000L, 7000000L, 11000000L};
+        for (int call = 0; call < SECONDS * 60; call++) {
+            clock.time = clock.time + gaps[call % gaps.length];
+            runner.getGameEngine().advanceTime();
+
+            assertEquals("at " + clock.time + " ns: frames run", clock.time / FRAME_LENGTH_NANOS,
+                    runner.getGameEngine().getFramesRun());
+        }
+    }
+
+    @Test
+    public void longPauseIsCapped() {
+        FakeClock clock = new FakeClock();
+        LevelRunner runner = new LevelRunner(LEVEL);
+        runner.getGameEngine().setClock(clock);
+        runner.getGameEngine().advanceTime();
+
+        //Half a frame left over when the pause starts
+        clock.time = 3 * FRAME_LENGTH_NANOS + (FRAME_LENGTH_NANOS / 2);
+        runner.getGameEngine().advanceTime();
+        assertEquals(3, runner.getGameEngine().getFramesRun());
+
+        //Ten seconds later, only MAX_FRAMES_PER_DRAW frames are caught up on, and the rest of the pause is dropped
+        clock.time = clock.time + (10 * SECOND_NANOS);
+        runner.getGameEngine().advanceTime();
+        long framesAfterPause = 3 + GameState.MAX_FRAMES_PER_DRAW;
+        assertEquals(framesAfterPause, runner.getGameEngine().getFramesRun());
+        assertEquals("nothing left over once the pause is capped", FRAME_LENGTH_NANOS,
+                runner.getGameEngine().getNanosUntilNextFrame());
+
+        //Then the game carries on one frame at a time
+        clock.time = clock.time + FRAME_LENGTH_NANOS - 1;
+        runner.getGameEngine().advanceTime();
+        assertEquals(framesAfterPause, runner.getGameEngine().getFramesRun());
+        clock.time = clock.time + 1;
+        runner.getGameEngine().advanceTime();
+        assertEquals(framesAfterPause + 1, runner.getGameEngine().getFramesRun());
+    }
+}
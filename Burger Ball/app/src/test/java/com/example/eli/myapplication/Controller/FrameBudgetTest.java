@@ -0,0 +1,74 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Model.Ball;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A frame that runs out of sub-steps or pair tests is finished without any more collision detection (see
+ * GameEngine.finishFrameConservatively). No bundled level gets near the budget, so the crushed ball pile is run
+ * with a tiny one instead, which most frames run out of. Balls can end up inside the plate or the wall for a
+ * frame that way, but no ball may ever get through the box (its center past the far side of one of the box's
+ * sides or its floor), or end up somewhere that isn't a number.
+ */
+public class FrameBudgetTest {
+
+    private static final int PILES = 4;
+    private static final int FIRE_INTERVAL = 25;
+    private static final int MAX_FRAMES = 3000;
+
+    //Outside edges of the box's sides and floor (the left border, the wall, and the bottom border)
+    private static final float BOX_OUTER_MIN_X = 0f;
+    private static final float BOX_OUTER_MAX_X = 82f;
+    private static final float BOX_OUTER_MIN_Y = 0f;
+
+    @Test
+    public void subStepBudgetKeepsBallsInTheBox() {
+        for (int pile = 1; pile <= PILES; pile++) {
+            crushPile("pile " + pile + " with 2 sub-steps", new Random(pile), 2, Integer.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void pairTestBudgetKeepsBallsInTheBox() {
+        for (int pile = 1; pile <= PILES; pile++) {
+            crushPile("pile " + pile + " with 20 pair tests", new Random(pile), Integer.MAX_VALUE, 20);
+        }
+    }
+
+    private void crushPile(final String name, Random random, int maxSubSteps, int maxPairTests) {
+        final LevelRunner runner = new LevelRunner("1.1", TestLevels.createCrushedBallPile());
+        runner.getGameEngine().setFrameBudget(maxSubSteps, maxPairTests);
+        final CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+
+        final int[] framesOverBudget = new int[1];
+        //Almost straight down
+        runner.playWithRandomShots(random, FIRE_INTERVAL, 0.3f, 0f, MAX_FRAMES, new LevelRunner.FrameListener() {
+            @Override
+            public void frameRun(int frame) {
+                if (stats.isFrameOverBudget()) {
+                    framesOverBudget[0]++;
+                }
+
+                for (Ball ball : runner.getBalls()) {
+                    String at = name + " frame " + frame + " ball " + ball.getBallSlot();
+                    assertFalse(at + " x isn't a number", Float.isNaN(ball.getCenterX()));
+                    assertFalse(at + " y isn't a number", Float.isNaN(ball.getCenterY()));
+                    if (ball.getBallState() != Ball.ballStatus.INACTIVE) {
+                        assertTrue(at + " got through the box", (ball.getCenterX() > BOX_OUTER_MIN_X)
+                                && (ball.getCenterX() < BOX_OUTER_MAX_X) && (ball.getCenterY() > BOX_OUTER_MIN_Y));
+                    }
+                }
+            }
+        });
+
+        assertTrue(name + ": no frame ran out of budget", framesOverBudget[0] > 0);
+        System.out.println(name + ": " + framesOverBudget[0] + " of " + runner.getFrame() + " frames ran out of budget");
+    }
+}
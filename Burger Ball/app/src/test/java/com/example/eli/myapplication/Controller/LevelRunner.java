@@ -0,0 +1,207 @@
+package com.example.eli.myapplication.Controller;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Resources.LevelData;
+import com.example.eli.myapplication.Resources.GameState.GameStatus;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs a level without a display, a frame at a time, the same way the physics thread does. The engine
+ * has no Context, so it loads no textures or sounds.
+ *
+ * Also plays levels with random shots, alone or two at once (to check that two ways of running the engine
+ * give the same game).
+ */
+class LevelRunner {
+
+    //Frame the first shot is fired on (the shots after it are fireInterval frames apart)
+    private static final int FIRST_SHOT_FRAME = 5;
+
+    //Runs a test on one of the levels, with the shots to fire into it
+    interface LevelTest {
+        void run(String levelString, Random random);
+    }
+
+    //Called after every frame that was run
+    interface FrameListener {
+        void frameRun(int frame);
+    }
+
+    private final GameEngine gameEngine;
+    private int frame = 0;
+    private int lastShotFrame = -1;
+
+    LevelRunner(String levelString) {
+        gameEngine = new GameEngine(levelString, true, null);
+        gameEngine.loadLevel();
+    }
+
+    //A level that isn't one of the sets (see TestLevels), drawn with levelString's chapter
+    LevelRunner(String levelString, LevelData levelData) {
+        gameEngine = new GameEngine(levelString, true, null);
+        gameEngine.loadLevel(levelData);
+    }
+
+    GameEngine getGameEngine() {
+        return gameEngine;
+    }
+
+    ArrayList<Ball> getBalls() {
+        return gameEngine.getAllBalls();
+    }
+
+    int getFrame() {
+        return frame;
+    }
+
+    void fireBall(float velocityX, float velocityY) {
+        gameEngine.activateBall(new PointF(velocityX, velocityY));
+    }
+
+    boolean hasLevelEnded() {
+        GameStatus status = gameEngine.getCurrentLevelStatus();
+        return (status != GameStatus.BEFORE_PLAY) && (status != GameStatus.ACTIVE);
+    }
+
+    //False once the level has ended (the frame isn't run)
+    boolean advanceFrame() {
+        GameStatus status = gameEngine.getCurrentLevelStatus();
+        if (status == GameStatus.BEFORE_PLAY) {
+            gameEngine.advanceMovingObstacles();
+        } else if (status == GameStatus.ACTIVE) {
+            gameEngine.advanceFrame();
+        } else {
+            return false;
+        }
+        frame++;
+        return true;
+    }
+
+    void advanceFrames(int frames) {
+        for (int index = 0; index < frames; index++) {
+            if (!advanceFrame()) {
+                return;
+            }
+        }
+    }
+
+    //The frame the last shot was fired on by playWithRandomShots (-1 before the first)
+    int getLastShotFrame() {
+        return lastShotFrame;
+    }
+
+    //Every level in the sets (chapters 1 to 3, levels 1 to 5), each with its own shots
+    static void forEachLevel(LevelTest test) {
+        for (int chapter = 1; chapter <= 3; chapter++) {
+            for (int level = 1; level <= 5; level++) {
+                test.run(chapter + "." + level, new Random(chapter * 100 + level));
+            }
+        }
+    }
+
+    /**
+     * Plays until the level ends or maxFrames have run, firing a ball every fireInterval frames while there are
+     * any left, at up to maxVelocityX either way and maxVelocityY up (with maxVelocityY 0, the shots only take
+     * one number from random).
+     * Returns the number of frames run.
+     */
+    int playWithRandomShots(Random random, int fireInterval, float maxVelocityX, float maxVelocityY, int maxFrames,
+                            FrameListener listener) {
+        PointF shot = new PointF();
+        for (int index = 0; index < maxFrames; index++) {
+            if (isShotDue(index, fireInterval)) {
+                nextShot(random, maxVelocityX, maxVelocityY, shot);
+                fire(shot);
+            }
+
+            if (!advanceFrame()) {
+                return index;
+            }
+            if (listener != null) {
+                listener.frameRun(index);
+            }
+        }
+        return maxFrames;
+    }
+
+    /**
+     * Plays expected and actual in step, firing the same shots into both (see playWithRandomShots), until either
+     * level ends or maxFrames have run. The listener is only called for frames both of them ran.
+     */
+    static void playInStep(LevelRunner expected, LevelRunner actual, Random random, int fireInterval,
+                           float maxVelocityX, float maxVelocityY, int maxFrames, FrameListener listener) {
+        PointF shot = new PointF();
+        for (int index = 0; index < maxFrames; index++) {
+            if (expected.isShotDue(index, fireInterval)) {
+                nextShot(random, maxVelocityX, maxVelocityY, shot);
+                expected.fire(shot);
+                actual.fire(shot);
+            }
+
+            boolean expectedRan = expected.advanceFrame();
+            boolean actualRan = actual.advanceFrame();
+            if (!expectedRan || !actualRan) {
+                return;
+            }
+            if (listener != null) {
+                listener.frameRun(index);
+            }
+        }
+    }
+
+    /**
+     * Same as playInStep, but also checks after every frame that every ball is the same in each (see
+     * assertSameBalls), and that both levels end on the same frame.
+     */
+    static void playSideBySide(final String name, final LevelRunner expected, final LevelRunner actual, Random random,
+                               int fireInterval, float maxVelocityX, float maxVelocityY, int maxFrames,
+                               final FrameListener listener) {
+        playInStep(expected, actual, random, fireInterval, maxVelocityX, maxVelocityY, maxFrames, new FrameListener() {
+            @Override
+            public void frameRun(int frame) {
+                assertSameBalls(name + " frame " + frame, expected.getBalls(), actual.getBalls());
+                if (listener != null) {
+                    listener.frameRun(frame);
+                }
+            }
+        });
+        assertEquals(name + ": level ended", expected.hasLevelEnded(), actual.hasLevelEnded());
+    }
+
+    //Every ball in the same state, place and velocity, bit for bit
+    static void assertSameBalls(String at, ArrayList<Ball> expectedBalls, ArrayList<Ball> actualBalls) {
+        assertEquals(at + ": balls", expectedBalls.size(), actualBalls.size());
+        for (int index = 0; index < expectedBalls.size(); index++) {
+            Ball expected = expectedBalls.get(index);
+            Ball actual = actualBalls.get(index);
+            String ball = at + " ball " + index;
+
+            assertEquals(ball + " state", expected.getBallState(), actual.getBallState());
+            assertEquals(ball + " asleep", expected.isBallAsleep(), actual.isBallAsleep());
+            assertEquals(ball + " x", Float.floatToIntBits(expected.getCenterX()), Float.floatToIntBits(actual.getCenterX()));
+            assertEquals(ball + " y", Float.floatToIntBits(expected.getCenterY()), Float.floatToIntBits(actual.getCenterY()));
+            assertEquals(ball + " velocity x", Float.floatToIntBits(expected.getVelocity().x), Float.floatToIntBits(actual.getVelocity().x));
+            assertEquals(ball + " velocity y", Float.floatToIntBits(expected.getVelocity().y), Float.floatToIntBits(actual.getVelocity().y));
+        }
+    }
+
+    private boolean isShotDue(int index, int fireInterval) {
+        return ((index % fireInterval) == (FIRST_SHOT_FRAME % fireInterval)) && gameEngine.areBallsAvailable();
+    }
+
+    private static void nextShot(Random random, float maxVelocityX, float maxVelocityY, PointF result) {
+        result.x = ((random.nextFloat() * 2) - 1) * maxVelocityX;
+        result.y = (maxVelocityY == 0) ? 0f : random.nextFloat() * maxVelocityY;
+    }
+
+    private void fire(PointF shot) {
+        fireBall(shot.x, shot.y);
+        lastShotFrame = frame;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays the wide ball pile with detailed testing split across 1, 2, 4 and 8 workers (see ParallelNarrowphase),
+ * testing in parallel only when a step has GameState.PARALLEL_NARROWPHASE_MIN_PAIRS pairs, the same as the game.
+ * Every worker count has to end with the same balls as testing one pair after another.
+ *
+ * The time per frame, and the steps that were tested in parallel, are printed for each worker count. The times
+ * aren't checked, since they depend on the cores the machine has and on whatever else it is doing.
+ */
+public class NarrowphaseScalingBenchmarkTest {
+
+    private static final int[] WORKER_COUNTS = {1, 2, 4, 8};
+    //Every ball is in by frame 500, and the pile is big enough to be tested in parallel for the rest
+    private static final int MAX_FRAMES = 2000;
+    private static final int FIRE_INTERVAL = 5;
+    private static final long SEED = 7;
+
+    @Test
+    public void everyWorkerCountGivesTheSameGame() {
+        LevelRunner sequential = null;
+        for (int workers : WORKER_COUNTS) {
+            LevelRunner runner = new LevelRunner("1.1", TestLevels.createWideBallPile());
+            if (workers == 1) {
+                runner.getGameEngine().setNarrowphaseWorkers(1);
+            } else {
+                //setNarrowphaseWorkers only starts the workers on API 21 and up, which a JVM doesn't report
+                runner.getGameEngine().forceParallelNarrowphase(workers, GameState.PARALLEL_NARROWPHASE_MIN_PAIRS);
+            }
+            CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+
+            long startTime = System.nanoTime();
+            //Spread across the bottom
+            int frames = runner.playWithRandomShots(new Random(SEED), FIRE_INTERVAL, 3f, 0f, MAX_FRAMES, null);
+            long frameTime = (System.nanoTime() - startTime) / Math.max(frames, 1);
+            runner.getGameEngine().setNarrowphaseWorkers(1);
+
+            System.out.println(workers + " workers: " + (frameTime / 1000) + " us per frame, " + stats.getParallelPasses()
+                    + " parallel passes over " + frames + " frames");
+
+            if (workers == 1) {
+                assertEquals("one worker tested in parallel", 0, stats.getParallelPasses());
+                sequential = runner;
+            } else {
+                assertTrue(workers + " workers never tested in parallel", stats.getParallelPasses() > 0);
+                assertEquals(workers + " workers: frames", sequential.getFrame(), runner.getFrame());
+                LevelRunner.assertSameBalls(workers + " workers", sequential.getBalls(), runner.getBalls());
+            }
+        }
+    }
+}
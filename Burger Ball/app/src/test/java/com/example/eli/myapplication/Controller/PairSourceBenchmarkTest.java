@@ -0,0 +1,54 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Resources.GameState.PairSourceType;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sweep and prune has to hand the narrow phase fewer candidate pairs than the nested loop over every pair,
+ * while playing the ball pile out exactly the same way (every ball ends up the same).
+ *
+ * The candidate pairs and the time per frame are printed for every pair source.
+ */
+public class PairSourceBenchmarkTest {
+
+    private static final int MAX_FRAMES = 1500;
+    private static final int FIRE_INTERVAL = 25;
+    private static final long SEED = 7;
+
+    @Test
+    public void sweepAndPruneTestsFewerPairsThanBruteForce() {
+        LevelRunner bruteForce = playPile(PairSourceType.BRUTE_FORCE);
+        LevelRunner sweepAndPrune = playPile(PairSourceType.SWEEP_AND_PRUNE);
+        for (PairSourceType pairSourceType : PairSourceType.values()) {
+            if ((pairSourceType != PairSourceType.BRUTE_FORCE) && (pairSourceType != PairSourceType.SWEEP_AND_PRUNE)) {
+                playPile(pairSourceType);
+            }
+        }
+
+        long bruteForcePairs = bruteForce.getGameEngine().getCollisionStatistics().getTotalCandidatePairs();
+        long sweepAndPrunePairs = sweepAndPrune.getGameEngine().getCollisionStatistics().getTotalCandidatePairs();
+        assertTrue(sweepAndPrunePairs + " pairs, brute force " + bruteForcePairs, sweepAndPrunePairs < bruteForcePairs);
+
+        LevelRunner.assertSameBalls("pile", bruteForce.getBalls(), sweepAndPrune.getBalls());
+    }
+
+    private LevelRunner playPile(PairSourceType pairSourceType) {
+        LevelRunner runner = new LevelRunner("1.1", TestLevels.createBallPile());
+        runner.getGameEngine().setPairSourceType(pairSourceType);
+        CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+
+        long startTime = System.nanoTime();
+        int frames = runner.playWithRandomShots(new Random(SEED), FIRE_INTERVAL, 0.3f, 0f, MAX_FRAMES, null);
+        long frameTime = (System.nanoTime() - startTime) / Math.max(frames, 1);
+
+        System.out.println(pairSourceType + ": " + (stats.getTotalCandidatePairs() / Math.max(frames, 1))
+                + " candidate pairs per frame, " + (frameTime / 1000) + " us per frame");
+        return runner;
+    }
+}
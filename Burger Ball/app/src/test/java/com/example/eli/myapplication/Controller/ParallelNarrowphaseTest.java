@@ -0,0 +1,75 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing pairs in parallel has to give exactly the same game as testing them one after another: every ball in
+ * the same place, with the same velocity, bit for bit, after every frame. The separating axis test counters
+ * are compared as well, since they'd drift apart if the SeparatingAxisCache ever did.
+ */
+public class ParallelNarrowphaseTest {
+
+    private static final int WORKERS = 4;
+    private static final int MAX_FRAMES = 1500;
+
+    @Test
+    public void parallelMatchesSequentialInEveryLevel() {
+        LevelRunner.forEachLevel(new LevelRunner.LevelTest() {
+            @Override
+            public void run(String levelString, Random random) {
+                //Fire a ball every 90 frames, in any direction
+                compare(levelString, new LevelRunner(levelString), new LevelRunner(levelString), random, 90, 10f, 10f);
+            }
+        });
+    }
+
+    @Test
+    public void parallelMatchesSequentialInBallPile() {
+        LevelRunner sequential = new LevelRunner("1.1", TestLevels.createBallPile());
+        LevelRunner parallel = new LevelRunner("1.1", TestLevels.createBallPile());
+
+        //Fire a ball every 25 frames, almost straight down
+        compare("pile", sequential, parallel, new Random(7), 25, 0.3f, 0f);
+    }
+
+    @Test
+    public void parallelMatchesSequentialWhenBallsAreCrushed() {
+        LevelRunner sequential = new LevelRunner("1.1", TestLevels.createCrushedBallPile());
+        LevelRunner parallel = new LevelRunner("1.1", TestLevels.createCrushedBallPile());
+
+        compare("crushed pile", sequential, parallel, new Random(7), 25, 0.3f, 0f);
+    }
+
+    private void compare(final String name, LevelRunner sequential, LevelRunner parallel, Random random, int fireInterval,
+                         float maxVelocityX, float maxVelocityY) {
+        sequential.getGameEngine().setNarrowphaseWorkers(1);
+        //Every step is tested in parallel, however few pairs it has
+        parallel.getGameEngine().forceParallelNarrowphase(WORKERS, 0);
+
+        final CollisionStatistics sequentialStats = sequential.getGameEngine().getCollisionStatistics();
+        final CollisionStatistics parallelStats = parallel.getGameEngine().getCollisionStatistics();
+
+        LevelRunner.playSideBySide(name, sequential, parallel, random, fireInterval, maxVelocityX, maxVelocityY, MAX_FRAMES,
+                new LevelRunner.FrameListener() {
+                    @Override
+                    public void frameRun(int frame) {
+                        String at = name + " frame " + frame;
+                        assertEquals(at + ": sub-steps", sequentialStats.getFrameSubSteps(), parallelStats.getFrameSubSteps());
+                        assertEquals(at + ": pair tests", sequentialStats.getFramePairTests(), parallelStats.getFramePairTests());
+                        assertEquals(at + ": collisions", sequentialStats.getFrameCollisionsFound(), parallelStats.getFrameCollisionsFound());
+                        assertEquals(at + ": axes tested", sequentialStats.getTotalAxesTested(), parallelStats.getTotalAxesTested());
+                        assertEquals(at + ": cached axis hits", sequentialStats.getTotalCachedAxisHits(), parallelStats.getTotalCachedAxisHits());
+                    }
+                });
+
+        assertEquals(name + ": sequential testing ran in parallel", 0, sequentialStats.getParallelPasses());
+        assertTrue(name + ": parallel testing never ran", parallelStats.getParallelPasses() > 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Model.Ball;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Balls piled on top of each other have to come to rest (see RestingContactSolver), instead of bouncing on each
+ * other forever. The pile level only ends once every ball has been fired and has stopped, so each pile has to
+ * end the level, with every ball stopped in the box rather than taken out of play.
+ *
+ * How long each pile takes to settle, the sub-steps it needs while it does, and the time per frame are printed
+ * as well.
+ */
+public class PileSettlingTest {
+
+    private static final int PILES = 16;
+    private static final int FIRE_INTERVAL = 25;
+    private static final int MAX_FRAMES = 4000;
+
+    //Inside of the box's sides and floor (the left border, the wall, and the bottom border)
+    private static final float BOX_MIN_X = 6f;
+    private static final float BOX_MAX_X = 76f;
+    private static final float BOX_MIN_Y = 12f;
+    //How far a ball may have gone into a side or the floor
+    private static final float TOLERANCE = 0.1f;
+
+    @Test
+    public void everyPileSettles() {
+        for (int pile = 1; pile <= PILES; pile++) {
+            settlePile(pile);
+        }
+    }
+
+    private void settlePile(int pile) {
+        final LevelRunner runner = new LevelRunner("1.1", TestLevels.createBallPile());
+        final CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+        String name = "pile " + pile;
+
+        final long[] settlingSubSteps = new long[1];
+        final int[] settlingFrames = new int[1];
+        long startTime = System.nanoTime();
+        //Almost straight down
+        int frames = runner.playWithRandomShots(new Random(pile), FIRE_INTERVAL, 0.3f, 0f, MAX_FRAMES, new LevelRunner.FrameListener() {
+            @Override
+            public void frameRun(int frame) {
+                if (!runner.getGameEngine().areBallsAvailable() && (frame > runner.getLastShotFrame())) {
+                    settlingSubSteps[0] += stats.getFrameSubSteps();
+                    settlingFrames[0]++;
+                }
+            }
+        });
+        long frameTime = (System.nanoTime() - startTime) / Math.max(frames, 1);
+
+        assertFalse(name + " never settled", runner.advanceFrame());
+        for (Ball ball : runner.getBalls()) {
+            String at = name + " ball " + ball.getBallSlot();
+            assertTrue(at + " didn't stop", ball.isBallStopped());
+            float radius = ball.getRadius() - TOLERANCE;
+            assertTrue(at + " left the box", (ball.getCenterX() >= BOX_MIN_X + radius) && (ball.getCenterX() <= BOX_MAX_X - radius)
+                    && (ball.getCenterY() >= BOX_MIN_Y + radius));
+        }
+
+        System.out.println(name + ": settled " + settlingFrames[0] + " frames after the last ball was fired, "
+                + ((float) settlingSubSteps[0] / Math.max(settlingFrames[0], 1)) + " sub-steps per frame, " + (frameTime / 1000) + " us per frame");
+    }
+}
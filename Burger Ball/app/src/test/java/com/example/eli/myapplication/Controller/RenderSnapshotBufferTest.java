@@ -0,0 +1,174 @@
+package com.example.eli.myapplication.Controller;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The game publishes snapshots as fast as it can while a stub renderer reads them. Every field of a
+ * snapshot is filled from its frame number, so a snapshot the renderer sees half written (or that the
+ * game starts overwriting while the renderer still holds it) has fields that disagree.
+ */
+public class RenderSnapshotBufferTest {
+
+    private static final int BALL_COUNT = 5;
+    private static final int MOVING_OBSTACLE_COUNT = 3;
+    private static final int ID_CAPACITY = 20;
+    private static final int FRAMES = 300000;
+
+    @Test
+    public void rendererNeverSeesTornSnapshot() throws InterruptedException {
+        final RenderSnapshotBuffer buffer = new RenderSnapshotBuffer(BALL_COUNT, MOVING_OBSTACLE_COUNT, ID_CAPACITY);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread game = new Thread("StressGame") {
+            @Override
+            public void run() {
+                for (long frame = 1; frame <= FRAMES; frame++) {
+                    fill(buffer.getBackBuffer(), frame);
+                    buffer.publish();
+                }
+            }
+        };
+
+        Thread renderer = new Thread("StressRenderer") {
+            @Override
+            public void run() {
+                long lastFrame = 0;
+                int newSnapshots = 0;
+                while (lastFrame < FRAMES) {
+                    RenderSnapshot snapshot = buffer.getLatest();
+                    long frame = snapshot.frameNumber;
+                    if (frame == 0) {
+                        //Nothing published yet
+                        continue;
+                    }
+
+                    //Read it twice, with a bit of drawing time in between
+                    String error = check(snapshot, frame);
+                    Thread.yield();
+                    if (error == null) {
+                        error = check(snapshot, frame);
+                    }
+
+                    if (error == null && frame < lastFrame) {
+                        error = "frame " + frame + " was drawn after frame " + lastFrame;
+                    }
+                    if (error != null) {
+                        failure.compareAndSet(null, error);
+                        return;
+                    }
+
+                    if (frame > lastFrame) {
+                        newSnapshots++;
+                    }
+                    lastFrame = frame;
+                }
+
+                if (newSnapshots < 2) {
+                    failure.compareAndSet(null, "the renderer only saw " + newSnapshots + " snapshots");
+                }
+            }
+        };
+
+        renderer.start();
+        game.start();
+        game.join();
+        renderer.join(60000);
+
+        assertTrue("the renderer never saw the last frame", !renderer.isAlive());
+        assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    public void latestIsTheLastPublished() {
+        RenderSnapshotBuffer buffer = new RenderSnapshotBuffer(BALL_COUNT, MOVING_OBSTACLE_COUNT, ID_CAPACITY);
+
+        for (long frame = 1; frame <= 4; frame++) {
+            fill(buffer.getBackBuffer(), frame);
+            buffer.publish();
+        }
+        assertEquals(4, buffer.getLatest().frameNumber);
+
+        //Nothing new published, so the renderer keeps the same snapshot
+        RenderSnapshot latest = buffer.getLatest();
+        assertEquals(4, latest.frameNumber);
+        assertNull(check(latest, 4));
+    }
+
+    private static void fill(RenderSnapshot snapshot, long frame) {
+        snapshot.frameNumber = frame;
+        snapshot.frameEndTime = frame * 3;
+        snapshot.score = (int) frame;
+        snapshot.levelEndFrameCount = (int) (frame % 1000);
+        snapshot.success = (frame % 2) == 0;
+
+        for (int ball = 0; ball < BALL_COUNT; ball++) {
+            snapshot.ballVisible[ball] = ((frame + ball) % 2) == 0;
+            snapshot.ballEmitsParticles[ball] = ((frame + ball) % 3) == 0;
+            snapshot.ballRotation[ball] = valueFor(frame, ball);
+            for (int index = 0; index < 16; index++) {
+                snapshot.ballModelMatrices[(ball * 16) + index] = valueFor(frame, index);
+            }
+            for (int index = 0; index < 2; index++) {
+                snapshot.ballLastDisplacement[(ball * 2) + index] = valueFor(frame, index);
+                snapshot.ballCenter[(ball * 2) + index] = valueFor(frame, index + 1);
+                snapshot.ballVelocity[(ball * 2) + index] = valueFor(frame, index + 2);
+            }
+        }
+        for (int index = 0; index < snapshot.obstacleOffsets.length; index++) {
+            snapshot.obstacleOffsets[index] = valueFor(frame, index);
+        }
+        for (int id = 0; id < ID_CAPACITY; id++) {
+            snapshot.targetCollected[id] = ((frame + id) % 2) == 0;
+        }
+    }
+
+    //null if every field of the snapshot was filled for frame
+    private static String check(RenderSnapshot snapshot, long frame) {
+        if (snapshot.frameEndTime != frame * 3 || snapshot.score != (int) frame
+                || snapshot.levelEndFrameCount != (int) (frame % 1000) || snapshot.success != ((frame % 2) == 0)) {
+            return "frame " + frame + " has a header from another frame";
+        }
+
+        for (int ball = 0; ball < BALL_COUNT; ball++) {
+            if (snapshot.ballVisible[ball] != (((frame + ball) % 2) == 0)
+                    || snapshot.ballEmitsParticles[ball] != (((frame + ball) % 3) == 0)
+                    || snapshot.ballRotation[ball] != valueFor(frame, ball)) {
+                return "frame " + frame + " has ball " + ball + " from another frame";
+            }
+            for (int index = 0; index < 16; index++) {
+                if (snapshot.ballModelMatrices[(ball * 16) + index] != valueFor(frame, index)) {
+                    return "frame " + frame + " has a model matrix from another frame";
+                }
+            }
+            for (int index = 0; index < 2; index++) {
+                if (snapshot.ballLastDisplacement[(ball * 2) + index] != valueFor(frame, index)
+                        || snapshot.ballCenter[(ball * 2) + index] != valueFor(frame, index + 1)
+                        || snapshot.ballVelocity[(ball * 2) + index] != valueFor(frame, index + 2)) {
+                    return "frame " + frame + " has a ball position from another frame";
+                }
+            }
+        }
+        for (int index = 0; index < snapshot.obstacleOffsets.length; index++) {
+            if (snapshot.obstacleOffsets[index] != valueFor(frame, index)) {
+                return "frame " + frame + " has an obstacle offset from another frame";
+            }
+        }
+        for (int id = 0; id < ID_CAPACITY; id++) {
+            if (snapshot.targetCollected[id] != (((frame + id) % 2) == 0)) {
+                return "frame " + frame + " has a target from another frame";
+            }
+        }
+        return null;
+    }
+
+    //Exact in a float for every frame the test runs
+    private static float valueFor(long frame, int index) {
+        return (float) ((frame % 100000) * 8 + index);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A pair that stays apart from one frame to the next is usually kept apart by the same axis, so the cached
+ * separating axis has to end most of the polygon tests it is tried on, in every level.
+ *
+ * The cache's hit rate, and the axes tested per polygon test, are printed for each level as well.
+ */
+public class SeparatingAxisCacheTest {
+
+    private static final int MAX_FRAMES = 1500;
+    private static final int FIRE_INTERVAL = 90;
+    private static final float MIN_HIT_RATE = 0.5f;
+
+    @Test
+    public void cachedAxisSeparatesMostPairs() {
+        LevelRunner.forEachLevel(new LevelRunner.LevelTest() {
+            @Override
+            public void run(String levelString, Random random) {
+                checkCache(levelString, random);
+            }
+        });
+    }
+
+    private void checkCache(String levelString, Random random) {
+        LevelRunner runner = new LevelRunner(levelString);
+        CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+        runner.playWithRandomShots(random, FIRE_INTERVAL, 10f, 10f, MAX_FRAMES, null);
+
+        assertTrue(levelString + ": the cached axis was never tried", stats.getTotalCachedAxisLookups() > 0);
+        float hitRate = (float) stats.getTotalCachedAxisHits() / stats.getTotalCachedAxisLookups();
+        float axesPerTest = (float) stats.getTotalAxesTested() / Math.max(stats.getTotalPolygonTests(), 1);
+        assertTrue(levelString + ": cached axis hit rate " + hitRate, hitRate > MIN_HIT_RATE);
+
+        System.out.println(levelString + ": cached axis hit " + (int) (100 * hitRate) + "% of the time, "
+                + axesPerTest + " axes per polygon test");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.eli.myapplication.Controller;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Once a level is under way, running a frame shouldn't allocate anything (so the garbage collector never
+ * has to interrupt play). Growing the pools and lists that are reused every frame is fine, as long as it
+ * stops once they are big enough.
+ */
+public class SteadyStateAllocationTest {
+
+    //A ball fired into level 1.1 has been everywhere it is going to go by WARM_UP_FRAMES, and is still
+    // bouncing along the floor (hitting it and the separator every few frames) until it rolls to a stop,
+    // after the measured frames.
+    private static final String LEVEL = "1.1";
+    private static final float FIRE_VELOCITY_X = 3f;
+    private static final float FIRE_VELOCITY_Y = 8f;
+    private static final int FIRE_FRAME = 5;
+    private static final int WARM_UP_FRAMES = 700;
+    private static final int MEASURED_FRAMES = 480;
+
+    @Test
+    public void warmedUpFramesDoNotAllocate() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocationCounter.isThreadAllocatedMemorySupported());
+        allocationCounter.setThreadAllocatedMemoryEnabled(true);
+
+        //The JVM can allocate on this thread by itself while it compiles (or decompiles) the code being run,
+        // so the level is run once first to get that done, and then twice more. A frame has only allocated if
+        // it did in both of the last two runs.
+        runLevel(allocationCounter, new long[MEASURED_FRAMES]);
+        long[] firstRun = new long[MEASURED_FRAMES];
+        int collisions = runLevel(allocationCounter, firstRun);
+        long[] secondRun = new long[MEASURED_FRAMES];
+        runLevel(allocationCounter, secondRun);
+
+        long allocatedBytes = 0;
+        for (int index = 0; index < MEASURED_FRAMES; index++) {
+            allocatedBytes += Math.min(firstRun[index], secondRun[index]);
+        }
+
+        assertTrue("the ball should still be colliding in the measured frames", collisions > 0);
+        assertEquals("bytes allocated by warmed up frames", 0, allocatedBytes);
+    }
+
+    //Fills allocatedBytes with what each measured frame allocated, and returns the collisions found in them
+    private int runLevel(com.sun.management.ThreadMXBean allocationCounter, long[] allocatedBytes) {
+        long threadId = Thread.currentThread().getId();
+        LevelRunner runner = new LevelRunner(LEVEL);
+        runner.advanceFrames(FIRE_FRAME);
+        runner.fireBall(FIRE_VELOCITY_X, FIRE_VELOCITY_Y);
+        runner.advanceFrames(WARM_UP_FRAMES - FIRE_FRAME);
+
+        int collisions = 0;
+        for (int index = 0; index < MEASURED_FRAMES; index++) {
+            long before = allocationCounter.getThreadAllocatedBytes(threadId);
+            assertTrue("level ended early", runner.advanceFrame());
+            allocatedBytes[index] = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+            collisions += runner.getGameEngine().getCollisionStatistics().getFrameCollisionsFound();
+        }
+        return collisions;
+    }
+}
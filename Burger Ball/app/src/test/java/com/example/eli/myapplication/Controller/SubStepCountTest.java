@@ -0,0 +1,59 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * With the exact time of impact (see CollisionDetection.findTimeOfImpact), a collision costs one more sub-step,
+ * not a run of short steps towards it. Every level has to stay well under a sub-step and a half per frame on
+ * average, and no frame may run out of sub-steps (GameState.MAX_SUB_STEPS_PER_FRAME).
+ *
+ * The sub-steps per frame, and the time per frame, are printed for each level as well.
+ */
+public class SubStepCountTest {
+
+    private static final int MAX_FRAMES = 1500;
+    private static final int FIRE_INTERVAL = 90;
+    private static final float MAX_AVERAGE_SUB_STEPS = 1.5f;
+
+    @Test
+    public void everyLevelTakesAboutOneSubStepPerFrame() {
+        LevelRunner.forEachLevel(new LevelRunner.LevelTest() {
+            @Override
+            public void run(String levelString, Random random) {
+                countSubSteps(levelString, random);
+            }
+        });
+    }
+
+    private void countSubSteps(String levelString, Random random) {
+        LevelRunner runner = new LevelRunner(levelString);
+        final CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+
+        final long[] subSteps = new long[1];
+        final int[] mostSubSteps = new int[1];
+        long startTime = System.nanoTime();
+        //Fire a ball every FIRE_INTERVAL frames, in any direction
+        int frames = runner.playWithRandomShots(random, FIRE_INTERVAL, 10f, 10f, MAX_FRAMES, new LevelRunner.FrameListener() {
+            @Override
+            public void frameRun(int frame) {
+                subSteps[0] += stats.getFrameSubSteps();
+                mostSubSteps[0] = Math.max(mostSubSteps[0], stats.getFrameSubSteps());
+            }
+        });
+        long frameTime = (System.nanoTime() - startTime) / Math.max(frames, 1);
+
+        float averageSubSteps = (float) subSteps[0] / Math.max(frames, 1);
+        assertTrue(levelString + ": " + averageSubSteps + " sub-steps per frame", averageSubSteps < MAX_AVERAGE_SUB_STEPS);
+        assertTrue(levelString + ": ran out of sub-steps", mostSubSteps[0] < GameState.MAX_SUB_STEPS_PER_FRAME);
+
+        System.out.println(levelString + ": " + averageSubSteps + " sub-steps per frame (at most " + mostSubSteps[0] + "), "
+                + (frameTime / 1000) + " us per frame");
+    }
+}
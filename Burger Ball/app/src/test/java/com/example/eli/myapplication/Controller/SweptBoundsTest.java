@@ -0,0 +1,129 @@
+package com.example.eli.myapplication.Controller;
+
+import com.example.eli.myapplication.Logic.CollisionStatistics;
+import com.example.eli.myapplication.Model.MovingObstacle;
+import com.example.eli.myapplication.Resources.GameState;
+import com.example.eli.myapplication.Resources.GameState.PairSourceType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pair sources register a moving obstacle once, by the bounds of its whole path, and never update it. That is only
+ * safe if the obstacle can never be outside those bounds, at any point of any step. It also shouldn't cost
+ * anything: every pair source has to give the same game as pairing every ball with everything.
+ *
+ * The candidate pairs and the time per frame of every pair source are printed for levels 1.4 and 2.5, where the
+ * moving obstacles cover the most of the level.
+ */
+public class SweptBoundsTest {
+
+    //Levels with moving obstacles
+    private static final String[] MOVING_LEVELS = {"1.4", "2.3", "2.4", "2.5", "3.3", "3.4"};
+
+    //More than two cycles of the longest path in any level
+    private static final int PATH_FRAMES = 2700;
+    private static final int SUB_STEPS = 4;
+    private static final float TOLERANCE = 0.001f;
+    private static final int MAX_FRAMES = 1500;
+
+    //Levels the pair sources are timed on
+    private static final String[] BENCHMARK_LEVELS = {"1.4", "2.5"};
+
+    @Test
+    public void obstaclesStayInsideTheirSweptBounds() {
+        for (String levelString : MOVING_LEVELS) {
+            LevelRunner runner = new LevelRunner(levelString);
+            ArrayList<MovingObstacle> obstacles = runner.getGameEngine().getAllMovingObstacles();
+            assertTrue(levelString + " has no moving obstacles", obstacles.size() > 0);
+
+            for (int index = 0; index < obstacles.size(); index++) {
+                checkWholeCycle(levelString + " obstacle " + index, obstacles.get(index));
+            }
+        }
+    }
+
+    //Run the obstacle through its path, a few sub-steps a frame, checking its bounds after every move
+    private void checkWholeCycle(String name, MovingObstacle obstacle) {
+        float minX = obstacle.getMinX();
+        float maxX = obstacle.getMaxX();
+        float minY = obstacle.getMinY();
+        float maxY = obstacle.getMaxY();
+
+        float timeStep = GameState.FRAME_SIZE / SUB_STEPS;
+        for (int frame = 0; frame < PATH_FRAMES; frame++) {
+            for (int step = 0; step < SUB_STEPS; step++) {
+                //The temp position, where the obstacle will be at the end of the step
+                obstacle.moveTempCoordsByFrame(timeStep);
+                assertInside(name + " frame " + frame + " temp", obstacle);
+                obstacle.moveByFrame(timeStep);
+                assertInside(name + " frame " + frame, obstacle);
+
+                minX = Math.min(minX, obstacle.getMinX());
+                maxX = Math.max(maxX, obstacle.getMaxX());
+                minY = Math.min(minY, obstacle.getMinY());
+                maxY = Math.max(maxY, obstacle.getMaxY());
+            }
+            obstacle.endFrame();
+            assertInside(name + " frame " + frame + " end", obstacle);
+        }
+
+        //The bounds are no bigger than they need to be
+        assertEquals(name + " min x", obstacle.getSweptMinX(), minX, TOLERANCE);
+        assertEquals(name + " max x", obstacle.getSweptMaxX(), maxX, TOLERANCE);
+        assertEquals(name + " min y", obstacle.getSweptMinY(), minY, TOLERANCE);
+        assertEquals(name + " max y", obstacle.getSweptMaxY(), maxY, TOLERANCE);
+    }
+
+    private void assertInside(String at, MovingObstacle obstacle) {
+        assertTrue(at + " left of its swept bounds", obstacle.getMinX() >= obstacle.getSweptMinX() - TOLERANCE);
+        assertTrue(at + " right of its swept bounds", obstacle.getMaxX() <= obstacle.getSweptMaxX() + TOLERANCE);
+        assertTrue(at + " below its swept bounds", obstacle.getMinY() >= obstacle.getSweptMinY() - TOLERANCE);
+        assertTrue(at + " above its swept bounds", obstacle.getMaxY() <= obstacle.getSweptMaxY() + TOLERANCE);
+    }
+
+    @Test
+    public void everyPairSourceMatchesBruteForce() {
+        for (String levelString : MOVING_LEVELS) {
+            for (PairSourceType type : PairSourceType.values()) {
+                if (type == PairSourceType.BRUTE_FORCE) {
+                    continue;
+                }
+                LevelRunner bruteForce = new LevelRunner(levelString);
+                bruteForce.getGameEngine().setPairSourceType(PairSourceType.BRUTE_FORCE);
+                LevelRunner pruned = new LevelRunner(levelString);
+                pruned.getGameEngine().setPairSourceType(type);
+
+                compare(levelString + " " + type, bruteForce, pruned, new Random(levelString.hashCode()));
+            }
+        }
+    }
+
+    @Test
+    public void printPairSourceTimings() {
+        for (String levelString : BENCHMARK_LEVELS) {
+            for (PairSourceType type : PairSourceType.values()) {
+                LevelRunner runner = new LevelRunner(levelString);
+                runner.getGameEngine().setPairSourceType(type);
+                CollisionStatistics stats = runner.getGameEngine().getCollisionStatistics();
+
+                long startTime = System.nanoTime();
+                int frames = runner.playWithRandomShots(new Random(levelString.hashCode()), 60, 10f, 10f, MAX_FRAMES, null);
+                long frameTime = (System.nanoTime() - startTime) / Math.max(frames, 1);
+
+                System.out.println(levelString + " " + type + ": " + (stats.getTotalCandidatePairs() / Math.max(frames, 1))
+                        + " candidate pairs per frame, " + (frameTime / 1000) + " us per frame");
+            }
+        }
+    }
+
+    //Fire a ball every 60 frames, in any direction
+    private void compare(String name, LevelRunner bruteForce, LevelRunner pruned, Random random) {
+        LevelRunner.playSideBySide(name, bruteForce, pruned, random, 60, 10f, 10f, MAX_FRAMES, null);
+    }
+}
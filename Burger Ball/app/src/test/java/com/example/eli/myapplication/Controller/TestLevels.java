@@ -0,0 +1,75 @@
+package com.example.eli.myapplication.Controller;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Model.MovePath;
+import com.example.eli.myapplication.Model.SingleMovement;
+import com.example.eli.myapplication.Resources.CommonFunctions;
+import com.example.eli.myapplication.Resources.GameState;
+import com.example.eli.myapplication.Resources.LevelData;
+
+import java.util.ArrayList;
+
+/**
+ * Levels that aren't in any of the sets, for tests that need a particular scene.
+ */
+class TestLevels {
+
+    //Balls in the pile level
+    static final int PILE_BALLS = 20;
+    //Balls in the wide pile level
+    static final int WIDE_PILE_BALLS = 100;
+
+    /**
+     * A narrow box in the bottom left corner (between the left border and a wall), with the balls fired straight
+     * down into it, so they end up piled on top of each other. The one target is out of reach, so the level only
+     * ends once every ball has been fired and come to rest.
+     */
+    static LevelData createBallPile() {
+        ArrayList<float[]> obstacleCoords = new ArrayList<>();
+        float wallCoords[] = {
+                76f, 200f, 0.0f,   // top left
+                76f, 12f, 0.0f,   // bottom left
+                82f, 12f, 0.0f,   // bottom right
+                82f, 200f, 0.0f }; // top right
+        obstacleCoords.add(wallCoords);
+
+        ArrayList<float[]> targetCoords = new ArrayList<>();
+        targetCoords.add(CommonFunctions.createCircleCoords(150, 180, 8f));
+
+        return new LevelData(obstacleCoords, targetCoords, PILE_BALLS, CommonFunctions.createCircleCoords(41, 262, GameState.ballRadius));
+    }
+
+    /**
+     * The ball pile, with a plate along the bottom of the box's right side that keeps pushing the pile against
+     * the left border and back, squeezing balls into places they can't be (see CollisionDetection.INVALID_BALL_POSITION).
+     */
+    static LevelData createCrushedBallPile() {
+        LevelData levelData = createBallPile();
+
+        float plateCoords[] = {
+                60f, 60f, 0.0f,   // top left
+                60f, 12f, 0.0f,   // bottom left
+                68f, 12f, 0.0f,   // bottom right
+                68f, 60f, 0.0f }; // top right
+
+        MovePath path = new MovePath();
+        path.addMovement(new SingleMovement(new PointF(-0.5f, 0f), 80));
+        path.addMovement(new SingleMovement(new PointF(0.5f, 0f), 80));
+        levelData.addMovingObstacle(plateCoords, path);
+
+        return levelData;
+    }
+
+    /**
+     * No obstacles at all, and the balls fired in from the middle of the top, so they spread out and pile up across
+     * the whole bottom border. Enough balls that steps have more than GameState.PARALLEL_NARROWPHASE_MIN_PAIRS pairs.
+     */
+    static LevelData createWideBallPile() {
+        ArrayList<float[]> targetCoords = new ArrayList<>();
+        targetCoords.add(CommonFunctions.createCircleCoords(190, 290, 4f));
+
+        return new LevelData(new ArrayList<float[]>(), targetCoords, WIDE_PILE_BALLS,
+                CommonFunctions.createCircleCoords(100, 262, GameState.ballRadius));
+    }
+}
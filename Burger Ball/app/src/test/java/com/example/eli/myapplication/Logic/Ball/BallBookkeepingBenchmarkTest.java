@@ -0,0 +1,132 @@
+package com.example.eli.myapplication.Logic.Ball;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Resources.CommonFunctions;
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * BallEngine keeps its per ball counters in arrays indexed by the ball's slot, instead of HashMaps keyed by the
+ * ball. This reads and clears them the way every sub-step does, next to a HashMap version of the same bookkeeping
+ * (boxed counters, looked up and put back each time), with 3 balls and with 100. Both have to add up to the same
+ * counters.
+ *
+ * The time per sub-step is printed for both, for each number of balls. It isn't checked, since it depends on
+ * the JIT and on whatever else the machine is doing.
+ */
+public class BallBookkeepingBenchmarkTest {
+
+    private static final int SUB_STEPS = 20000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void compareWithThreeBalls() {
+        compare(3);
+    }
+
+    @Test
+    public void compareWithAHundredBalls() {
+        compare(100);
+    }
+
+    private void compare(int totalBalls) {
+        ArrayList<Ball> balls = new ArrayList<>();
+        float[] ballCoords = CommonFunctions.getDefaultBallCoords();
+        for (int slot = 0; slot < totalBalls; slot++) {
+            Ball ball = new Ball(ballCoords, new PointF(0f, 0f), GameState.ballRadius, 0);
+            ball.setBallSlot(slot);
+            balls.add(ball);
+        }
+        BallEngine ballEngine = new BallEngine(ballCoords, totalBalls);
+        HashMapBookkeeping hashMaps = new HashMapBookkeeping(balls);
+
+        //The fastest of a few rounds, once the JIT has compiled both
+        long arrayTime = Long.MAX_VALUE;
+        long hashMapTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTime = System.nanoTime();
+            long arraySum = runArrays(ballEngine, balls);
+            arrayTime = Math.min(arrayTime, System.nanoTime() - startTime);
+
+            startTime = System.nanoTime();
+            long hashMapSum = runHashMaps(hashMaps, balls);
+            hashMapTime = Math.min(hashMapTime, System.nanoTime() - startTime);
+
+            assertEquals(hashMapSum, arraySum);
+        }
+
+        System.out.println(totalBalls + " balls: " + (arrayTime / SUB_STEPS) + " ns per sub-step with slot arrays, "
+                + (hashMapTime / SUB_STEPS) + " ns with HashMaps");
+    }
+
+    //What every sub-step does with the counters: read each ball's, and clear them all for the next step
+    private long runArrays(BallEngine ballEngine, ArrayList<Ball> balls) {
+        long sum = 0;
+        for (int step = 0; step < SUB_STEPS; step++) {
+            for (int index = 0; index < balls.size(); index++) {
+                Ball ball = balls.get(index);
+                sum += ballEngine.getBallCollisionsThisStep(ball) + ballEngine.getBallCollisionsThisFrame(ball)
+                        + ballEngine.getBoundaryCollisionCountThisFrame(ball) + (long) ballEngine.getRollTimeForBall(ball);
+                ballEngine.clearFrameCollisionCount(ball);
+            }
+            ballEngine.clearCollisionHistories();
+        }
+        return sum;
+    }
+
+    private long runHashMaps(HashMapBookkeeping hashMaps, ArrayList<Ball> balls) {
+        long sum = 0;
+        for (int step = 0; step < SUB_STEPS; step++) {
+            for (int index = 0; index < balls.size(); index++) {
+                Ball ball = balls.get(index);
+                sum += hashMaps.getBallCollisionsThisStep(ball) + hashMaps.ballCollisionsThisFrame.get(ball)
+                        + hashMaps.boundaryCollisionsThisFrame.get(ball) + (long) (float) hashMaps.rollTimeMap.get(ball);
+                hashMaps.ballCollisionsThisFrame.put(ball, 0);
+                hashMaps.boundaryCollisionsThisFrame.put(ball, 0);
+            }
+            hashMaps.clearCollisionHistories();
+        }
+        return sum;
+    }
+
+    //Stands in for BallEngine's bookkeeping before the slot arrays (the counters it read and cleared every sub-step)
+    private static class HashMapBookkeeping {
+        private final ArrayList<Ball> mBalls;
+        private final HashMap<Ball, Integer> ballCollisionsThisStep = new HashMap<>();
+        private final HashMap<Ball, Integer> ballCollisionsThisFrame = new HashMap<>();
+        private final HashMap<Ball, Integer> boundaryCollisionsThisFrame = new HashMap<>();
+        private final HashMap<Ball, Float> rollTimeMap = new HashMap<>();
+
+        HashMapBookkeeping(ArrayList<Ball> balls) {
+            mBalls = balls;
+            for (Ball ball : balls) {
+                rollTimeMap.put(ball, 0f);
+            }
+            clearCollisionHistories();
+        }
+
+        int getBallCollisionsThisStep(Ball ball) {
+            Integer ballCollisions = ballCollisionsThisStep.get(ball);
+            if (ballCollisions == null) {
+                return 1;
+            }
+            return ballCollisions;
+        }
+
+        void clearCollisionHistories() {
+            ballCollisionsThisStep.clear();
+            for (Ball ball : mBalls) {
+                ballCollisionsThisFrame.put(ball, 0);
+                boundaryCollisionsThisFrame.put(ball, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.eli.myapplication.Logic;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Logic.Ball.BallEngine;
+import com.example.eli.myapplication.Model.Ball;
+import com.example.eli.myapplication.Model.Collision;
+import com.example.eli.myapplication.Model.Interactable;
+import com.example.eli.myapplication.Model.Obstacle;
+import com.example.eli.myapplication.Model.ObstacleGeometry;
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The time a ball meets an obstacle is the exact time on its (ballistic) path, not an estimate from how far
+ * it ended up inside: a root of the quadratic for a side, and the matching time for a vertex.
+ */
+public class TimeOfImpactTest {
+
+    private static final float TIME_STEP = 1f;
+    private static final float TOLERANCE = 0.0001f;
+
+    //A block with its top at y = 100 and its top left vertex at (100, 100)
+    private static final float BLOCK_LEFT = 100f;
+    private static final float BLOCK_TOP = 100f;
+    private static final float[] BLOCK_COORDS = {
+            BLOCK_LEFT, BLOCK_TOP, 0.0f,   // top left
+            BLOCK_LEFT, 0.0f, 0.0f,   // bottom left
+            150f, 0.0f, 0.0f,   // bottom right
+            150f, BLOCK_TOP, 0.0f }; // top right
+
+    private Ball mBall;
+    private Obstacle mBlock;
+    private BallEngine mBallEngine;
+    private CollisionDetection mCollisionDetection;
+
+    @Before
+    public void setUp() {
+        mBlock = new Obstacle(BLOCK_COORDS, 0);
+        mBlock.setInteractableId(0);
+
+        ArrayList<Interactable> allInteractableObjects = new ArrayList<>();
+        allInteractableObjects.add(mBlock);
+        new ObstacleGeometry(allInteractableObjects);
+
+        mBallEngine = new BallEngine(new float[12], 1);
+        mCollisionDetection = new CollisionDetection(mBallEngine, new SeparatingAxisCache(allInteractableObjects, 1));
+    }
+
+    @Test
+    public void fallingBallMeetsTopAtRootOfQuadratic() {
+        float startY = BLOCK_TOP + GameState.ballRadius + 2f;
+        float velocityY = -3f;
+        int result = fireBall(125f, startY, 0f, velocityY);
+
+        //startY + vy t + g t^2 / 2 = top + radius
+        double halfGravity = GameState.GRAVITY_CONSTANT.y / 2.0;
+        double gap = startY - (BLOCK_TOP + GameState.ballRadius);
+        double expected = (-velocityY - Math.sqrt((velocityY * velocityY) - (4 * halfGravity * gap))) / (2 * halfGravity);
+
+        assertEquals(CollisionDetection.COLLISION, result);
+        Collision collision = getOnlyCollision();
+        assertEquals(expected, collision.getTime(), TOLERANCE);
+        assertEquals(0f, collision.getBoundaryAxis().x, TOLERANCE);
+        assertEquals(1f, Math.abs(collision.getBoundaryAxis().y), TOLERANCE);
+    }
+
+    @Test
+    public void ballMeetsVertexWhenItsPathIsRadiusAway() {
+        float startX = 90f;
+        float startY = 108f;
+        float velocityX = 4f;
+        float velocityY = -1f;
+        int result = fireBall(startX, startY, velocityX, velocityY);
+
+        //The distance from the ball's center to the vertex only falls through the radius once in the step
+        double earliest = 0;
+        double latest = TIME_STEP;
+        for (int step = 0; step < 60; step++) {
+            double time = (earliest + latest) / 2;
+            double x = startX + (velocityX * time) - BLOCK_LEFT;
+            double y = startY + (velocityY * time) + (GameState.GRAVITY_CONSTANT.y * time * time / 2) - BLOCK_TOP;
+            if (Math.sqrt((x * x) + (y * y)) > GameState.ballRadius) {
+                earliest = time;
+            } else {
+                latest = time;
+            }
+        }
+
+        assertEquals(CollisionDetection.COLLISION, result);
+        Collision collision = getOnlyCollision();
+        assertEquals(latest, collision.getTime(), TOLERANCE);
+
+        //The axis points from the ball towards the vertex
+        PointF axis = collision.getBoundaryAxis();
+        assertEquals(1f, axis.length(), TOLERANCE);
+        assertTrue((axis.x > 0) && (axis.y < 0));
+    }
+
+    @Test
+    public void touchingBallMovingInCollidesAtStartOfStep() {
+        int result = fireBall(125f, BLOCK_TOP + GameState.ballRadius, 0f, -1f);
+
+        assertEquals(CollisionDetection.COLLISION, result);
+        assertEquals(0f, getOnlyCollision().getTime(), 0f);
+    }
+
+    @Test
+    public void touchingBallMovingOutCollidesWhenGravityBringsItBack() {
+        float velocityY = 0.05f;
+        int result = fireBall(125f, BLOCK_TOP + GameState.ballRadius, 0f, velocityY);
+
+        //vy t + g t^2 / 2 = 0
+        double expected = -2 * velocityY / GameState.GRAVITY_CONSTANT.y;
+
+        assertEquals(CollisionDetection.COLLISION, result);
+        assertEquals(expected, getOnlyCollision().getTime(), TOLERANCE);
+    }
+
+    @Test
+    public void overlappingBallMovingOutIsNotACollision() {
+        int result = fireBall(125f, BLOCK_TOP + GameState.ballRadius - 1f, 0f, 0.5f);
+
+        assertEquals(CollisionDetection.NO_COLLISION, result);
+        assertEquals(0, mCollisionDetection.getCollisions().size());
+    }
+
+    //Start an active ball at (x, y), move it through a step, and test it against the block
+    private int fireBall(float x, float y, float velocityX, float velocityY) {
+        float radius = GameState.ballRadius;
+        float[] ballCoords = {
+                x - radius, y + radius, 0.0f,   // top left
+                x - radius, y - radius, 0.0f,   // bottom left
+                x + radius, y - radius, 0.0f,   // bottom right
+                x + radius, y + radius, 0.0f }; // top right
+
+        mBall = new Ball(ballCoords, new PointF(velocityX, velocityY), radius, 0);
+        mBall.setBallSlot(0);
+        mBall.activateBall();
+
+        mBallEngine.moveByFrame(mBall, TIME_STEP);
+        return mCollisionDetection.doPolygonCollisionDetection(mBall, mBlock, TIME_STEP);
+    }
+
+    private Collision getOnlyCollision() {
+        assertEquals(1, mCollisionDetection.getCollisions().size());
+        return mCollisionDetection.getCollisions().get(0);
+    }
+}
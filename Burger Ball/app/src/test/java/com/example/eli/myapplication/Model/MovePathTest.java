@@ -0,0 +1,96 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Offsets and velocities along a path come straight from the frame number, so they have to line up wherever
+ * one movement (or one cycle) hands over to the next.
+ */
+public class MovePathTest {
+
+    private static final float TOLERANCE = 0.0001f;
+
+    private static final float[] BLOCK_COORDS = {
+            0f, 10f, 0.0f,   // top left
+            0f, 0f, 0.0f,   // bottom left
+            10f, 0f, 0.0f,   // bottom right
+            10f, 10f, 0.0f }; // top right
+
+    @Test
+    public void emptyPathStaysStill() {
+        MovePath path = new MovePath();
+        PointF offset = new PointF(1f, 1f);
+        PointF velocity = new PointF(1f, 1f);
+
+        path.getOffset(7, 0.25f, offset);
+        path.getVelocity(7, 0.25f, velocity);
+
+        assertEquals(0, path.getCycleFrames());
+        assertTrue(path.isClosed());
+        assertEquals(0f, offset.x, 0f);
+        assertEquals(0f, offset.y, 0f);
+        assertEquals(0f, velocity.x, 0f);
+        assertEquals(0f, velocity.y, 0f);
+    }
+
+    @Test
+    public void obstacleOnEmptyPathStaysStill() {
+        MovingObstacle obstacle = new MovingObstacle(BLOCK_COORDS, 0, new MovePath());
+        ArrayList<Interactable> allInteractableObjects = new ArrayList<>();
+        allInteractableObjects.add(obstacle);
+        new ObstacleGeometry(allInteractableObjects);
+
+        for (int frame = 0; frame < 5; frame++) {
+            obstacle.moveTempCoordsByFrame(GameState.FRAME_SIZE);
+            obstacle.moveByFrame(GameState.FRAME_SIZE);
+            obstacle.endFrame();
+        }
+        assertEquals(0f, obstacle.getOffsetX(), 0f);
+        assertEquals(0f, obstacle.getOffsetY(), 0f);
+    }
+
+    @Test
+    public void closedPathStartsOverWithoutJumping() {
+        MovePath path = new MovePath();
+        path.addMovement(new SingleMovement(new PointF(0.5f, 0.25f), 9));
+        path.addMovement(new SingleMovement(new PointF(-0.25f, -0.125f), 19));
+        assertTrue(path.isClosed());
+
+        //Where each frame ends has to be where the next one starts, including the last frame of the cycle
+        PointF end = new PointF();
+        PointF start = new PointF();
+        for (int frame = 0; frame < path.getCycleFrames() * 2; frame++) {
+            path.getOffset(frame, GameState.FRAME_SIZE, end);
+            path.getOffset(frame + 1, 0f, start);
+            assertEquals("frame " + frame, end.x, start.x, TOLERANCE);
+            assertEquals("frame " + frame, end.y, start.y, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void pathEndingElsewhereIsNotClosed() {
+        MovePath path = new MovePath();
+        path.addMovement(new SingleMovement(new PointF(0f, -1f), 50));
+        path.addMovement(new SingleMovement(new PointF(0f, 0.25f), 200));
+
+        assertFalse(path.isClosed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void obstacleNeedsClosedPath() {
+        MovePath path = new MovePath();
+        path.addMovement(new SingleMovement(new PointF(1f, 0f), 10));
+
+        new MovingObstacle(BLOCK_COORDS, 0, path);
+    }
+}
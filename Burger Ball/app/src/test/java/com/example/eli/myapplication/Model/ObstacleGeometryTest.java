@@ -0,0 +1,111 @@
+package com.example.eli.myapplication.Model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Obstacles of any vertex count share the one packed array, each with a record the size of its own shape.
+ */
+public class ObstacleGeometryTest {
+
+    private static final float TOLERANCE = 0.0001f;
+
+    private static final float[] TRIANGLE_COORDS = {
+            0f, 0f, 0.0f,
+            40f, 0f, 0.0f,
+            0f, 30f, 0.0f };
+
+    //A 20 x 10 rectangle turned 45 degrees
+    private static final float[] TILTED_QUAD_COORDS = {
+            100f, 100f, 0.0f,
+            114.142136f, 114.142136f, 0.0f,
+            107.071068f, 121.213203f, 0.0f,
+            92.928932f, 107.071068f, 0.0f };
+
+    private static final float[] PENTAGON_COORDS = {
+            200f, 0f, 0.0f,
+            220f, 0f, 0.0f,
+            230f, 20f, 0.0f,
+            210f, 40f, 0.0f,
+            190f, 20f, 0.0f };
+
+    @Test
+    public void everyObstacleKeepsItsOwnVertices() {
+        Obstacle triangle = new Obstacle(TRIANGLE_COORDS, 0);
+        Obstacle tiltedQuad = new Obstacle(TILTED_QUAD_COORDS, 0);
+        Obstacle pentagon = new Obstacle(PENTAGON_COORDS, 0);
+        pack(triangle, tiltedQuad, pentagon);
+
+        assertVertices(TRIANGLE_COORDS, triangle);
+        assertVertices(TILTED_QUAD_COORDS, tiltedQuad);
+        assertVertices(PENTAGON_COORDS, pentagon);
+    }
+
+    @Test
+    public void areaHoldsForAnyShape() {
+        Obstacle triangle = new Obstacle(TRIANGLE_COORDS, 0);
+        Obstacle tiltedQuad = new Obstacle(TILTED_QUAD_COORDS, 0);
+        Obstacle pentagon = new Obstacle(PENTAGON_COORDS, 0);
+        pack(triangle, tiltedQuad, pentagon);
+
+        assertEquals(600f, triangle.getArea(), TOLERANCE * 600f);
+        assertEquals(200f, tiltedQuad.getArea(), TOLERANCE * 200f);
+        //Split into the trapezoid below y = 20 and the triangle above it
+        assertEquals(600f + 400f, pentagon.getArea(), TOLERANCE * 1000f);
+    }
+
+    @Test
+    public void boundaryAxesAreUnitNormalsOfTheirSides() {
+        Obstacle pentagon = new Obstacle(PENTAGON_COORDS, 0);
+        pack(pentagon);
+
+        for (int index = 0; index < pentagon.getVertexCount(); index++) {
+            int next = (index + 1) % pentagon.getVertexCount();
+            float sideX = pentagon.getBaseVertexX(next) - pentagon.getBaseVertexX(index);
+            float sideY = pentagon.getBaseVertexY(next) - pentagon.getBaseVertexY(index);
+            float axisX = pentagon.getBoundaryAxisX(index);
+            float axisY = pentagon.getBoundaryAxisY(index);
+
+            assertEquals(1f, (float) Math.sqrt((axisX * axisX) + (axisY * axisY)), TOLERANCE);
+            assertEquals(0f, (axisX * sideX) + (axisY * sideY), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void drawCoordsComeFromThePackedVertices() {
+        Obstacle triangle = new Obstacle(TRIANGLE_COORDS, 0);
+        Obstacle pentagon = new Obstacle(PENTAGON_COORDS, 0);
+        pack(triangle, pentagon);
+
+        float[] drawCoords = new float[PENTAGON_COORDS.length];
+        pentagon.mGeometry.getDrawCoords(pentagon.mGeometryRecord, 5f, -3f, drawCoords);
+        for (int index = 0; index < pentagon.getVertexCount(); index++) {
+            assertEquals(PENTAGON_COORDS[index * 3] + 5f, drawCoords[index * 3], 0f);
+            assertEquals(PENTAGON_COORDS[(index * 3) + 1] - 3f, drawCoords[(index * 3) + 1], 0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void obstacleNeedsThreeVertices() {
+        pack(new Obstacle(new float[] { 0f, 0f, 0.0f, 10f, 10f, 0.0f }, 0));
+    }
+
+    private static void pack(Obstacle... obstacles) {
+        ArrayList<Interactable> allInteractableObjects = new ArrayList<>();
+        for (Obstacle obstacle : obstacles) {
+            allInteractableObjects.add(obstacle);
+        }
+        new ObstacleGeometry(allInteractableObjects);
+    }
+
+    private static void assertVertices(float[] coords, Obstacle obstacle) {
+        assertEquals(coords.length / 3, obstacle.getVertexCount());
+        for (int index = 0; index < obstacle.getVertexCount(); index++) {
+            assertEquals(coords[index * 3], obstacle.getBaseVertexX(index), 0f);
+            assertEquals(coords[(index * 3) + 1], obstacle.getBaseVertexY(index), 0f);
+        }
+    }
+}
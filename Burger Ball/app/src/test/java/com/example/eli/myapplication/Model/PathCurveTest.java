@@ -0,0 +1,193 @@
+package com.example.eli.myapplication.Model;
+
+import android.graphics.PointF;
+
+import com.example.eli.myapplication.Resources.GameState;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Curved movements are looked up by how far along the curve the obstacle is, so a curve's length, the points
+ * and directions along it, and its bounds all have to agree with the curve itself.
+ */
+public class PathCurveTest {
+
+    //Samples used to measure a curve the slow way
+    private static final int SAMPLES = 2000;
+
+    //An S bend, with both control points well outside the box the curve really covers
+    private static final BezierCurve S_BEND = new BezierCurve(120f, -80f, -40f, 160f, 60f, 60f);
+
+    //The same curves' points, worked out directly from their control points
+    private static final CurveFunction S_BEND_POINTS = new CurveFunction() {
+        @Override
+        public void getPoint(float t, PointF result) {
+            float mt = 1 - t;
+            result.set((3 * mt * mt * t * 120f) + (3 * mt * t * t * -40f) + (t * t * t * 60f),
+                    (3 * mt * mt * t * -80f) + (3 * mt * t * t * 160f) + (t * t * t * 60f));
+        }
+    };
+
+    private static final BezierCurve QUADRATIC = BezierCurve.quadratic(50f, 100f, 100f, 0f);
+
+    private static final CurveFunction QUADRATIC_POINTS = new CurveFunction() {
+        @Override
+        public void getPoint(float t, PointF result) {
+            float mt = 1 - t;
+            result.set((2 * mt * t * 50f) + (t * t * 100f), 2 * mt * t * 100f);
+        }
+    };
+
+    //Three quarters of a circle of radius 50, clockwise, around a center straight above the start
+    private static final ArcCurve ARC = new ArcCurve(0f, 50f, -270f);
+
+    @Test
+    public void lengthMatchesTheCurve() {
+        assertEquals(measureLength(S_BEND_POINTS), S_BEND.getLength(), measureLength(S_BEND_POINTS) * 0.002f);
+        assertEquals(measureLength(QUADRATIC_POINTS), QUADRATIC.getLength(), measureLength(QUADRATIC_POINTS) * 0.002f);
+        assertEquals((float) (50 * Math.PI * 1.5), ARC.getLength(), 0.001f);
+
+        //A straight line, drawn as a curve
+        BezierCurve line = new BezierCurve(10f, 20f, 20f, 40f, 30f, 60f);
+        assertEquals(PointF.length(30f, 60f), line.getLength(), 0.001f);
+    }
+
+    @Test
+    public void pointsAreEvenlySpacedAlongTheCurve() {
+        assertEvenlySpaced(S_BEND);
+        assertEvenlySpaced(QUADRATIC);
+        assertEvenlySpaced(ARC);
+    }
+
+    @Test
+    public void directionFollowsTheCurve() {
+        assertDirectionFollows(S_BEND);
+        assertDirectionFollows(QUADRATIC);
+        assertDirectionFollows(ARC);
+
+        //Clockwise around a center above the start means heading left to begin with
+        PointF direction = new PointF();
+        ARC.getDirection(0f, direction);
+        assertEquals(-1f, direction.x, 0.0001f);
+        assertEquals(0f, direction.y, 0.0001f);
+    }
+
+    @Test
+    public void boundsFitTheCurve() {
+        assertBoundsFit(S_BEND);
+        assertBoundsFit(QUADRATIC);
+        assertBoundsFit(ARC);
+
+        //Well inside the control points' box
+        assertTrue(S_BEND.getMaxX() < 100f);
+        assertTrue(S_BEND.getMinY() > -30f);
+    }
+
+    @Test
+    public void pathVelocityMatchesHowFastTheOffsetChanges() {
+        MovePath path = new MovePath();
+        path.addCubicCurve(new PointF(120f, -80f), new PointF(-40f, 160f), new PointF(60f, 60f), 99);
+        path.addArc(new PointF(-30f, 0f), 180f, 49);
+        path.addMovement(new SingleMovement(new PointF(0f, -0.4f), 299));
+
+        PointF before = new PointF();
+        PointF after = new PointF();
+        PointF velocity = new PointF();
+        float halfStep = 0.01f;
+        for (int frame = 0; frame < path.getCycleFrames(); frame++) {
+            path.getOffset(frame, (GameState.FRAME_SIZE / 2) - halfStep, before);
+            path.getOffset(frame, (GameState.FRAME_SIZE / 2) + halfStep, after);
+            path.getVelocity(frame, GameState.FRAME_SIZE / 2, velocity);
+
+            assertEquals("frame " + frame, (after.x - before.x) / (2 * halfStep), velocity.x, 0.05f);
+            assertEquals("frame " + frame, (after.y - before.y) / (2 * halfStep), velocity.y, 0.05f);
+        }
+    }
+
+    private interface CurveFunction {
+        //Point at parameter t (0 to 1), which doesn't move along the curve at a constant speed
+        void getPoint(float t, PointF result);
+    }
+
+    //Length along many straight pieces
+    private static float measureLength(CurveFunction curve) {
+        double length = 0;
+        PointF prev = new PointF();
+        PointF point = new PointF();
+        for (int index = 1; index <= SAMPLES; index++) {
+            curve.getPoint((float) index / SAMPLES, point);
+            length += PointF.length(point.x - prev.x, point.y - prev.y);
+            prev.set(point.x, point.y);
+        }
+        return (float) length;
+    }
+
+    //Equal fractions of the curve have to be equal distances along it (measured in short pieces, since the curve bends)
+    private static void assertEvenlySpaced(PathCurve curve) {
+        int pieces = 50;
+        int subPieces = 40;
+        float expected = curve.getLength() / pieces;
+        PointF prev = new PointF();
+        PointF point = new PointF();
+        curve.getPoint(0f, prev);
+        assertEquals(0f, prev.x, 0.0001f);
+        assertEquals(0f, prev.y, 0.0001f);
+
+        for (int index = 0; index < pieces; index++) {
+            float travelled = 0f;
+            for (int subPiece = 1; subPiece <= subPieces; subPiece++) {
+                curve.getPoint((index + ((float) subPiece / subPieces)) / pieces, point);
+                travelled += PointF.length(point.x - prev.x, point.y - prev.y);
+                prev.set(point.x, point.y);
+            }
+            assertEquals("piece " + index, expected, travelled, expected * 0.01f);
+        }
+    }
+
+    private static void assertDirectionFollows(PathCurve curve) {
+        PointF direction = new PointF();
+        PointF before = new PointF();
+        PointF after = new PointF();
+        float step = 0.001f;
+        for (int index = 1; index < 100; index++) {
+            float fraction = index / 100f;
+            curve.getDirection(fraction, direction);
+            curve.getPoint(fraction - step, before);
+            curve.getPoint(fraction + step, after);
+            float length = PointF.length(after.x - before.x, after.y - before.y);
+
+            assertEquals(1f, direction.length(), 0.0001f);
+            assertEquals("at " + fraction, (after.x - before.x) / length, direction.x, 0.01f);
+            assertEquals("at " + fraction, (after.y - before.y) / length, direction.y, 0.01f);
+        }
+    }
+
+    private static void assertBoundsFit(PathCurve curve) {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        PointF point = new PointF();
+        for (int index = 0; index <= SAMPLES; index++) {
+            curve.getPoint((float) index / SAMPLES, point);
+            minX = Math.min(minX, point.x);
+            maxX = Math.max(maxX, point.x);
+            minY = Math.min(minY, point.y);
+            maxY = Math.max(maxY, point.y);
+        }
+
+        //Every point is inside, and the curve reaches every side
+        float tolerance = 0.01f;
+        assertTrue(minX >= curve.getMinX() - tolerance);
+        assertTrue(maxX <= curve.getMaxX() + tolerance);
+        assertTrue(minY >= curve.getMinY() - tolerance);
+        assertTrue(maxY <= curve.getMaxY() + tolerance);
+        assertEquals(curve.getMinX(), minX, tolerance);
+        assertEquals(curve.getMaxX(), maxX, tolerance);
+        assertEquals(curve.getMinY(), minY, tolerance);
+        assertEquals(curve.getMaxY(), maxY, tolerance);
+    }
+}